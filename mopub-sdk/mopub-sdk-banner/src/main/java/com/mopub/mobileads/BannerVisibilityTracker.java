@@ -14,6 +14,7 @@ import android.view.View;
 import android.view.ViewTreeObserver;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibilityScheduler;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Dips;
@@ -21,13 +22,13 @@ import com.mopub.common.util.Views;
 
 import java.lang.ref.WeakReference;
 
-import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
  * Tracks banner views to determine when they become visible, where visibility is determined by
  * whether a minimum number of dips have been visible for a minimum duration, where both values are
- * configured by the AdServer via headers.
+ * configured by the AdServer via headers. Checks run as part of the {@link VisibilityScheduler}
+ * pass for the window.
  */
 class BannerVisibilityTracker {
     // Time interval to use for throttling visibility checks.
@@ -40,9 +41,14 @@ class BannerVisibilityTracker {
         void onVisibilityChanged();
     }
 
-    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
+    @NonNull @VisibleForTesting final VisibilityScheduler.Client mSchedulerClient;
     @NonNull @VisibleForTesting WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
 
+    /**
+     * Scheduler for mWeakViewTreeObserver, if there is one.
+     */
+    @Nullable @VisibleForTesting VisibilityScheduler mVisibilityScheduler;
+
     /**
      * Banner view that is being tracked.
      */
@@ -99,11 +105,10 @@ class BannerVisibilityTracker {
         mVisibilityHandler = new Handler();
         mVisibilityRunnable = new BannerVisibilityRunnable();
 
-        mOnPreDrawListener = new OnPreDrawListener() {
+        mSchedulerClient = new VisibilityScheduler.Client() {
             @Override
-            public boolean onPreDraw() {
-                scheduleVisibilityCheck();
-                return true;
+            public void onVisibilityPass() {
+                mVisibilityRunnable.run();
             }
         };
 
@@ -131,7 +136,7 @@ class BannerVisibilityTracker {
         }
 
         mWeakViewTreeObserver = new WeakReference<>(viewTreeObserver);
-        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+        mVisibilityScheduler = VisibilityScheduler.register(viewTreeObserver, mSchedulerClient);
     }
 
     @Nullable
@@ -152,9 +157,9 @@ class BannerVisibilityTracker {
     void destroy() {
         mVisibilityHandler.removeMessages(0);
         mIsVisibilityScheduled = false;
-        final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
-        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
-            viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
+        if (mVisibilityScheduler != null) {
+            mVisibilityScheduler.unregister(mSchedulerClient);
+            mVisibilityScheduler = null;
         }
         mWeakViewTreeObserver.clear();
         mBannerVisibilityTrackerListener = null;
@@ -168,7 +173,11 @@ class BannerVisibilityTracker {
         }
 
         mIsVisibilityScheduled = true;
-        mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
+        if (mVisibilityScheduler != null) {
+            mVisibilityScheduler.schedulePass();
+        } else {
+            mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
+        }
     }
 
     @NonNull
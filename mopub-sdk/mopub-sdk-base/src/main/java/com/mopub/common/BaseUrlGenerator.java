@@ -5,7 +5,6 @@
 package com.mopub.common;
 
 import android.graphics.Point;
-import android.net.Uri;
 import android.os.Build;
 import android.text.TextUtils;
 import android.view.DisplayCutout;
@@ -16,6 +15,7 @@ import androidx.annotation.Nullable;
 
 import com.mopub.network.Networking;
 import com.mopub.network.PlayServicesUrlRewriter;
+import com.mopub.network.RequestParams;
 
 public abstract class BaseUrlGenerator {
 
@@ -107,21 +107,24 @@ public abstract class BaseUrlGenerator {
      */
     private static final String WRAPPER_VERSION = "w_ver";
 
-    private StringBuilder mStringBuilder;
-    private boolean mFirstParam;
+    private String mUrlWithoutQuery;
+    private RequestParams mRequestParams;
     private static AppEngineInfo mAppEngineInfo = null;
     private static String sWrapperVersion;
 
     public abstract String generateUrlString(String serverHostname);
 
     protected void initUrlString(String serverHostname, String handlerType) {
-        mStringBuilder = new StringBuilder(Networking.getScheme()).append("://")
-                .append(serverHostname).append(handlerType);
-        mFirstParam = true;
+        mUrlWithoutQuery = Networking.getScheme() + "://" + serverHostname + handlerType;
+        mRequestParams = new RequestParams();
     }
 
     protected String getFinalUrlString() {
-        return mStringBuilder.toString();
+        final StringBuilder url = new StringBuilder(mUrlWithoutQuery.length()
+                + mRequestParams.size() * 24);
+        url.append(mUrlWithoutQuery);
+        mRequestParams.appendQuery(url);
+        return url.toString();
     }
 
     protected void addParam(String key, String value) {
@@ -129,10 +132,7 @@ public abstract class BaseUrlGenerator {
             return;
         }
 
-        mStringBuilder.append(getParamDelimiter());
-        mStringBuilder.append(key);
-        mStringBuilder.append("=");
-        mStringBuilder.append(Uri.encode(value));
+        mRequestParams.add(key, value);
     }
 
     protected void addParam(String key, Boolean value) {
@@ -140,18 +140,7 @@ public abstract class BaseUrlGenerator {
             return;
         }
 
-        mStringBuilder.append(getParamDelimiter());
-        mStringBuilder.append(key);
-        mStringBuilder.append("=");
-        mStringBuilder.append(value ? "1" : "0");
-    }
-
-    private String getParamDelimiter() {
-        if (mFirstParam) {
-            mFirstParam = false;
-            return "?";
-        }
-        return "&";
+        mRequestParams.add(key, value ? "1" : "0");
     }
 
     protected void setApiVersion(String apiVersion) {
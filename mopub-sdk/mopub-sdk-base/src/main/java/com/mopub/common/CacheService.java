@@ -17,10 +17,15 @@ import com.mopub.common.util.Utils;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import static com.mopub.common.DiskLruCache.open;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
@@ -30,11 +35,63 @@ public class CacheService {
         void onComplete(final String key, final byte[] content);
     }
 
+    /**
+     * A cached value that is read in place instead of being copied. The entry is pinned in the
+     * disk cache, so it is not evicted while this is open. Must be closed when the caller is done
+     * with it.
+     */
+    public static class MappedCacheEntry implements Closeable {
+        @NonNull private final DiskLruCache.Snapshot mSnapshot;
+        @Nullable private MappedByteBuffer mBuffer;
+
+        private MappedCacheEntry(@NonNull final DiskLruCache.Snapshot snapshot) {
+            mSnapshot = snapshot;
+        }
+
+        /**
+         * Maps the cached file read-only into memory the first time it is called.
+         *
+         * @return a read-only view of the cached bytes, positioned at the start. Each call
+         * returns an independent view of the same memory.
+         */
+        @NonNull
+        public synchronized ByteBuffer getBuffer() throws IOException {
+            if (mBuffer == null) {
+                mBuffer = mSnapshot.getChannel(DISK_CACHE_INDEX).map(
+                        FileChannel.MapMode.READ_ONLY, 0, getLength());
+            }
+            return mBuffer.asReadOnlyBuffer();
+        }
+
+        public long getLength() {
+            return mSnapshot.getLength(DISK_CACHE_INDEX);
+        }
+
+        /**
+         * @return a descriptor of the cached file that can be handed to APIs such as
+         * {@code MediaPlayer#setDataSource(FileDescriptor, long, long)} or
+         * {@code BitmapFactory#decodeFileDescriptor} so they read the file directly.
+         */
+        @NonNull
+        public FileDescriptor getFileDescriptor() throws IOException {
+            return mSnapshot.getFileDescriptor(DISK_CACHE_INDEX);
+        }
+
+        @Override
+        public void close() {
+            mSnapshot.close();
+        }
+    }
+
     static final String UNIQUE_CACHE_NAME = "mopub-cache";
     private static final int APP_VERSION = 1;
     // The number of values per cache entry. Must be positive.
     private static final int VALUE_COUNT = 1;
     private static final int DISK_CACHE_INDEX = 0;
+    // Existing text journals are migrated when the cache is opened.
+    private static final boolean BINARY_JOURNAL = true;
+    // Appended to the disk cache key of a value that is still being downloaded.
+    private static final String PARTIAL_KEY_SUFFIX = "-partial";
 
     private static DiskLruCache sDiskLruCache;
 
@@ -55,7 +112,8 @@ public class CacheService {
                         cacheDirectory,
                         APP_VERSION,
                         VALUE_COUNT,
-                        diskCacheSizeBytes
+                        diskCacheSizeBytes,
+                        BINARY_JOURNAL
                 );
             } catch (IOException e) {
                 MoPubLog.log(CUSTOM, "Unable to create DiskLruCache", e);
@@ -91,7 +149,11 @@ public class CacheService {
 
         try {
             final DiskLruCache.Snapshot snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
-            return snapshot != null;
+            if (snapshot == null) {
+                return false;
+            }
+            snapshot.close();
+            return true;
         } catch (Exception e) {
             return false;
         }
@@ -146,6 +208,28 @@ public class CacheService {
         return bytes;
     }
 
+    /**
+     * Opens the cached value for the key to be read in place. The caller must close the returned
+     * entry; until then the value stays in the cache.
+     *
+     * @return the entry, or null if the key is not cached
+     */
+    @Nullable
+    public static MappedCacheEntry getMappedFromDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return null;
+        }
+
+        try {
+            final DiskLruCache.Snapshot snapshot =
+                    sDiskLruCache.getPinned(createValidDiskCacheKey(key));
+            return snapshot == null ? null : new MappedCacheEntry(snapshot);
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "Unable to pin in DiskLruCache", e);
+            return null;
+        }
+    }
+
     public static void getFromDiskCacheAsync(final String key, final DiskLruCacheGetListener diskLruCacheGetListener) {
         new DiskLruCacheGetTask(key, diskLruCacheGetListener).execute();
     }
@@ -190,6 +274,84 @@ public class CacheService {
         return true;
     }
 
+    /**
+     * @return the number of bytes of the key's partially downloaded value, or 0 if there is none
+     */
+    public static long getPartialLengthDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return 0;
+        }
+
+        try {
+            final DiskLruCache.Snapshot snapshot = sDiskLruCache.get(createPartialDiskCacheKey(key));
+            if (snapshot == null) {
+                return 0;
+            }
+            final long length = snapshot.getLength(DISK_CACHE_INDEX);
+            snapshot.close();
+            return length;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Starts an edit of the key's partially downloaded value. The value is kept separately from
+     * the key's complete value until {@link #completePartialDiskCache(String)} is called.
+     *
+     * @return the editor, or null if the cache is unavailable or the partial value is already
+     * being edited
+     */
+    @Nullable
+    public static DiskLruCache.Editor editPartialDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return null;
+        }
+
+        try {
+            return sDiskLruCache.edit(createPartialDiskCacheKey(key));
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "Unable to edit partial value in DiskLruCache", e);
+            return null;
+        }
+    }
+
+    /**
+     * Makes the key's committed partial value its complete value, without copying it.
+     *
+     * @return true if the value was moved
+     */
+    public static boolean completePartialDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return false;
+        }
+
+        try {
+            return sDiskLruCache.rename(createPartialDiskCacheKey(key),
+                    createValidDiskCacheKey(key));
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "Unable to complete partial value in DiskLruCache", e);
+            return false;
+        }
+    }
+
+    public static void removePartialDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return;
+        }
+
+        try {
+            sDiskLruCache.remove(createPartialDiskCacheKey(key));
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "Unable to remove partial value from DiskLruCache", e);
+        }
+    }
+
+    @NonNull
+    private static String createPartialDiskCacheKey(final String key) {
+        return createValidDiskCacheKey(key) + PARTIAL_KEY_SUFFIX;
+    }
+
     public static void putToDiskCacheAsync(final String key, final byte[] content) {
         new DiskLruCachePutTask(key, content).execute();
     }
@@ -18,10 +18,9 @@ package com.mopub.common;
 
 import androidx.annotation.NonNull;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
-import java.io.EOFException;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -31,15 +30,23 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -81,6 +88,12 @@ import java.util.regex.Pattern;
  * observe the value at the time that {@link #get} was called. Updates and
  * removals after the call do not impact ongoing reads.
  *
+ * <p>Reads of committed entries do not take the cache-wide lock. Their LRU
+ * promotion and journal record are queued and applied by the next writer or by
+ * the background thread. Edits are exclusive per key through the entry's
+ * editor, and the file renames of a commit also happen outside the cache-wide
+ * lock, which is only held for bookkeeping and journal writes.
+ *
  * <p>This class is tolerant of some I/O errors. If files are missing from the
  * filesystem, the corresponding entries will be dropped from the cache. If
  * an error occurs while writing a cache value, the edit will fail silently.
@@ -91,14 +104,24 @@ public final class DiskLruCache implements Closeable {
   static final String JOURNAL_FILE = "journal";
   static final String JOURNAL_FILE_TEMP = "journal.tmp";
   static final String JOURNAL_FILE_BACKUP = "journal.bkp";
-  static final String MAGIC = "libcore.io.DiskLruCache";
-  static final String VERSION_1 = "1";
+  /*
+   * The binary journal has files of its own, so versions of this cache that
+   * only know the text journal never try to read it. They start a new text
+   * journal instead of finding a corrupt one and deleting the directory.
+   */
+  static final String BINARY_JOURNAL_FILE = "journal.bin";
+  static final String BINARY_JOURNAL_FILE_TEMP = "journal.bin.tmp";
+  static final String BINARY_JOURNAL_FILE_BACKUP = "journal.bin.bkp";
   static final long ANY_SEQUENCE_NUMBER = -1;
   static final Pattern LEGAL_KEY_PATTERN = Pattern.compile("[a-z0-9_-]{1,64}");
-  private static final String CLEAN = "CLEAN";
-  private static final String DIRTY = "DIRTY";
-  private static final String REMOVE = "REMOVE";
-  private static final String READ = "READ";
+  private static final int CLEAN = DiskLruCacheJournal.CLEAN;
+  private static final int DIRTY = DiskLruCacheJournal.DIRTY;
+  private static final int REMOVE = DiskLruCacheJournal.REMOVE;
+  private static final int READ = DiskLruCacheJournal.READ;
+  /** Number of lock-free reads to queue before their journal records are written. */
+  private static final int PENDING_READS_FLUSH_THRESHOLD = 64;
+  /** Number of times a lock-free read is retried when it races with a commit. */
+  private static final int MAX_READ_ATTEMPTS = 8;
 
     /*
      * This cache uses a journal file named "journal". A typical journal file
@@ -138,6 +161,10 @@ public final class DiskLruCache implements Closeable {
      * occasionally be compacted by dropping redundant lines. A temporary file named
      * "journal.tmp" will be used during compaction; that file should be deleted if
      * it exists when the cache is opened.
+     *
+     * Caches opened with a binary journal store the same records in the
+     * compact format described in DiskLruCacheJournal, in "journal.bin". A
+     * journal in the other format is migrated when the cache is opened.
      */
 
   private final File directory;
@@ -147,10 +174,24 @@ public final class DiskLruCache implements Closeable {
   private final int appVersion;
   private long maxSize;
   private final int valueCount;
-  private long size = 0;
-  private Writer journalWriter;
+  private final int journalFormat;
+  private volatile long size = 0;
+  private DiskLruCacheJournal.Writer journalWriter;
+  /**
+   * Records written while the journal is being compacted, or null if it
+   * isn't. They are appended to the compacted journal before it replaces the
+   * current one.
+   */
+  private List<JournalRecord> compactionTail;
+  private volatile boolean closed;
   private final LinkedHashMap<String, Entry> lruEntries =
       new LinkedHashMap<String, Entry>(0, 0.75f, true);
+  /** Same entries as lruEntries, for lookups that don't hold the lock. */
+  private final ConcurrentHashMap<String, Entry> entries =
+      new ConcurrentHashMap<String, Entry>();
+  /** Keys read without the lock whose READ journal records are still pending. */
+  private final ConcurrentLinkedQueue<String> pendingReads = new ConcurrentLinkedQueue<String>();
+  private final AtomicInteger pendingReadCount = new AtomicInteger();
   private int redundantOpCount;
 
   /**
@@ -165,28 +206,34 @@ public final class DiskLruCache implements Closeable {
       new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
   private final Callable<Void> cleanupCallable = new Callable<Void>() {
     public Void call() throws Exception {
+      boolean compact;
       synchronized (DiskLruCache.this) {
         if (journalWriter == null) {
           return null; // Closed.
         }
         trimToSize();
-        if (journalRebuildRequired()) {
-          rebuildJournal();
-          redundantOpCount = 0;
-        }
+        compact = journalRebuildRequired();
+      }
+      if (compact) {
+        compactJournal();
       }
       return null;
     }
   };
 
-  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize) {
+  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize,
+      int journalFormat) {
     this.directory = directory;
     this.appVersion = appVersion;
-    this.journalFile = new File(directory, JOURNAL_FILE);
-    this.journalFileTmp = new File(directory, JOURNAL_FILE_TEMP);
-    this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+    boolean binary = journalFormat == DiskLruCacheJournal.FORMAT_BINARY;
+    this.journalFile = new File(directory, binary ? BINARY_JOURNAL_FILE : JOURNAL_FILE);
+    this.journalFileTmp =
+        new File(directory, binary ? BINARY_JOURNAL_FILE_TEMP : JOURNAL_FILE_TEMP);
+    this.journalFileBackup =
+        new File(directory, binary ? BINARY_JOURNAL_FILE_BACKUP : JOURNAL_FILE_BACKUP);
     this.valueCount = valueCount;
     this.maxSize = maxSize;
+    this.journalFormat = journalFormat;
   }
 
   /**
@@ -200,6 +247,23 @@ public final class DiskLruCache implements Closeable {
    */
   public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize)
       throws IOException {
+    return open(directory, appVersion, valueCount, maxSize, false);
+  }
+
+  /**
+   * Opens the cache in {@code directory}, creating a cache if none exists
+   * there.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param binaryJournal true to keep the journal in the compact binary
+   *     format, false for the text format. An existing journal in the other
+   *     format is migrated.
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      boolean binaryJournal) throws IOException {
     if (maxSize <= 0) {
       throw new IllegalArgumentException("maxSize <= 0");
     }
@@ -207,26 +271,42 @@ public final class DiskLruCache implements Closeable {
       throw new IllegalArgumentException("valueCount <= 0");
     }
 
-    // If a bkp file exists, use it instead.
-    File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
-    if (backupFile.exists()) {
-      File journalFile = new File(directory, JOURNAL_FILE);
-      // If journal file also exists just delete backup file.
-      if (journalFile.exists()) {
-        backupFile.delete();
-      } else {
-        renameTo(backupFile, journalFile, false);
-      }
-    }
+    restoreBackup(directory, JOURNAL_FILE, JOURNAL_FILE_BACKUP);
+    restoreBackup(directory, BINARY_JOURNAL_FILE, BINARY_JOURNAL_FILE_BACKUP);
+
+    int journalFormat = binaryJournal
+        ? DiskLruCacheJournal.FORMAT_BINARY
+        : DiskLruCacheJournal.FORMAT_TEXT;
 
     // Prefer to pick up where we left off.
-    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
-    if (cache.journalFile.exists()) {
+    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, journalFormat);
+    File otherJournalFile = new File(directory, binaryJournal ? JOURNAL_FILE : BINARY_JOURNAL_FILE);
+    // A journal in the other format is migrated. When both exist, the newer
+    // one is read: a version of this cache that only knows the text journal
+    // may have used the directory since the binary journal was written.
+    File sourceFile = cache.journalFile;
+    if (otherJournalFile.exists() && (!sourceFile.exists()
+        || otherJournalFile.lastModified() > sourceFile.lastModified())) {
+      sourceFile = otherJournalFile;
+    }
+    if (sourceFile.exists()) {
       try {
-        cache.readJournal();
+        DiskLruCacheJournal.ReadResult result = cache.readJournal(sourceFile);
         cache.processJournal();
-        cache.journalWriter = new BufferedWriter(
-            new OutputStreamWriter(new FileOutputStream(cache.journalFile, true), DiskLruCacheUtil.US_ASCII));
+        cache.publishEntries();
+        if (sourceFile != cache.journalFile || result.truncated
+            || result.format != journalFormat) {
+          // Records can't safely be appended after a partial one, and a
+          // journal in the other format is migrated by rewriting it.
+          cache.rebuildJournal();
+        } else {
+          cache.journalWriter = DiskLruCacheJournal.append(cache.journalFile, journalFormat);
+        }
+        if (otherJournalFile.exists()) {
+          // Values only the journal that wasn't read refers to would never be
+          // evicted. This also deletes that journal.
+          cache.deleteUnreferencedFiles();
+        }
         return cache;
       } catch (IOException journalIsCorrupt) {
         System.out
@@ -241,60 +321,42 @@ public final class DiskLruCache implements Closeable {
 
     // Create a new empty cache.
     directory.mkdirs();
-    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, journalFormat);
     cache.rebuildJournal();
     return cache;
   }
 
-  private void readJournal() throws IOException {
-    DiskLruCacheStrictLineReader reader = new DiskLruCacheStrictLineReader(new FileInputStream(journalFile), DiskLruCacheUtil.US_ASCII);
-    try {
-      String magic = reader.readLine();
-      String version = reader.readLine();
-      String appVersionString = reader.readLine();
-      String valueCountString = reader.readLine();
-      String blank = reader.readLine();
-      if (!MAGIC.equals(magic)
-          || !VERSION_1.equals(version)
-          || !Integer.toString(appVersion).equals(appVersionString)
-          || !Integer.toString(valueCount).equals(valueCountString)
-          || !"".equals(blank)) {
-        throw new IOException("unexpected journal header: [" + magic + ", " + version + ", "
-            + valueCountString + ", " + blank + "]");
-      }
-
-      int lineCount = 0;
-      while (true) {
-        try {
-          readJournalLine(reader.readLine());
-          lineCount++;
-        } catch (EOFException endOfJournal) {
-          break;
-        }
+  /** Restores the journal from its backup if it was being replaced. */
+  private static void restoreBackup(File directory, String journalName, String backupName)
+      throws IOException {
+    File backupFile = new File(directory, backupName);
+    if (backupFile.exists()) {
+      File journalFile = new File(directory, journalName);
+      // If journal file also exists just delete backup file.
+      if (journalFile.exists()) {
+        backupFile.delete();
+      } else {
+        renameTo(backupFile, journalFile, false);
       }
-      redundantOpCount = lineCount - lruEntries.size();
-    } finally {
-      DiskLruCacheUtil.closeQuietly(reader);
     }
   }
 
-  private void readJournalLine(String line) throws IOException {
-    int firstSpace = line.indexOf(' ');
-    if (firstSpace == -1) {
-      throw new IOException("unexpected journal line: " + line);
-    }
+  private DiskLruCacheJournal.ReadResult readJournal(File file) throws IOException {
+    DiskLruCacheJournal.ReadResult result = DiskLruCacheJournal.read(file, appVersion,
+        valueCount, new DiskLruCacheJournal.RecordHandler() {
+          @Override
+          public void onRecord(int op, String key, long[] lengths) {
+            applyJournalRecord(op, key, lengths);
+          }
+        });
+    redundantOpCount = result.recordCount - lruEntries.size();
+    return result;
+  }
 
-    int keyBegin = firstSpace + 1;
-    int secondSpace = line.indexOf(' ', keyBegin);
-    final String key;
-    if (secondSpace == -1) {
-      key = line.substring(keyBegin);
-      if (firstSpace == REMOVE.length() && line.startsWith(REMOVE)) {
-        lruEntries.remove(key);
-        return;
-      }
-    } else {
-      key = line.substring(keyBegin, secondSpace);
+  private void applyJournalRecord(int op, String key, long[] lengths) {
+    if (op == REMOVE) {
+      lruEntries.remove(key);
+      return;
     }
 
     Entry entry = lruEntries.get(key);
@@ -303,18 +365,14 @@ public final class DiskLruCache implements Closeable {
       lruEntries.put(key, entry);
     }
 
-    if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
-      String[] parts = line.substring(secondSpace + 1).split(" ");
+    if (op == CLEAN) {
       entry.readable = true;
       entry.currentEditor = null;
-      entry.setLengths(parts);
-    } else if (secondSpace == -1 && firstSpace == DIRTY.length() && line.startsWith(DIRTY)) {
+      System.arraycopy(lengths, 0, entry.lengths, 0, valueCount);
+    } else if (op == DIRTY) {
       entry.currentEditor = new Editor(entry);
-    } else if (secondSpace == -1 && firstSpace == READ.length() && line.startsWith(READ)) {
-      // This work was already done by calling lruEntries.get().
-    } else {
-      throw new IOException("unexpected journal line: " + line);
     }
+    // READ records need no work: it was already done by calling lruEntries.get().
   }
 
   /**
@@ -340,6 +398,43 @@ public final class DiskLruCache implements Closeable {
     }
   }
 
+  /**
+   * Deletes the files in the directory that are neither this cache's journal
+   * nor a value of one of its entries.
+   */
+  private void deleteUnreferencedFiles() throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Set<String> referenced = new HashSet<String>();
+    referenced.add(journalFile.getName());
+    referenced.add(journalFileTmp.getName());
+    referenced.add(journalFileBackup.getName());
+    for (Entry entry : lruEntries.values()) {
+      for (int i = 0; i < valueCount; i++) {
+        referenced.add(entry.getCleanFile(i).getName());
+      }
+    }
+    for (File file : files) {
+      if (file.isFile() && !referenced.contains(file.getName())) {
+        deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Makes the entries read from the journal visible to lock-free readers.
+   */
+  private void publishEntries() {
+    for (Entry entry : lruEntries.values()) {
+      if (entry.readable) {
+        entry.cleanState = new CleanState(entry.sequenceNumber, entry.lengths.clone());
+      }
+      entries.put(entry.key, entry);
+    }
+  }
+
   /**
    * Creates a new journal that omits redundant information. This replaces the
    * current journal if it exists.
@@ -349,38 +444,99 @@ public final class DiskLruCache implements Closeable {
       journalWriter.close();
     }
 
-    Writer writer = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFileTmp), DiskLruCacheUtil.US_ASCII));
+    DiskLruCacheJournal.Writer writer =
+        DiskLruCacheJournal.create(journalFileTmp, journalFormat, appVersion, valueCount);
     try {
-      writer.write(MAGIC);
-      writer.write("\n");
-      writer.write(VERSION_1);
-      writer.write("\n");
-      writer.write(Integer.toString(appVersion));
-      writer.write("\n");
-      writer.write(Integer.toString(valueCount));
-      writer.write("\n");
-      writer.write("\n");
-
       for (Entry entry : lruEntries.values()) {
         if (entry.currentEditor != null) {
-          writer.write(DIRTY + ' ' + entry.key + '\n');
+          writer.writeRecord(DIRTY, entry.key, null);
         } else {
-          writer.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+          writer.writeRecord(CLEAN, entry.key, entry.lengths);
         }
       }
     } finally {
       writer.close();
     }
 
+    replaceJournal();
+  }
+
+  /**
+   * Like {@link #rebuildJournal}, but the new journal is written without
+   * holding the lock. Records written in the meantime are collected in
+   * {@link #compactionTail} and appended to the new journal before it
+   * replaces the current one, so only that short step blocks other threads.
+   */
+  private void compactJournal() throws IOException {
+    List<JournalRecord> records;
+    synchronized (this) {
+      if (journalWriter == null || compactionTail != null) {
+        return;
+      }
+      records = new ArrayList<JournalRecord>(lruEntries.size());
+      for (Entry entry : lruEntries.values()) {
+        if (entry.currentEditor != null) {
+          records.add(new JournalRecord(DIRTY, entry.key, null));
+        } else {
+          records.add(new JournalRecord(CLEAN, entry.key, entry.lengths.clone()));
+        }
+      }
+      compactionTail = new ArrayList<JournalRecord>();
+    }
+
+    DiskLruCacheJournal.Writer writer = null;
+    try {
+      writer = DiskLruCacheJournal.create(journalFileTmp, journalFormat, appVersion, valueCount);
+      for (JournalRecord record : records) {
+        writer.writeRecord(record.op, record.key, record.lengths);
+      }
+
+      synchronized (this) {
+        if (journalWriter == null) {
+          // Closed meanwhile. The temporary file is deleted on the next open.
+          return;
+        }
+        for (JournalRecord record : compactionTail) {
+          writer.writeRecord(record.op, record.key, record.lengths);
+        }
+        writer.close();
+        writer = null;
+
+        journalWriter.close();
+        replaceJournal();
+        redundantOpCount = compactionTail.size();
+      }
+    } finally {
+      if (writer != null) {
+        DiskLruCacheUtil.closeQuietly(writer);
+      }
+      synchronized (this) {
+        compactionTail = null;
+      }
+    }
+  }
+
+  /** Moves the journal written to {@link #journalFileTmp} into place and appends to it. */
+  private void replaceJournal() throws IOException {
     if (journalFile.exists()) {
       renameTo(journalFile, journalFileBackup, true);
     }
     renameTo(journalFileTmp, journalFile, false);
     journalFileBackup.delete();
 
-    journalWriter = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFile, true), DiskLruCacheUtil.US_ASCII));
+    journalWriter = DiskLruCacheJournal.append(journalFile, journalFormat);
+  }
+
+  /**
+   * Writes a record to the journal and, while the journal is being compacted,
+   * remembers it for the compacted journal. Must be called while holding the
+   * lock on an open cache.
+   */
+  private void writeJournalRecord(int op, String key, long[] lengths) throws IOException {
+    journalWriter.writeRecord(op, key, lengths);
+    if (compactionTail != null) {
+      compactionTail.add(new JournalRecord(op, key, lengths != null ? lengths.clone() : null));
+    }
   }
 
   private static void deleteIfExists(File file) throws IOException {
@@ -402,46 +558,179 @@ public final class DiskLruCache implements Closeable {
    * Returns a snapshot of the entry named {@code key}, or null if it doesn't
    * exist is not currently readable. If a value is returned, it is moved to
    * the head of the LRU queue.
+   *
+   * <p>This does not take the cache-wide lock. A commit that races with the
+   * read is detected through the entry's version and the read is retried.
    */
-  public synchronized Snapshot get(String key) throws IOException {
+  public Snapshot get(String key) throws IOException {
     checkNotClosed();
     validateKey(key);
-    Entry entry = lruEntries.get(key);
+
+    for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+
+      int version = entry.version;
+      if ((version & 1) != 0) {
+        // A commit is moving files into place or the entry was removed.
+        Thread.yield();
+        continue;
+      }
+
+      CleanState cleanState = entry.cleanState;
+      if (cleanState == null) {
+        return null;
+      }
+
+      // Open all streams eagerly to guarantee that we see a single published
+      // snapshot. If we opened streams lazily then the streams could come
+      // from different edits.
+      InputStream[] ins = openCleanFiles(entry);
+
+      if (entry.version != version) {
+        closeAll(ins);
+        continue;
+      }
+      if (ins == null) {
+        // A file must have been deleted manually!
+        return null;
+      }
+
+      recordRead(key);
+      return new Snapshot(entry, cleanState.sequenceNumber, ins, cleanState.lengths);
+    }
+    // Commits kept the entry busy on every attempt. Wait for the one in progress
+    // rather than reporting a miss for an entry that exists.
+    return getWhileHoldingEntryLock(key);
+  }
+
+  /**
+   * Reads the entry while holding its lock, which commits hold while its
+   * version is odd. An odd version seen here means the entry was removed.
+   */
+  private Snapshot getWhileHoldingEntryLock(String key) throws IOException {
+    Entry entry = entries.get(key);
     if (entry == null) {
       return null;
     }
+    synchronized (entry) {
+      CleanState cleanState = entry.cleanState;
+      if ((entry.version & 1) != 0 || cleanState == null) {
+        return null;
+      }
+      InputStream[] ins = openCleanFiles(entry);
+      if (ins == null) {
+        return null;
+      }
+      recordRead(key);
+      return new Snapshot(entry, cleanState.sequenceNumber, ins, cleanState.lengths);
+    }
+  }
 
-    if (!entry.readable) {
-      return null;
+  /**
+   * Like {@link #get}, but the entry is also pinned: it is not evicted to
+   * make room for other entries until the returned snapshot is closed. Use
+   * this for snapshots whose files are read or mapped for a long time.
+   *
+   * <p>The pin is taken while holding the cache-wide lock that eviction
+   * holds, so the entry can't be evicted between being found and pinned.
+   */
+  public Snapshot getPinned(String key) throws IOException {
+    checkNotClosed();
+    validateKey(key);
+
+    for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      // Commits move files holding the entry's lock, and take the cache-wide
+      // lock after it, so the locks are taken in the same order here.
+      synchronized (entry) {
+        synchronized (this) {
+          if (lruEntries.get(key) != entry) {
+            // Replaced or removed since it was looked up.
+            continue;
+          }
+          CleanState cleanState = entry.cleanState;
+          if ((entry.version & 1) != 0 || cleanState == null) {
+            return null;
+          }
+          InputStream[] ins = openCleanFiles(entry);
+          if (ins == null) {
+            return null;
+          }
+          entry.pinCount++;
+          recordRead(key);
+          Snapshot snapshot = new Snapshot(entry, cleanState.sequenceNumber, ins,
+              cleanState.lengths);
+          snapshot.pinned = true;
+          return snapshot;
+        }
+      }
+    }
+    return null;
+  }
+
+  private synchronized void unpin(Entry entry) {
+    entry.pinCount--;
+    if (entry.pinCount == 0 && size > maxSize && journalWriter != null) {
+      executorService.submit(cleanupCallable);
     }
+  }
 
-    // Open all streams eagerly to guarantee that we see a single published
-    // snapshot. If we opened streams lazily then the streams could come
-    // from different edits.
+  /** Returns streams for all of the entry's clean files, or null if any is missing. */
+  private InputStream[] openCleanFiles(Entry entry) {
     InputStream[] ins = new InputStream[valueCount];
     try {
       for (int i = 0; i < valueCount; i++) {
         ins[i] = new FileInputStream(entry.getCleanFile(i));
       }
     } catch (FileNotFoundException e) {
-      // A file must have been deleted manually!
-      for (int i = 0; i < valueCount; i++) {
-        if (ins[i] != null) {
-          DiskLruCacheUtil.closeQuietly(ins[i]);
-        } else {
-          break;
-        }
-      }
+      closeAll(ins);
       return null;
     }
+    return ins;
+  }
+
+  private static void closeAll(InputStream[] ins) {
+    if (ins == null) {
+      return;
+    }
+    for (InputStream in : ins) {
+      if (in != null) {
+        DiskLruCacheUtil.closeQuietly(in);
+      }
+    }
+  }
 
-    redundantOpCount++;
-    journalWriter.append(READ + ' ' + key + '\n');
-    if (journalRebuildRequired()) {
+  /**
+   * Queues the READ journal record of a lock-free read. The background thread
+   * writes the queued records once enough of them have piled up.
+   */
+  private void recordRead(String key) {
+    pendingReads.add(key);
+    if (pendingReadCount.incrementAndGet() == PENDING_READS_FLUSH_THRESHOLD) {
       executorService.submit(cleanupCallable);
     }
+  }
 
-    return new Snapshot(key, entry.sequenceNumber, ins, entry.lengths);
+  /**
+   * Applies queued reads to the LRU order and the journal. Must be called
+   * while holding the lock on an open cache.
+   */
+  private void drainPendingReads() throws IOException {
+    String key;
+    while ((key = pendingReads.poll()) != null) {
+      pendingReadCount.decrementAndGet();
+      Entry entry = lruEntries.get(key);
+      if (entry != null && entry.readable) {
+        redundantOpCount++;
+        writeJournalRecord(READ, key, null);
+      }
+    }
   }
 
   /**
@@ -463,6 +752,7 @@ public final class DiskLruCache implements Closeable {
     if (entry == null) {
       entry = new Entry(key);
       lruEntries.put(key, entry);
+      entries.put(key, entry);
     } else if (entry.currentEditor != null) {
       return null; // Another edit is in progress.
     }
@@ -471,7 +761,7 @@ public final class DiskLruCache implements Closeable {
     entry.currentEditor = editor;
 
     // Flush the journal before creating files to prevent file leaks.
-    journalWriter.write(DIRTY + ' ' + key + '\n');
+    writeJournalRecord(DIRTY, key, null);
     journalWriter.flush();
     return editor;
   }
@@ -503,62 +793,100 @@ public final class DiskLruCache implements Closeable {
    * this cache. This may be greater than the max size if a background
    * deletion is pending.
    */
-  public synchronized long size() {
+  public long size() {
     return size;
   }
 
-  private synchronized void completeEdit(Editor editor, boolean success) throws IOException {
+  private void completeEdit(Editor editor, boolean success) throws IOException {
     Entry entry = editor.entry;
-    if (entry.currentEditor != editor) {
-      throw new IllegalStateException();
-    }
+    synchronized (this) {
+      if (entry.currentEditor != editor || editor.completing) {
+        throw new IllegalStateException();
+      }
 
-    // If this edit is creating the entry for the first time, every index must have a value.
-    if (success && !entry.readable) {
-      for (int i = 0; i < valueCount; i++) {
-        if (!editor.written[i]) {
-          editor.abort();
-          throw new IllegalStateException("Newly created entry didn't create value for index " + i);
-        }
-        if (!entry.getDirtyFile(i).exists()) {
-          editor.abort();
-          return;
+      // If this edit is creating the entry for the first time, every index must have a value.
+      if (success && !entry.readable) {
+        for (int i = 0; i < valueCount; i++) {
+          if (!editor.written[i]) {
+            editor.abort();
+            throw new IllegalStateException("Newly created entry didn't create value for index " + i);
+          }
+          if (!entry.getDirtyFile(i).exists()) {
+            editor.abort();
+            return;
+          }
         }
       }
+      editor.completing = true;
     }
 
-    for (int i = 0; i < valueCount; i++) {
-      File dirty = entry.getDirtyFile(i);
-      if (success) {
-        if (dirty.exists()) {
-          File clean = entry.getCleanFile(i);
-          dirty.renameTo(clean);
-          long oldLength = entry.lengths[i];
-          long newLength = clean.length();
-          entry.lengths[i] = newLength;
-          size = size - oldLength + newLength;
+    synchronized (entry) {
+      // Nobody else can edit or remove the entry while it has an editor, so the
+      // files are moved into place without holding the cache-wide lock. Lock-free
+      // readers see the odd version and retry, and readers that keep seeing it
+      // wait on the entry's lock for the commit to finish.
+      long[] newLengths = new long[valueCount];
+      boolean[] changed = new boolean[valueCount];
+      entry.version++;
+      try {
+        for (int i = 0; i < valueCount; i++) {
+          File dirty = entry.getDirtyFile(i);
+          if (success) {
+            if (dirty.exists()) {
+              File clean = entry.getCleanFile(i);
+              dirty.renameTo(clean);
+              newLengths[i] = clean.length();
+              changed[i] = true;
+            }
+          } else {
+            deleteIfExists(dirty);
+          }
         }
-      } else {
-        deleteIfExists(dirty);
+      } catch (IOException e) {
+        synchronized (this) {
+          editor.completing = false;
+        }
+        entry.version++;
+        throw e;
       }
-    }
 
-    redundantOpCount++;
-    entry.currentEditor = null;
-    if (entry.readable | success) {
-      entry.readable = true;
-      journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
-      if (success) {
-        entry.sequenceNumber = nextSequenceNumber++;
-      }
-    } else {
-      lruEntries.remove(entry.key);
-      journalWriter.write(REMOVE + ' ' + entry.key + '\n');
-    }
-    journalWriter.flush();
+      synchronized (this) {
+        if (journalWriter == null) {
+          // The cache was closed while the files were being moved. Without a
+          // CLEAN record the files are discarded the next time the cache opens.
+          entry.currentEditor = null;
+          return;
+        }
 
-    if (size > maxSize || journalRebuildRequired()) {
-      executorService.submit(cleanupCallable);
+        for (int i = 0; i < valueCount; i++) {
+          if (changed[i]) {
+            size = size - entry.lengths[i] + newLengths[i];
+            entry.lengths[i] = newLengths[i];
+          }
+        }
+
+        redundantOpCount++;
+        entry.currentEditor = null;
+        if (entry.readable | success) {
+          entry.readable = true;
+          writeJournalRecord(CLEAN, entry.key, entry.lengths);
+          if (success) {
+            entry.sequenceNumber = nextSequenceNumber++;
+          }
+          entry.cleanState = new CleanState(entry.sequenceNumber, entry.lengths.clone());
+          entry.version++;
+        } else {
+          // Leave the version odd so that readers holding this entry look it up again.
+          lruEntries.remove(entry.key);
+          entries.remove(entry.key);
+          writeJournalRecord(REMOVE, entry.key, null);
+        }
+        journalWriter.flush();
+
+        if (size > maxSize || journalRebuildRequired()) {
+          executorService.submit(cleanupCallable);
+        }
+      }
     }
   }
 
@@ -596,8 +924,12 @@ public final class DiskLruCache implements Closeable {
     }
 
     redundantOpCount++;
-    journalWriter.append(REMOVE + ' ' + key + '\n');
+    writeJournalRecord(REMOVE, key, null);
     lruEntries.remove(key);
+    entries.remove(key);
+    // Leave the version odd so that readers holding this entry look it up again.
+    entry.version |= 1;
+    entry.cleanState = null;
 
     if (journalRebuildRequired()) {
       executorService.submit(cleanupCallable);
@@ -606,13 +938,63 @@ public final class DiskLruCache implements Closeable {
     return true;
   }
 
+  /**
+   * Moves the entry named {@code from} to {@code to} by renaming its files,
+   * replacing any entry named {@code to}. Neither entry may be being edited.
+   *
+   * @return true if the entry was moved.
+   */
+  public synchronized boolean rename(String from, String to) throws IOException {
+    checkNotClosed();
+    validateKey(from);
+    validateKey(to);
+    Entry source = lruEntries.get(from);
+    if (source == null || !source.readable || source.currentEditor != null || from.equals(to)) {
+      return false;
+    }
+    Entry target = lruEntries.get(to);
+    if (target != null && (target.currentEditor != null || !remove(to))) {
+      return false;
+    }
+
+    // Readers of either key see the odd version and look the entry up again.
+    source.version |= 1;
+    source.cleanState = null;
+    lruEntries.remove(from);
+    entries.remove(from);
+
+    Entry entry = new Entry(to);
+    for (int i = 0; i < valueCount; i++) {
+      File file = source.getCleanFile(i);
+      if (file.exists()) {
+        renameTo(file, entry.getCleanFile(i), true);
+      }
+      entry.lengths[i] = source.lengths[i];
+    }
+    entry.readable = true;
+    entry.sequenceNumber = nextSequenceNumber++;
+    entry.cleanState = new CleanState(entry.sequenceNumber, entry.lengths.clone());
+    lruEntries.put(to, entry);
+    entries.put(to, entry);
+
+    redundantOpCount += 2;
+    writeJournalRecord(REMOVE, from, null);
+    writeJournalRecord(CLEAN, to, entry.lengths);
+    journalWriter.flush();
+
+    if (journalRebuildRequired()) {
+      executorService.submit(cleanupCallable);
+    }
+    return true;
+  }
+
   /** Returns true if this cache has been closed. */
   public synchronized boolean isClosed() {
     return journalWriter == null;
   }
 
   private void checkNotClosed() {
-    if (journalWriter == null) {
+    if (closed) {
       throw new IllegalStateException("cache is closed");
     }
   }
@@ -630,19 +1012,33 @@ public final class DiskLruCache implements Closeable {
       return; // Already closed.
     }
     for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
-      if (entry.currentEditor != null) {
+      // Edits that are already being committed finish on their own thread.
+      if (entry.currentEditor != null && !entry.currentEditor.completing) {
         entry.currentEditor.abort();
       }
     }
     trimToSize();
     journalWriter.close();
     journalWriter = null;
+    closed = true;
   }
 
   private void trimToSize() throws IOException {
+    drainPendingReads();
     while (size > maxSize) {
-      Map.Entry<String, Entry> toEvict = lruEntries.entrySet().iterator().next();
-      remove(toEvict.getKey());
+      // Entries that are being edited can't be removed and pinned entries
+      // must stay, so evict the least recently used entry that is neither.
+      String toEvict = null;
+      for (Map.Entry<String, Entry> entry : lruEntries.entrySet()) {
+        if (entry.getValue().currentEditor == null && entry.getValue().pinCount == 0) {
+          toEvict = entry.getKey();
+          break;
+        }
+      }
+      if (toEvict == null) {
+        return;
+      }
+      remove(toEvict);
     }
   }
 
@@ -669,13 +1065,18 @@ public final class DiskLruCache implements Closeable {
 
   /** A snapshot of the values for an entry. */
   public final class Snapshot implements Closeable {
+    private final Entry entry;
     private final String key;
     private final long sequenceNumber;
     private final InputStream[] ins;
     private final long[] lengths;
 
-    private Snapshot(String key, long sequenceNumber, InputStream[] ins, long[] lengths) {
-      this.key = key;
+    /** True while this snapshot holds a pin on its entry. Guarded by the cache. */
+    private boolean pinned;
+
+    private Snapshot(Entry entry, long sequenceNumber, InputStream[] ins, long[] lengths) {
+      this.entry = entry;
+      this.key = entry.key;
       this.sequenceNumber = sequenceNumber;
       this.ins = ins;
       this.lengths = lengths;
@@ -695,6 +1096,23 @@ public final class DiskLruCache implements Closeable {
       return ins[index];
     }
 
+    /**
+     * Returns a channel over the file with the value for {@code index}. The
+     * channel shares its position with {@link #getInputStream} and is closed
+     * with this snapshot.
+     */
+    public FileChannel getChannel(int index) {
+      return ((FileInputStream) ins[index]).getChannel();
+    }
+
+    /**
+     * Returns the descriptor of the file with the value for {@code index}, for
+     * APIs that read the file themselves. It is closed with this snapshot.
+     */
+    public FileDescriptor getFileDescriptor(int index) throws IOException {
+      return ((FileInputStream) ins[index]).getFD();
+    }
+
     /** Returns the string value for {@code index}. */
     public String getString(int index) throws IOException {
       return inputStreamToString(getInputStream(index));
@@ -709,6 +1127,13 @@ public final class DiskLruCache implements Closeable {
       for (InputStream in : ins) {
         DiskLruCacheUtil.closeQuietly(in);
       }
+      synchronized (DiskLruCache.this) {
+        if (!pinned) {
+          return;
+        }
+        pinned = false;
+        unpin(entry);
+      }
     }
   }
 
@@ -725,6 +1150,8 @@ public final class DiskLruCache implements Closeable {
     private final boolean[] written;
     private boolean hasErrors;
     private boolean committed;
+    /** Set under the lock once completeEdit starts moving this edit's files. */
+    private boolean completing;
 
     private Editor(Entry entry) {
       this.entry = entry;
@@ -793,6 +1220,61 @@ public final class DiskLruCache implements Closeable {
       }
     }
 
+    /**
+     * Returns a channel to write the value at {@code index} at arbitrary
+     * positions, for example from several threads at once. If
+     * {@code keepCleanValue} is true, the channel starts out with a copy of
+     * the last committed value, if any; otherwise it starts out empty.
+     * Unlike {@link #newOutputStream}, the channel throws IOExceptions and
+     * the caller decides whether to commit or abort.
+     */
+    public FileChannel newChannel(int index, boolean keepCleanValue) throws IOException {
+      boolean copyCleanValue;
+      synchronized (DiskLruCache.this) {
+        if (entry.currentEditor != this) {
+          throw new IllegalStateException();
+        }
+        if (!entry.readable) {
+          written[index] = true;
+        }
+        copyCleanValue = keepCleanValue && entry.readable;
+      }
+
+      // The clean file can't change while this edit is in progress, so it is
+      // copied without holding the lock.
+      directory.mkdirs();
+      FileChannel channel = new RandomAccessFile(entry.getDirtyFile(index), "rw").getChannel();
+      try {
+        channel.truncate(0);
+        if (copyCleanValue) {
+          FileInputStream clean = new FileInputStream(entry.getCleanFile(index));
+          try {
+            FileChannel cleanChannel = clean.getChannel();
+            long size = cleanChannel.size();
+            long copied = 0;
+            while (copied < size) {
+              copied += channel.transferFrom(cleanChannel, copied, size - copied);
+            }
+          } finally {
+            DiskLruCacheUtil.closeQuietly(clean);
+          }
+        }
+      } catch (IOException e) {
+        DiskLruCacheUtil.closeQuietly(channel);
+        throw e;
+      }
+      return channel;
+    }
+
+    /**
+     * Returns the file that this edit writes the value at {@code index} to.
+     * It may be read while the edit is in progress, but is moved or deleted
+     * when the edit is committed or aborted.
+     */
+    public File getDirtyFile(int index) {
+      return entry.getDirtyFile(index);
+    }
+
     /** Sets the value at {@code index} to {@code value}. */
     public void set(int index, String value) throws IOException {
       Writer writer = null;
@@ -874,6 +1356,30 @@ public final class DiskLruCache implements Closeable {
     }
   }
 
+  /** A journal record kept in memory while the journal is compacted. */
+  private static final class JournalRecord {
+    private final int op;
+    private final String key;
+    private final long[] lengths;
+
+    private JournalRecord(int op, String key, long[] lengths) {
+      this.op = op;
+      this.key = key;
+      this.lengths = lengths;
+    }
+  }
+
+  /** Committed values of an entry, as published to lock-free readers. */
+  private static final class CleanState {
+    private final long sequenceNumber;
+    private final long[] lengths;
+
+    private CleanState(long sequenceNumber, long[] lengths) {
+      this.sequenceNumber = sequenceNumber;
+      this.lengths = lengths;
+    }
+  }
+
   private final class Entry {
     private final String key;
 
@@ -889,36 +1395,22 @@ public final class DiskLruCache implements Closeable {
     /** The sequence number of the most recently committed edit to this entry. */
     private long sequenceNumber;
 
-    private Entry(String key) {
-      this.key = key;
-      this.lengths = new long[valueCount];
-    }
+    /** The number of open snapshots that keep this entry from being evicted. */
+    private int pinCount;
 
-    public String getLengths() throws IOException {
-      StringBuilder result = new StringBuilder();
-      for (long size : lengths) {
-        result.append(' ').append(size);
-      }
-      return result.toString();
-    }
-
-    /** Set lengths using decimal numbers like "10123". */
-    private void setLengths(String[] strings) throws IOException {
-      if (strings.length != valueCount) {
-        throw invalidLengths(strings);
-      }
+    /** The last committed state, or null if this entry is not readable. */
+    private volatile CleanState cleanState;
 
-      try {
-        for (int i = 0; i < strings.length; i++) {
-          lengths[i] = Long.parseLong(strings[i]);
-        }
-      } catch (NumberFormatException e) {
-        throw invalidLengths(strings);
-      }
-    }
+    /**
+     * Odd while a commit is moving files into place and after the entry has
+     * been removed. Lock-free readers compare it before and after opening
+     * files to detect a concurrent commit.
+     */
+    private volatile int version;
 
-    private IOException invalidLengths(String[] strings) throws IOException {
-      throw new IOException("unexpected journal line: " + java.util.Arrays.toString(strings));
+    private Entry(String key) {
+      this.key = key;
+      this.lengths = new long[valueCount];
     }
 
     public File getCleanFile(int i) {
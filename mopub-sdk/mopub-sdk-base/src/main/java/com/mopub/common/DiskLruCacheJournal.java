@@ -0,0 +1,344 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Reads and writes the records of a {@link DiskLruCache} journal.
+ *
+ * <p>Two formats are supported. The text format is the original line based
+ * format described in {@link DiskLruCache}. The binary format has the same
+ * records, but each one is a single operation byte, a length-prefixed ASCII
+ * key and, for CLEAN records, the value lengths as unsigned varints:
+ * <pre>
+ *     header: 'D' 'L' 'R' 'U', format version (1 byte),
+ *             app version (4 bytes), value count (4 bytes)
+ *     record: op (1 byte), key length (1 byte), key, [lengths]
+ * </pre>
+ * Reading the binary format needs no line splitting, string matching or
+ * number parsing, which dominate opening a cache with many entries.
+ */
+final class DiskLruCacheJournal {
+  static final int FORMAT_TEXT = 1;
+  static final int FORMAT_BINARY = 2;
+
+  static final int DIRTY = 1;
+  static final int CLEAN = 2;
+  static final int REMOVE = 3;
+  static final int READ = 4;
+
+  static final String TEXT_MAGIC = "libcore.io.DiskLruCache";
+  static final String TEXT_VERSION = "1";
+  static final int BINARY_MAGIC = 0x444c5255; // "DLRU"
+  static final int BINARY_VERSION = 1;
+
+  private static final String[] TEXT_OPS = {null, "DIRTY", "CLEAN", "REMOVE", "READ"};
+
+  /** Receives the records of a journal in the order they were written. */
+  interface RecordHandler {
+    /**
+     * @param lengths the value lengths of a CLEAN record, null for all other
+     *     records.
+     */
+    void onRecord(int op, String key, long[] lengths) throws IOException;
+  }
+
+  /** Result of reading a journal. */
+  static final class ReadResult {
+    final int format;
+    final int recordCount;
+    /** True if the journal ends with a partially written record. */
+    final boolean truncated;
+
+    private ReadResult(int format, int recordCount, boolean truncated) {
+      this.format = format;
+      this.recordCount = recordCount;
+      this.truncated = truncated;
+    }
+  }
+
+  /** Appends records to a journal file. */
+  abstract static class Writer implements Closeable, Flushable {
+    abstract void writeHeader(int appVersion, int valueCount) throws IOException;
+
+    abstract void writeRecord(int op, String key, long[] lengths) throws IOException;
+  }
+
+  private DiskLruCacheJournal() {
+  }
+
+  /**
+   * Creates {@code file}, writes the journal header and returns a writer for
+   * the records that follow it.
+   */
+  static Writer create(File file, int format, int appVersion, int valueCount) throws IOException {
+    Writer writer = newWriter(new FileOutputStream(file), format);
+    try {
+      writer.writeHeader(appVersion, valueCount);
+    } catch (IOException e) {
+      DiskLruCacheUtil.closeQuietly(writer);
+      throw e;
+    }
+    return writer;
+  }
+
+  /** Returns a writer that appends records to the existing journal {@code file}. */
+  static Writer append(File file, int format) throws IOException {
+    return newWriter(new FileOutputStream(file, true), format);
+  }
+
+  private static Writer newWriter(FileOutputStream out, int format) {
+    return format == FORMAT_BINARY ? new BinaryWriter(out) : new TextWriter(out);
+  }
+
+  /**
+   * Reads every record of the journal in {@code file}, which may be in
+   * either format.
+   *
+   * @throws IOException if the journal can't be read, its header doesn't
+   *     match {@code appVersion} and {@code valueCount}, or it contains a
+   *     malformed record.
+   */
+  static ReadResult read(File file, int appVersion, int valueCount, RecordHandler handler)
+      throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      in.mark(4);
+      int first = in.read();
+      in.reset();
+      if (first == (BINARY_MAGIC >>> 24)) {
+        return readBinary(new DataInputStream(in), appVersion, valueCount, handler);
+      }
+      return readText(in, appVersion, valueCount, handler);
+    } finally {
+      DiskLruCacheUtil.closeQuietly(in);
+    }
+  }
+
+  private static ReadResult readText(InputStream in, int appVersion, int valueCount,
+      RecordHandler handler) throws IOException {
+    DiskLruCacheStrictLineReader reader =
+        new DiskLruCacheStrictLineReader(in, DiskLruCacheUtil.US_ASCII);
+    String magic = reader.readLine();
+    String version = reader.readLine();
+    String appVersionString = reader.readLine();
+    String valueCountString = reader.readLine();
+    String blank = reader.readLine();
+    if (!TEXT_MAGIC.equals(magic)
+        || !TEXT_VERSION.equals(version)
+        || !Integer.toString(appVersion).equals(appVersionString)
+        || !Integer.toString(valueCount).equals(valueCountString)
+        || !"".equals(blank)) {
+      throw new IOException("unexpected journal header: [" + magic + ", " + version + ", "
+          + valueCountString + ", " + blank + "]");
+    }
+
+    int recordCount = 0;
+    while (true) {
+      String line;
+      try {
+        line = reader.readLine();
+      } catch (EOFException endOfJournal) {
+        return new ReadResult(FORMAT_TEXT, recordCount, reader.hasUnterminatedLine());
+      }
+      readTextLine(line, valueCount, handler);
+      recordCount++;
+    }
+  }
+
+  private static void readTextLine(String line, int valueCount, RecordHandler handler)
+      throws IOException {
+    int firstSpace = line.indexOf(' ');
+    if (firstSpace == -1) {
+      throw new IOException("unexpected journal line: " + line);
+    }
+
+    int keyBegin = firstSpace + 1;
+    int secondSpace = line.indexOf(' ', keyBegin);
+    String key = secondSpace == -1 ? line.substring(keyBegin) : line.substring(keyBegin, secondSpace);
+
+    int op = 0;
+    for (int i = 1; i < TEXT_OPS.length; i++) {
+      if (firstSpace == TEXT_OPS[i].length() && line.startsWith(TEXT_OPS[i])) {
+        op = i;
+        break;
+      }
+    }
+
+    if (op == CLEAN && secondSpace != -1) {
+      String[] parts = line.substring(secondSpace + 1).split(" ");
+      if (parts.length != valueCount) {
+        throw new IOException("unexpected journal line: " + line);
+      }
+      long[] lengths = new long[valueCount];
+      try {
+        for (int i = 0; i < valueCount; i++) {
+          lengths[i] = Long.parseLong(parts[i]);
+        }
+      } catch (NumberFormatException e) {
+        throw new IOException("unexpected journal line: " + line);
+      }
+      handler.onRecord(op, key, lengths);
+    } else if (op != 0 && op != CLEAN && secondSpace == -1) {
+      handler.onRecord(op, key, null);
+    } else {
+      throw new IOException("unexpected journal line: " + line);
+    }
+  }
+
+  private static ReadResult readBinary(DataInputStream in, int appVersion, int valueCount,
+      RecordHandler handler) throws IOException {
+    int magic;
+    int version;
+    int appVersionValue;
+    int valueCountValue;
+    try {
+      magic = in.readInt();
+      version = in.readUnsignedByte();
+      appVersionValue = in.readInt();
+      valueCountValue = in.readInt();
+    } catch (EOFException e) {
+      throw new IOException("truncated journal header");
+    }
+    if (magic != BINARY_MAGIC
+        || version != BINARY_VERSION
+        || appVersionValue != appVersion
+        || valueCountValue != valueCount) {
+      throw new IOException("unexpected journal header: [" + Integer.toHexString(magic) + ", "
+          + version + ", " + appVersionValue + ", " + valueCountValue + "]");
+    }
+
+    byte[] keyBuffer = new byte[255];
+    int recordCount = 0;
+    while (true) {
+      int op = in.read();
+      if (op == -1) {
+        return new ReadResult(FORMAT_BINARY, recordCount, false);
+      }
+      if (op < DIRTY || op > READ) {
+        throw new IOException("unexpected journal record: " + op);
+      }
+
+      try {
+        int keyLength = in.readUnsignedByte();
+        in.readFully(keyBuffer, 0, keyLength);
+        String key = new String(keyBuffer, 0, keyLength, DiskLruCacheUtil.US_ASCII);
+        long[] lengths = null;
+        if (op == CLEAN) {
+          lengths = new long[valueCount];
+          for (int i = 0; i < valueCount; i++) {
+            lengths[i] = readVarLong(in);
+          }
+        }
+        handler.onRecord(op, key, lengths);
+      } catch (EOFException e) {
+        return new ReadResult(FORMAT_BINARY, recordCount, true);
+      }
+      recordCount++;
+    }
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      result |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("malformed journal length");
+  }
+
+  private static final class TextWriter extends Writer {
+    private final java.io.Writer out;
+
+    private TextWriter(FileOutputStream out) {
+      this.out = new BufferedWriter(new OutputStreamWriter(out, DiskLruCacheUtil.US_ASCII));
+    }
+
+    @Override void writeHeader(int appVersion, int valueCount) throws IOException {
+      out.write(TEXT_MAGIC + "\n" + TEXT_VERSION + "\n" + appVersion + "\n" + valueCount + "\n\n");
+    }
+
+    @Override void writeRecord(int op, String key, long[] lengths) throws IOException {
+      out.write(TEXT_OPS[op]);
+      out.write(' ');
+      out.write(key);
+      if (lengths != null) {
+        for (long length : lengths) {
+          out.write(' ');
+          out.write(Long.toString(length));
+        }
+      }
+      out.write('\n');
+    }
+
+    @Override public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  private static final class BinaryWriter extends Writer {
+    private final DataOutputStream out;
+
+    private BinaryWriter(FileOutputStream out) {
+      this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    @Override void writeHeader(int appVersion, int valueCount) throws IOException {
+      out.writeInt(BINARY_MAGIC);
+      out.writeByte(BINARY_VERSION);
+      out.writeInt(appVersion);
+      out.writeInt(valueCount);
+    }
+
+    @Override void writeRecord(int op, String key, long[] lengths) throws IOException {
+      out.writeByte(op);
+      // Keys are validated to be at most 64 ASCII characters.
+      out.writeByte(key.length());
+      out.writeBytes(key);
+      if (lengths != null) {
+        for (long length : lengths) {
+          writeVarLong(length);
+        }
+      }
+    }
+
+    private void writeVarLong(long value) throws IOException {
+      while ((value & ~0x7fL) != 0) {
+        out.writeByte((int) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      out.writeByte((int) value);
+    }
+
+    @Override public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override public void close() throws IOException {
+      out.close();
+    }
+  }
+}
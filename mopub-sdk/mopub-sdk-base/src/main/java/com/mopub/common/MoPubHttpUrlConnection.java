@@ -27,6 +27,11 @@ public abstract class MoPubHttpUrlConnection extends HttpURLConnection {
         super(url);
     }
 
+    /**
+     * Opens a connection to the url through the {@link com.mopub.network.HttpTransport} of the
+     * SDK. Releasing it with {@link com.mopub.network.HttpTransport#release(HttpURLConnection)}
+     * once its response has been read lets the connection be reused, but isn't required.
+     */
     public static HttpURLConnection getHttpUrlConnection(@NonNull final String url)
             throws IOException {
         Preconditions.checkNotNull(url);
@@ -47,7 +52,7 @@ public abstract class MoPubHttpUrlConnection extends HttpURLConnection {
         }
 
         final HttpURLConnection urlConnection =
-                (HttpURLConnection) new URL(getUrl).openConnection();
+                Networking.getHttpTransport().openConnection(new URL(getUrl));
         urlConnection.setRequestProperty("user-agent", Networking.getCachedUserAgent());
         urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
         urlConnection.setReadTimeout(READ_TIMEOUT);
@@ -11,6 +11,7 @@ import androidx.annotation.Nullable;
 
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.network.Networking;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -94,21 +95,24 @@ public class UrlResolutionTask extends AsyncTask<String, Void, String> {
 
         HttpURLConnection httpUrlConnection = null;
         try {
-            httpUrlConnection = (HttpURLConnection) url.openConnection();
+            httpUrlConnection = Networking.getHttpTransport().openConnection(url);
             httpUrlConnection.setInstanceFollowRedirects(false);
 
             return resolveRedirectLocation(urlString, httpUrlConnection);
         } finally {
             if (httpUrlConnection != null) {
-                final InputStream is = httpUrlConnection.getInputStream();
-                if (is != null) {
-                    try {
-                        is.close();
-                    } catch (IOException e) {
-                        MoPubLog.log(CUSTOM, "IOException when closing httpUrlConnection. Ignoring.");
+                try {
+                    final InputStream is = httpUrlConnection.getInputStream();
+                    if (is != null) {
+                        try {
+                            is.close();
+                        } catch (IOException e) {
+                            MoPubLog.log(CUSTOM, "IOException when closing httpUrlConnection. Ignoring.");
+                        }
                     }
+                } finally {
+                    Networking.getHttpTransport().release(httpUrlConnection);
                 }
-                httpUrlConnection.disconnect();
             }
         }
     }
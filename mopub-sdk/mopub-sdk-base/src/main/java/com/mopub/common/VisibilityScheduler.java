@@ -0,0 +1,229 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import android.view.ViewTreeObserver;
+
+import com.mopub.common.logging.MoPubLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static android.view.ViewTreeObserver.OnPreDrawListener;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Runs the visibility checks of every tracker in a window together. There is one scheduler per
+ * {@link ViewTreeObserver}, and it is the only thing registered with that observer no matter how
+ * many trackers use it. Whenever the window is about to draw, or a tracker asks for a check, the
+ * scheduler runs a single throttled pass over all of its {@link Client}s.
+ * <p/>
+ * This must only be used from the main thread.
+ */
+public class VisibilityScheduler {
+    // Time interval to use for throttling visibility passes.
+    @VisibleForTesting static final int PASS_THROTTLE_MILLIS = 100;
+
+    /**
+     * A tracker that checks its views on every pass.
+     */
+    public interface Client {
+        void onVisibilityPass();
+    }
+
+    @NonNull
+    private static final Map<ViewTreeObserver, VisibilityScheduler> sSchedulers =
+            new WeakHashMap<ViewTreeObserver, VisibilityScheduler>();
+
+    // Weak, since this is the value for the observer in sSchedulers.
+    @NonNull private final WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
+    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
+    @NonNull private final Handler mPassHandler;
+    @NonNull private final Runnable mPassRunnable;
+    @NonNull private final ArrayList<Client> mClients;
+    // Copy of mClients for the current pass, so that clients can be added or removed during it.
+    // Created once to avoid allocating on every pass.
+    @NonNull private final ArrayList<Client> mPassClients;
+    private boolean mIsPassScheduled;
+
+    private long mPassCount;
+    private long mLastPassNanos;
+    private long mMaxPassNanos;
+    private long mTotalPassNanos;
+
+    /**
+     * Adds a client to the scheduler for this view tree observer, creating it if needed.
+     *
+     * @return the scheduler, which the client should {@link #unregister(Client)} from when done
+     */
+    @NonNull
+    public static VisibilityScheduler register(@NonNull final ViewTreeObserver viewTreeObserver,
+            @NonNull final Client client) {
+        Preconditions.checkNotNull(viewTreeObserver);
+        Preconditions.checkNotNull(client);
+
+        VisibilityScheduler scheduler = sSchedulers.get(viewTreeObserver);
+        if (scheduler == null) {
+            scheduler = new VisibilityScheduler(viewTreeObserver,
+                    new Handler(Looper.getMainLooper()));
+            sSchedulers.put(viewTreeObserver, scheduler);
+        }
+        scheduler.addClient(client);
+        return scheduler;
+    }
+
+    @VisibleForTesting
+    VisibilityScheduler(@NonNull final ViewTreeObserver viewTreeObserver,
+            @NonNull final Handler passHandler) {
+        mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(viewTreeObserver);
+        mPassHandler = passHandler;
+        mClients = new ArrayList<Client>();
+        mPassClients = new ArrayList<Client>();
+
+        mOnPreDrawListener = new OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                schedulePass();
+                return true;
+            }
+        };
+        mPassRunnable = new Runnable() {
+            @Override
+            public void run() {
+                runPass();
+            }
+        };
+    }
+
+    private void addClient(@NonNull final Client client) {
+        if (mClients.contains(client)) {
+            return;
+        }
+
+        if (mClients.isEmpty()) {
+            final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
+            if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
+                viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+            }
+        }
+        mClients.add(client);
+    }
+
+    /**
+     * Removes a client. Once the last client is gone the scheduler stops listening to the view
+     * tree observer, and a later {@link #register(ViewTreeObserver, Client)} creates a new one.
+     */
+    public void unregister(@NonNull final Client client) {
+        if (!mClients.remove(client) || !mClients.isEmpty()) {
+            return;
+        }
+
+        mPassHandler.removeCallbacks(mPassRunnable);
+        mIsPassScheduled = false;
+
+        final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
+        if (viewTreeObserver != null) {
+            if (viewTreeObserver.isAlive()) {
+                viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
+            }
+            if (sSchedulers.get(viewTreeObserver) == this) {
+                sSchedulers.remove(viewTreeObserver);
+            }
+        }
+        mWeakViewTreeObserver.clear();
+
+        if (mPassCount > 0) {
+            MoPubLog.log(CUSTOM, "Visibility scheduler ran " + mPassCount + " passes, averaging "
+                    + getAveragePassMicros() + " us and at most " + mMaxPassNanos / 1000
+                    + " us per pass.");
+        }
+    }
+
+    /**
+     * Runs a pass over all clients soon, unless one is already scheduled.
+     */
+    public void schedulePass() {
+        // Tracking this directly instead of calling hasMessages directly because we measured that
+        // this led to slightly better performance.
+        if (mIsPassScheduled) {
+            return;
+        }
+
+        mIsPassScheduled = true;
+        mPassHandler.postDelayed(mPassRunnable, PASS_THROTTLE_MILLIS);
+    }
+
+    @VisibleForTesting
+    void runPass() {
+        mIsPassScheduled = false;
+
+        final long startNanos = System.nanoTime();
+        mPassClients.addAll(mClients);
+        for (final Client client : mPassClients) {
+            // Skip clients removed by an earlier client during this pass
+            if (mClients.contains(client)) {
+                client.onVisibilityPass();
+            }
+        }
+        mPassClients.clear();
+
+        mLastPassNanos = System.nanoTime() - startNanos;
+        mMaxPassNanos = Math.max(mMaxPassNanos, mLastPassNanos);
+        mTotalPassNanos += mLastPassNanos;
+        mPassCount++;
+    }
+
+    /**
+     * @return the number of passes run so far
+     */
+    public long getPassCount() {
+        return mPassCount;
+    }
+
+    /**
+     * @return the time the most recent pass took, in nanoseconds
+     */
+    public long getLastPassNanos() {
+        return mLastPassNanos;
+    }
+
+    /**
+     * @return the time the longest pass took, in nanoseconds
+     */
+    public long getMaxPassNanos() {
+        return mMaxPassNanos;
+    }
+
+    /**
+     * @return the time all passes took together, in nanoseconds
+     */
+    public long getTotalPassNanos() {
+        return mTotalPassNanos;
+    }
+
+    /**
+     * @return the average time a pass took, in microseconds, or 0 if there have been none
+     */
+    public long getAveragePassMicros() {
+        return mPassCount == 0 ? 0 : mTotalPassNanos / mPassCount / 1000;
+    }
+
+    @VisibleForTesting
+    int getClientCount() {
+        return mClients.size();
+    }
+
+    @Nullable
+    @VisibleForTesting
+    static VisibilityScheduler getScheduler(@NonNull final ViewTreeObserver viewTreeObserver) {
+        return sSchedulers.get(viewTreeObserver);
+    }
+}
@@ -22,17 +22,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
-import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
  * Tracks views to determine when they become visible or invisible, where visibility is defined as
- * having been at least X% on the screen.
+ * having been at least X% on the screen. Checks run as part of the {@link VisibilityScheduler}
+ * pass for the window, together with every other tracker in it.
  */
 public class VisibilityTracker {
     // Time interval to use for throttling visibility checks.
     private static final int VISIBILITY_THROTTLE_MILLIS = 100;
 
+    // Views that haven't moved are still checked this often, in case they were clipped or
+    // uncovered by something else changing.
+    @VisibleForTesting static final int FULL_CHECK_INTERVAL_MILLIS = 1000;
+
     // Trim the tracked views after this many accesses. This protects us against tracking
     // too many views if the developer uses the adapter for multiple ListViews. It also
     // limits the memory leak if a developer forgets to call destroy().
@@ -49,8 +53,17 @@ public class VisibilityTracker {
         void onVisibilityChanged(List<View> visibleViews, List<View> invisibleViews);
     }
 
-    @NonNull @VisibleForTesting final OnPreDrawListener mOnPreDrawListener;
+    @NonNull @VisibleForTesting final VisibilityScheduler.Client mSchedulerClient;
     @NonNull @VisibleForTesting WeakReference<ViewTreeObserver> mWeakViewTreeObserver;
+    // Scheduler for mWeakViewTreeObserver, if there is one
+    @Nullable @VisibleForTesting VisibilityScheduler mVisibilityScheduler;
+
+    // Results of the last check of a view
+    private static final int RESULT_UNKNOWN = 0;
+    private static final int RESULT_VISIBLE = 1;
+    private static final int RESULT_INVISIBLE = 2;
+    // Between the invisible and visible thresholds, so it's reported as neither
+    private static final int RESULT_UNCHANGED = 3;
 
     static class TrackingInfo {
         int mMinViewablePercent;
@@ -64,6 +77,25 @@ public class VisibilityTracker {
          * considered visible. This is in real pixels.
          */
         @Nullable Integer mMinVisiblePx;
+
+        // Result of the last check, reused until the view's geometry changes
+        int mLastResult = RESULT_UNKNOWN;
+        @NonNull final ViewGeometry mGeometry = new ViewGeometry();
+    }
+
+    /**
+     * Where a view was on the last pass. The window position moves with the scroll offset of
+     * every parent, so this changes whenever the view is scrolled, laid out, resized or faded.
+     */
+    static class ViewGeometry {
+        boolean mIsRecorded;
+        int mWindowX;
+        int mWindowY;
+        int mWidth;
+        int mHeight;
+        float mAlpha;
+        boolean mShown;
+        boolean mAttached;
     }
 
     // Views that are being tracked, mapped to the min viewable percentage
@@ -84,6 +116,13 @@ public class VisibilityTracker {
     // Whether the visibility runnable is scheduled
     private boolean mIsVisibilityScheduled;
 
+    // When every view was last checked, whether or not it had moved
+    private long mLastFullCheckMillis;
+
+    // Number of views checked and skipped because they hadn't moved
+    private long mCheckedViewCount;
+    private long mSkippedViewCount;
+
     public VisibilityTracker(@NonNull final Context context) {
         this(context,
                 new WeakHashMap<View, TrackingInfo>(10),
@@ -101,12 +140,12 @@ public class VisibilityTracker {
         mVisibilityHandler = visibilityHandler;
         mVisibilityRunnable = new VisibilityRunnable();
         mTrimmedViews = new ArrayList<View>(NUM_ACCESSES_BEFORE_TRIMMING);
+        mLastFullCheckMillis = SystemClock.uptimeMillis();
 
-        mOnPreDrawListener = new OnPreDrawListener() {
+        mSchedulerClient = new VisibilityScheduler.Client() {
             @Override
-            public boolean onPreDraw() {
-                scheduleVisibilityCheck();
-                return true;
+            public void onVisibilityPass() {
+                mVisibilityRunnable.run();
             }
         };
 
@@ -133,8 +172,16 @@ public class VisibilityTracker {
             return;
         }
 
+        releaseVisibilityScheduler();
         mWeakViewTreeObserver = new WeakReference<ViewTreeObserver>(viewTreeObserver);
-        viewTreeObserver.addOnPreDrawListener(mOnPreDrawListener);
+        mVisibilityScheduler = VisibilityScheduler.register(viewTreeObserver, mSchedulerClient);
+    }
+
+    private void releaseVisibilityScheduler() {
+        if (mVisibilityScheduler != null) {
+            mVisibilityScheduler.unregister(mSchedulerClient);
+            mVisibilityScheduler = null;
+        }
     }
 
     public void setVisibilityTrackerListener(
@@ -175,6 +222,8 @@ public class VisibilityTracker {
         trackingInfo.mMaxInvisiblePercent = maxInvisiblePercent;
         trackingInfo.mAccessOrder = mAccessCounter;
         trackingInfo.mMinVisiblePx = minVisiblePx;
+        // The thresholds may have changed, so check it again even if it hasn't moved
+        trackingInfo.mLastResult = RESULT_UNKNOWN;
 
         // Trim the number of tracked views to a reasonable number
         mAccessCounter++;
@@ -218,15 +267,21 @@ public class VisibilityTracker {
      */
     public void destroy() {
         clear();
-        final ViewTreeObserver viewTreeObserver = mWeakViewTreeObserver.get();
-        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
-            viewTreeObserver.removeOnPreDrawListener(mOnPreDrawListener);
-        }
+        releaseVisibilityScheduler();
         mWeakViewTreeObserver.clear();
         mVisibilityTrackerListener = null;
     }
 
+    /**
+     * Checks the tracked views soon. When the tracker has a window, this runs the whole window's
+     * pass, so that the views of every tracker in it are checked together.
+     */
     public void scheduleVisibilityCheck() {
+        if (mVisibilityScheduler != null) {
+            mVisibilityScheduler.schedulePass();
+            return;
+        }
+
         // Tracking this directly instead of calling hasMessages directly because we measured that
         // this led to slightly better performance.
         if (mIsVisibilityScheduled) {
@@ -237,6 +292,16 @@ public class VisibilityTracker {
         mVisibilityHandler.postDelayed(mVisibilityRunnable, VISIBILITY_THROTTLE_MILLIS);
     }
 
+    @VisibleForTesting
+    long getCheckedViewCount() {
+        return mCheckedViewCount;
+    }
+
+    @VisibleForTesting
+    long getSkippedViewCount() {
+        return mSkippedViewCount;
+    }
+
     class VisibilityRunnable implements Runnable {
         // Set of views that are visible or invisible. We create these once to avoid excessive
         // garbage collection observed when calculating these on each pass.
@@ -251,18 +316,29 @@ public class VisibilityTracker {
         @Override
         public void run() {
             mIsVisibilityScheduled = false;
+            final boolean isFullCheck = mVisibilityChecker.hasRequiredTimeElapsed(
+                    mLastFullCheckMillis, FULL_CHECK_INTERVAL_MILLIS);
+            if (isFullCheck) {
+                mLastFullCheckMillis = SystemClock.uptimeMillis();
+            }
+
             for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
                 final View view = entry.getKey();
-                final int minPercentageViewed = entry.getValue().mMinViewablePercent;
-                final int maxInvisiblePercent = entry.getValue().mMaxInvisiblePercent;
-                final Integer minVisiblePx = entry.getValue().mMinVisiblePx;
-                final View rootView = entry.getValue().mRootView;
+                final TrackingInfo trackingInfo = entry.getValue();
+
+                // Always record the geometry so that the next pass compares against this one
+                final boolean hasChanged = mVisibilityChecker.hasGeometryChanged(
+                        trackingInfo.mRootView, view, trackingInfo.mGeometry);
+                if (hasChanged || isFullCheck || trackingInfo.mLastResult == RESULT_UNKNOWN) {
+                    trackingInfo.mLastResult = checkVisibility(view, trackingInfo);
+                    mCheckedViewCount++;
+                } else {
+                    mSkippedViewCount++;
+                }
 
-                if (mVisibilityChecker.isVisible(rootView, view, minPercentageViewed,
-                        minVisiblePx)) {
+                if (trackingInfo.mLastResult == RESULT_VISIBLE) {
                     mVisibleViews.add(view);
-                } else if (!mVisibilityChecker.isVisible(rootView, view, maxInvisiblePercent,
-                        null)) {
+                } else if (trackingInfo.mLastResult == RESULT_INVISIBLE) {
                     mInvisibleViews.add(view);
                 }
             }
@@ -275,11 +351,27 @@ public class VisibilityTracker {
             mVisibleViews.clear();
             mInvisibleViews.clear();
         }
+
+        private int checkVisibility(@NonNull final View view,
+                @NonNull final TrackingInfo trackingInfo) {
+            final View rootView = trackingInfo.mRootView;
+            if (mVisibilityChecker.isVisible(rootView, view, trackingInfo.mMinViewablePercent,
+                    trackingInfo.mMinVisiblePx)) {
+                return RESULT_VISIBLE;
+            }
+            if (!mVisibilityChecker.isVisible(rootView, view, trackingInfo.mMaxInvisiblePercent,
+                    null)) {
+                return RESULT_INVISIBLE;
+            }
+            return RESULT_UNCHANGED;
+        }
     }
 
     public static class VisibilityChecker {
         // A rect to use for hit testing. Create this once to avoid excess garbage collection
         private final Rect mClipRect = new Rect();
+        // Same for the window location of a view
+        private final int[] mWindowLocation = new int[2];
 
         /**
          * Whether the visible time has elapsed from the start time. Easily mocked for testing.
@@ -323,5 +415,40 @@ public class VisibilityTracker {
 
             return 100 * visibleViewArea >= minPercentageViewed * totalViewArea;
         }
+
+        /**
+         * Whether the view has moved, been resized, faded, shown, hidden, attached or detached
+         * since its geometry was last recorded, and records where it is now. This is much
+         * cheaper than {@link #isVisible(View, View, int, Integer)}, so views that haven't
+         * changed can keep their last result.
+         */
+        boolean hasGeometryChanged(@Nullable final View rootView, @NonNull final View view,
+                @NonNull final ViewGeometry geometry) {
+            view.getLocationInWindow(mWindowLocation);
+            final int width = view.getWidth();
+            final int height = view.getHeight();
+            final float alpha = view.getAlpha();
+            final boolean shown = view.isShown();
+            final boolean attached = rootView != null && rootView.getParent() != null;
+
+            final boolean hasChanged = !geometry.mIsRecorded
+                    || geometry.mWindowX != mWindowLocation[0]
+                    || geometry.mWindowY != mWindowLocation[1]
+                    || geometry.mWidth != width
+                    || geometry.mHeight != height
+                    || geometry.mAlpha != alpha
+                    || geometry.mShown != shown
+                    || geometry.mAttached != attached;
+
+            geometry.mIsRecorded = true;
+            geometry.mWindowX = mWindowLocation[0];
+            geometry.mWindowY = mWindowLocation[1];
+            geometry.mWidth = width;
+            geometry.mHeight = height;
+            geometry.mAlpha = alpha;
+            geometry.mShown = shown;
+            geometry.mAttached = attached;
+            return hasChanged;
+        }
     }
 }
@@ -6,13 +6,14 @@ package com.mopub.common.logging;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.util.Pair;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 
 import java.text.MessageFormat;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -85,7 +86,16 @@ public class MoPubLog {
 
     @NonNull private static final MoPubLog sInstance = new MoPubLog();
     @NonNull private LogLevel sLogLevel = LogLevel.INFO;
-    @NonNull private Map<MoPubLogger, LogLevel> mLoggers = new HashMap<>();
+    /**
+     * Loggers are replaced as a whole (copy-on-write) whenever one is added or removed so that
+     * log calls can iterate the current snapshot without locking.
+     */
+    @NonNull private volatile Map<MoPubLogger, LogLevel> mLoggers = Collections.emptyMap();
+    /**
+     * The lowest level accepted by any registered logger. Events below this level are dropped
+     * before any stack walking or message formatting is done.
+     */
+    private volatile int mMinLoggerLevel = Integer.MAX_VALUE;
     @NonNull private MoPubLogger mDefaultLogger = new MoPubDefaultLogger();
 
     private MoPubLog() {
@@ -96,8 +106,13 @@ public class MoPubLog {
                 ? throwable.getMessage() : "");
     }
 
-    private static void removeLogger(@Nullable MoPubLogger logger) {
-        sInstance.mLoggers.remove(logger);
+    @VisibleForTesting
+    static void removeLogger(@Nullable MoPubLogger logger) {
+        synchronized (sInstance) {
+            final Map<MoPubLogger, LogLevel> loggers = new HashMap<>(sInstance.mLoggers);
+            loggers.remove(logger);
+            sInstance.setLoggers(loggers);
+        }
     }
 
     public static void addLogger(@Nullable MoPubLogger logger) {
@@ -105,7 +120,11 @@ public class MoPubLog {
     }
 
     public static void addLogger(@Nullable MoPubLogger logger, @Nullable LogLevel logLevel) {
-        sInstance.mLoggers.put(logger, logLevel);
+        synchronized (sInstance) {
+            final Map<MoPubLogger, LogLevel> loggers = new HashMap<>(sInstance.mLoggers);
+            loggers.put(logger, logLevel);
+            sInstance.setLoggers(loggers);
+        }
     }
 
     public static void setLogLevel(@NonNull LogLevel logLevel) {
@@ -120,38 +139,77 @@ public class MoPubLog {
         return sInstance.sLogLevel;
     }
 
+    /**
+     * Whether any registered logger would accept an event of the given type. This is a cheap
+     * check and can be used by callers to avoid building expensive log arguments.
+     *
+     * @param logEventType The event that is about to be logged.
+     * @return true if at least one logger accepts events at this level, false otherwise.
+     */
+    public static boolean isLoggable(@Nullable final MPLogEventType logEventType) {
+        return logEventType != null
+                && sInstance.mMinLoggerLevel <= logEventType.getLogLevel().intValue();
+    }
+
     public static void log(@Nullable final MPLogEventType logEventType, @Nullable final Object... args) {
-        Pair<String, String> classAndMethodNames = getClassAndMethod();
-        log(classAndMethodNames, null, logEventType, args);  // null identifiers are omitted
+        if (!isLoggable(logEventType)) {
+            return;
+        }
+        log(getCaller(), null, logEventType, args);  // null identifiers are omitted
     }
 
     public static void log(@Nullable final String identifier, @Nullable final MPLogEventType logEventType,
                            @Nullable final Object... args) {
-        Pair<String, String> classAndMethodNames = getClassAndMethod();
-        log(classAndMethodNames, identifier, logEventType, args);  // null identifiers are omitted
-    }
-
-    private static void log(@NonNull Pair<String, String> classAndMethodNames, @Nullable String identifier,
-                            @Nullable  MPLogEventType logEventType, @Nullable Object... args) {
-        Preconditions.checkNotNull(classAndMethodNames);
-
-        if (logEventType == null) {
+        if (!isLoggable(logEventType)) {
             return;
         }
+        log(getCaller(), identifier, logEventType, args);  // null identifiers are omitted
+    }
 
-        for (MoPubLogger logger : sInstance.mLoggers.keySet()) {
-            if (sInstance.mLoggers.get(logger) != null
-                    && sInstance.mLoggers.get(logger).intValue() <= logEventType.getLogLevel().intValue()) {
-                logger.log(classAndMethodNames.first, classAndMethodNames.second, identifier,
-                        logEventType.getMessage(args));
+    private static void log(@Nullable StackTraceElement caller, @Nullable String identifier,
+                            @NonNull MPLogEventType logEventType, @Nullable Object... args) {
+        final int eventLevel = logEventType.getLogLevel().intValue();
+        final String className = caller != null ? caller.getClassName() : null;
+        final String methodName = caller != null ? caller.getMethodName() : null;
+        String message = null;
+
+        for (final Map.Entry<MoPubLogger, LogLevel> entry : sInstance.mLoggers.entrySet()) {
+            final LogLevel loggerLevel = entry.getValue();
+            if (loggerLevel != null && loggerLevel.intValue() <= eventLevel) {
+                if (message == null) {
+                    message = logEventType.getMessage(args);
+                }
+                entry.getKey().log(className, methodName, identifier, message);
             }
         }
     }
 
-    private static Pair<String, String> getClassAndMethod() {
+    /**
+     * Must be called directly from the public log methods so that the calling frame is always at
+     * STACK_TRACE_LEVEL.
+     */
+    @Nullable
+    private static StackTraceElement getCaller() {
         final StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-        return new Pair<>(stackTraceElements[STACK_TRACE_LEVEL].getClassName(),
-                stackTraceElements[STACK_TRACE_LEVEL].getMethodName());
+        if (stackTraceElements.length <= STACK_TRACE_LEVEL) {
+            return null;
+        }
+        return stackTraceElements[STACK_TRACE_LEVEL];
+    }
+
+    /**
+     * Must only be called while holding the sInstance lock.
+     */
+    private void setLoggers(@NonNull final Map<MoPubLogger, LogLevel> loggers) {
+        int minLevel = Integer.MAX_VALUE;
+        for (final LogLevel level : loggers.values()) {
+            if (level != null) {
+                minLevel = Math.min(minLevel, level.intValue());
+            }
+        }
+        // Publish the loggers first so a reader that passes the level check sees them.
+        mLoggers = Collections.unmodifiableMap(loggers);
+        mMinLoggerLevel = minLevel;
     }
 
     @Deprecated
@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.MoPubRequest;
+import com.mopub.network.MoPubRequestQueue;
 import com.mopub.volley.DefaultRetryPolicy;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.Response;
@@ -41,6 +42,12 @@ public class SyncRequest extends MoPubRequest<SyncResponse> {
         setShouldCache(false);
     }
 
+    @NonNull
+    @Override
+    public MoPubRequestQueue.Lane getLane() {
+        return MoPubRequestQueue.Lane.CONSENT_SYNC;
+    }
+
     @Override
     protected Response<SyncResponse> parseNetworkResponse(final NetworkResponse networkResponse) {
         final SyncResponse.Builder builder = new SyncResponse.Builder();
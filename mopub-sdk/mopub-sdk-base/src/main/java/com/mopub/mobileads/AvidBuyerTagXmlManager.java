@@ -7,10 +7,9 @@ package com.mopub.mobileads;
 import androidx.annotation.NonNull;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -24,9 +23,9 @@ class AvidBuyerTagXmlManager {
     private static final String VERIFICATION = "Verification";
     private static final String JAVA_SCRIPT_RESOURCE = "JavaScriptResource";
 
-    private final Node mAvidNode;
+    private final XmlNode mAvidNode;
 
-    AvidBuyerTagXmlManager(@NonNull final Node avidNode) {
+    AvidBuyerTagXmlManager(@NonNull final XmlNode avidNode) {
         Preconditions.checkNotNull(avidNode);
 
         mAvidNode = avidNode;
@@ -57,18 +56,18 @@ class AvidBuyerTagXmlManager {
     Set<String> getJavaScriptResources() {
         final Set<String> avidJavaScriptResources = new HashSet<String>();
 
-        final Node adVerification = XmlUtils.getFirstMatchingChildNode(mAvidNode, AD_VERIFICATIONS);
+        final XmlNode adVerification = XmlUtils.getFirstMatchingChildNode(mAvidNode, AD_VERIFICATIONS);
         if (adVerification == null) {
             return avidJavaScriptResources;
         }
 
-        final List<Node> verifications = XmlUtils.getMatchingChildNodes(adVerification, VERIFICATION);
+        final List<XmlNode> verifications = XmlUtils.getMatchingChildNodes(adVerification, VERIFICATION);
         if (verifications == null) {
             return avidJavaScriptResources;
         }
 
-        for (final Node verification : verifications) {
-            final Node javaScriptResource = XmlUtils.getFirstMatchingChildNode(verification,
+        for (final XmlNode verification : verifications) {
+            final XmlNode javaScriptResource = XmlUtils.getFirstMatchingChildNode(verification,
                     JAVA_SCRIPT_RESOURCE);
             if (javaScriptResource != null) {
                 avidJavaScriptResources.add(XmlUtils.getNodeValue(javaScriptResource));
@@ -85,7 +85,8 @@ public class MoPubConversionTracker {
                 .withSessionTracker(sessionTracker)
                 .generateUrlString(Constants.HOST);
 
-        TrackingRequest.makeTrackingHttpRequest(url,
+        // Retried on the next app open until it succeeds, so it isn't kept in the beacon queue
+        TrackingRequest.makeUnqueuedTrackingHttpRequest(url,
                 mContext, new TrackingRequest.Listener() {
                     @Override
                     public void onResponse(@NonNull final String url) {
@@ -8,10 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -27,9 +26,9 @@ class MoatBuyerTagXmlManager {
     // Attributes
     private static final String ID = "id";
 
-    private final List<Node> mMoatVerificationNodes;
+    private final List<XmlNode> mMoatVerificationNodes;
 
-    MoatBuyerTagXmlManager(@NonNull final List<Node> moatVerificationNodes) {
+    MoatBuyerTagXmlManager(@NonNull final List<XmlNode> moatVerificationNodes) {
         Preconditions.checkNotNull(moatVerificationNodes);
 
         mMoatVerificationNodes = moatVerificationNodes;
@@ -60,12 +59,12 @@ class MoatBuyerTagXmlManager {
     Set<String> getImpressionPixelsXml() {
         final Set<String> impressionPixelsXml = new HashSet<String>();
 
-        for (final Node verification : mMoatVerificationNodes) {
+        for (final XmlNode verification : mMoatVerificationNodes) {
             if (verification == null) {
                 continue;
             }
 
-            final Node viewableImpression = XmlUtils.getFirstMatchingChildNode(verification,
+            final XmlNode viewableImpression = XmlUtils.getFirstMatchingChildNode(verification,
                     VIEWABLE_IMPRESSION);
 
             final String viewableImpressionXml = getViewableImpressionXml(viewableImpression);
@@ -78,7 +77,7 @@ class MoatBuyerTagXmlManager {
     }
 
     @Nullable
-    private String getViewableImpressionXml(@Nullable final Node viewableImpression) {
+    private String getViewableImpressionXml(@Nullable final XmlNode viewableImpression) {
         if (viewableImpression == null || !viewableImpression.hasAttributes()) {
             return null;
         }
@@ -0,0 +1,407 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.os.Build;
+import android.security.NetworkSecurityPolicy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.Constants;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Streams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Serves videos to the platform media player over a loopback HTTP connection while they are
+ * still being downloaded into the disk cache. Reads of bytes that haven't arrived yet wait for
+ * the download, so playback can start as soon as the beginning of the video is cached. Once the
+ * download is complete, the cached file is served instead.
+ */
+class ProgressiveVideoServer {
+    private static final String LOOPBACK_HOST = "127.0.0.1";
+    private static final String RANGE_PREFIX = "bytes=";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    // Give up on a request when the download makes no progress for this long.
+    @VisibleForTesting static final long STALL_TIMEOUT_MS = 30 * 1000;
+    // The media player opens one or two connections at a time, e.g. to read the end of the file
+    // while it plays from the start. Connections beyond these are closed, and the player retries.
+    @VisibleForTesting static final int MAX_CONNECTIONS = 4;
+    @VisibleForTesting static final int MAX_QUEUED_CONNECTIONS = 4;
+    // Videos are unregistered when their player is destroyed. This bounds the paths kept for
+    // players that never are.
+    @VisibleForTesting static final int MAX_REGISTERED_VIDEOS = 8;
+
+    @Nullable private static ProgressiveVideoServer sInstance;
+
+    @NonNull private final ServerSocket mServerSocket;
+    @NonNull private final ThreadPoolExecutor mExecutor;
+    // Maps the random path of each video to its network url, oldest first. Other apps can also
+    // connect to the loopback interface, so only videos registered here are served, and only at
+    // paths that can't be guessed.
+    @NonNull private final Map<String, String> mNetworkUrls = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>() {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                    return size() > MAX_REGISTERED_VIDEOS;
+                }
+            });
+    @NonNull private final SecureRandom mRandom = new SecureRandom();
+
+    /**
+     * @return a url that plays the video at {@code networkUrl}. This is the loopback url of this
+     * server if the video is still being downloaded, or {@code diskMediaFileUrl} otherwise.
+     */
+    @NonNull
+    static String getPlaybackUrl(@Nullable final String networkUrl,
+            @NonNull final String diskMediaFileUrl) {
+        if (networkUrl == null
+                || new File(diskMediaFileUrl).exists()
+                || RangedVideoDownload.getActiveDownload(networkUrl) == null
+                || !isCleartextLoopbackPermitted()) {
+            return diskMediaFileUrl;
+        }
+
+        try {
+            return getInstance().register(networkUrl);
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to start progressive video playback.", e);
+            return diskMediaFileUrl;
+        }
+    }
+
+    /**
+     * Stops serving a video once its player is done with it.
+     *
+     * @param playbackUrl a url returned by {@link #getPlaybackUrl}. Urls that aren't served by
+     *                    this server are ignored.
+     */
+    static void unregisterPlaybackUrl(@Nullable final String playbackUrl) {
+        final ProgressiveVideoServer instance;
+        synchronized (ProgressiveVideoServer.class) {
+            instance = sInstance;
+        }
+        if (instance == null || playbackUrl == null) {
+            return;
+        }
+
+        final String prefix = instance.getUrlPrefix();
+        if (playbackUrl.startsWith(prefix)) {
+            instance.unregister(playbackUrl.substring(prefix.length()));
+        }
+    }
+
+    @NonNull
+    private static synchronized ProgressiveVideoServer getInstance() throws IOException {
+        if (sInstance == null) {
+            sInstance = new ProgressiveVideoServer();
+        }
+        return sInstance;
+    }
+
+    private static boolean isCleartextLoopbackPermitted() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return NetworkSecurityPolicy.getInstance().isCleartextTrafficPermitted(LOOPBACK_HOST);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return NetworkSecurityPolicy.getInstance().isCleartextTrafficPermitted();
+        }
+        return true;
+    }
+
+    @VisibleForTesting
+    ProgressiveVideoServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 0, InetAddress.getByName(LOOPBACK_HOST));
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "ProgressiveVideoServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        mExecutor = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS,
+                Constants.THIRTY_SECONDS_MILLIS, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CONNECTIONS), threadFactory);
+        mExecutor.allowCoreThreadTimeOut(true);
+        final Thread acceptThread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        acceptThread.start();
+    }
+
+    /**
+     * @return the loopback url at which the video at {@code networkUrl} is served
+     */
+    @NonNull
+    @VisibleForTesting
+    String register(@NonNull final String networkUrl) {
+        final String path = Long.toHexString(mRandom.nextLong())
+                + Long.toHexString(mRandom.nextLong());
+        mNetworkUrls.put(path, networkUrl);
+        return getUrlPrefix() + path;
+    }
+
+    @VisibleForTesting
+    void unregister(@NonNull final String path) {
+        mNetworkUrls.remove(path);
+    }
+
+    @VisibleForTesting
+    int getRegisteredCount() {
+        return mNetworkUrls.size();
+    }
+
+    @NonNull
+    private String getUrlPrefix() {
+        return "http://" + LOOPBACK_HOST + ":" + mServerSocket.getLocalPort() + "/";
+    }
+
+    @VisibleForTesting
+    void shutdown() {
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        mExecutor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                if (!mServerSocket.isClosed()) {
+                    MoPubLog.log(CUSTOM, "Progressive video server stopped accepting.", e);
+                }
+                return;
+            }
+            try {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            serve(socket);
+                        } catch (IOException e) {
+                            // The player closed the connection, e.g. to seek.
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            closeSocket(socket);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                MoPubLog.log(CUSTOM, "Too many progressive video connections. Closing one.");
+                closeSocket(socket);
+            }
+        }
+    }
+
+    private static void closeSocket(@NonNull final Socket socket) {
+        // Sockets aren't Closeable on older API levels.
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    private void serve(@NonNull final Socket socket) throws IOException, InterruptedException {
+        socket.setSoTimeout((int) STALL_TIMEOUT_MS);
+        final InputStream in = new BufferedInputStream(socket.getInputStream());
+        final OutputStream out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+
+        final String[] requestLine = readLine(in).split(" ");
+        String range = null;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            final int colon = header.indexOf(':');
+            if (colon > 0 && "range".equalsIgnoreCase(header.substring(0, colon).trim())) {
+                range = header.substring(colon + 1).trim();
+            }
+        }
+
+        final boolean isHead = "HEAD".equals(requestLine[0]);
+        final String networkUrl = requestLine.length < 2 || requestLine[1].length() < 2
+                ? null
+                : mNetworkUrls.get(requestLine[1].substring(1));
+        if (networkUrl == null || !(isHead || "GET".equals(requestLine[0]))) {
+            writeHeaders(out, "404 Not Found", 0, null);
+            return;
+        }
+
+        RangedVideoDownload download = RangedVideoDownload.getActiveDownload(networkUrl);
+        FileChannel channel = download == null ? null : download.openReadChannel(STALL_TIMEOUT_MS);
+        try {
+            long length;
+            if (channel != null) {
+                length = download.getTotalLength();
+            } else {
+                download = null;
+                final String path = CacheService.getFilePathDiskCache(networkUrl);
+                if (path == null || !new File(path).exists()) {
+                    writeHeaders(out, "404 Not Found", 0, null);
+                    return;
+                }
+                channel = new FileInputStream(path).getChannel();
+                length = channel.size();
+            }
+
+            long start = 0;
+            long end = length;
+            String status = "200 OK";
+            String contentRange = null;
+            final long[] requestedRange = parseRange(range);
+            if (requestedRange != null && length >= 0) {
+                if (requestedRange[0] >= length) {
+                    writeHeaders(out, "416 Range Not Satisfiable", 0, "bytes */" + length);
+                    return;
+                }
+                start = requestedRange[0];
+                if (requestedRange[1] >= 0) {
+                    end = Math.min(end, requestedRange[1] + 1);
+                }
+                status = "206 Partial Content";
+                contentRange = "bytes " + start + "-" + (end - 1) + "/" + length;
+            }
+
+            writeHeaders(out, status, length >= 0 ? end - start : -1, contentRange);
+            if (!isHead) {
+                copy(channel, download, start, length >= 0 ? end : Long.MAX_VALUE, out);
+            }
+        } finally {
+            Streams.closeStream(channel);
+        }
+    }
+
+    /**
+     * Copies bytes {@code start} up to {@code end} from the file, waiting for the download if
+     * there is one. Stops early if the download fails, which the player sees as an error.
+     */
+    private void copy(@NonNull final FileChannel channel,
+            @Nullable final RangedVideoDownload download, final long start, final long end,
+            @NonNull final OutputStream out) throws IOException, InterruptedException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = start;
+        while (position < end) {
+            final long available = download == null
+                    ? end - position
+                    : download.awaitAvailable(position, STALL_TIMEOUT_MS);
+            if (available <= 0) {
+                break;
+            }
+
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, Math.min(available, end - position)));
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+            if (download != null) {
+                // Send what is available now rather than waiting to fill the buffer.
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeHeaders(@NonNull final OutputStream out, @NonNull final String status,
+            final long contentLength, @Nullable final String contentRange) throws IOException {
+        final StringBuilder headers = new StringBuilder("HTTP/1.1 ").append(status).append("\r\n");
+        headers.append("Accept-Ranges: bytes\r\n");
+        if (contentLength >= 0) {
+            headers.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        if (contentRange != null) {
+            headers.append("Content-Range: ").append(contentRange).append("\r\n");
+        }
+        headers.append("Connection: close\r\n\r\n");
+        out.write(headers.toString().getBytes("US-ASCII"));
+        out.flush();
+    }
+
+    /**
+     * Parses a {@code Range} header with a single range such as {@code bytes=100-199} or
+     * {@code bytes=100-}.
+     *
+     * @return the first byte and the last byte, which is -1 if open ended. Null if the header is
+     * missing or isn't a single range from a known first byte.
+     */
+    @Nullable
+    @VisibleForTesting
+    static long[] parseRange(@Nullable final String range) {
+        if (range == null || !range.toLowerCase(Locale.US).startsWith(RANGE_PREFIX)) {
+            return null;
+        }
+
+        final String bounds = range.substring(RANGE_PREFIX.length()).trim();
+        final int dash = bounds.indexOf('-');
+        if (dash <= 0 || bounds.indexOf(',') != -1) {
+            return null;
+        }
+
+        try {
+            final long first = Long.parseLong(bounds.substring(0, dash).trim());
+            final String lastString = bounds.substring(dash + 1).trim();
+            final long last = lastString.isEmpty() ? -1 : Long.parseLong(lastString);
+            if (last >= 0 && last < first) {
+                return null;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @NonNull
+    private static String readLine(@NonNull final InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1 || line.size() >= MAX_LINE_LENGTH) {
+                throw new IOException("Malformed request");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString("US-ASCII");
+    }
+}
@@ -0,0 +1,672 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.os.AsyncTask;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.DiskLruCache;
+import com.mopub.common.MoPubHttpUrlConnection;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Streams;
+import com.mopub.network.Networking;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
+
+/**
+ * Downloads a video into the disk cache using HTTP range requests. Bytes are written to a partial
+ * cache entry that is kept when the download fails or is cancelled, so the next download of the
+ * same url resumes where this one stopped. Large videos are fetched in several parts at once
+ * when the server supports ranges.
+ */
+class RangedVideoDownload {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final String RANGE_HEADER = "Range";
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    // The size of the first part, and the smallest size of the parts the rest is split into.
+    @VisibleForTesting static final long MIN_PART_SIZE = 4 * 1024 * 1024; // 4 MiB
+    // The most connections used for one download.
+    private static final int MAX_PARTS = 3;
+    // Returned while waiting for bytes that haven't been downloaded yet.
+    private static final long NOT_YET_AVAILABLE = -2;
+
+    private static final ThreadPoolExecutor sPartExecutor = new ThreadPoolExecutor(
+            MAX_PARTS - 1, MAX_PARTS - 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    static {
+        sPartExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Downloads in progress by url, so that their bytes can be played before they complete.
+    private static final Map<String, RangedVideoDownload> sActiveDownloads =
+            new HashMap<String, RangedVideoDownload>();
+
+    /**
+     * Notified when enough of the video has been downloaded to start playing it.
+     */
+    interface BufferListener {
+        void onBuffered();
+    }
+
+    /**
+     * Notified when the download has finished.
+     */
+    interface FinishListener {
+        /**
+         * @param success whether the complete video is now in the disk cache
+         */
+        void onFinished(boolean success);
+    }
+
+    @NonNull private final String mUrl;
+    private final long mMaxSize;
+    @Nullable private final AsyncTask<?, ?, ?> mTask;
+    @NonNull private final AtomicLong mBytesDownloaded = new AtomicLong();
+    private volatile long mResumedFrom;
+    private int mPartCount;
+    @Nullable private BufferListener mBufferListener;
+    private long mBufferSize;
+
+    // Guards the fields below, and is notified whenever more bytes have been written.
+    @NonNull private final Object mProgressLock = new Object();
+    @Nullable private File mFile;
+    // Null until the first response tells how the video is split.
+    @Nullable private volatile List<Part> mParts;
+    private volatile long mTotalLength = -1;
+    private boolean mFinished;
+    private boolean mComplete;
+    private boolean mBuffered;
+    @NonNull private final List<FinishListener> mFinishListeners = new ArrayList<FinishListener>();
+
+    // Set by any part to stop the others.
+    private volatile boolean mStopped;
+    // Set when the partial value must not be resumed from, e.g. because it exceeds the size cap.
+    private volatile boolean mDiscardPartial;
+
+    /**
+     * @param maxSize the largest video, in bytes, to download. Enforced on the bytes actually
+     *                received, not just the advertised length.
+     * @param task    the task running this download. Its cancellation stops the download.
+     */
+    RangedVideoDownload(@NonNull final String url, final long maxSize,
+            @Nullable final AsyncTask<?, ?, ?> task) {
+        Preconditions.checkNotNull(url);
+
+        mUrl = url;
+        mMaxSize = maxSize;
+        mTask = task;
+    }
+
+    /**
+     * @return the download of {@code url} that is in progress, or null if there is none
+     */
+    @Nullable
+    static RangedVideoDownload getActiveDownload(@NonNull final String url) {
+        synchronized (sActiveDownloads) {
+            return sActiveDownloads.get(url);
+        }
+    }
+
+    /**
+     * Sets a listener that is notified once, from the downloading thread, when the first
+     * {@code bufferSize} bytes of the video, or the whole video if it is smaller, have been
+     * downloaded. Must be called before {@link #download()}.
+     */
+    void setBufferListener(final long bufferSize, @Nullable final BufferListener listener) {
+        mBufferSize = bufferSize;
+        mBufferListener = listener;
+    }
+
+    /**
+     * Downloads the video. Blocks until it is complete, has failed, or the task was cancelled.
+     *
+     * @return true if the complete video is now in the disk cache
+     */
+    boolean download() {
+        mResumedFrom = CacheService.getPartialLengthDiskCache(mUrl);
+        final DiskLruCache.Editor editor = CacheService.editPartialDiskCache(mUrl);
+        if (editor == null) {
+            MoPubLog.log(CUSTOM, "VideoDownloader could not write to the disk cache.");
+            return false;
+        }
+
+        final long cachedLength = mResumedFrom;
+        final List<Part> parts = new ArrayList<Part>();
+        FileChannel channel = null;
+        boolean complete = false;
+        boolean keepPartial = false;
+        synchronized (sActiveDownloads) {
+            sActiveDownloads.put(mUrl, this);
+        }
+        try {
+            channel = editor.newChannel(0, cachedLength > 0);
+            synchronized (mProgressLock) {
+                mFile = editor.getDirtyFile(0);
+            }
+            complete = fetch(channel, parts);
+            if (!complete && !mDiscardPartial) {
+                // Drop anything after the first gap so that the partial value is a prefix.
+                final long contiguousLength = getContiguousLength(parts);
+                if (contiguousLength > cachedLength) {
+                    channel.truncate(contiguousLength);
+                    keepPartial = true;
+                }
+            }
+        } catch (Exception e) {
+            MoPubLog.log(ERROR, "VideoDownloader task threw an internal exception.", e);
+        } finally {
+            Streams.closeStream(channel);
+        }
+
+        final boolean success;
+        final List<FinishListener> finishListeners;
+        // Holding the lock keeps readers from opening the file while it is being moved.
+        synchronized (mProgressLock) {
+            success = finish(editor, complete, keepPartial);
+            mFinished = true;
+            mComplete = complete;
+            mProgressLock.notifyAll();
+            finishListeners = new ArrayList<FinishListener>(mFinishListeners);
+            mFinishListeners.clear();
+        }
+        synchronized (sActiveDownloads) {
+            sActiveDownloads.remove(mUrl);
+        }
+        for (final FinishListener finishListener : finishListeners) {
+            finishListener.onFinished(success);
+        }
+        return success;
+    }
+
+    /**
+     * Adds a listener that is notified once, from the downloading thread, when the download has
+     * finished.
+     *
+     * @return false if the download has already finished, in which case the listener is not added
+     */
+    boolean addFinishListener(@NonNull final FinishListener listener) {
+        Preconditions.checkNotNull(listener);
+
+        synchronized (mProgressLock) {
+            if (mFinished) {
+                return false;
+            }
+            mFinishListeners.add(listener);
+            return true;
+        }
+    }
+
+    /**
+     * Opens the file the video is being downloaded into, once the length of the video is known.
+     * Bytes must not be read from it before {@link #awaitAvailable} says they have been written.
+     *
+     * @return a channel to read the file, or null if the download has already finished or didn't
+     * start within {@code timeoutMs}. A finished download is read from the disk cache instead.
+     */
+    @Nullable
+    FileChannel openReadChannel(final long timeoutMs) throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (mProgressLock) {
+            while (!mFinished && (mParts == null || mFile == null)) {
+                final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return null;
+                }
+                mProgressLock.wait(remainingMs);
+            }
+            if (mFinished) {
+                return null;
+            }
+            return new FileInputStream(mFile).getChannel();
+        }
+    }
+
+    /**
+     * @return the length of the video, or -1 if it isn't known yet or the server didn't say
+     */
+    long getTotalLength() {
+        return mTotalLength;
+    }
+
+    /**
+     * Waits until the byte at {@code position} has been written to the file.
+     *
+     * @return the number of bytes from {@code position} that can be read, 0 if {@code position}
+     * is at the end of the video, or -1 if the download failed or made no progress within
+     * {@code timeoutMs}
+     */
+    long awaitAvailable(final long position, final long timeoutMs) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (mProgressLock) {
+            while (true) {
+                final long available = getAvailable(position);
+                if (available != NOT_YET_AVAILABLE) {
+                    return available;
+                }
+                final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return -1;
+                }
+                mProgressLock.wait(remainingMs);
+            }
+        }
+    }
+
+    private long getAvailable(final long position) {
+        if (mFinished) {
+            if (!mComplete) {
+                return -1;
+            }
+            final long length = mTotalLength >= 0 ? mTotalLength : getContiguousLength(mParts);
+            return Math.max(0, length - position);
+        }
+
+        final List<Part> parts = mParts;
+        if (parts == null) {
+            return position < mResumedFrom ? mResumedFrom - position : NOT_YET_AVAILABLE;
+        }
+        if (position < parts.get(0).start) {
+            // Part of the prefix that was already cached.
+            return parts.get(0).start - position;
+        }
+        for (final Part part : parts) {
+            if (position >= part.start && (part.end < 0 || position < part.end)) {
+                final long written = part.start + part.length;
+                return written > position ? written - position : NOT_YET_AVAILABLE;
+            }
+        }
+        return mTotalLength >= 0 && position >= mTotalLength ? 0 : NOT_YET_AVAILABLE;
+    }
+
+    private void notifyProgress() {
+        final boolean buffered;
+        synchronized (mProgressLock) {
+            mProgressLock.notifyAll();
+            if (mBufferListener == null || mBuffered) {
+                return;
+            }
+            final long available = getAvailable(0);
+            buffered = available >= mBufferSize
+                    || (mTotalLength >= 0 && available >= mTotalLength);
+            mBuffered = buffered;
+        }
+        if (buffered) {
+            mBufferListener.onBuffered();
+        }
+    }
+
+    /**
+     * @return the number of bytes received from the network by this download
+     */
+    long getBytesDownloaded() {
+        return mBytesDownloaded.get();
+    }
+
+    /**
+     * @return the number of bytes that were already cached when this download started
+     */
+    long getResumedFrom() {
+        return mResumedFrom;
+    }
+
+    /**
+     * @return the number of connections the remaining bytes were split across
+     */
+    int getPartCount() {
+        return mPartCount;
+    }
+
+    private boolean fetch(@NonNull final FileChannel channel, @NonNull final List<Part> parts)
+            throws IOException {
+        final long start = mResumedFrom;
+        // Only ask for the first part. If the server honors the range, the response tells how
+        // large the video is, and the rest can be fetched in parallel without the first
+        // connection sending bytes that another one is also fetching.
+        final HttpURLConnection connection = openConnection(start, start + MIN_PART_SIZE);
+        InputStream inputStream = null;
+        try {
+            final int statusCode = connection.getResponseCode();
+            final long firstPartEnd;
+            final long total;
+            if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+                final long[] contentRange =
+                        parseContentRange(connection.getHeaderField(CONTENT_RANGE_HEADER));
+                if (contentRange == null || contentRange[0] != start) {
+                    MoPubLog.log(CUSTOM, "VideoDownloader received an unexpected range.");
+                    mDiscardPartial = true;
+                    return false;
+                }
+                firstPartEnd = contentRange[1] + 1;
+                total = contentRange[2];
+            } else if (statusCode >= HttpURLConnection.HTTP_OK
+                    && statusCode < HttpURLConnection.HTTP_MULT_CHOICE) {
+                // The server ignored the range and sends the whole video, so start over.
+                synchronized (mProgressLock) {
+                    mResumedFrom = 0;
+                }
+                channel.truncate(0);
+                total = connection.getContentLength();
+                firstPartEnd = total;
+            } else {
+                MoPubLog.log(CUSTOM, "VideoDownloader encountered unexpected statusCode: " +
+                        statusCode);
+                mDiscardPartial = statusCode == HTTP_RANGE_NOT_SATISFIABLE;
+                return false;
+            }
+
+            // Check video size below maximum
+            if (total > mMaxSize) {
+                MoPubLog.log(CUSTOM, String.format(
+                        "VideoDownloader encountered video larger than disk cap. " +
+                                "(%d bytes / %d maximum).",
+                        total,
+                        mMaxSize));
+                mDiscardPartial = true;
+                return false;
+            }
+
+            splitIntoParts(mResumedFrom, firstPartEnd, total, parts);
+            mPartCount = parts.size();
+            synchronized (mProgressLock) {
+                mTotalLength = total;
+                mParts = parts;
+            }
+            notifyProgress();
+
+            final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 1; i < parts.size(); i++) {
+                final Part part = parts.get(i);
+                if (part.end < 0) {
+                    continue;
+                }
+                futures.add(sPartExecutor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return fetchPart(channel, part);
+                    }
+                }));
+            }
+
+            boolean success;
+            try {
+                inputStream = connection.getInputStream();
+                success = copyPart(inputStream, channel, parts.get(0));
+                final Part lastPart = parts.get(parts.size() - 1);
+                if (success && lastPart.end < 0 && lastPart != parts.get(0)) {
+                    // Without the total length, the rest can only be fetched after the first part.
+                    success = fetchPart(channel, lastPart);
+                }
+            } catch (IOException e) {
+                MoPubLog.log(CUSTOM, "VideoDownloader failed to download a part.", e);
+                mStopped = true;
+                success = false;
+            }
+            for (final Future<Boolean> future : futures) {
+                try {
+                    success &= future.get();
+                } catch (Exception e) {
+                    MoPubLog.log(CUSTOM, "VideoDownloader failed to download a part.", e);
+                    success = false;
+                }
+            }
+            return success;
+        } finally {
+            mStopped = true;
+            closeResponse(connection, inputStream);
+        }
+    }
+
+    private boolean fetchPart(@NonNull final FileChannel channel, @NonNull final Part part)
+            throws IOException {
+        final HttpURLConnection connection = openConnection(part.start, part.end);
+        InputStream inputStream = null;
+        try {
+            final int statusCode = connection.getResponseCode();
+            if (part.end < 0 && statusCode == HTTP_RANGE_NOT_SATISFIABLE) {
+                // The previous part already ended at the end of the video.
+                return true;
+            }
+            final long[] contentRange =
+                    parseContentRange(connection.getHeaderField(CONTENT_RANGE_HEADER));
+            if (statusCode != HttpURLConnection.HTTP_PARTIAL
+                    || contentRange == null || contentRange[0] != part.start) {
+                MoPubLog.log(CUSTOM, "VideoDownloader received an unexpected range.");
+                mStopped = true;
+                return false;
+            }
+
+            inputStream = connection.getInputStream();
+            return copyPart(inputStream, channel, part);
+        } finally {
+            closeResponse(connection, inputStream);
+        }
+    }
+
+    /**
+     * Copies a part from the network into its position in the channel, enforcing the size cap
+     * on the bytes received.
+     *
+     * @return true if the whole part was copied
+     */
+    private boolean copyPart(@NonNull final InputStream inputStream,
+            @NonNull final FileChannel channel, @NonNull final Part part) throws IOException {
+        final byte[] bytes = new byte[BUFFER_SIZE];
+        long position = part.start;
+        try {
+            while (!mStopped && (mTask == null || !mTask.isCancelled())) {
+                int maxRead = BUFFER_SIZE;
+                if (part.end >= 0) {
+                    maxRead = (int) Math.min(maxRead, part.end - position);
+                    if (maxRead == 0) {
+                        return true;
+                    }
+                }
+
+                final int read = inputStream.read(bytes, 0, maxRead);
+                if (read == -1) {
+                    // Without a known end, the end of the stream is the end of the video.
+                    return part.end < 0;
+                }
+                mBytesDownloaded.addAndGet(read);
+
+                if (position + read > mMaxSize) {
+                    MoPubLog.log(CUSTOM, String.format(
+                            "VideoDownloader received more than the disk cap. (%d maximum).",
+                            mMaxSize));
+                    mDiscardPartial = true;
+                    return false;
+                }
+
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                part.length = position - part.start;
+                notifyProgress();
+            }
+            return false;
+        } finally {
+            if (part.end < 0 || position < part.end) {
+                // Tell the other parts that this download can't complete.
+                mStopped = true;
+            }
+        }
+    }
+
+    private boolean finish(@NonNull final DiskLruCache.Editor editor, final boolean complete,
+            final boolean keepPartial) {
+        try {
+            if (complete) {
+                editor.commit();
+                return CacheService.completePartialDiskCache(mUrl);
+            }
+
+            if (keepPartial) {
+                // Keep what was downloaded so the next attempt can resume from it.
+                editor.commit();
+            } else {
+                // Leaves any previously cached partial value as it was.
+                editor.abort();
+                if (mDiscardPartial) {
+                    CacheService.removePartialDiskCache(mUrl);
+                }
+            }
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "VideoDownloader could not write to the disk cache.", e);
+            editor.abortUnlessCommitted();
+        }
+        return false;
+    }
+
+    @NonNull
+    private HttpURLConnection openConnection(final long start, final long end) throws IOException {
+        final HttpURLConnection connection = MoPubHttpUrlConnection.getHttpUrlConnection(mUrl);
+        // Always ask for a range, so that a 206 response tells us the download can be split.
+        if (end >= 0) {
+            connection.setRequestProperty(RANGE_HEADER, "bytes=" + start + "-" + (end - 1));
+        } else {
+            connection.setRequestProperty(RANGE_HEADER, "bytes=" + start + "-");
+        }
+        return connection;
+    }
+
+    /**
+     * Closes the response and releases the connection to the transport without disconnecting
+     * it, so that its socket can be reused once the whole response has been read.
+     *
+     * @param inputStream the response body, or null if it wasn't opened
+     */
+    private static void closeResponse(@NonNull final HttpURLConnection connection,
+            @Nullable final InputStream inputStream) {
+        InputStream responseStream = inputStream;
+        if (responseStream == null) {
+            // An unread body still holds the socket until it is closed.
+            try {
+                responseStream = connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST
+                        ? connection.getErrorStream()
+                        : connection.getInputStream();
+            } catch (IOException e) {
+                // The connection failed, so there is no body to close.
+            }
+        }
+        Streams.closeStream(responseStream);
+        Networking.getHttpTransport().release(connection);
+    }
+
+    /**
+     * Splits the bytes from {@code start} to {@code total} into parts. The first part is the one
+     * already requested. The rest is split into parts of at least {@link #MIN_PART_SIZE} bytes
+     * that can be fetched in parallel, unless the total is unknown.
+     *
+     * @param firstPartEnd the exclusive end of the first part, or -1 if unknown
+     * @param total        the length of the video, or -1 if unknown
+     */
+    @VisibleForTesting
+    static void splitIntoParts(final long start, final long firstPartEnd, final long total,
+            @NonNull final List<Part> parts) {
+        parts.add(new Part(start, firstPartEnd));
+        if (firstPartEnd < 0 || firstPartEnd == total) {
+            return;
+        }
+        if (total < 0) {
+            parts.add(new Part(firstPartEnd, -1));
+            return;
+        }
+
+        final long remaining = total - firstPartEnd;
+        final int partCount = (int) Math.max(1, Math.min(MAX_PARTS - 1, remaining / MIN_PART_SIZE));
+        final long partSize = remaining / partCount;
+        long partStart = firstPartEnd;
+        for (int i = 0; i < partCount; i++) {
+            final long partEnd = i == partCount - 1 ? total : partStart + partSize;
+            parts.add(new Part(partStart, partEnd));
+            partStart = partEnd;
+        }
+    }
+
+    /**
+     * @return the number of bytes from the start of the video that have been written without a
+     * gap
+     */
+    @VisibleForTesting
+    long getContiguousLength(@NonNull final List<Part> parts) {
+        long length = mResumedFrom;
+        for (final Part part : parts) {
+            length = part.start + part.length;
+            if (part.end < 0 || length < part.end) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Parses a {@code Content-Range} header such as {@code bytes 100-199/1000}.
+     *
+     * @return the first byte, the last byte and the total length, which is -1 if unknown. Null
+     * if the header is missing or malformed.
+     */
+    @Nullable
+    @VisibleForTesting
+    static long[] parseContentRange(@Nullable final String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+
+        final int dash = contentRange.indexOf('-');
+        final int slash = contentRange.indexOf('/');
+        if (dash == -1 || slash < dash) {
+            return null;
+        }
+
+        try {
+            final long first = Long.parseLong(contentRange.substring(6, dash).trim());
+            final long last = Long.parseLong(contentRange.substring(dash + 1, slash).trim());
+            final String totalString = contentRange.substring(slash + 1).trim();
+            final long total = "*".equals(totalString) ? -1 : Long.parseLong(totalString);
+            return new long[]{first, last, total};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    static class Part {
+        final long start;
+        // Exclusive, or -1 if the end is unknown.
+        final long end;
+        // Written by a single thread and read once all parts have stopped.
+        volatile long length;
+
+        Part(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
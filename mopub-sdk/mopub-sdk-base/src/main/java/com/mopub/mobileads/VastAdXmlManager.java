@@ -8,10 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 /**
  * This XML manager handles the initial Ad node.
  * There can be many Ad nodes in a VAST document, and this individually separates each one.
@@ -28,9 +27,9 @@ class VastAdXmlManager {
     // Attribute names
     private static final String SEQUENCE = "sequence";
 
-    @NonNull private final Node mAdNode;
+    @NonNull private final XmlNode mAdNode;
 
-    VastAdXmlManager(@NonNull final Node adNode) {
+    VastAdXmlManager(@NonNull final XmlNode adNode) {
         Preconditions.checkNotNull(adNode);
         mAdNode = adNode;
     }
@@ -42,7 +41,7 @@ class VastAdXmlManager {
      */
     @Nullable
     VastInLineXmlManager getInLineXmlManager() {
-        Node inLineNode = XmlUtils.getFirstMatchingChildNode(mAdNode, INLINE);
+        XmlNode inLineNode = XmlUtils.getFirstMatchingChildNode(mAdNode, INLINE);
         VastInLineXmlManager vastInLineXmlManager = null;
         if (inLineNode != null) {
             vastInLineXmlManager = new VastInLineXmlManager(inLineNode);
@@ -57,7 +56,7 @@ class VastAdXmlManager {
      */
     @Nullable
     VastWrapperXmlManager getWrapperXmlManager() {
-        Node wrapperNode = XmlUtils.getFirstMatchingChildNode(mAdNode, WRAPPER);
+        XmlNode wrapperNode = XmlUtils.getFirstMatchingChildNode(mAdNode, WRAPPER);
         VastWrapperXmlManager vastWrapperXmlManager = null;
         if (wrapperNode != null) {
             vastWrapperXmlManager = new VastWrapperXmlManager(wrapperNode);
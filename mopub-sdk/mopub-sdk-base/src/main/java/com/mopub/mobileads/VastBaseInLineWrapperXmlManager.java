@@ -9,10 +9,9 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,9 +27,9 @@ abstract class VastBaseInLineWrapperXmlManager {
     private static final String ERROR = "Error";
     private static final String EXTENSIONS = "Extensions";
 
-    @NonNull protected final Node mNode;
+    @NonNull protected final XmlNode mNode;
 
-    VastBaseInLineWrapperXmlManager(@NonNull Node node) {
+    VastBaseInLineWrapperXmlManager(@NonNull XmlNode node) {
         Preconditions.checkNotNull(node);
         mNode = node;
     }
@@ -43,10 +42,10 @@ abstract class VastBaseInLineWrapperXmlManager {
      */
     @NonNull
     List<VastTracker> getImpressionTrackers() {
-        final List<Node> impressionNodes = XmlUtils.getMatchingChildNodes(mNode, IMPRESSION_TRACKER);
+        final List<XmlNode> impressionNodes = XmlUtils.getMatchingChildNodes(mNode, IMPRESSION_TRACKER);
 
         List<VastTracker> impressionTrackers = new ArrayList<VastTracker>();
-        for (Node impressionNode : impressionNodes) {
+        for (XmlNode impressionNode : impressionNodes) {
             String uri = XmlUtils.getNodeValue(impressionNode);
             if (!TextUtils.isEmpty(uri)) {
                 impressionTrackers.add(new VastTracker(uri));
@@ -64,12 +63,12 @@ abstract class VastBaseInLineWrapperXmlManager {
     @NonNull
     List<VastTracker> getErrorTrackers() {
         final List<VastTracker> errorTrackers = new ArrayList<VastTracker>();
-        final List<Node> errorNodes = XmlUtils.getMatchingChildNodes(mNode, ERROR);
+        final List<XmlNode> errorNodes = XmlUtils.getMatchingChildNodes(mNode, ERROR);
         if (errorNodes == null) {
             return errorTrackers;
         }
 
-        for (Node error : errorNodes) {
+        for (XmlNode error : errorNodes) {
             final String tracker = XmlUtils.getNodeValue(error);
             if (!TextUtils.isEmpty(tracker)) {
                 errorTrackers.add(new VastTracker(tracker, true));
@@ -86,7 +85,7 @@ abstract class VastBaseInLineWrapperXmlManager {
     @NonNull
     List<VastLinearXmlManager> getLinearXmlManagers() {
         final List<VastLinearXmlManager> linearXmlManagers = new ArrayList<VastLinearXmlManager>();
-        final Node creativesNode = XmlUtils.getFirstMatchingChildNode(mNode, CREATIVES);
+        final XmlNode creativesNode = XmlUtils.getFirstMatchingChildNode(mNode, CREATIVES);
         if (creativesNode == null) {
             return linearXmlManagers;
         }
@@ -94,13 +93,13 @@ abstract class VastBaseInLineWrapperXmlManager {
         // NOTE: there can only be one <Linear>, <CompanionAds>, OR <NonLinearAds> element
         // per creative node
 
-        final List<Node> creativeNodes = XmlUtils.getMatchingChildNodes(creativesNode, CREATIVE);
+        final List<XmlNode> creativeNodes = XmlUtils.getMatchingChildNodes(creativesNode, CREATIVE);
         if (creativeNodes == null) {
             return linearXmlManagers;
         }
 
-        for (Node creativeNode : creativeNodes) {
-            Node linearNode = XmlUtils.getFirstMatchingChildNode(creativeNode, LINEAR);
+        for (XmlNode creativeNode : creativeNodes) {
+            XmlNode linearNode = XmlUtils.getFirstMatchingChildNode(creativeNode, LINEAR);
             if (linearNode != null) {
                 linearXmlManagers.add(new VastLinearXmlManager(linearNode));
             }
@@ -118,28 +117,28 @@ abstract class VastBaseInLineWrapperXmlManager {
     List<VastCompanionAdXmlManager> getCompanionAdXmlManagers() {
         final List<VastCompanionAdXmlManager> companionAdXmlManagers = new
                 ArrayList<VastCompanionAdXmlManager>();
-        final Node creativesNode = XmlUtils.getFirstMatchingChildNode(mNode, CREATIVES);
+        final XmlNode creativesNode = XmlUtils.getFirstMatchingChildNode(mNode, CREATIVES);
         if (creativesNode == null) {
             return companionAdXmlManagers;
         }
 
-        final List<Node> creativeNodes = XmlUtils.getMatchingChildNodes(creativesNode, CREATIVE);
+        final List<XmlNode> creativeNodes = XmlUtils.getMatchingChildNodes(creativesNode, CREATIVE);
         if (creativeNodes == null) {
             return companionAdXmlManagers;
         }
 
-        for (Node creativeNode : creativeNodes) {
-            final Node companionAds = XmlUtils.getFirstMatchingChildNode(creativeNode, COMPANION_ADS);
+        for (XmlNode creativeNode : creativeNodes) {
+            final XmlNode companionAds = XmlUtils.getFirstMatchingChildNode(creativeNode, COMPANION_ADS);
             if (companionAds == null) {
                 continue;
             }
 
-            List<Node> companionAdsNodes = XmlUtils.getMatchingChildNodes(companionAds, COMPANION);
+            List<XmlNode> companionAdsNodes = XmlUtils.getMatchingChildNodes(companionAds, COMPANION);
             if (companionAdsNodes == null) {
                 continue;
             }
 
-            for (Node companionNode : companionAdsNodes) {
+            for (XmlNode companionNode : companionAdsNodes) {
                 companionAdXmlManagers.add(new VastCompanionAdXmlManager(companionNode));
             }
         }
@@ -155,7 +154,7 @@ abstract class VastBaseInLineWrapperXmlManager {
      */
     @Nullable
     VastExtensionParentXmlManager getVastExtensionParentXmlManager() {
-        Node vastExtensionsNode = XmlUtils.getFirstMatchingChildNode(mNode, EXTENSIONS);
+        XmlNode vastExtensionsNode = XmlUtils.getFirstMatchingChildNode(mNode, EXTENSIONS);
         if (vastExtensionsNode == null) {
             return null;
         }
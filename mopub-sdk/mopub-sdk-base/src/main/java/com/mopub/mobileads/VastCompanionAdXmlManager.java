@@ -9,10 +9,9 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -37,10 +36,10 @@ class VastCompanionAdXmlManager {
     // Attribute values
     private static final String CREATIVE_VIEW = "creativeView";
 
-    @NonNull private final Node mCompanionNode;
+    @NonNull private final XmlNode mCompanionNode;
     @NonNull private final VastResourceXmlManager mResourceXmlManager;
 
-    VastCompanionAdXmlManager(@NonNull final Node companionNode) {
+    VastCompanionAdXmlManager(@NonNull final XmlNode companionNode) {
         Preconditions.checkNotNull(companionNode, "companionNode cannot be null");
         mCompanionNode = companionNode;
         mResourceXmlManager = new VastResourceXmlManager(companionNode);
@@ -90,7 +89,7 @@ class VastCompanionAdXmlManager {
      */
     @Nullable
     String getClickThroughUrl() {
-        final Node node = XmlUtils.getFirstMatchingChildNode(
+        final XmlNode node = XmlUtils.getFirstMatchingChildNode(
                 mCompanionNode,
                 COMPANION_CLICK_THROUGH
         );
@@ -106,11 +105,11 @@ class VastCompanionAdXmlManager {
     @NonNull
     List<VastTracker> getClickTrackers() {
         final List<VastTracker> companionAdClickTrackers = new ArrayList<VastTracker>();
-        final List<Node> trackerNodes = XmlUtils.getMatchingChildNodes(mCompanionNode, COMPANION_CLICK_TRACKING);
+        final List<XmlNode> trackerNodes = XmlUtils.getMatchingChildNodes(mCompanionNode, COMPANION_CLICK_TRACKING);
         if (trackerNodes == null) {
             return companionAdClickTrackers;
         }
-        for (final Node trackerNode : trackerNodes) {
+        for (final XmlNode trackerNode : trackerNodes) {
             String uri = XmlUtils.getNodeValue(trackerNode);
             if (!TextUtils.isEmpty(uri)) {
                 companionAdClickTrackers.add(new VastTracker(uri));
@@ -129,7 +128,7 @@ class VastCompanionAdXmlManager {
     @NonNull
     List<VastTracker> getCompanionCreativeViewTrackers() {
         final List<VastTracker> companionCreativeViewTrackers = new ArrayList<VastTracker>();
-        final Node node = XmlUtils.getFirstMatchingChildNode(
+        final XmlNode node = XmlUtils.getFirstMatchingChildNode(
                 mCompanionNode,
                 TRACKING_EVENTS
         );
@@ -138,14 +137,14 @@ class VastCompanionAdXmlManager {
             return companionCreativeViewTrackers;
         }
 
-        final List<Node> trackerNodes = XmlUtils.getMatchingChildNodes(
+        final List<XmlNode> trackerNodes = XmlUtils.getMatchingChildNodes(
                 node,
                 VIDEO_TRACKER,
                 EVENT,
                 Collections.singletonList(CREATIVE_VIEW)
         );
 
-        for (final Node trackerNode : trackerNodes) {
+        for (final XmlNode trackerNode : trackerNodes) {
             final String trackerUrl = XmlUtils.getNodeValue(trackerNode);
             if (trackerUrl != null) {
                 companionCreativeViewTrackers.add(new VastTracker(trackerUrl));
@@ -7,10 +7,9 @@ package com.mopub.mobileads;
 import androidx.annotation.NonNull;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,9 +19,9 @@ import java.util.List;
 public class VastExtensionParentXmlManager {
 
     private static final String EXTENSION = "Extension";
-    @NonNull private final Node mVastExtensionParentNode;
+    @NonNull private final XmlNode mVastExtensionParentNode;
 
-    VastExtensionParentXmlManager(@NonNull Node vastExtensionParentNode) {
+    VastExtensionParentXmlManager(@NonNull XmlNode vastExtensionParentNode) {
         Preconditions.checkNotNull(vastExtensionParentNode);
 
         mVastExtensionParentNode = vastExtensionParentNode;
@@ -39,13 +38,13 @@ public class VastExtensionParentXmlManager {
         final List<VastExtensionXmlManager> vastExtensionXmlManagers = new
                 ArrayList<VastExtensionXmlManager>();
 
-        final List<Node> vastExtensionNodes =
+        final List<XmlNode> vastExtensionNodes =
                 XmlUtils.getMatchingChildNodes(mVastExtensionParentNode, EXTENSION);
         if (vastExtensionNodes == null) {
             return vastExtensionXmlManagers;
         }
 
-        for (Node vastExtensionNode : vastExtensionNodes) {
+        for (XmlNode vastExtensionNode : vastExtensionNodes) {
             vastExtensionXmlManagers.add(new VastExtensionXmlManager(vastExtensionNode));
         }
 
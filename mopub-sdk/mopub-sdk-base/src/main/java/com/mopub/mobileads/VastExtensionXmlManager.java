@@ -9,10 +9,9 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -33,9 +32,9 @@ public class VastExtensionXmlManager {
     public static final String ID = "id";
     public static final String MOAT = "Moat";
 
-    private final Node mExtensionNode;
+    private final XmlNode mExtensionNode;
 
-    public VastExtensionXmlManager(@NonNull Node extensionNode) {
+    public VastExtensionXmlManager(@NonNull XmlNode extensionNode) {
         Preconditions.checkNotNull(extensionNode);
 
         this.mExtensionNode = extensionNode;
@@ -49,7 +48,7 @@ public class VastExtensionXmlManager {
      */
     @Nullable
     VideoViewabilityTracker getVideoViewabilityTracker() {
-        Node videoViewabilityTrackerNode =
+        XmlNode videoViewabilityTrackerNode =
                 XmlUtils.getFirstMatchingChildNode(mExtensionNode, VIDEO_VIEWABILITY_TRACKER);
         if (videoViewabilityTrackerNode == null) {
             return null;
@@ -79,7 +78,7 @@ public class VastExtensionXmlManager {
      */
     @Nullable
     Set<String> getAvidJavaScriptResources() {
-        final Node avidNode = XmlUtils.getFirstMatchingChildNode(mExtensionNode, AVID);
+        final XmlNode avidNode = XmlUtils.getFirstMatchingChildNode(mExtensionNode, AVID);
         if (avidNode == null) {
             return null;
         }
@@ -96,12 +95,12 @@ public class VastExtensionXmlManager {
      */
     @Nullable
     Set<String> getMoatImpressionPixels() {
-        final Node adVerification = XmlUtils.getFirstMatchingChildNode(mExtensionNode, AD_VERIFICATIONS);
+        final XmlNode adVerification = XmlUtils.getFirstMatchingChildNode(mExtensionNode, AD_VERIFICATIONS);
         if (adVerification == null) {
             return null;
         }
 
-        final List<Node> moatNodes = XmlUtils.getMatchingChildNodes(adVerification, VERIFICATION,
+        final List<XmlNode> moatNodes = XmlUtils.getMatchingChildNodes(adVerification, VERIFICATION,
                 VENDOR, Collections.singletonList(MOAT));
         if (moatNodes == null || moatNodes.isEmpty()) {
             return null;
@@ -10,10 +10,9 @@ import androidx.annotation.Nullable;
 import com.mopub.common.Preconditions;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Strings;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,10 +35,10 @@ public class VastIconXmlManager {
     public static final String OFFSET = "offset";
     public static final String DURATION = "duration";
 
-    @NonNull private final Node mIconNode;
+    @NonNull private final XmlNode mIconNode;
     @NonNull private final VastResourceXmlManager mResourceXmlManager;
 
-    VastIconXmlManager(@NonNull final Node iconNode) {
+    VastIconXmlManager(@NonNull final XmlNode iconNode) {
         Preconditions.checkNotNull(iconNode);
         mIconNode = iconNode;
         mResourceXmlManager = new VastResourceXmlManager(iconNode);
@@ -114,15 +113,15 @@ public class VastIconXmlManager {
 
     @NonNull
     List<VastTracker> getClickTrackingUris() {
-        Node iconClicksNode = XmlUtils.getFirstMatchingChildNode(mIconNode, ICON_CLICKS);
+        XmlNode iconClicksNode = XmlUtils.getFirstMatchingChildNode(mIconNode, ICON_CLICKS);
         List<VastTracker> iconClickTrackingUris = new ArrayList<VastTracker>();
         if (iconClicksNode == null) {
             return iconClickTrackingUris;
         }
 
-        List<Node> iconClickTrackingNodes =
+        List<XmlNode> iconClickTrackingNodes =
                 XmlUtils.getMatchingChildNodes(iconClicksNode, ICON_CLICK_TRACKING);
-        for (Node iconClickTrackingNode : iconClickTrackingNodes) {
+        for (XmlNode iconClickTrackingNode : iconClickTrackingNodes) {
             String uri = XmlUtils.getNodeValue(iconClickTrackingNode);
             if (uri != null) {
                 iconClickTrackingUris.add(new VastTracker(uri));
@@ -133,23 +132,23 @@ public class VastIconXmlManager {
 
     @Nullable
     String getClickThroughUri() {
-        Node iconClicksNode = XmlUtils.getFirstMatchingChildNode(mIconNode, ICON_CLICKS);
+        XmlNode iconClicksNode = XmlUtils.getFirstMatchingChildNode(mIconNode, ICON_CLICKS);
         if (iconClicksNode == null) {
             return null;
         }
 
-        Node iconClickThroughNode =
+        XmlNode iconClickThroughNode =
                 XmlUtils.getFirstMatchingChildNode(iconClicksNode, ICON_CLICK_THROUGH);
         return XmlUtils.getNodeValue(iconClickThroughNode);
     }
 
     @NonNull
     List<VastTracker> getViewTrackingUris() {
-        List<Node> iconViewTrackingNodes =
+        List<XmlNode> iconViewTrackingNodes =
                 XmlUtils.getMatchingChildNodes(mIconNode, ICON_VIEW_TRACKING);
         List<VastTracker> iconViewTrackingUris = new ArrayList<VastTracker>();
 
-        for (Node iconViewTrackingNode : iconViewTrackingNodes) {
+        for (XmlNode iconViewTrackingNode : iconViewTrackingNodes) {
             String uri = XmlUtils.getNodeValue(iconViewTrackingNode);
             if (uri != null) {
                 iconViewTrackingUris.add(new VastTracker(uri));
@@ -6,7 +6,7 @@ package com.mopub.mobileads;
 
 import androidx.annotation.NonNull;
 
-import org.w3c.dom.Node;
+import com.mopub.mobileads.util.XmlNode;
 
 /**
  * This XML manager handles InLine nodes. An InLine node can contain impression trackers,
@@ -14,7 +14,7 @@ import org.w3c.dom.Node;
  */
 class VastInLineXmlManager extends VastBaseInLineWrapperXmlManager {
 
-    VastInLineXmlManager(@NonNull final Node inLineNode) {
+    VastInLineXmlManager(@NonNull final XmlNode inLineNode) {
         super(inLineNode);
     }
 }
@@ -10,10 +10,9 @@ import androidx.annotation.Nullable;
 import com.mopub.common.Preconditions;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Strings;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -62,9 +61,9 @@ class VastLinearXmlManager {
     private static final float MID_POINT_MARKER = 0.50f;
     private static final float THIRD_QUARTER_MARKER = 0.75f;
 
-    @NonNull private final Node mLinearNode;
+    @NonNull private final XmlNode mLinearNode;
 
-    VastLinearXmlManager(@NonNull final Node linearNode) {
+    VastLinearXmlManager(@NonNull final XmlNode linearNode) {
         Preconditions.checkNotNull(linearNode);
         mLinearNode = linearNode;
     }
@@ -96,13 +95,13 @@ class VastLinearXmlManager {
         addQuartileTrackerWithFraction(percentTrackers, getVideoTrackersByAttribute(MIDPOINT), MID_POINT_MARKER);
         addQuartileTrackerWithFraction(percentTrackers, getVideoTrackersByAttribute(THIRD_QUARTILE), THIRD_QUARTER_MARKER);
 
-        final Node trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
+        final XmlNode trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
         if (trackingEvents != null) {
             // Get any other trackers with event="progress" offset="n%"
-            final List<Node> progressNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
+            final List<XmlNode> progressNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
                     VIDEO_TRACKER, EVENT, Collections.singletonList(PROGRESS));
 
-            for (Node progressNode : progressNodes) {
+            for (XmlNode progressNode : progressNodes) {
                 String offsetString = XmlUtils.getAttributeValue(progressNode, OFFSET);
                 if (offsetString == null) {
                     continue;
@@ -157,13 +156,13 @@ class VastLinearXmlManager {
             trackers.add(new VastAbsoluteProgressTracker(url, START_TRACKER_THRESHOLD));
         }
 
-        final Node trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
+        final XmlNode trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
         if (trackingEvents != null) {
             // Parse progress trackers and extract the absolute offsets of the form "HH:MM:SS[.mmm]"
 
-            final List<Node> progressNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
+            final List<XmlNode> progressNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
                     VIDEO_TRACKER, EVENT, Collections.singletonList(PROGRESS));
-            for (Node progressNode : progressNodes) {
+            for (XmlNode progressNode : progressNodes) {
                 String offsetString = XmlUtils.getAttributeValue(progressNode, OFFSET);
                 if (offsetString == null) {
                     continue;
@@ -184,9 +183,9 @@ class VastLinearXmlManager {
             }
 
             // Parse creativeView trackers
-            final List<Node> creativeViewNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
+            final List<XmlNode> creativeViewNodes = XmlUtils.getMatchingChildNodes(trackingEvents,
                     VIDEO_TRACKER, EVENT, Collections.singletonList(CREATIVE_VIEW));
-            for (Node creativeViewNode : creativeViewNodes) {
+            for (XmlNode creativeViewNode : creativeViewNodes) {
                 final String creativeNodeValue = XmlUtils.getNodeValue(creativeViewNode);
                 if (creativeNodeValue != null) {
                     trackers.add(
@@ -270,7 +269,7 @@ class VastLinearXmlManager {
      */
     @Nullable
     String getClickThroughUrl() {
-        final Node videoClicks = XmlUtils.getFirstMatchingChildNode(mLinearNode, VIDEO_CLICKS);
+        final XmlNode videoClicks = XmlUtils.getFirstMatchingChildNode(mLinearNode, VIDEO_CLICKS);
         if (videoClicks == null) {
             return null;
         }
@@ -286,17 +285,17 @@ class VastLinearXmlManager {
     List<VastTracker> getClickTrackers() {
         List<VastTracker> clickTrackers = new ArrayList<VastTracker>();
 
-        final Node videoClicks = XmlUtils.getFirstMatchingChildNode(mLinearNode, VIDEO_CLICKS);
+        final XmlNode videoClicks = XmlUtils.getFirstMatchingChildNode(mLinearNode, VIDEO_CLICKS);
         if (videoClicks == null) {
             return clickTrackers;
         }
 
-        final List<Node> clickTrackerNodes = XmlUtils.getMatchingChildNodes(
+        final List<XmlNode> clickTrackerNodes = XmlUtils.getMatchingChildNodes(
                 videoClicks,
                 CLICK_TRACKER
         );
 
-        for (Node clickTrackerNode : clickTrackerNodes) {
+        for (XmlNode clickTrackerNode : clickTrackerNodes) {
             String tracker = XmlUtils.getNodeValue(clickTrackerNode);
             if (tracker != null) {
                 clickTrackers.add(new VastTracker(tracker));
@@ -336,13 +335,13 @@ class VastLinearXmlManager {
     List<VastMediaXmlManager> getMediaXmlManagers() {
         final List<VastMediaXmlManager> mediaXmlManagers = new ArrayList<VastMediaXmlManager>();
 
-        final Node mediaFiles = XmlUtils.getFirstMatchingChildNode(mLinearNode, MEDIA_FILES);
+        final XmlNode mediaFiles = XmlUtils.getFirstMatchingChildNode(mLinearNode, MEDIA_FILES);
         if (mediaFiles == null) {
             return mediaXmlManagers;
         }
 
-        List<Node> mediaNodes = XmlUtils.getMatchingChildNodes(mediaFiles, MEDIA_FILE);
-        for (Node mediaNode : mediaNodes) {
+        List<XmlNode> mediaNodes = XmlUtils.getMatchingChildNodes(mediaFiles, MEDIA_FILE);
+        for (XmlNode mediaNode : mediaNodes) {
             mediaXmlManagers.add(new VastMediaXmlManager(mediaNode));
         }
 
@@ -353,13 +352,13 @@ class VastLinearXmlManager {
     List<VastIconXmlManager> getIconXmlManagers() {
         final List<VastIconXmlManager> iconXmlManagers = new ArrayList<VastIconXmlManager>();
 
-        final Node icons= XmlUtils.getFirstMatchingChildNode(mLinearNode, ICONS);
+        final XmlNode icons= XmlUtils.getFirstMatchingChildNode(mLinearNode, ICONS);
         if (icons == null) {
             return iconXmlManagers;
         }
 
-        List<Node> iconNodes = XmlUtils.getMatchingChildNodes(icons, ICON);
-        for (Node iconNode : iconNodes) {
+        List<XmlNode> iconNodes = XmlUtils.getMatchingChildNodes(icons, ICON);
+        for (XmlNode iconNode : iconNodes) {
             iconXmlManagers.add(new VastIconXmlManager(iconNode));
         }
 
@@ -389,19 +388,19 @@ class VastLinearXmlManager {
         Preconditions.checkNotNull(attributeValue);
         List<String> videoTrackers = new ArrayList<String>();
 
-        final Node trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
+        final XmlNode trackingEvents = XmlUtils.getFirstMatchingChildNode(mLinearNode, TRACKING_EVENTS);
         if (trackingEvents == null) {
             return videoTrackers;
         }
 
-        final List<Node> videoTrackerNodes = XmlUtils.getMatchingChildNodes(
+        final List<XmlNode> videoTrackerNodes = XmlUtils.getMatchingChildNodes(
                 trackingEvents,
                 VIDEO_TRACKER,
                 EVENT,
                 Collections.singletonList(attributeValue)
         );
 
-        for (Node videoTrackerNode : videoTrackerNodes) {
+        for (XmlNode videoTrackerNode : videoTrackerNodes) {
             String tracker = XmlUtils.getNodeValue(videoTrackerNode);
             if (tracker != null) {
                 videoTrackers.add(tracker);
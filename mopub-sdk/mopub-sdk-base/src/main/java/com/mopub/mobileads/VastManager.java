@@ -16,6 +16,7 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.mobileads.VideoDownloader.VideoBufferedListener;
 import com.mopub.mobileads.VideoDownloader.VideoDownloaderListener;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
@@ -42,6 +43,14 @@ public class VastManager implements VastXmlManagerAggregator.VastXmlManagerAggre
          *                               video or {@code null} if the VAST document is invalid.
          */
         void onVastVideoConfigurationPrepared(@Nullable final VastVideoConfig vastVideoConfig);
+
+        /**
+         * Called when the rest of a video that is played progressively fails to download, after
+         * its configuration was prepared. The configuration can no longer be played.
+         *
+         * @param vastVideoConfig The configuration that was prepared for the video.
+         */
+        void onVastVideoDownloadFailed(@NonNull final VastVideoConfig vastVideoConfig);
     }
 
     @Nullable private VastManagerListener mVastManagerListener;
@@ -51,10 +60,24 @@ public class VastManager implements VastXmlManagerAggregator.VastXmlManagerAggre
     private int mScreenWidthDp;
 
     private final boolean mShouldPreCacheVideo;
+    private final boolean mShouldPlayProgressively;
+    // Set once the listener was notified before the video finished downloading.
+    private boolean mIsPlayingProgressively;
 
     public VastManager(@NonNull final Context context, boolean shouldPreCacheVideo) {
+        this(context, shouldPreCacheVideo, false);
+    }
+
+    /**
+     * @param shouldPlayProgressively if true, the video configuration is prepared as soon as
+     *                                enough of the video is cached to start playing it, while
+     *                                the rest is still downloading
+     */
+    public VastManager(@NonNull final Context context, boolean shouldPreCacheVideo,
+            boolean shouldPlayProgressively) {
         initializeScreenDimensions(context);
         mShouldPreCacheVideo = shouldPreCacheVideo;
+        mShouldPlayProgressively = shouldPlayProgressively;
     }
 
     /**
@@ -124,16 +147,66 @@ public class VastManager implements VastXmlManagerAggregator.VastXmlManagerAggre
         final VideoDownloaderListener videoDownloaderListener = new VideoDownloaderListener() {
             @Override
             public void onComplete(boolean success) {
-                if (success && updateDiskMediaFileUrl(vastVideoConfig)) {
-                    mVastManagerListener.onVastVideoConfigurationPrepared(vastVideoConfig);
-                } else {
-                    MoPubLog.log(CUSTOM, "Failed to download VAST video.");
-                    mVastManagerListener.onVastVideoConfigurationPrepared(null);
-                }
+                onVideoDownloaded(vastVideoConfig, success);
             }
         };
 
-        VideoDownloader.cache(vastVideoConfig.getNetworkMediaFileUrl(), videoDownloaderListener);
+        VideoBufferedListener videoBufferedListener = null;
+        if (mShouldPlayProgressively) {
+            videoBufferedListener = new VideoBufferedListener() {
+                @Override
+                public void onBuffered() {
+                    onVideoBuffered(vastVideoConfig);
+                }
+            };
+        }
+
+        VideoDownloader.cache(vastVideoConfig.getNetworkMediaFileUrl(), videoDownloaderListener,
+                videoBufferedListener);
+    }
+
+    /**
+     * Prepares the configuration once enough of its video is cached to start playing it.
+     */
+    @VisibleForTesting
+    void onVideoBuffered(@NonNull final VastVideoConfig vastVideoConfig) {
+        if (mVastManagerListener == null) {
+            return;
+        }
+
+        // The disk path is where the video will be once it is downloaded. Until then, the video
+        // player streams it through ProgressiveVideoServer.
+        final String filePathDiskCache = CacheService.getFilePathDiskCache(
+                vastVideoConfig.getNetworkMediaFileUrl());
+        if (filePathDiskCache == null) {
+            return;
+        }
+        vastVideoConfig.setDiskMediaFileUrl(filePathDiskCache);
+        mIsPlayingProgressively = true;
+        mVastManagerListener.onVastVideoConfigurationPrepared(vastVideoConfig);
+    }
+
+    @VisibleForTesting
+    void onVideoDownloaded(@NonNull final VastVideoConfig vastVideoConfig, final boolean success) {
+        if (mVastManagerListener == null) {
+            return;
+        }
+
+        if (mIsPlayingProgressively) {
+            // The configuration was prepared already, so a failure has to undo that.
+            if (!success) {
+                MoPubLog.log(CUSTOM, "Failed to download the rest of the VAST video.");
+                mVastManagerListener.onVastVideoDownloadFailed(vastVideoConfig);
+            }
+            return;
+        }
+
+        if (success && updateDiskMediaFileUrl(vastVideoConfig)) {
+            mVastManagerListener.onVastVideoConfigurationPrepared(vastVideoConfig);
+        } else {
+            MoPubLog.log(CUSTOM, "Failed to download VAST video.");
+            mVastManagerListener.onVastVideoConfigurationPrepared(null);
+        }
     }
 
     /**
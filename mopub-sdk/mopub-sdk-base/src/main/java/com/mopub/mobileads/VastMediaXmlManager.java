@@ -8,10 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 /**
  * This XML manager handles the actual video.
  */
@@ -26,9 +25,9 @@ class VastMediaXmlManager {
     private static final String BITRATE_MIN = "minBitrate";
     private static final String BITRATE_MAX = "maxBitrate";
 
-    @NonNull private final Node mMediaNode;
+    @NonNull private final XmlNode mMediaNode;
 
-    VastMediaXmlManager(@NonNull final Node mediaNode) {
+    VastMediaXmlManager(@NonNull final XmlNode mediaNode) {
         Preconditions.checkNotNull(mediaNode, "mediaNode cannot be null");
         mMediaNode = mediaNode;
     }
@@ -8,10 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 public class VastResourceXmlManager {
 
     // Element names
@@ -22,9 +21,9 @@ public class VastResourceXmlManager {
     // Attribute names
     public static final String CREATIVE_TYPE = "creativeType";
 
-    @NonNull private final Node mResourceNode;
+    @NonNull private final XmlNode mResourceNode;
 
-    VastResourceXmlManager(@NonNull final Node resourceNode) {
+    VastResourceXmlManager(@NonNull final XmlNode resourceNode) {
         Preconditions.checkNotNull(resourceNode);
         mResourceNode = resourceNode;
     }
@@ -48,7 +47,7 @@ public class VastResourceXmlManager {
      */
     @Nullable
     String getStaticResourceType() {
-        Node staticResource = XmlUtils.getFirstMatchingChildNode(mResourceNode, STATIC_RESOURCE);
+        XmlNode staticResource = XmlUtils.getFirstMatchingChildNode(mResourceNode, STATIC_RESOURCE);
         String attribute = XmlUtils.getAttributeValue(staticResource, CREATIVE_TYPE);
         if (attribute != null) {
             return attribute.toLowerCase();
@@ -7,6 +7,8 @@ package com.mopub.mobileads;
 import android.content.Context;
 import android.media.MediaMetadataRetriever;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.widget.ImageView;
@@ -30,6 +32,8 @@ public class VastVideoView extends VideoView {
 
     @Nullable private VastVideoBlurLastVideoFrameTask mBlurLastVideoFrameTask;
     @Nullable private MediaMetadataRetriever mMediaMetadataRetriever;
+    @NonNull private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private boolean mIsDestroyed;
 
     public VastVideoView(@NonNull final Context context) {
         super(context);
@@ -62,11 +66,42 @@ public class VastVideoView extends VideoView {
         }
     }
 
+    /**
+     * Like {@link #prepareBlurredLastVideoFrame(ImageView, String)}, for a video that may still be
+     * downloading. The last frame can only be read once the video file is complete, so if
+     * {@code download} is still in progress, the task is launched when it has succeeded.
+     */
+    void prepareBlurredLastVideoFrame(@NonNull final ImageView blurredLastVideoFrameImageView,
+            @NonNull final String diskMediaFileUrl, @Nullable final RangedVideoDownload download) {
+        final RangedVideoDownload.FinishListener finishListener =
+                new RangedVideoDownload.FinishListener() {
+                    @Override
+                    public void onFinished(final boolean success) {
+                        if (!success) {
+                            return;
+                        }
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!mIsDestroyed) {
+                                    prepareBlurredLastVideoFrame(blurredLastVideoFrameImageView,
+                                            diskMediaFileUrl);
+                                }
+                            }
+                        });
+                    }
+                };
+        if (download == null || !download.addFinishListener(finishListener)) {
+            prepareBlurredLastVideoFrame(blurredLastVideoFrameImageView, diskMediaFileUrl);
+        }
+    }
+
     /**
      * Called when the activity enclosing this view is destroyed. We do not want to continue this
      * task when the activity expecting the result no longer exists.
      */
     public void onDestroy() {
+        mIsDestroyed = true;
         if (mBlurLastVideoFrameTask != null &&
                 mBlurLastVideoFrameTask.getStatus() != AsyncTask.Status.FINISHED) {
             mBlurLastVideoFrameTask.cancel(true);
@@ -27,6 +27,7 @@ import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.VideoView;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.ExternalViewabilitySession.VideoEvent;
 import com.mopub.common.ExternalViewabilitySessionManager;
 import com.mopub.common.IntentActions;
@@ -101,6 +102,9 @@ public class VastVideoViewController extends BaseVideoViewController {
     private boolean mIsCalibrationDone = false;
     private boolean mHasSocialActions = false;
     private int mDuration;
+    // Keeps the cached video from being evicted while it is played from the disk cache
+    @Nullable private CacheService.MappedCacheEntry mPinnedVideo;
+    @Nullable private String mPlaybackUrl;
 
     /**
      * For when the video is closing.
@@ -304,6 +308,11 @@ public class VastVideoViewController extends BaseVideoViewController {
         broadcastAction(IntentActions.ACTION_INTERSTITIAL_DISMISS);
 
         mVideoView.onDestroy();
+        ProgressiveVideoServer.unregisterPlaybackUrl(mPlaybackUrl);
+        if (mPinnedVideo != null) {
+            mPinnedVideo.close();
+            mPinnedVideo = null;
+        }
     }
 
     @Override
@@ -378,6 +387,16 @@ public class VastVideoViewController extends BaseVideoViewController {
             throw new IllegalStateException("VastVideoConfig does not have a video disk path");
         }
         final VastVideoView videoView = new VastVideoView(context);
+        // Streams the video from the disk cache while it is still being downloaded.
+        final String diskMediaFileUrl = mVastVideoConfig.getDiskMediaFileUrl();
+        final String playbackUrl = ProgressiveVideoServer.getPlaybackUrl(
+                mVastVideoConfig.getNetworkMediaFileUrl(), diskMediaFileUrl);
+        mPlaybackUrl = playbackUrl;
+        if (diskMediaFileUrl.equals(playbackUrl)
+                && mVastVideoConfig.getNetworkMediaFileUrl() != null) {
+            mPinnedVideo = CacheService.getMappedFromDiskCache(
+                    mVastVideoConfig.getNetworkMediaFileUrl());
+        }
 
         videoView.setId((int) Utils.generateUniqueId());
 
@@ -391,8 +410,14 @@ public class VastVideoViewController extends BaseVideoViewController {
                 mExternalViewabilitySessionManager.onVideoPrepared(getLayout(), mDuration);
                 adjustSkipOffset();
                 if (mVastCompanionAdConfig == null || mHasSocialActions) {
+                    // The frame is read from the disk, once a progressive download is complete.
+                    final String networkMediaFileUrl = mVastVideoConfig.getNetworkMediaFileUrl();
+                    final RangedVideoDownload download =
+                            diskMediaFileUrl.equals(playbackUrl) || networkMediaFileUrl == null
+                                    ? null
+                                    : RangedVideoDownload.getActiveDownload(networkMediaFileUrl);
                     videoView.prepareBlurredLastVideoFrame(mBlurredLastVideoFrameImageView,
-                            mVastVideoConfig.getDiskMediaFileUrl());
+                            diskMediaFileUrl, download);
                 }
                 mProgressBarWidget.calibrateAndMakeVisible(getDuration(), mShowCloseButtonDelay);
                 mRadialCountdownWidget.calibrateAndMakeVisible(mShowCloseButtonDelay);
@@ -472,7 +497,7 @@ public class VastVideoViewController extends BaseVideoViewController {
             }
         });
 
-        videoView.setVideoPath(mVastVideoConfig.getDiskMediaFileUrl());
+        videoView.setVideoPath(playbackUrl);
         videoView.setVisibility(initialVisibility);
 
         return videoView;
@@ -1035,6 +1060,13 @@ public class VastVideoViewController extends BaseVideoViewController {
         return mVideoView;
     }
 
+    @Deprecated
+    @VisibleForTesting
+    @Nullable
+    CacheService.MappedCacheEntry getPinnedVideo() {
+        return mPinnedVideo;
+    }
+
     @Deprecated
     @VisibleForTesting
     void setIsClosing(boolean isClosing) {
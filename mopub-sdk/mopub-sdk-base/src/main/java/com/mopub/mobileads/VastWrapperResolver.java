@@ -0,0 +1,330 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import android.text.TextUtils;
+
+import com.mopub.common.MoPubHttpUrlConnection;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Streams;
+import com.mopub.common.util.Strings;
+import com.mopub.network.Networking;
+import com.mopub.volley.Cache;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.toolbox.HttpHeaderParser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Fetches the VAST documents that wrappers redirect to for one {@link VastXmlManagerAggregator}.
+ * A redirect can be prefetched in the background as soon as its wrapper is parsed, so that it is
+ * ready by the time the Ad elements before it have been evaluated. Documents fetched by any
+ * aggregator are kept for as long as their Cache-Control or Expires
+ * headers allow, up to {@link #CACHE_TTL_MS}, so that ad units sharing a wrapper don't fetch it
+ * again. Every redirect that is followed is recorded as a {@link Hop}.
+ * <p/>
+ * Apart from the shared cache, this is only used from the aggregator's background thread.
+ */
+public class VastWrapperResolver {
+
+    /**
+     * Where the document for a hop came from.
+     */
+    enum Source {
+        NETWORK,
+        PREFETCH,
+        CACHE
+    }
+
+    /**
+     * One redirect followed by the aggregator.
+     */
+    static class Hop {
+        @NonNull final String mUrl;
+        @NonNull final Source mSource;
+        // Time the aggregator waited for the document, not including any time spent prefetching
+        // it before it was needed.
+        final long mLatencyMs;
+        final boolean mSucceeded;
+
+        Hop(@NonNull final String url, @NonNull final Source source, final long latencyMs,
+                final boolean succeeded) {
+            mUrl = url;
+            mSource = source;
+            mLatencyMs = latencyMs;
+            mSucceeded = succeeded;
+        }
+    }
+
+    /**
+     * The longest a document is cached, however long its headers allow.
+     */
+    static final long CACHE_TTL_MS = 60 * 1000;
+    static final int MAX_CACHED_DOCUMENTS = 16;
+    // At most one redirect is prefetched per document, so a couple of threads are enough
+    private static final int PREFETCH_THREADS = 2;
+
+    private static class CachedDocument {
+        @NonNull final String mXml;
+        final long mExpiresAtMs;
+
+        CachedDocument(@NonNull final String xml, final long expiresAtMs) {
+            mXml = xml;
+            mExpiresAtMs = expiresAtMs;
+        }
+    }
+
+    @NonNull
+    private static final LruCache<String, CachedDocument> sCache =
+            new LruCache<String, CachedDocument>(MAX_CACHED_DOCUMENTS);
+
+    @NonNull
+    private static final ThreadPoolExecutor sPrefetchExecutor = new ThreadPoolExecutor(
+            PREFETCH_THREADS, PREFETCH_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "VastWrapperResolver");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        sPrefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @NonNull private final Map<String, Future<String>> mPrefetches =
+            new HashMap<String, Future<String>>();
+    /**
+     * Urls already followed by this resolver. A wrapper chain that comes back to one of these
+     * fetches it again rather than reading it from the cache, the same as it did before there
+     * was a cache, since the server may well answer differently the second time.
+     */
+    @NonNull private final Set<String> mFollowedUrls = new HashSet<String>();
+    @NonNull private final List<Hop> mHops = new ArrayList<Hop>();
+
+    /**
+     * Starts fetching the document at this url in the background, unless it is cached, already
+     * being fetched, or has already been followed.
+     */
+    void prefetch(@Nullable final String url) {
+        if (TextUtils.isEmpty(url) || mPrefetches.containsKey(url)
+                || mFollowedUrls.contains(url) || getCachedDocument(url) != null) {
+            return;
+        }
+
+        mPrefetches.put(url, sPrefetchExecutor.submit(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return fetch(url);
+            }
+        }));
+    }
+
+    /**
+     * Stops prefetching the document at this url, since it won't be followed. A document that
+     * was already fetched stays in the cache if its headers allow it.
+     */
+    void cancelPrefetch(@Nullable final String url) {
+        final Future<String> prefetch = mPrefetches.remove(url);
+        if (prefetch != null) {
+            prefetch.cancel(true);
+        }
+    }
+
+    /**
+     * Stops every prefetch that was never followed.
+     */
+    void cancelPrefetches() {
+        for (final Future<String> prefetch : mPrefetches.values()) {
+            prefetch.cancel(true);
+        }
+        mPrefetches.clear();
+    }
+
+    /**
+     * Gets the document at this url, waiting for it to be prefetched, or from the cache, or by
+     * fetching it now.
+     *
+     * @return the document, which is not necessarily valid VAST
+     * @throws IOException if the document could not be fetched
+     */
+    @NonNull
+    String resolve(@NonNull final String url) throws IOException {
+        Preconditions.checkNotNull(url);
+
+        final long startMs = SystemClock.uptimeMillis();
+        final boolean followedBefore = !mFollowedUrls.add(url);
+        final Future<String> prefetch = mPrefetches.remove(url);
+
+        Source source = Source.NETWORK;
+        boolean succeeded = false;
+        try {
+            final String xml;
+            if (prefetch != null) {
+                source = Source.PREFETCH;
+                xml = getPrefetchedDocument(prefetch);
+            } else {
+                final String cachedXml = followedBefore ? null : getCachedDocument(url);
+                if (cachedXml != null) {
+                    source = Source.CACHE;
+                    xml = cachedXml;
+                } else {
+                    xml = fetch(url);
+                }
+            }
+            succeeded = true;
+            return xml;
+        } finally {
+            final Hop hop = new Hop(url, source, SystemClock.uptimeMillis() - startMs, succeeded);
+            mHops.add(hop);
+            MoPubLog.log(CUSTOM, "VAST wrapper hop " + mHops.size() + " to " + url + " took "
+                    + hop.mLatencyMs + " ms from " + source + (succeeded ? "." : " and failed."));
+        }
+    }
+
+    /**
+     * @return the redirects followed so far, in order
+     */
+    @NonNull
+    List<Hop> getHops() {
+        return Collections.unmodifiableList(mHops);
+    }
+
+    @VisibleForTesting
+    int getPrefetchCount() {
+        return mPrefetches.size();
+    }
+
+    @NonNull
+    private static String getPrefetchedDocument(@NonNull final Future<String> prefetch)
+            throws IOException {
+        try {
+            return prefetch.get();
+        } catch (InterruptedException e) {
+            prefetch.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for VAST redirect");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @NonNull
+    private static String fetch(@NonNull final String url) throws IOException {
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+        try {
+            urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(url);
+            inputStream = new BufferedInputStream(urlConnection.getInputStream());
+
+            final String xml = Strings.fromStream(inputStream);
+            final int responseCode = urlConnection.getResponseCode();
+            if (responseCode >= 200 && responseCode < 300 && !TextUtils.isEmpty(xml)) {
+                final long freshnessMs = getFreshnessMs(responseCode, urlConnection);
+                if (freshnessMs > 0) {
+                    cacheDocument(url, xml, SystemClock.uptimeMillis() + freshnessMs);
+                }
+            }
+            return xml;
+        } finally {
+            Streams.closeStream(inputStream);
+            if (urlConnection != null) {
+                Networking.getHttpTransport().release(urlConnection);
+            }
+        }
+    }
+
+    /**
+     * Reads how long the response may be reused from its Cache-Control or Expires headers, the
+     * same way Volley does for its cache. A response without either header isn't reused.
+     *
+     * @return how long the response may be cached, at most {@link #CACHE_TTL_MS}, or 0 if it
+     * may not be cached
+     */
+    @VisibleForTesting
+    static long getFreshnessMs(final int responseCode,
+            @NonNull final HttpURLConnection urlConnection) {
+        final Map<String, String> headers =
+                new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, List<String>> headerFields = urlConnection.getHeaderFields();
+        if (headerFields != null) {
+            for (final Map.Entry<String, List<String>> header : headerFields.entrySet()) {
+                // The status line has no name
+                if (header.getKey() != null && header.getValue() != null
+                        && !header.getValue().isEmpty()) {
+                    headers.put(header.getKey(), header.getValue().get(0));
+                }
+            }
+        }
+
+        final long nowMs = System.currentTimeMillis();
+        final Cache.Entry entry = HttpHeaderParser.parseCacheHeaders(
+                new NetworkResponse(responseCode, new byte[0], headers, false));
+        if (entry == null) {
+            return 0;
+        }
+        return Math.max(0, Math.min(entry.softTtl - nowMs, CACHE_TTL_MS));
+    }
+
+    @VisibleForTesting
+    static void cacheDocument(@NonNull final String url, @NonNull final String xml,
+            final long expiresAtMs) {
+        sCache.put(url, new CachedDocument(xml, expiresAtMs));
+    }
+
+    @Nullable
+    private static String getCachedDocument(@NonNull final String url) {
+        final CachedDocument cachedDocument = sCache.get(url);
+        if (cachedDocument == null) {
+            return null;
+        }
+        if (SystemClock.uptimeMillis() >= cachedDocument.mExpiresAtMs) {
+            sCache.remove(url);
+            return null;
+        }
+        return cachedDocument.mXml;
+    }
+
+    @VisibleForTesting
+    public static void clearCache() {
+        sCache.evictAll();
+    }
+}
@@ -8,10 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 /**
  * This XML manager handles Wrapper nodes. Wrappers redirect to other VAST documents (which may
  * in turn redirect to more wrappers). Wrappers can also contain impression trackers,
@@ -22,7 +21,7 @@ class VastWrapperXmlManager extends VastBaseInLineWrapperXmlManager {
     // Element names
     private static final String VAST_AD_TAG = "VASTAdTagURI";
 
-    VastWrapperXmlManager(@NonNull final Node wrapperNode) {
+    VastWrapperXmlManager(@NonNull final XmlNode wrapperNode) {
         super(wrapperNode);
         Preconditions.checkNotNull(wrapperNode);
     }
@@ -34,7 +33,7 @@ class VastWrapperXmlManager extends VastBaseInLineWrapperXmlManager {
      */
     @Nullable
     String getVastAdTagURI() {
-        Node vastAdTagURINode = XmlUtils.getFirstMatchingChildNode(mNode, VAST_AD_TAG);
+        XmlNode vastAdTagURINode = XmlUtils.getFirstMatchingChildNode(mNode, VAST_AD_TAG);
         return XmlUtils.getNodeValue(vastAdTagURINode);
     }
 }
@@ -9,23 +9,18 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.util.DeviceUtils.ForceOrientation;
+import com.mopub.mobileads.util.XmlNode;
+import com.mopub.mobileads.util.XmlPullNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 /**
  * Parses the VAST XML to spec. See www.iab.net for details.
  * Currently using the VAST 3.0 spec found here: https://www.iab.net/media/file/VASTv3.0.pdf.
@@ -50,32 +45,41 @@ class VastXmlManager {
     private static final int MAX_CTA_TEXT_LENGTH = 15;
     private static final int MAX_SKIP_TEXT_LENGTH = 8;
 
-    @Nullable private Document mVastDoc;
+    @Nullable private XmlNode mVastDoc;
 
     /**
-     * Helper function that builds a document and tries to parse the XML.
+     * Helper function that reads the XML into a document in a single pass.
      *
      * @param xmlString The XML to parse
-     * @throws ParserConfigurationException If the parser is poorly configured
-     * @throws IOException                  If we can't read the document for any reason
-     * @throws SAXException                 If the XML is poorly formatted
+     * @throws XmlPullParserException If the XML is poorly formatted
+     * @throws IOException            If we can't read the document for any reason
      */
-    void parseVastXml(@NonNull String xmlString) throws ParserConfigurationException,
-            IOException, SAXException {
+    void parseVastXml(@NonNull String xmlString) throws XmlPullParserException, IOException {
         Preconditions.checkNotNull(xmlString, "xmlString cannot be null");
 
+        mVastDoc = XmlPullNode.parse(wrapDocument(xmlString));
+    }
+
+    /**
+     * Uses an already parsed document instead of parsing one.
+     */
+    @VisibleForTesting
+    void setVastDoc(@NonNull XmlNode vastDoc) {
+        Preconditions.checkNotNull(vastDoc, "vastDoc cannot be null");
+
+        mVastDoc = vastDoc;
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static String wrapDocument(@NonNull String xmlString) {
         // if the xml string starts with <?xml?>, this tag can break parsing if it isn't formatted exactly right
         // or if it's not the first line of the document...we're just going to strip it
         xmlString = xmlString.replaceFirst("<\\?.*\\?>", "");
 
         // adserver may embed additional impression trackers as a sibling node of <VAST>
         // wrap entire document in root node for this case.
-        String documentString = ROOT_TAG_OPEN + xmlString + ROOT_TAG_CLOSE;
-
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setCoalescing(true);
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        mVastDoc = documentBuilder.parse(new InputSource(new StringReader(documentString)));
+        return ROOT_TAG_OPEN + xmlString + ROOT_TAG_CLOSE;
     }
 
     /**
@@ -94,9 +98,8 @@ class VastXmlManager {
         if (mVastDoc == null) {
             return vastAdXmlManagers;
         }
-        NodeList nodes = mVastDoc.getElementsByTagName(AD);
-        for (int i = 0; i < nodes.getLength(); ++i) {
-            vastAdXmlManagers.add(new VastAdXmlManager(nodes.item(i)));
+        for (XmlNode adNode : mVastDoc.getElementsByTagName(AD)) {
+            vastAdXmlManagers.add(new VastAdXmlManager(adNode));
         }
         return vastAdXmlManagers;
     }
@@ -14,20 +14,14 @@ import android.text.TextUtils;
 import android.view.Display;
 import android.view.WindowManager;
 
-import com.mopub.common.MoPubHttpUrlConnection;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Dips;
-import com.mopub.common.util.Streams;
-import com.mopub.common.util.Strings;
 import com.mopub.network.Networking;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -96,6 +90,8 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
      */
     private int mTimesFollowedVastRedirect;
 
+    @NonNull private final VastWrapperResolver mWrapperResolver = new VastWrapperResolver();
+
     VastXmlManagerAggregator(@NonNull final VastXmlManagerAggregatorListener vastXmlManagerAggregatorListener,
                              final double screenAspectRatio,
                              final int screenWidthDp,
@@ -130,6 +126,8 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         } catch (Exception e) {
             MoPubLog.log(ERROR, "Unable to generate VastVideoConfig.", e);
             return null;
+        } finally {
+            mWrapperResolver.cancelPrefetches();
         }
     }
 
@@ -191,6 +189,9 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
             return null;
         }
 
+        // Start fetching the first redirect while the InLine elements before it are evaluated
+        final String prefetchedUrl = prefetchWrapperRedirect(vastAdXmlManagers);
+
         for (VastAdXmlManager vastAdXmlManager : vastAdXmlManagers) {
             if (!isValidSequenceNumber(vastAdXmlManager.getSequence())) {
                 continue;
@@ -204,6 +205,8 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
                         vastInLineXmlManager, errorTrackers);
                 // If the vastVideoConfig is non null, it means we found a valid media file
                 if (vastVideoConfig != null) {
+                    // The prefetched redirect isn't needed after all
+                    mWrapperResolver.cancelPrefetch(prefetchedUrl);
                     populateMoPubCustomElements(xmlManager, vastVideoConfig);
                     return vastVideoConfig;
                 }
@@ -391,6 +394,41 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         }
     }
 
+    /**
+     * Prefetches the redirect of the first valid Wrapper element, if there are InLine elements to
+     * evaluate before it is followed. A Wrapper that comes first is fetched when it is followed,
+     * since nothing would be done while it was prefetched.
+     *
+     * @param vastAdXmlManagers The Ad elements of the current document
+     * @return the prefetched url, or null if nothing was prefetched
+     */
+    @Nullable
+    private String prefetchWrapperRedirect(
+            @NonNull final List<VastAdXmlManager> vastAdXmlManagers) {
+        if (mTimesFollowedVastRedirect >= MAX_TIMES_TO_FOLLOW_VAST_REDIRECT) {
+            return null;
+        }
+
+        boolean hasInLineBefore = false;
+        for (final VastAdXmlManager vastAdXmlManager : vastAdXmlManagers) {
+            if (!isValidSequenceNumber(vastAdXmlManager.getSequence())) {
+                continue;
+            }
+            hasInLineBefore |= vastAdXmlManager.getInLineXmlManager() != null;
+            final VastWrapperXmlManager vastWrapperXmlManager =
+                    vastAdXmlManager.getWrapperXmlManager();
+            if (vastWrapperXmlManager != null) {
+                if (!hasInLineBefore) {
+                    return null;
+                }
+                final String vastAdTagUri = vastWrapperXmlManager.getVastAdTagURI();
+                mWrapperResolver.prefetch(vastAdTagUri);
+                return vastAdTagUri;
+            }
+        }
+        return null;
+    }
+
     /**
      * Retrieves the Wrapper's redirect uri and follows it to return the next VAST xml String.
      *
@@ -900,24 +938,18 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, VastVideoC
         if (mTimesFollowedVastRedirect < MAX_TIMES_TO_FOLLOW_VAST_REDIRECT) {
             mTimesFollowedVastRedirect++;
 
-            HttpURLConnection urlConnection = null;
-            InputStream inputStream = null;
-            try {
-                urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(redirectUrl);
-                inputStream = new BufferedInputStream(urlConnection.getInputStream());
-
-                return Strings.fromStream(inputStream);
-            } finally {
-                Streams.closeStream(inputStream);
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
-                }
-            }
+            return mWrapperResolver.resolve(redirectUrl);
         }
 
         return null;
     }
 
+    @VisibleForTesting
+    @NonNull
+    VastWrapperResolver getWrapperResolver() {
+        return mWrapperResolver;
+    }
+
     @VisibleForTesting
     @Deprecated
     void setTimesFollowedVastRedirect(final int timesFollowedVastRedirect) {
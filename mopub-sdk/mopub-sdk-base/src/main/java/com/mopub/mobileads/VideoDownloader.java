@@ -8,26 +8,21 @@ import android.os.AsyncTask;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.mopub.common.CacheService;
-import com.mopub.common.MoPubHttpUrlConnection;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
-import com.mopub.common.util.Streams;
 
-import java.io.BufferedInputStream;
-import java.io.InputStream;
 import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
 
 public class VideoDownloader {
     private static final int MAX_VIDEO_SIZE = 25 * 1024 * 1024; // 25 MiB
+    // How much of a video must be downloaded before it can be played while the rest downloads.
+    private static final int PROGRESSIVE_BUFFER_SIZE = 1024 * 1024; // 1 MiB
     private static final Deque<WeakReference<VideoDownloaderTask>> sDownloaderTasks =
             new ArrayDeque<WeakReference<VideoDownloaderTask>>();
 
@@ -35,10 +30,28 @@ public class VideoDownloader {
         void onComplete(boolean success);
     }
 
+    /**
+     * Notified when enough of a video has been downloaded to start playing it through
+     * {@link ProgressiveVideoServer} while the rest downloads.
+     */
+    interface VideoBufferedListener {
+        void onBuffered();
+    }
+
     private VideoDownloader() {}
 
     public static void cache(@Nullable final String url,
             @NonNull final VideoDownloaderListener listener) {
+        cache(url, listener, null);
+    }
+
+    /**
+     * @param bufferedListener notified before {@code listener} if the video can be played
+     *                         before it is completely downloaded
+     */
+    public static void cache(@Nullable final String url,
+            @NonNull final VideoDownloaderListener listener,
+            @Nullable final VideoBufferedListener bufferedListener) {
         Preconditions.checkNotNull(listener);
 
         if (url == null) {
@@ -47,7 +60,8 @@ public class VideoDownloader {
             return;
         }
 
-        final VideoDownloaderTask videoDownloaderTask = new VideoDownloaderTask(listener);
+        final VideoDownloaderTask videoDownloaderTask =
+                new VideoDownloaderTask(listener, bufferedListener);
         try {
             AsyncTasks.safeExecuteOnExecutor(videoDownloaderTask, url);
         } catch (Exception e) {
@@ -96,11 +110,18 @@ public class VideoDownloader {
     @VisibleForTesting
     static class VideoDownloaderTask extends AsyncTask<String, Void, Boolean> {
         @NonNull private final VideoDownloaderListener mListener;
+        @Nullable private final VideoBufferedListener mBufferedListener;
         @NonNull private final WeakReference<VideoDownloaderTask> mWeakSelf;
 
         @VisibleForTesting
         VideoDownloaderTask(@NonNull final VideoDownloaderListener listener) {
+            this(listener, null);
+        }
+
+        VideoDownloaderTask(@NonNull final VideoDownloaderListener listener,
+                @Nullable final VideoBufferedListener bufferedListener) {
             mListener = listener;
+            mBufferedListener = bufferedListener;
             mWeakSelf = new WeakReference<VideoDownloaderTask>(this);
             sDownloaderTasks.add(mWeakSelf);
         }
@@ -113,42 +134,24 @@ public class VideoDownloader {
             }
 
             final String videoUrl = params[0];
-            HttpURLConnection urlConnection = null;
-            InputStream inputStream = null;
-            try {
-                urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(videoUrl);
-                inputStream = new BufferedInputStream(urlConnection.getInputStream());
-
-                // Check status code range
-                int statusCode = urlConnection.getResponseCode();
-                if (statusCode < HttpURLConnection.HTTP_OK
-                        || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
-                    MoPubLog.log(CUSTOM, "VideoDownloader encountered unexpected statusCode: " +
-                            statusCode);
-                    return false;
-                }
-
-                // Check video size below maximum
-                int contentLength = urlConnection.getContentLength();
-                if (contentLength > MAX_VIDEO_SIZE) {
-                    MoPubLog.log(CUSTOM, String.format(
-                            "VideoDownloader encountered video larger than disk cap. " +
-                                    "(%d bytes / %d maximum).",
-                            contentLength,
-                            MAX_VIDEO_SIZE));
-                    return false;
-                }
-
-                boolean diskPutResult = CacheService.putToDiskCache(videoUrl, inputStream);
-                return diskPutResult;
-            } catch (Exception e) {
-                MoPubLog.log(ERROR, "VideoDownloader task threw an internal exception.", e);
-                return false;
-            } finally {
-                Streams.closeStream(inputStream);
-                if (urlConnection != null) {
-                    urlConnection.disconnect();
-                }
+            final RangedVideoDownload download =
+                    new RangedVideoDownload(videoUrl, MAX_VIDEO_SIZE, this);
+            if (mBufferedListener != null) {
+                download.setBufferListener(PROGRESSIVE_BUFFER_SIZE,
+                        new RangedVideoDownload.BufferListener() {
+                            @Override
+                            public void onBuffered() {
+                                publishProgress();
+                            }
+                        });
+            }
+            return download.download();
+        }
+
+        @Override
+        protected void onProgressUpdate(final Void... values) {
+            if (!isCancelled() && mBufferedListener != null) {
+                mBufferedListener.onBuffered();
             }
         }
 
@@ -10,10 +10,9 @@ import androidx.annotation.Nullable;
 import com.mopub.common.Preconditions;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Strings;
+import com.mopub.mobileads.util.XmlNode;
 import com.mopub.mobileads.util.XmlUtils;
 
-import org.w3c.dom.Node;
-
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
@@ -24,9 +23,9 @@ public class VideoViewabilityTrackerXmlManager {
     public static final String VIEWABLE_PLAYTIME = "viewablePlaytime";
     public static final String PERCENT_VIEWABLE = "percentViewable";
 
-    private final Node mVideoViewabilityNode;
+    private final XmlNode mVideoViewabilityNode;
 
-    VideoViewabilityTrackerXmlManager(@NonNull final Node videoViewabilityNode) {
+    VideoViewabilityTrackerXmlManager(@NonNull final XmlNode videoViewabilityNode) {
         Preconditions.checkNotNull(videoViewabilityNode);
 
         mVideoViewabilityNode = videoViewabilityNode;
@@ -12,15 +12,16 @@ public class VastManagerFactory {
     protected static VastManagerFactory instance = new VastManagerFactory();
 
     public static VastManager create(final Context context) {
-        return instance.internalCreate(context, true);
+        return instance.internalCreate(context, true, true);
     }
 
     public static VastManager create(final Context context, boolean preCacheVideo) {
-        return instance.internalCreate(context, preCacheVideo);
+        return instance.internalCreate(context, preCacheVideo, false);
     }
 
-    public VastManager internalCreate(final Context context, boolean preCacheVideo) {
-        return new VastManager(context, preCacheVideo);
+    public VastManager internalCreate(final Context context, boolean preCacheVideo,
+            boolean playProgressively) {
+        return new VastManager(context, preCacheVideo, playProgressively);
     }
 
     @Deprecated // for testing
@@ -0,0 +1,53 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * A read-only XML element, or the document at the root of the elements. This is what the VAST
+ * xml managers read. {@link XmlPullNode} builds these in a single pass over the XML.
+ */
+public interface XmlNode {
+    /**
+     * @return the qualified name of the element, including any namespace prefix, or
+     * {@code #document} for the document.
+     */
+    @NonNull
+    String getNodeName();
+
+    /**
+     * @return the value of the attribute with this qualified name or {@code null} if there is no
+     * such attribute.
+     */
+    @Nullable
+    String getAttribute(@NonNull String attributeName);
+
+    boolean hasAttributes();
+
+    /**
+     * Gets the untrimmed text that comes before the first child element. Adjacent text, CDATA
+     * sections, and entity references are joined together.
+     *
+     * @return the text or {@code null} if the element is empty or starts with a child element.
+     */
+    @Nullable
+    String getFirstChildValue();
+
+    /**
+     * @return the child elements in document order.
+     */
+    @NonNull
+    List<XmlNode> getChildNodes();
+
+    /**
+     * @return all elements below this one with this name, in document order.
+     */
+    @NonNull
+    List<XmlNode> getElementsByTagName(@NonNull String nodeName);
+}
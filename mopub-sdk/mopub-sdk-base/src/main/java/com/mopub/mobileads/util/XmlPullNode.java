@@ -0,0 +1,198 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads.util;
+
+import android.util.Xml;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link XmlNode} built by reading the XML once with an {@link XmlPullParser}. Only elements,
+ * their attributes, and the text before their first child element are kept, so the tree is much
+ * smaller than a DOM of the same document. The document also indexes every element by name as it
+ * is read, so looking up elements anywhere in the document doesn't walk the tree.
+ */
+public class XmlPullNode implements XmlNode {
+    private static final String DOCUMENT_NODE_NAME = "#document";
+
+    @NonNull private final String mNodeName;
+    // Attribute names and values, alternating. Null if there are no attributes.
+    @Nullable private final String[] mAttributes;
+    @Nullable private List<XmlPullNode> mChildNodes;
+    @Nullable private String mFirstChildValue;
+    // Only set on the document.
+    @Nullable private Map<String, List<XmlNode>> mElementsByTagName;
+
+    /**
+     * Reads the XML into a tree of {@link XmlPullNode}s. Namespaces aren't processed, so names
+     * keep their prefixes, the same as a DOM from a parser that isn't namespace aware.
+     *
+     * @return the document, whose only child is the root element
+     * @throws XmlPullParserException if the XML isn't well formed
+     */
+    @NonNull
+    public static XmlPullNode parse(@NonNull final String xml)
+            throws XmlPullParserException, IOException {
+        Preconditions.checkNotNull(xml);
+
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(new StringReader(xml));
+
+        final XmlPullNode document = new XmlPullNode(DOCUMENT_NODE_NAME, null);
+        final Map<String, List<XmlNode>> elementsByTagName = new HashMap<String, List<XmlNode>>();
+        document.mElementsByTagName = elementsByTagName;
+
+        final List<XmlPullNode> openElements = new ArrayList<XmlPullNode>();
+        XmlPullNode current = document;
+        for (int eventType = parser.getEventType();
+                eventType != XmlPullParser.END_DOCUMENT;
+                eventType = parser.next()) {
+            switch (eventType) {
+                case XmlPullParser.START_TAG:
+                    final XmlPullNode element = new XmlPullNode(parser.getName(),
+                            readAttributes(parser));
+                    current.addChildNode(element);
+
+                    List<XmlNode> elements = elementsByTagName.get(element.mNodeName);
+                    if (elements == null) {
+                        elements = new ArrayList<XmlNode>();
+                        elementsByTagName.put(element.mNodeName, elements);
+                    }
+                    elements.add(element);
+
+                    openElements.add(current);
+                    current = element;
+                    break;
+                case XmlPullParser.END_TAG:
+                    current = openElements.remove(openElements.size() - 1);
+                    break;
+                case XmlPullParser.TEXT:
+                    // Whitespace around the root element isn't part of any element.
+                    if (current != document && current.mChildNodes == null) {
+                        current.mFirstChildValue = current.mFirstChildValue == null
+                                ? parser.getText()
+                                : current.mFirstChildValue + parser.getText();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return document;
+    }
+
+    @Nullable
+    private static String[] readAttributes(@NonNull final XmlPullParser parser) {
+        final int count = parser.getAttributeCount();
+        if (count <= 0) {
+            return null;
+        }
+
+        final String[] attributes = new String[count * 2];
+        for (int i = 0; i < count; i++) {
+            attributes[i * 2] = parser.getAttributeName(i);
+            attributes[i * 2 + 1] = parser.getAttributeValue(i);
+        }
+        return attributes;
+    }
+
+    private XmlPullNode(@NonNull final String nodeName, @Nullable final String[] attributes) {
+        mNodeName = nodeName;
+        mAttributes = attributes;
+    }
+
+    private void addChildNode(@NonNull final XmlPullNode child) {
+        if (mChildNodes == null) {
+            mChildNodes = new ArrayList<XmlPullNode>(2);
+        }
+        mChildNodes.add(child);
+    }
+
+    @NonNull
+    @Override
+    public String getNodeName() {
+        return mNodeName;
+    }
+
+    @Nullable
+    @Override
+    public String getAttribute(@NonNull final String attributeName) {
+        if (mAttributes == null) {
+            return null;
+        }
+
+        for (int i = 0; i < mAttributes.length; i += 2) {
+            if (mAttributes[i].equals(attributeName)) {
+                return mAttributes[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return mAttributes != null;
+    }
+
+    @Nullable
+    @Override
+    public String getFirstChildValue() {
+        return mFirstChildValue;
+    }
+
+    @NonNull
+    @Override
+    public List<XmlNode> getChildNodes() {
+        if (mChildNodes == null) {
+            return Collections.emptyList();
+        }
+        return Collections.<XmlNode>unmodifiableList(mChildNodes);
+    }
+
+    @NonNull
+    @Override
+    public List<XmlNode> getElementsByTagName(@NonNull final String nodeName) {
+        if (mElementsByTagName != null) {
+            final List<XmlNode> elements = mElementsByTagName.get(nodeName);
+            if (elements == null) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(elements);
+        }
+
+        final List<XmlNode> elements = new ArrayList<XmlNode>();
+        addElementsByTagName(nodeName, elements);
+        return elements;
+    }
+
+    private void addElementsByTagName(@NonNull final String nodeName,
+            @NonNull final List<XmlNode> elements) {
+        if (mChildNodes == null) {
+            return;
+        }
+
+        for (final XmlPullNode childNode : mChildNodes) {
+            if (childNode.mNodeName.equals(nodeName)) {
+                elements.add(childNode);
+            }
+            childNode.addElementsByTagName(nodeName, elements);
+        }
+    }
+}
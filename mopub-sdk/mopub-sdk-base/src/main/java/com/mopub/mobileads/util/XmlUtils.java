@@ -4,13 +4,7 @@
 
 package com.mopub.mobileads.util;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class XmlUtils {
@@ -21,7 +15,7 @@ public class XmlUtils {
      *
      * Only direct children are checked.
      */
-    public static Node getFirstMatchingChildNode(final Node node, final String nodeName) {
+    public static XmlNode getFirstMatchingChildNode(final XmlNode node, final String nodeName) {
         return getFirstMatchingChildNode(node, nodeName, null, null);
     }
 
@@ -38,15 +32,17 @@ public class XmlUtils {
      *                        matches one of these values. Use null to match nodes with any attribute
      *                        value.
      */
-    public static Node getFirstMatchingChildNode(final Node node, final String nodeName,
+    public static XmlNode getFirstMatchingChildNode(final XmlNode node, final String nodeName,
             final String attributeName, final List<String> attributeValues) {
         if (node == null || nodeName == null) {
             return null;
         }
 
-        final List<Node> nodes = getMatchingChildNodes(node, nodeName, attributeName, attributeValues);
-        if (nodes != null && !nodes.isEmpty()) {
-            return nodes.get(0);
+        for (final XmlNode childNode : node.getChildNodes()) {
+            if (childNode.getNodeName().equals(nodeName)
+                    && nodeMatchesAttributeFilter(childNode, attributeName, attributeValues)) {
+                return childNode;
+            }
         }
         return null;
     }
@@ -58,7 +54,7 @@ public class XmlUtils {
      * @param nodeName all child nodes will match this element.
      * @return child nodes that match the nodeName
      */
-    public static List<Node> getMatchingChildNodes(final Node node, final String nodeName) {
+    public static List<XmlNode> getMatchingChildNodes(final XmlNode node, final String nodeName) {
         return getMatchingChildNodes(node, nodeName, null, null);
     }
 
@@ -75,16 +71,14 @@ public class XmlUtils {
      *                        matches one of these values.
      * @return child nodes that match all parameters
      */
-    public static List<Node> getMatchingChildNodes(final Node node, final String nodeName,
+    public static List<XmlNode> getMatchingChildNodes(final XmlNode node, final String nodeName,
             final String attributeName, final List<String> attributeValues) {
         if (node == null || nodeName == null) {
             return null;
         }
 
-        final List<Node> nodes = new ArrayList<Node>();
-        final NodeList nodeList = node.getChildNodes();
-        for (int i = 0; i < nodeList.getLength(); ++i) {
-            Node childNode = nodeList.item(i);
+        final List<XmlNode> nodes = new ArrayList<XmlNode>();
+        for (final XmlNode childNode : node.getChildNodes()) {
             if (childNode.getNodeName().equals(nodeName)
                     && nodeMatchesAttributeFilter(childNode, attributeName, attributeValues)) {
                 nodes.add(childNode);
@@ -97,32 +91,24 @@ public class XmlUtils {
      * Returns {@code true} iff the node has the attribute {@code attributeName} with a value that
      * matches one of {@code attributeValues}.
      */
-    public static boolean nodeMatchesAttributeFilter(final Node node, final String attributeName, final List<String> attributeValues) {
+    public static boolean nodeMatchesAttributeFilter(final XmlNode node, final String attributeName,
+            final List<String> attributeValues) {
         if (attributeName == null || attributeValues == null) {
             return true;
         }
 
-        final NamedNodeMap attrMap = node.getAttributes();
-        if (attrMap != null) {
-            Node attrNode = attrMap.getNamedItem(attributeName);
-            if (attrNode != null && attributeValues.contains(attrNode.getNodeValue())) {
-                return true;
-            }
-        }
-
-        return false;
+        final String attributeValue = node.getAttribute(attributeName);
+        return attributeValue != null && attributeValues.contains(attributeValue);
     }
 
-    public static String getNodeValue(final Node node) {
-        if (node != null
-                && node.getFirstChild() != null
-                && node.getFirstChild().getNodeValue() != null) {
-            return node.getFirstChild().getNodeValue().trim();
+    public static String getNodeValue(final XmlNode node) {
+        if (node != null && node.getFirstChildValue() != null) {
+            return node.getFirstChildValue().trim();
         }
         return null;
     }
 
-    public static Integer getAttributeValueAsInt(final Node node, final String attributeName) {
+    public static Integer getAttributeValueAsInt(final XmlNode node, final String attributeName) {
         if (node == null || attributeName == null) {
             return null;
         }
@@ -134,141 +120,50 @@ public class XmlUtils {
         }
     }
 
-    public static String getAttributeValue(final Node node, final String attributeName) {
+    public static String getAttributeValue(final XmlNode node, final String attributeName) {
         if (node == null || attributeName == null) {
             return null;
         }
 
-        final NamedNodeMap attrMap = node.getAttributes();
-        final Node attrNode = attrMap.getNamedItem(attributeName);
-
-        // XXX: the attribute value must be retrieved using attrNode.getNodeValue(). Even though
-        // getNodeValue(attrNode) works in unit testing, it does not work in production. We were
-        // unable to figure out exactly why.
-        if (attrNode != null) {
-            return attrNode.getNodeValue();
-        }
-        return null;
+        return node.getAttribute(attributeName);
     }
 
     /**
-     * Get a list of data from a {@code Document]'s elements that match the {@code elementName},
-     * {@code attributeName}, and {@code attributeValue} filters. Each node that matches these is
-     * processed by the {@code nodeProcessor} and all non-null results returned by the processor are
-     * returned.
-     *
-     * @param vastDoc The {@link org.w3c.dom.Document} we wish to extract data from.
-     * @param elementName Only elements with this name are processed.
-     * @param attributeName Only elements with this attribute are processed.
-     * @param attributeValue Only elements whose attribute with attributeName matches this value are processed.
-     * @param nodeProcessor Takes matching nodes and produces output data for that node.
-     * @return a {@code List<T>} with processed node data.
+     * Gets the trimmed text of the first element named {@code elementName} anywhere in the
+     * document that has any text.
      */
-    public static <T> List<T> getListFromDocument(final Document vastDoc, final String elementName,
-            final String attributeName, final String attributeValue, NodeProcessor<T> nodeProcessor) {
-        final ArrayList<T> results = new ArrayList<T>();
-
-        if (vastDoc == null) {
-            return results;
-        }
-
-        final NodeList nodes = vastDoc.getElementsByTagName(elementName);
-        if (nodes == null) {
-            return results;
+    public static String getFirstMatchingStringData(final XmlNode document,
+            final String elementName) {
+        if (document == null) {
+            return null;
         }
 
-        List<String> attributeValues = attributeValue == null ? null : Arrays.asList(attributeValue);
-
-        for (int i = 0; i < nodes.getLength(); i++) {
-            final Node node = nodes.item(i);
-
-            if (node != null && nodeMatchesAttributeFilter(node, attributeName, attributeValues)) {
-                T processed = nodeProcessor.process(node);
-                if (processed != null) {
-                    results.add(processed);
-                }
+        for (final XmlNode node : document.getElementsByTagName(elementName)) {
+            final String value = getNodeValue(node);
+            if (value != null) {
+                return value;
             }
         }
-
-        return results;
+        return null;
     }
 
     /**
-     * Get first matching data from a {@code Document]'s elements that match the {@code elementName},
-     * {@code attributeName}, and {@code attributeValue} filters. Nodes that match are processed by
-     * the {@code nodeProcessor} until the first non-null result returned by the processor is
-     * returned.
-     *
-     * @param vastDoc The {@link org.w3c.dom.Document} we wish to extract data from.
-     * @param elementName Only elements with this name are processed.
-     * @param attributeName Only elements with this attribute are processed.
-     * @param attributeValue Only elements whose attribute with attributeName matches this value are processed.
-     * @param nodeProcessor Takes matching nodes and produces output data for that node.
-     * @return node data of type {@code <T>} from first node that matches.
+     * Gets the trimmed text of all elements named {@code elementName} anywhere in the document
+     * that have text.
      */
-    public static <T> T getFirstMatchFromDocument(final Document vastDoc, final String elementName,
-            final String attributeName, final String attributeValue, NodeProcessor<T> nodeProcessor) {
-        if (vastDoc == null) {
-            return null;
-        }
-
-        final NodeList nodes = vastDoc.getElementsByTagName(elementName);
-        if (nodes == null) {
-            return null;
+    public static List<String> getStringDataAsList(final XmlNode document,
+            final String elementName) {
+        final List<String> results = new ArrayList<String>();
+        if (document == null) {
+            return results;
         }
 
-        List<String> attributeValues = attributeValue == null ? null : Arrays.asList(attributeValue);
-
-        for (int i = 0; i < nodes.getLength(); i++) {
-            final Node node = nodes.item(i);
-
-            if (node != null && nodeMatchesAttributeFilter(node, attributeName, attributeValues)) {
-                T processed = nodeProcessor.process(node);
-                if (processed != null) {
-                    return processed;
-                }
+        for (final XmlNode node : document.getElementsByTagName(elementName)) {
+            final String value = getNodeValue(node);
+            if (value != null) {
+                results.add(value);
             }
         }
-
-        return null;
-    }
-
-    public static String getFirstMatchingStringData(final Document vastDoc, final String elementName) {
-        return getFirstMatchingStringData(vastDoc, elementName, null, null);
-    }
-
-    public static String getFirstMatchingStringData(final Document vastDoc, final String elementName, final String attributeName, final String attributeValue) {
-        return getFirstMatchFromDocument(vastDoc, elementName, attributeName, attributeValue, new NodeProcessor<String>() {
-            @Override
-            public String process(final Node node) {
-                return getNodeValue(node);
-            }
-        });
-    }
-
-    public static List<String> getStringDataAsList(final Document vastDoc, final String elementName) {
-        return getStringDataAsList(vastDoc, elementName, null, null);
-    }
-
-    public static List<String> getStringDataAsList(final Document vastDoc, final String elementName, final String attributeName, final String attributeValue) {
-        return getListFromDocument(vastDoc, elementName, attributeName, attributeValue, new NodeProcessor<String>() {
-            @Override
-            public String process(final Node node) {
-                return getNodeValue(node);
-            }
-        });
-    }
-
-    public static List<Node> getNodesWithElementAndAttribute(final Document vastDoc, final String elementName, final String attributeName, final String attributeValue) {
-       return getListFromDocument(vastDoc, elementName, attributeName, attributeValue, new NodeProcessor<Node>() {
-           @Override
-           public Node process(final Node node) {
-               return node;
-           }
-       });
-    }
-
-    public interface NodeProcessor<T> {
-        T process(Node node);
+        return results;
     }
 }
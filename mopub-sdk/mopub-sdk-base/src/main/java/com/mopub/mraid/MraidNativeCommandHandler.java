@@ -26,6 +26,7 @@ import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.ResponseHeader;
 import com.mopub.common.util.Streams;
+import com.mopub.network.Networking;
 
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -341,11 +342,11 @@ public class MraidNativeCommandHandler {
             final String uriString = params[0];
             URI uri = URI.create(uriString);
 
+            HttpURLConnection urlConnection = null;
             InputStream pictureInputStream = null;
             OutputStream pictureOutputStream = null;
             try {
-                final HttpURLConnection urlConnection =
-                        MoPubHttpUrlConnection.getHttpUrlConnection(uriString);
+                urlConnection = MoPubHttpUrlConnection.getHttpUrlConnection(uriString);
                 pictureInputStream = new BufferedInputStream(urlConnection.getInputStream());
 
                 final String redirectLocation = urlConnection.getHeaderField(LOCATION.getKey());
@@ -368,6 +369,9 @@ public class MraidNativeCommandHandler {
             } finally {
                 Streams.closeStream(pictureInputStream);
                 Streams.closeStream(pictureOutputStream);
+                if (urlConnection != null) {
+                    Networking.getHttpTransport().release(urlConnection);
+                }
             }
         }
 
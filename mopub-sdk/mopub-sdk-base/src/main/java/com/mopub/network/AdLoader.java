@@ -52,6 +52,8 @@ public class AdLoader {
     @Nullable
     private ContentDownloadAnalytics mDownloadTracker;
 
+    private boolean mMultiAdResponseReported;
+
     private volatile boolean mRunning;
     private volatile boolean mFailed;
     private boolean mContentDownloaded;
@@ -96,6 +98,7 @@ public class AdLoader {
                 synchronized (lock) {
                     mRunning = false;
                     mMultiAdResponse = response;
+                    mMultiAdResponseReported = false;
                     if (mMultiAdResponse.hasNext()) {
                         deliverResponse(mMultiAdResponse.next());
                     }
@@ -193,6 +196,7 @@ public class AdLoader {
             }
 
             // logic to request more waterfall ads from server
+            reportMultiAdResponseFinished();
             if (!mMultiAdResponse.isWaterfallFinished()) {
                 // create new request with failURL
                 mMultiAdRequest = new MultiAdRequest(mMultiAdResponse.getFailURL(),
@@ -222,6 +226,10 @@ public class AdLoader {
     public void creativeDownloadSuccess() {
         mContentDownloaded = true;
 
+        synchronized (lock) {
+            reportMultiAdResponseFinished();
+        }
+
         if (null == mDownloadTracker) {
             MoPubLog.log(CUSTOM, "Response analytics should not be null here");
             return;
@@ -255,6 +263,19 @@ public class AdLoader {
         }
     }
 
+    /**
+     * Reports how many entries of the current server response were parsed, once the waterfall
+     * is done with that response. Must be called while holding the lock.
+     */
+    private void reportMultiAdResponseFinished() {
+        if (mMultiAdResponse == null || mMultiAdResponseReported) {
+            return;
+        }
+
+        mMultiAdResponseReported = true;
+        ContentDownloadAnalytics.reportMultiAdResponseFinished(mMultiAdResponse);
+    }
+
     /**
      * Submits request to the networking library
      *
@@ -0,0 +1,929 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Constants;
+import com.mopub.common.MoPub;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.privacy.ConsentStatus;
+import com.mopub.common.privacy.ConsentStatusChangeListener;
+import com.mopub.common.privacy.PersonalInfoManager;
+import com.mopub.common.util.DeviceUtils;
+import com.mopub.common.util.Streams;
+import com.mopub.volley.NoConnectionError;
+import com.mopub.volley.VolleyError;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Keeps tracking beacons on disk until they have been sent, so that impression, click and video
+ * trackers fired while the device is offline, or just before the process dies, are sent later.
+ * <p/>
+ * Beacons are appended to a log split into segment files: one record when a beacon is fired, and
+ * one when it is acknowledged, after it was sent or given up on. Segments are only ever appended
+ * to, and are deleted from the oldest once all of their beacons have been acknowledged. When the
+ * queue is opened, the segments are read back in order and the beacons that weren't acknowledged
+ * are sent again, so a beacon can be sent twice if the process dies right after its response.
+ * <p/>
+ * While online, beacons are sent through the {@link TrackingDispatcher} as they are fired. Once a
+ * beacon couldn't be sent for lack of a connection, new beacons are only appended to the log, and
+ * the queue is flushed in batches when connectivity returns, or else after an exponential backoff.
+ * Beacons are only sent again when they can't have reached the server: when no connection could
+ * be made, or when they were turned away as too many requests. A beacon that timed out or got a
+ * server error may already have been counted, so it is given up on. Beacons older than
+ * {@link #MAX_AGE_MILLIS} are dropped, as are beacons that were turned away
+ * {@link #MAX_ATTEMPTS} times, and the oldest segments once the log grows past its size cap.
+ * <p/>
+ * Trackers fired while personal information could be collected may carry the advertising id, so
+ * those beacons are marked as personal. They are dropped instead of being sent later once
+ * personal information can't be collected anymore, when consent is revoked or when they are read
+ * back by a process that doesn't have consent. Connectivity changes are only listened for while
+ * beacons are waiting to be flushed.
+ * <p/>
+ * The log is only read and written on a single background thread.
+ */
+public class BeaconQueue {
+    @VisibleForTesting static final String DIRECTORY_NAME = "mopub-beacons";
+    @VisibleForTesting static final String SEGMENT_SUFFIX = ".log";
+    @VisibleForTesting static final long MAX_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+    @VisibleForTesting static final int MAX_ATTEMPTS = 5;
+    @VisibleForTesting static final int MAX_BATCH_SIZE = 32;
+    @VisibleForTesting static final long MIN_BACKOFF_MILLIS = Constants.TEN_SECONDS_MILLIS;
+    @VisibleForTesting static final long MAX_BACKOFF_MILLIS = Constants.FIFTEEN_MINUTES_MILLIS;
+    private static final long SEGMENT_BYTES = 32 * 1024;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long MAX_BYTES = 512 * 1024;
+    private static final char ADD = '+';
+    private static final char ADD_PERSONAL = '*';
+    private static final char ACKNOWLEDGE = '-';
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Nullable private static volatile BeaconQueue sInstance;
+
+    @NonNull private final Context mContext;
+    @NonNull private final TrackingDispatcher mDispatcher;
+    @NonNull private final ScheduledExecutorService mExecutor;
+    @NonNull private final Handler mMainHandler;
+    private final long mSegmentBytes;
+    private final long mMaxBytes;
+    @NonNull private final Runnable mFlushTask;
+    @NonNull private final Runnable mSyncTask;
+    @NonNull private final ConsentStatusChangeListener mConsentStatusChangeListener;
+    private volatile boolean mConsentSubscribed;
+
+    // Set when a beacon couldn't be sent for lack of a connection, until one is sent again or
+    // connectivity returns
+    private volatile boolean mOffline;
+
+    private volatile int mPendingCount;
+    private volatile long mStoredBytes;
+    private volatile long mSentCount;
+    private volatile long mRetriedCount;
+    private volatile long mFailedCount;
+    private volatile long mExpiredCount;
+    private volatile long mEvictedCount;
+    private volatile long mWithdrawnCount;
+
+    // The rest is only accessed on the executor thread
+
+    // Null if the log couldn't be opened, in which case beacons are only kept in memory
+    @Nullable private File mDirectory;
+    // Oldest first. Records are appended to the last one.
+    @NonNull private final TreeMap<Long, Segment> mSegments = new TreeMap<Long, Segment>();
+    @Nullable private OutputStream mSegmentStream;
+    // Beacons that weren't acknowledged yet, oldest first
+    @NonNull private final LinkedHashSet<Beacon> mPending = new LinkedHashSet<Beacon>();
+    private long mTotalBytes;
+    private boolean mSyncScheduled;
+    @Nullable private ScheduledFuture<?> mScheduledFlush;
+    private long mScheduledFlushAtMillis;
+    // The number of flushes in a row that ended with a beacon to retry
+    private int mBackoffCount;
+    // The beacons of the last flush that are still being sent
+    private int mFlushInFlight;
+    // Registered while beacons are waiting to be flushed
+    @Nullable private BroadcastReceiver mConnectivityReceiver;
+
+    @NonNull
+    public static BeaconQueue getInstance(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        BeaconQueue queue = sInstance;
+        if (queue == null) {
+            synchronized (BeaconQueue.class) {
+                queue = sInstance;
+                if (queue == null) {
+                    final Context appContext = context.getApplicationContext();
+                    queue = new BeaconQueue(appContext != null ? appContext : context,
+                            TrackingDispatcher.getInstance(), createExecutor(), SEGMENT_BYTES,
+                            MAX_BYTES);
+                    queue.open();
+                    sInstance = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    @VisibleForTesting
+    BeaconQueue(@NonNull final Context context, @NonNull final TrackingDispatcher dispatcher,
+            @NonNull final ScheduledExecutorService executor, final long segmentBytes,
+            final long maxBytes) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(dispatcher);
+        Preconditions.checkNotNull(executor);
+
+        mContext = context;
+        mDispatcher = dispatcher;
+        mExecutor = executor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mSegmentBytes = segmentBytes;
+        mMaxBytes = maxBytes;
+        mFlushTask = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        mSyncTask = new Runnable() {
+            @Override
+            public void run() {
+                sync();
+            }
+        };
+        mConsentStatusChangeListener = new ConsentStatusChangeListener() {
+            @Override
+            public void onConsentStateChange(@NonNull final ConsentStatus oldConsentStatus,
+                    @NonNull final ConsentStatus newConsentStatus,
+                    final boolean canCollectPersonalInformation) {
+                if (!canCollectPersonalInformation) {
+                    onPersonalInformationWithdrawn();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads back the beacons of earlier processes and starts listening for consent changes.
+     */
+    @VisibleForTesting
+    void open() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+        subscribeToConsentChanges();
+    }
+
+    /**
+     * Stores a beacon and sends it, unless the device seems to be offline, in which case it is
+     * sent with the next flush.
+     *
+     * @param listener notified once the beacon has been sent, or given up on. It isn't notified
+     *                 of failures that will be retried, nor of anything after the process dies.
+     */
+    public void add(@NonNull final String url, @Nullable final TrackingRequest.Listener listener) {
+        Preconditions.checkNotNull(url);
+
+        // The SDK may have been initialized since the queue was opened
+        subscribeToConsentChanges();
+
+        final Beacon beacon = new Beacon(url, System.currentTimeMillis(),
+                MoPub.canCollectPersonalInformation(), listener);
+        beacon.mInFlight = !mOffline;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                append(beacon);
+            }
+        });
+        if (beacon.mInFlight) {
+            send(beacon);
+        }
+    }
+
+    /**
+     * The number of beacons stored and not sent yet.
+     */
+    public int getPendingCount() {
+        return mPendingCount;
+    }
+
+    public long getStoredBytes() {
+        return mStoredBytes;
+    }
+
+    public long getSentCount() {
+        return mSentCount;
+    }
+
+    /**
+     * The number of sends that failed and will be retried.
+     */
+    public long getRetriedCount() {
+        return mRetriedCount;
+    }
+
+    /**
+     * The number of beacons given up on after an error that can't be retried, or after
+     * {@link #MAX_ATTEMPTS} failed attempts.
+     */
+    public long getFailedCount() {
+        return mFailedCount;
+    }
+
+    public long getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    /**
+     * The number of beacons dropped to keep the log under its size cap.
+     */
+    public long getEvictedCount() {
+        return mEvictedCount;
+    }
+
+    /**
+     * The number of personal beacons dropped because personal information can't be collected
+     * anymore.
+     */
+    public long getWithdrawnCount() {
+        return mWithdrawnCount;
+    }
+
+    @VisibleForTesting
+    static long getBackoffMillis(final int backoffCount) {
+        return Math.min(MIN_BACKOFF_MILLIS << Math.min(backoffCount, 16), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Whether a beacon that failed this way may be sent again, which is only when it can't have
+     * been counted: no connection could be made, or the server or the {@link TrackingDispatcher}
+     * turned it away as too many requests.
+     */
+    @VisibleForTesting
+    static boolean isRetryable(@Nullable final VolleyError error) {
+        if (error instanceof NoConnectionError) {
+            return true;
+        }
+        if (error instanceof MoPubNetworkError) {
+            return ((MoPubNetworkError) error).getReason()
+                    == MoPubNetworkError.Reason.TOO_MANY_REQUESTS;
+        }
+        return error != null && error.networkResponse != null
+                && error.networkResponse.statusCode == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    @VisibleForTesting
+    void onNetworkAvailable() {
+        mOffline = false;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mBackoffCount = 0;
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Drops the personal beacons that aren't being sent, since they can't be sent anymore.
+     */
+    @VisibleForTesting
+    void onPersonalInformationWithdrawn() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                dropWithdrawnBeacons(false);
+                updateStats();
+                updateConnectivityReceiver();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    public static synchronized void clearForTesting() {
+        final BeaconQueue queue = sInstance;
+        if (queue != null) {
+            queue.mExecutor.shutdownNow();
+            queue.unregisterConnectivityReceiver();
+            final PersonalInfoManager personalInfoManager = MoPub.getPersonalInformationManager();
+            if (personalInfoManager != null) {
+                personalInfoManager.unsubscribeConsentStatusChangeListener(
+                        queue.mConsentStatusChangeListener);
+            }
+        }
+        sInstance = null;
+    }
+
+    private void subscribeToConsentChanges() {
+        if (mConsentSubscribed) {
+            return;
+        }
+
+        final PersonalInfoManager personalInfoManager = MoPub.getPersonalInformationManager();
+        if (personalInfoManager != null) {
+            mConsentSubscribed = true;
+            personalInfoManager.subscribeConsentStatusChangeListener(
+                    mConsentStatusChangeListener);
+        }
+    }
+
+    @NonNull
+    private static ScheduledExecutorService createExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "BeaconQueue");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.setKeepAliveTime(Constants.THIRTY_SECONDS_MILLIS, TimeUnit.MILLISECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void execute(@NonNull final Runnable runnable) {
+        try {
+            mExecutor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            MoPubLog.log(CUSTOM, "Beacon queue is shut down", e);
+        }
+    }
+
+    private void send(@NonNull final Beacon beacon) {
+        mDispatcher.dispatch(mContext, beacon.mUrl, new TrackingRequest.Listener() {
+            @Override
+            public void onResponse(@NonNull final String url) {
+                if (beacon.mListener != null) {
+                    beacon.mListener.onResponse(url);
+                }
+                onSent(beacon, null);
+            }
+
+            @Override
+            public void onErrorResponse(final VolleyError volleyError) {
+                if (!isRetryable(volleyError) && beacon.mListener != null) {
+                    beacon.mListener.onErrorResponse(volleyError);
+                }
+                onSent(beacon, volleyError);
+            }
+        });
+    }
+
+    private void onSent(@NonNull final Beacon beacon, @Nullable final VolleyError error) {
+        if (error == null) {
+            mOffline = false;
+        } else if (error instanceof NoConnectionError) {
+            mOffline = true;
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                complete(beacon, error);
+            }
+        });
+    }
+
+    ///////////////////////////////////////////////////////////////
+    // Everything below runs on the executor thread
+    //////////////////////////////////////////////////////////////
+
+    private void load() {
+        final File filesDir = mContext.getFilesDir();
+        long nextSegmentNumber = 0;
+        if (filesDir != null) {
+            final File directory = new File(filesDir, DIRECTORY_NAME);
+            if (directory.isDirectory() || directory.mkdirs()) {
+                mDirectory = directory;
+                nextSegmentNumber = readSegments(directory);
+            }
+        }
+        if (mDirectory == null) {
+            MoPubLog.log(CUSTOM, "Unable to open beacon log. Beacons will only be kept in memory.");
+        }
+
+        // Never append to a segment of an earlier process, whose last record may be cut off
+        startSegment(nextSegmentNumber);
+        deleteAcknowledgedSegments();
+        evictOverflow();
+        dropWithdrawnBeacons(true);
+        updateStats();
+        updateConnectivityReceiver();
+        if (!mPending.isEmpty()) {
+            MoPubLog.log(CUSTOM, "Sending " + mPending.size() + " stored tracking beacons.");
+            flush();
+        }
+    }
+
+    /**
+     * @return the number of the next segment
+     */
+    private long readSegments(@NonNull final File directory) {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        final TreeMap<Long, File> segmentFiles = new TreeMap<Long, File>();
+        for (final File file : files) {
+            final String name = file.getName();
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                segmentFiles.put(Long.parseLong(
+                        name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            } catch (NumberFormatException e) {
+                // Not a segment
+            }
+        }
+
+        final Map<Long, Beacon> beaconsByKey = new HashMap<Long, Beacon>();
+        long nextSegmentNumber = 0;
+        for (final Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            final Segment segment = new Segment(entry.getKey(), entry.getValue());
+            segment.mBytes = segment.mFile.length();
+            mTotalBytes += segment.mBytes;
+            mSegments.put(segment.mNumber, segment);
+            readSegment(segment, beaconsByKey);
+            nextSegmentNumber = segment.mNumber + 1;
+        }
+        return nextSegmentNumber;
+    }
+
+    private void readSegment(@NonNull final Segment segment,
+            @NonNull final Map<Long, Beacon> beaconsByKey) {
+        final byte[] bytes;
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(segment.mFile);
+            final ByteArrayOutputStream outputStream =
+                    new ByteArrayOutputStream((int) segment.mBytes);
+            Streams.copyContent(inputStream, outputStream);
+            bytes = outputStream.toByteArray();
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to read beacon log segment " + segment.mFile, e);
+            return;
+        } finally {
+            Streams.closeStream(inputStream);
+        }
+
+        // Anything after the last newline was cut off while it was being written
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                readRecord(segment, new String(bytes, start, i - start, UTF_8), beaconsByKey);
+                start = i + 1;
+            }
+        }
+    }
+
+    private void readRecord(@NonNull final Segment segment, @NonNull final String record,
+            @NonNull final Map<Long, Beacon> beaconsByKey) {
+        final int space = record.indexOf(' ');
+        if (space < 1) {
+            return;
+        }
+
+        try {
+            if (record.charAt(0) == ADD || record.charAt(0) == ADD_PERSONAL) {
+                final Beacon beacon = new Beacon(record.substring(space + 1),
+                        Long.parseLong(record.substring(1, space)),
+                        record.charAt(0) == ADD_PERSONAL, null);
+                beacon.mSegment = segment;
+                beacon.mIndex = segment.mRecordCount++;
+                segment.mUnacknowledgedCount++;
+                mPending.add(beacon);
+                beaconsByKey.put(getKey(segment.mNumber, beacon.mIndex), beacon);
+            } else if (record.charAt(0) == ACKNOWLEDGE) {
+                final Beacon beacon = beaconsByKey.remove(getKey(
+                        Long.parseLong(record.substring(1, space)),
+                        Integer.parseInt(record.substring(space + 1))));
+                if (beacon != null && beacon.mSegment != null) {
+                    mPending.remove(beacon);
+                    beacon.mSegment.mUnacknowledgedCount--;
+                }
+            }
+        } catch (NumberFormatException e) {
+            MoPubLog.log(CUSTOM, "Skipping damaged beacon record: " + record);
+        }
+    }
+
+    private static long getKey(final long segmentNumber, final int index) {
+        return (segmentNumber << 32) | index;
+    }
+
+    private void append(@NonNull final Beacon beacon) {
+        mPending.add(beacon);
+        // A url on more than one line can't be stored, but is still sent from memory
+        if (beacon.mUrl.indexOf('\n') < 0 && beacon.mUrl.indexOf('\r') < 0) {
+            final Segment segment = getActiveSegment();
+            beacon.mSegment = segment;
+            beacon.mIndex = segment.mRecordCount++;
+            segment.mUnacknowledgedCount++;
+            write(segment, (beacon.mPersonal ? ADD_PERSONAL : ADD)
+                    + Long.toString(beacon.mEnqueuedMillis) + ' ' + beacon.mUrl + '\n');
+            evictOverflow();
+        }
+        updateStats();
+        updateConnectivityReceiver();
+
+        if (!beacon.mInFlight && mScheduledFlush == null) {
+            scheduleFlush(getBackoffMillis(mBackoffCount));
+        }
+    }
+
+    private void complete(@NonNull final Beacon beacon, @Nullable final VolleyError error) {
+        beacon.mInFlight = false;
+        if (beacon.mInFlush) {
+            beacon.mInFlush = false;
+            mFlushInFlight--;
+        }
+        if (!mPending.contains(beacon)) {
+            // Evicted while it was being sent
+            return;
+        }
+
+        if (error == null) {
+            mSentCount++;
+            mBackoffCount = 0;
+            acknowledge(beacon);
+        } else if (!isRetryable(error)) {
+            mFailedCount++;
+            acknowledge(beacon);
+        } else {
+            // Going offline or being dropped under load doesn't count against a beacon
+            if (!(error instanceof NoConnectionError) && !(error instanceof MoPubNetworkError)) {
+                beacon.mAttempts++;
+            }
+            if (beacon.mAttempts >= MAX_ATTEMPTS) {
+                mFailedCount++;
+                drop(beacon, error);
+            } else {
+                mRetriedCount++;
+                if (mScheduledFlush == null) {
+                    scheduleFlush(getBackoffMillis(mBackoffCount));
+                    mBackoffCount++;
+                }
+            }
+        }
+        updateStats();
+        updateConnectivityReceiver();
+
+        if (error == null && mFlushInFlight == 0 && hasUnsentBeacons()) {
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * Sends the oldest beacons that aren't being sent yet, or just one of them to probe the
+     * connection when the device seems to be offline.
+     */
+    private void flush() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+
+        dropWithdrawnBeacons(false);
+        final long nowMillis = System.currentTimeMillis();
+        final int batchSize = mOffline ? 1 : MAX_BATCH_SIZE;
+        final List<Beacon> batch = new ArrayList<Beacon>();
+        final List<Beacon> expired = new ArrayList<Beacon>();
+        for (final Beacon beacon : mPending) {
+            if (beacon.mInFlight) {
+                continue;
+            }
+            if (nowMillis - beacon.mEnqueuedMillis > MAX_AGE_MILLIS) {
+                expired.add(beacon);
+            } else if (batch.size() < batchSize) {
+                batch.add(beacon);
+            }
+        }
+
+        for (final Beacon beacon : expired) {
+            mExpiredCount++;
+            drop(beacon, new MoPubNetworkError("Tracking beacon expired: " + beacon.mUrl,
+                    MoPubNetworkError.Reason.TRACKING_FAILURE));
+        }
+        updateStats();
+        updateConnectivityReceiver();
+
+        for (final Beacon beacon : batch) {
+            beacon.mInFlight = true;
+            beacon.mInFlush = true;
+            mFlushInFlight++;
+            send(beacon);
+        }
+    }
+
+    /**
+     * Drops the personal beacons that aren't being sent if personal information can't be
+     * collected.
+     *
+     * @param uninitialized whether to drop them too when the SDK doesn't know yet whether
+     *                      personal information can be collected
+     */
+    private void dropWithdrawnBeacons(final boolean uninitialized) {
+        if (MoPub.canCollectPersonalInformation()
+                || (!uninitialized && MoPub.getPersonalInformationManager() == null)) {
+            return;
+        }
+
+        final List<Beacon> withdrawn = new ArrayList<Beacon>();
+        for (final Beacon beacon : mPending) {
+            if (beacon.mPersonal && !beacon.mInFlight) {
+                withdrawn.add(beacon);
+            }
+        }
+        for (final Beacon beacon : withdrawn) {
+            mWithdrawnCount++;
+            drop(beacon, new MoPubNetworkError(
+                    "Personal information can't be collected anymore: " + beacon.mUrl,
+                    MoPubNetworkError.Reason.TRACKING_FAILURE));
+        }
+    }
+
+    private void scheduleFlush(final long delayMillis) {
+        final long atMillis = SystemClock.elapsedRealtime() + delayMillis;
+        if (mScheduledFlush != null) {
+            if (mScheduledFlushAtMillis <= atMillis) {
+                return;
+            }
+            mScheduledFlush.cancel(false);
+        }
+        mScheduledFlushAtMillis = atMillis;
+        mScheduledFlush = mExecutor.schedule(mFlushTask, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean hasUnsentBeacons() {
+        for (final Beacon beacon : mPending) {
+            if (!beacon.mInFlight) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acknowledge(@NonNull final Beacon beacon) {
+        if (!mPending.remove(beacon)) {
+            return;
+        }
+
+        final Segment segment = beacon.mSegment;
+        if (segment != null) {
+            write(getActiveSegment(), ACKNOWLEDGE + Long.toString(segment.mNumber) + ' '
+                    + beacon.mIndex + '\n');
+            segment.mUnacknowledgedCount--;
+            deleteAcknowledgedSegments();
+        }
+    }
+
+    private void drop(@NonNull final Beacon beacon, @NonNull final VolleyError error) {
+        MoPubLog.log(CUSTOM, "Dropping tracking beacon: " + beacon.mUrl);
+        acknowledge(beacon);
+        notifyError(beacon, error);
+    }
+
+    private void notifyError(@NonNull final Beacon beacon, @NonNull final VolleyError error) {
+        final TrackingRequest.Listener listener = beacon.mListener;
+        if (listener != null) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onErrorResponse(error);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the oldest segments once all their beacons are acknowledged. Segments are only
+     * deleted in order, so that the acknowledgements in a segment never outlive the beacons they
+     * acknowledge.
+     */
+    private void deleteAcknowledgedSegments() {
+        while (mSegments.size() > 1) {
+            final Segment oldest = mSegments.firstEntry().getValue();
+            if (oldest.mUnacknowledgedCount > 0) {
+                return;
+            }
+            deleteSegment(oldest);
+        }
+    }
+
+    /**
+     * Deletes the oldest segments, with their beacons, while the log is over its size cap.
+     */
+    private void evictOverflow() {
+        while (mTotalBytes > mMaxBytes && mSegments.size() > 1) {
+            final Segment oldest = mSegments.firstEntry().getValue();
+            final Iterator<Beacon> iterator = mPending.iterator();
+            while (iterator.hasNext()) {
+                final Beacon beacon = iterator.next();
+                if (beacon.mSegment == oldest) {
+                    iterator.remove();
+                    mEvictedCount++;
+                    notifyError(beacon, new MoPubNetworkError(
+                            "Tracking beacon evicted: " + beacon.mUrl,
+                            MoPubNetworkError.Reason.TRACKING_FAILURE));
+                }
+            }
+            MoPubLog.log(CUSTOM, "Beacon log is full. Evicted segment " + oldest.mNumber);
+            deleteSegment(oldest);
+        }
+    }
+
+    private void deleteSegment(@NonNull final Segment segment) {
+        mSegments.remove(segment.mNumber);
+        mTotalBytes -= segment.mBytes;
+        if (segment.mFile != null && segment.mFile.exists() && !segment.mFile.delete()) {
+            MoPubLog.log(CUSTOM, "Unable to delete beacon log segment " + segment.mFile);
+        }
+    }
+
+    @NonNull
+    private Segment getActiveSegment() {
+        final Segment segment = mSegments.lastEntry().getValue();
+        if (segment.mBytes < mSegmentBytes) {
+            return segment;
+        }
+        return startSegment(segment.mNumber + 1);
+    }
+
+    @NonNull
+    private Segment startSegment(final long number) {
+        sync();
+        Streams.closeStream(mSegmentStream);
+        mSegmentStream = null;
+
+        final Segment segment = new Segment(number,
+                mDirectory == null ? null : new File(mDirectory, number + SEGMENT_SUFFIX));
+        mSegments.put(number, segment);
+        if (segment.mFile != null) {
+            try {
+                mSegmentStream = new BufferedOutputStream(new FileOutputStream(segment.mFile));
+            } catch (IOException e) {
+                MoPubLog.log(CUSTOM, "Unable to create beacon log segment " + segment.mFile, e);
+            }
+        }
+        return segment;
+    }
+
+    private void write(@NonNull final Segment segment, @NonNull final String record) {
+        final byte[] bytes = record.getBytes(UTF_8);
+        segment.mBytes += bytes.length;
+        mTotalBytes += bytes.length;
+        if (mSegmentStream == null) {
+            return;
+        }
+
+        try {
+            mSegmentStream.write(bytes);
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to write beacon log. Beacons will only be kept in memory.",
+                    e);
+            Streams.closeStream(mSegmentStream);
+            mSegmentStream = null;
+            return;
+        }
+        // Records written by the tasks queued so far go out in one write
+        if (!mSyncScheduled) {
+            mSyncScheduled = true;
+            execute(mSyncTask);
+        }
+    }
+
+    private void sync() {
+        mSyncScheduled = false;
+        if (mSegmentStream == null) {
+            return;
+        }
+        try {
+            mSegmentStream.flush();
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to write beacon log", e);
+        }
+    }
+
+    private void updateStats() {
+        mPendingCount = mPending.size();
+        mStoredBytes = mTotalBytes;
+    }
+
+    /**
+     * Listens for connectivity to return while beacons are waiting to be flushed, and stops once
+     * they have all been sent or dropped.
+     */
+    private void updateConnectivityReceiver() {
+        final boolean waiting = hasUnsentBeacons();
+        if (waiting && mConnectivityReceiver == null) {
+            mConnectivityReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(final Context context, final Intent intent) {
+                    // Only changes after registering count, not the current state
+                    if (!isInitialStickyBroadcast()
+                            && DeviceUtils.isNetworkAvailable(context)) {
+                        onNetworkAvailable();
+                    }
+                }
+            };
+            mContext.registerReceiver(mConnectivityReceiver,
+                    new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        } else if (!waiting) {
+            unregisterConnectivityReceiver();
+        }
+    }
+
+    private void unregisterConnectivityReceiver() {
+        if (mConnectivityReceiver == null) {
+            return;
+        }
+        try {
+            mContext.unregisterReceiver(mConnectivityReceiver);
+        } catch (IllegalArgumentException e) {
+            MoPubLog.log(CUSTOM, "Connectivity receiver was not registered", e);
+        }
+        mConnectivityReceiver = null;
+    }
+
+    private static class Segment {
+        final long mNumber;
+        @Nullable final File mFile;
+        long mBytes;
+        int mRecordCount;
+        int mUnacknowledgedCount;
+
+        Segment(final long number, @Nullable final File file) {
+            mNumber = number;
+            mFile = file;
+        }
+    }
+
+    private static class Beacon {
+        @NonNull final String mUrl;
+        final long mEnqueuedMillis;
+        // Fired while personal information could be collected
+        final boolean mPersonal;
+        @Nullable final TrackingRequest.Listener mListener;
+
+        // The rest is only accessed on the executor thread, after it is added
+        @Nullable Segment mSegment;
+        int mIndex;
+        int mAttempts;
+        boolean mInFlight;
+        // Whether it is being sent by the last flush
+        boolean mInFlush;
+
+        Beacon(@NonNull final String url, final long enqueuedMillis, final boolean personal,
+                @Nullable final TrackingRequest.Listener listener) {
+            mUrl = url;
+            mEnqueuedMillis = enqueuedMillis;
+            mPersonal = personal;
+            mListener = listener;
+        }
+    }
+}
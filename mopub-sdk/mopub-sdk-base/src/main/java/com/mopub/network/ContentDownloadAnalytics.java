@@ -11,14 +11,18 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.MoPubError;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static android.os.SystemClock.uptimeMillis;
+import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
 
 class ContentDownloadAnalytics {
     enum DownloadResult {
@@ -38,6 +42,15 @@ class ContentDownloadAnalytics {
     private static final String LOAD_DURATION_MS_MACRO = "%%LOAD_DURATION_MS%%";
     private static final String LOAD_RESULT_MACRO = "%%LOAD_RESULT%%";
 
+    /**
+     * Number of waterfall entries that were parsed into an AdResponse, and that were never
+     * parsed because the waterfall stopped before reaching them. Aggregated over all ad loaders.
+     */
+    @NonNull
+    private static final AtomicLong sMaterializedAdResponses = new AtomicLong();
+    @NonNull
+    private static final AtomicLong sUnmaterializedAdResponses = new AtomicLong();
+
     @Nullable
     Long mBeforeLoadTime = null;
     @NonNull
@@ -95,6 +108,36 @@ class ContentDownloadAnalytics {
         TrackingRequest.makeTrackingHttpRequest(urls, context);
     }
 
+    /**
+     * Records how much of a server response was parsed once the waterfall is done with it.
+     * Must be called at most once per {@link MultiAdResponse}.
+     */
+    static void reportMultiAdResponseFinished(@NonNull final MultiAdResponse multiAdResponse) {
+        Preconditions.checkNotNull(multiAdResponse);
+
+        final int materialized = multiAdResponse.getMaterializedCount();
+        final int unmaterialized = multiAdResponse.getUnmaterializedCount();
+        sMaterializedAdResponses.addAndGet(materialized);
+        sUnmaterializedAdResponses.addAndGet(unmaterialized);
+
+        MoPubLog.log(CUSTOM, "Waterfall response finished with " + materialized
+                + " ad responses parsed and " + unmaterialized + " skipped.");
+    }
+
+    static long getMaterializedAdResponseCount() {
+        return sMaterializedAdResponses.get();
+    }
+
+    static long getUnmaterializedAdResponseCount() {
+        return sUnmaterializedAdResponses.get();
+    }
+
+    @VisibleForTesting
+    static void resetAdResponseCounts() {
+        sMaterializedAdResponses.set(0);
+        sUnmaterializedAdResponses.set(0);
+    }
+
     @Nullable
     private List<String> generateAfterLoadUrls(@Nullable List<String> urls, @NonNull String loadResult) {
         if (urls == null || urls.isEmpty() || mBeforeLoadTime == null) {
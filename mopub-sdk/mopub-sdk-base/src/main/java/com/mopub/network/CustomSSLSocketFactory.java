@@ -21,6 +21,8 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLHandshakeException;
@@ -34,7 +36,19 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  */
 public class CustomSSLSocketFactory extends SSLSocketFactory {
 
+    /**
+     * Told about every TLS handshake completed on a socket of the factory.
+     */
+    interface HandshakeListener {
+        /**
+         * @param resumed whether the handshake resumed an earlier session instead of
+         *                negotiating a new one
+         */
+        void onHandshakeCompleted(boolean resumed);
+    }
+
     @Nullable private SSLSocketFactory mCertificateSocketFactory;
+    @Nullable private HandshakeListener mHandshakeListener;
 
     private CustomSSLSocketFactory() {}
 
@@ -46,6 +60,18 @@ public class CustomSSLSocketFactory extends SSLSocketFactory {
         return factory;
     }
 
+    /**
+     * Sessions are only resumed between the sockets of the same factory, so keep one factory
+     * for all connections.
+     */
+    @NonNull
+    static CustomSSLSocketFactory getDefault(final int handshakeTimeoutMillis,
+            @Nullable final HandshakeListener handshakeListener) {
+        final CustomSSLSocketFactory factory = getDefault(handshakeTimeoutMillis);
+        factory.mHandshakeListener = handshakeListener;
+        return factory;
+    }
+
     // Forward all methods. Enable TLS 1.1 and 1.2 before returning.
 
     // SocketFactory overrides
@@ -217,9 +243,27 @@ public class CustomSSLSocketFactory extends SSLSocketFactory {
             // Make sure all supported protocols are enabled. Android does not enable TLSv1.1 or
             // TLSv1.2 by default.
             sslSocket.setEnabledProtocols(supportedProtocols);
+            listenForHandshake(sslSocket);
         }
     }
 
+    private void listenForHandshake(@NonNull final SSLSocket sslSocket) {
+        final HandshakeListener handshakeListener = mHandshakeListener;
+        if (handshakeListener == null) {
+            return;
+        }
+
+        // A resumed session was created before the socket was
+        final long socketCreatedMillis = System.currentTimeMillis();
+        sslSocket.addHandshakeCompletedListener(new HandshakeCompletedListener() {
+            @Override
+            public void handshakeCompleted(final HandshakeCompletedEvent event) {
+                handshakeListener.onHandshakeCompleted(
+                        event.getSession().getCreationTime() < socketCreatedMillis);
+            }
+        });
+    }
+
     @Deprecated
     @VisibleForTesting
     void setCertificateSocketFactory(@NonNull final SSLSocketFactory sslSocketFactory) {
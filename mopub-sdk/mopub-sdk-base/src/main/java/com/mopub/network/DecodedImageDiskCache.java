@@ -0,0 +1,191 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Constants;
+import com.mopub.common.DiskLruCache;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.DeviceUtils;
+import com.mopub.common.util.Streams;
+import com.mopub.common.util.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Second tier behind the in-memory image cache. Images are stored after they have been decoded
+ * and downsampled to the size they are shown at, so an image that was evicted from memory can be
+ * read back without downloading it again or decoding it at full size.
+ * <p/>
+ * The cache is opened on the first read or write. Reads and writes do disk I/O and must not be
+ * made on the main thread.
+ */
+public class DecodedImageDiskCache {
+    @VisibleForTesting static final String CACHE_DIRECTORY_NAME = "mopub-image-cache";
+    private static final int APP_VERSION = 1;
+    private static final int VALUE_COUNT = 1;
+    private static final int DISK_CACHE_INDEX = 0;
+    private static final boolean BINARY_JOURNAL = true;
+    // Images without transparency are stored as JPEGs of this quality
+    private static final int JPEG_QUALITY = 90;
+
+    @Nullable private final Context mContext;
+    @Nullable private DiskLruCache mDiskLruCache;
+    private boolean mOpenFailed;
+
+    /**
+     * A cache in the app's cache directory. Nothing is read from disk until the cache is used.
+     */
+    public DecodedImageDiskCache(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        mContext = context.getApplicationContext();
+    }
+
+    @VisibleForTesting
+    DecodedImageDiskCache(@NonNull final DiskLruCache diskLruCache) {
+        mContext = null;
+        mDiskLruCache = diskLruCache;
+    }
+
+    /**
+     * Opens the cache the first time it is needed.
+     *
+     * @return the cache, or null if it couldn't be opened
+     */
+    @Nullable
+    private synchronized DiskLruCache getDiskLruCache() {
+        if (mDiskLruCache != null || mOpenFailed || mContext == null) {
+            return mDiskLruCache;
+        }
+
+        final File cacheDir = mContext.getCacheDir();
+        if (cacheDir == null) {
+            mOpenFailed = true;
+            return null;
+        }
+
+        final File directory = new File(cacheDir.getPath() + File.separator
+                + CACHE_DIRECTORY_NAME);
+        try {
+            mDiskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT,
+                    DeviceUtils.diskCacheSizeBytes(directory, Constants.TEN_MB), BINARY_JOURNAL);
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to open decoded image cache", e);
+            mOpenFailed = true;
+        }
+        return mDiskLruCache;
+    }
+
+    /**
+     * Reads back an image.
+     *
+     * @param key the memory cache key, which includes the url and the size the image was
+     *            decoded at
+     * @return the bitmap, or null if the image isn't cached
+     */
+    @Nullable
+    public Bitmap get(@NonNull final String key) {
+        Preconditions.checkNotNull(key);
+
+        final DiskLruCache diskLruCache = getDiskLruCache();
+        if (diskLruCache == null) {
+            return null;
+        }
+
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            // Pinned so that it stays while it is decoded straight from the file, without
+            // copying the file into memory first
+            snapshot = diskLruCache.getPinned(createDiskCacheKey(key));
+            if (snapshot == null) {
+                return null;
+            }
+            return BitmapFactory.decodeFileDescriptor(
+                    snapshot.getFileDescriptor(DISK_CACHE_INDEX));
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to read decoded image from cache", e);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * Stores an image unless it is already cached.
+     *
+     * @param key    the memory cache key, which includes the url and the size the image was
+     *               decoded at
+     * @param bitmap the decoded image
+     */
+    public void put(@NonNull final String key, @NonNull final Bitmap bitmap) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(bitmap);
+
+        final DiskLruCache diskLruCache = getDiskLruCache();
+        if (diskLruCache == null) {
+            return;
+        }
+
+        final String diskCacheKey = createDiskCacheKey(key);
+        DiskLruCache.Editor editor = null;
+        OutputStream outputStream = null;
+        try {
+            final DiskLruCache.Snapshot snapshot = diskLruCache.get(diskCacheKey);
+            if (snapshot != null) {
+                snapshot.close();
+                return;
+            }
+
+            editor = diskLruCache.edit(diskCacheKey);
+            if (editor == null) {
+                // Already being written
+                return;
+            }
+
+            outputStream = new BufferedOutputStream(editor.newOutputStream(DISK_CACHE_INDEX));
+            final boolean compressed = bitmap.hasAlpha()
+                    ? bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream)
+                    : bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream);
+            outputStream.close();
+            outputStream = null;
+
+            if (compressed) {
+                editor.commit();
+            } else {
+                editor.abort();
+            }
+            editor = null;
+            diskLruCache.flush();
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to write decoded image to cache", e);
+        } finally {
+            Streams.closeStream(outputStream);
+            if (editor != null) {
+                editor.abortUnlessCommitted();
+            }
+        }
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static String createDiskCacheKey(@NonNull final String key) {
+        return Utils.sha1(key);
+    }
+}
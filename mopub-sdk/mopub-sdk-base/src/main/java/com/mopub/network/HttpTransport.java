@@ -0,0 +1,38 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Opens the HTTP connections of the SDK. The request queues, video downloads, VAST redirects and
+ * click url resolution all go through the transport set with
+ * {@link Networking#setHttpTransport(HttpTransport)}, so a different HTTP client, such as one
+ * that multiplexes requests over HTTP/2, can be plugged in for all of them at once. Most HTTP/2
+ * clients for Android are able to open an {@link HttpURLConnection} for a url.
+ */
+public interface HttpTransport {
+    /**
+     * Opens a connection to the url, without connecting it yet. This must not wait for other
+     * connections to be released, since the callers already bound how many connections they
+     * open. The SDK releases the connections it opens with {@link #release(HttpURLConnection)},
+     * but connections opened for publishers through
+     * {@link com.mopub.common.MoPubHttpUrlConnection} may never be released, so a transport must
+     * not keep them reachable.
+     */
+    @NonNull
+    HttpURLConnection openConnection(@NonNull URL url) throws IOException;
+
+    /**
+     * Called once the response of the connection has been read, or the connection has failed.
+     * This does not disconnect the connection, so that it can be reused for the next request to
+     * the host. Connections not opened by this transport are ignored.
+     */
+    void release(@NonNull HttpURLConnection connection);
+}
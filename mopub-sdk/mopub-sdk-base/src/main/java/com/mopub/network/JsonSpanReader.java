@@ -0,0 +1,252 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Forward-only reader over the raw bytes of a JSON document, in the style of
+ * {@link android.util.JsonReader}. Values can be skipped and remembered by their byte span
+ * instead of being decoded, so only the parts of a document that are actually needed are turned
+ * into Strings or JSONObjects.
+ *
+ * Only charsets that encode every JSON structural character as the same single byte, and never
+ * reuse those bytes inside multi-byte sequences, can be read directly. See
+ * {@link #isSupportedCharset(String)}.
+ */
+class JsonSpanReader {
+
+    private static final String[] SUPPORTED_CHARSETS = {"UTF-8", "US-ASCII", "ISO-8859-1"};
+
+    @NonNull private final byte[] mData;
+    @NonNull private final Charset mCharset;
+    private int mPosition;
+    private int mValueStart;
+
+    JsonSpanReader(@NonNull final byte[] data, @NonNull final Charset charset) {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkNotNull(charset);
+
+        mData = data;
+        mCharset = charset;
+        mPosition = 0;
+    }
+
+    static boolean isSupportedCharset(@Nullable final String charsetName) {
+        if (charsetName == null) {
+            return false;
+        }
+
+        final String canonicalName;
+        try {
+            canonicalName = Charset.forName(charsetName).name();
+        } catch (IllegalArgumentException e) {
+            // Covers both IllegalCharsetNameException and UnsupportedCharsetException
+            return false;
+        }
+
+        for (final String supported : SUPPORTED_CHARSETS) {
+            if (supported.equalsIgnoreCase(canonicalName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void beginObject() throws JSONException {
+        expect('{');
+    }
+
+    void endObject() throws JSONException {
+        expect('}');
+    }
+
+    void beginArray() throws JSONException {
+        expect('[');
+    }
+
+    void endArray() throws JSONException {
+        expect(']');
+    }
+
+    /**
+     * @return true if the current object or array has another member. Consumes the separating
+     * comma, if any.
+     */
+    boolean hasNext() throws JSONException {
+        skipWhitespace();
+        final int c = peek();
+        if (c == ',') {
+            mPosition++;
+            skipWhitespace();
+            return true;
+        }
+        return c != '}' && c != ']';
+    }
+
+    @NonNull
+    String nextName() throws JSONException {
+        skipWhitespace();
+        if (peek() != '"') {
+            throw syntaxError("Expected name");
+        }
+
+        final int start = mPosition;
+        final int end = skipValue();
+        expect(':');
+        return String.valueOf(decodeValue(start, end));
+    }
+
+    /**
+     * Decodes the next value. Strings, numbers and literals are returned as by
+     * {@link JSONTokener#nextValue()}; objects and arrays become JSONObject and JSONArray.
+     */
+    @NonNull
+    Object nextValue() throws JSONException {
+        final int end = skipValue();
+        return decodeValue(mValueStart, end);
+    }
+
+    /**
+     * Skips the next value without decoding it.
+     *
+     * @return the exclusive end offset of the skipped value. The start offset is available from
+     * {@link #getValueStart()}.
+     */
+    int skipValue() throws JSONException {
+        skipWhitespace();
+        mValueStart = mPosition;
+
+        final int c = peek();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            skipContainer();
+        } else {
+            while (mPosition < mData.length && !isDelimiter(mData[mPosition])) {
+                mPosition++;
+            }
+            if (mPosition == mValueStart) {
+                throw syntaxError("Expected value");
+            }
+        }
+        return mPosition;
+    }
+
+    int getValueStart() {
+        return mValueStart;
+    }
+
+    /**
+     * Records the spans of every element of the array at the current position without decoding
+     * them.
+     *
+     * @return start and exclusive end offsets of each element, interleaved.
+     */
+    @NonNull
+    int[] readArraySpans() throws JSONException {
+        int[] spans = new int[8];
+        int count = 0;
+
+        beginArray();
+        while (hasNext()) {
+            final int end = skipValue();
+            if (count + 2 > spans.length) {
+                spans = Arrays.copyOf(spans, spans.length * 2);
+            }
+            spans[count++] = mValueStart;
+            spans[count++] = end;
+        }
+        endArray();
+
+        return Arrays.copyOf(spans, count);
+    }
+
+    @NonNull
+    String decode(final int start, final int end) {
+        return new String(mData, start, end - start, mCharset);
+    }
+
+    @NonNull
+    private Object decodeValue(final int start, final int end) throws JSONException {
+        return new JSONTokener(decode(start, end)).nextValue();
+    }
+
+    private void skipString() throws JSONException {
+        // Opening quote
+        mPosition++;
+        while (mPosition < mData.length) {
+            final byte b = mData[mPosition++];
+            if (b == '\\') {
+                mPosition++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipContainer() throws JSONException {
+        int depth = 0;
+        while (mPosition < mData.length) {
+            final byte b = mData[mPosition];
+            if (b == '"') {
+                skipString();
+                continue;
+            }
+
+            mPosition++;
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw syntaxError("Unterminated object or array");
+    }
+
+    private void expect(final char c) throws JSONException {
+        skipWhitespace();
+        if (peek() != c) {
+            throw syntaxError("Expected " + c);
+        }
+        mPosition++;
+    }
+
+    private int peek() {
+        return mPosition < mData.length ? mData[mPosition] : -1;
+    }
+
+    private void skipWhitespace() {
+        while (mPosition < mData.length && isWhitespace(mData[mPosition])) {
+            mPosition++;
+        }
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isDelimiter(final byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ':' || isWhitespace(b);
+    }
+
+    @NonNull
+    private JSONException syntaxError(@NonNull final String message) {
+        return new JSONException(message + " at byte " + mPosition);
+    }
+}
@@ -5,19 +5,95 @@
 package com.mopub.network;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Point;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import android.text.TextUtils;
 import android.view.Display;
 import android.view.WindowManager;
+import android.widget.ImageView;
 
+import com.mopub.common.VisibleForTesting;
 import com.mopub.volley.RequestQueue;
+import com.mopub.volley.VolleyError;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Image loader that keeps its own memory cache, keyed by url and the size images are decoded at,
+ * with an optional {@link DecodedImageDiskCache} behind it. Volley's image loader is only used to
+ * make and batch the requests, and is given a cache that holds nothing, so that images aren't
+ * cached twice under its own keys.
+ */
 public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
+    @NonNull private static final ImageCache NO_IMAGE_CACHE = new ImageCache() {
+        @Override
+        public Bitmap getBitmap(final String key) {
+            return null;
+        }
+
+        @Override
+        public void putBitmap(final String key, final Bitmap bitmap) {
+        }
+    };
+
     private final int mMaxImageWidth;
 
+    @NonNull private final ImageCache mImageCache;
+    @Nullable private final DecodedImageDiskCache mDecodedImageDiskCache;
+    @NonNull private final Executor mDiskExecutor;
+    @NonNull private final Handler mMainHandler;
+    // Images being read back from the disk tier, mapped to the requests waiting for them. Only
+    // accessed on the main thread.
+    @NonNull private final Map<String, List<PendingGet>> mPendingDiskReads =
+            new HashMap<String, List<PendingGet>>();
 
     public MaxWidthImageLoader(final RequestQueue queue, final Context context, final ImageCache imageCache) {
-        super(queue, imageCache);
+        this(queue, context, imageCache, null);
+    }
+
+    /**
+     * @param decodedImageDiskCache images evicted from the memory cache are read back from here,
+     *                              and every image decoded from the network is stored here
+     */
+    public MaxWidthImageLoader(final RequestQueue queue, final Context context,
+            final ImageCache imageCache,
+            @Nullable final DecodedImageDiskCache decodedImageDiskCache) {
+        this(queue, getMaxImageWidth(context), imageCache, decodedImageDiskCache,
+                Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "MaxWidthImageLoader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }));
+    }
+
+    @VisibleForTesting
+    MaxWidthImageLoader(final RequestQueue queue, final int maxImageWidth,
+            @NonNull final ImageCache imageCache,
+            @Nullable final DecodedImageDiskCache decodedImageDiskCache,
+            @NonNull final Executor diskExecutor) {
+        super(queue, NO_IMAGE_CACHE);
 
+        mMaxImageWidth = maxImageWidth;
+        mImageCache = imageCache;
+        mDecodedImageDiskCache = decodedImageDiskCache;
+        mDiskExecutor = diskExecutor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    private static int getMaxImageWidth(final Context context) {
         // Get Display Options
         WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         Display display = wm.getDefaultDisplay();
@@ -25,11 +101,196 @@ public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
         display.getSize(size);
 
         // Make our images no wider than the skinny side of the display.
-        mMaxImageWidth = Math.min(size.x, size.y);
+        return Math.min(size.x, size.y);
     }
 
     @Override
     public ImageContainer get(final String requestUrl, final ImageListener listener) {
-        return super.get(requestUrl, listener, mMaxImageWidth, 0 /* no height limit */);
+        return get(requestUrl, listener, mMaxImageWidth, 0 /* no height limit */);
+    }
+
+    /**
+     * Loads an image downsampled to fit within the given size, so that an image shown in a small
+     * view isn't decoded at the width of the display. Images are never decoded wider than the
+     * skinny side of the display. Images that aren't in memory at this size are decoded at it on
+     * Volley's threads, from its HTTP cache when the image was downloaded before.
+     *
+     * @param maxWidth  the width of the view the image is shown in, or 0 if it isn't known
+     * @param maxHeight the height of the view the image is shown in, or 0 for no height limit
+     */
+    @Override
+    public ImageContainer get(final String requestUrl, final ImageListener listener,
+            final int maxWidth, final int maxHeight) {
+        final int width = getWidth(maxWidth);
+        final int height = Math.max(maxHeight, 0);
+        if (TextUtils.isEmpty(requestUrl)) {
+            return super.get(requestUrl, listener, width, height);
+        }
+
+        final String cacheKey = getCacheKey(requestUrl, width, height);
+        final Bitmap cachedBitmap = mImageCache.getBitmap(cacheKey);
+        if (cachedBitmap != null) {
+            return respondFromMemory(requestUrl, cachedBitmap, listener);
+        }
+
+        if (width != mMaxImageWidth || height != 0) {
+            // Precached at the full width before the size it is shown at was known. Showing that
+            // keeps a single copy of the image in memory.
+            final Bitmap fullWidthBitmap =
+                    mImageCache.getBitmap(getCacheKey(requestUrl, mMaxImageWidth, 0));
+            if (fullWidthBitmap != null) {
+                return respondFromMemory(requestUrl, fullWidthBitmap, listener);
+            }
+        }
+
+        if (mDecodedImageDiskCache == null) {
+            return getFromVolley(requestUrl, listener, width, height);
+        }
+
+        // Not in memory, so check the disk tier before going to the network.
+        final ImageContainer imageContainer = new ImageContainer(null, requestUrl, cacheKey,
+                listener);
+        // Respond with the default image right away, as the image loader does for a miss
+        listener.onResponse(imageContainer, true);
+
+        List<PendingGet> pendingGets = mPendingDiskReads.get(cacheKey);
+        if (pendingGets != null) {
+            pendingGets.add(new PendingGet(requestUrl, listener, width, height));
+            return imageContainer;
+        }
+        pendingGets = new ArrayList<PendingGet>();
+        pendingGets.add(new PendingGet(requestUrl, listener, width, height));
+        mPendingDiskReads.put(cacheKey, pendingGets);
+
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = mDecodedImageDiskCache.get(cacheKey);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDiskReadComplete(cacheKey, bitmap);
+                    }
+                });
+            }
+        });
+        return imageContainer;
+    }
+
+    private void onDiskReadComplete(@NonNull final String cacheKey, @Nullable final Bitmap bitmap) {
+        final List<PendingGet> pendingGets = mPendingDiskReads.remove(cacheKey);
+        if (pendingGets == null) {
+            return;
+        }
+
+        if (bitmap != null) {
+            mImageCache.putBitmap(cacheKey, bitmap);
+        }
+        // Served from memory now, or from the network if the disk tier didn't have it either
+        for (final PendingGet pendingGet : pendingGets) {
+            if (bitmap != null) {
+                respondFromMemory(pendingGet.mRequestUrl, bitmap, pendingGet.mListener);
+            } else {
+                getFromVolley(pendingGet.mRequestUrl, pendingGet.mListener, pendingGet.mMaxWidth,
+                        pendingGet.mMaxHeight);
+            }
+        }
+    }
+
+    /**
+     * Responds right away with an image from the memory cache, the way the image loader responds
+     * to a hit in its own cache.
+     */
+    @NonNull
+    private static ImageContainer respondFromMemory(@NonNull final String requestUrl,
+            @NonNull final Bitmap bitmap, @NonNull final ImageListener listener) {
+        final ImageContainer imageContainer = new ImageContainer(bitmap, requestUrl, null, null);
+        listener.onResponse(imageContainer, true);
+        return imageContainer;
+    }
+
+    /**
+     * Requests the image from the network, and caches it in memory and on disk once it is
+     * decoded.
+     */
+    private ImageContainer getFromVolley(@NonNull final String requestUrl,
+            @NonNull final ImageListener listener, final int maxWidth, final int maxHeight) {
+        final String cacheKey = getCacheKey(requestUrl, maxWidth, maxHeight);
+        return super.get(requestUrl, new ImageListener() {
+            @Override
+            public void onResponse(final ImageContainer imageContainer,
+                    final boolean isImmediate) {
+                final Bitmap bitmap = imageContainer.getBitmap();
+                // Immediate responses are the default image, before the request is made
+                if (!isImmediate && bitmap != null) {
+                    mImageCache.putBitmap(cacheKey, bitmap);
+                    storeOnDisk(cacheKey, bitmap);
+                }
+                listener.onResponse(imageContainer, isImmediate);
+            }
+
+            @Override
+            public void onErrorResponse(final VolleyError volleyError) {
+                listener.onErrorResponse(volleyError);
+            }
+        }, maxWidth, maxHeight);
+    }
+
+    private void storeOnDisk(@NonNull final String cacheKey, @NonNull final Bitmap bitmap) {
+        if (mDecodedImageDiskCache == null) {
+            return;
+        }
+
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDecodedImageDiskCache.put(cacheKey, bitmap);
+            }
+        });
+    }
+
+    /**
+     * Whether the image is in the memory cache at this size. Unlike the image loader's own check,
+     * this ignores the scale type, since images are always decoded to fit within the size.
+     */
+    @Override
+    public boolean isCached(final String requestUrl, final int maxWidth, final int maxHeight,
+            final ImageView.ScaleType scaleType) {
+        return !TextUtils.isEmpty(requestUrl) && mImageCache.getBitmap(
+                getCacheKey(requestUrl, getWidth(maxWidth), Math.max(maxHeight, 0))) != null;
+    }
+
+    /**
+     * @return the width images are decoded at for this view width
+     */
+    private int getWidth(final int maxWidth) {
+        return maxWidth <= 0 || maxWidth > mMaxImageWidth ? mMaxImageWidth : maxWidth;
+    }
+
+    /**
+     * The key of an image in the memory and disk caches.
+     */
+    @NonNull
+    @VisibleForTesting
+    static String getCacheKey(@NonNull final String url, final int maxWidth,
+            final int maxHeight) {
+        return new StringBuilder(url.length() + 12).append(maxWidth)
+                .append('x').append(maxHeight)
+                .append(' ').append(url).toString();
+    }
+
+    private static class PendingGet {
+        @NonNull final String mRequestUrl;
+        @NonNull final ImageListener mListener;
+        final int mMaxWidth;
+        final int mMaxHeight;
+
+        PendingGet(@NonNull final String requestUrl, @NonNull final ImageListener listener,
+                final int maxWidth, final int maxHeight) {
+            mRequestUrl = requestUrl;
+            mListener = listener;
+            mMaxWidth = maxWidth;
+            mMaxHeight = maxHeight;
+        }
     }
 }
@@ -17,6 +17,7 @@ public class MoPubNetworkError extends VolleyError {
         BAD_HEADER_DATA,
         BAD_BODY,
         TRACKING_FAILURE,
+        TOO_MANY_REQUESTS,
         UNSPECIFIED
     }
 
@@ -17,8 +17,10 @@ import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.Request;
 import com.mopub.volley.Response;
 import com.mopub.volley.toolbox.HttpHeaderParser;
+import com.mopub.volley.toolbox.HurlStack;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
@@ -34,6 +36,11 @@ public abstract class MoPubRequest<T> extends Request<T>  {
 
     @NonNull private final String mOriginalUrl;
     @NonNull private final Context mContext;
+    // Parsed from the original url the first time they are needed
+    @Nullable private RequestParams mRequestParams;
+    // The body is kept for retries, unless the values of the templates in it have changed
+    @Nullable private byte[] mBody;
+    @Nullable private String[] mBodyTemplateValues;
 
     public MoPubRequest(@NonNull final Context context,
                         @NonNull final String url,
@@ -51,7 +58,12 @@ public abstract class MoPubRequest<T> extends Request<T>  {
             return null;
         }
 
-        return MoPubRequestUtils.convertQueryToMap(mContext, mOriginalUrl);
+        final HurlStack.UrlRewriter urlRewriter = Networking.getUrlRewriter(mContext);
+        if (urlRewriter instanceof PlayServicesUrlRewriter) {
+            return getRequestParams().toMap(PlayServicesUrlRewriter.getTemplateValues());
+        }
+        final RequestParams rewrittenParams = getRewrittenRequestParams(urlRewriter);
+        return rewrittenParams != null ? rewrittenParams.toMap(null) : null;
     }
 
     @Override
@@ -63,12 +75,45 @@ public abstract class MoPubRequest<T> extends Request<T>  {
     }
 
     @Override
-    public byte[] getBody() {
-        final String body = MoPubRequestUtils.generateBodyFromParams(getParams(), getUrl());
-        if (body == null) {
+    public synchronized byte[] getBody() {
+        if (!MoPubRequestUtils.isMoPubRequest(getUrl()) || getRequestParams().isEmpty()) {
             return null;
         }
-        return body.getBytes();
+
+        final HurlStack.UrlRewriter urlRewriter = Networking.getUrlRewriter(mContext);
+        if (!(urlRewriter instanceof PlayServicesUrlRewriter)) {
+            final RequestParams rewrittenParams = getRewrittenRequestParams(urlRewriter);
+            return rewrittenParams != null ? rewrittenParams.toJsonBody(null) : null;
+        }
+
+        // Replacing the templates of the rewriter in the values is the same as rewriting the url
+        final String[] templateValues = PlayServicesUrlRewriter.getTemplateValues();
+        if (mBody == null || !Arrays.equals(templateValues, mBodyTemplateValues)) {
+            mBody = getRequestParams().toJsonBody(templateValues);
+            mBodyTemplateValues = templateValues;
+        }
+        return mBody;
+    }
+
+    @NonNull
+    private synchronized RequestParams getRequestParams() {
+        if (mRequestParams == null) {
+            mRequestParams = RequestParams.fromUrl(mOriginalUrl);
+        }
+        return mRequestParams;
+    }
+
+    /**
+     * Params for rewriters other than {@link PlayServicesUrlRewriter}, whose templates aren't
+     * known, from the url as the rewriter rewrites it.
+     *
+     * @return the params, or null if the rewriter blocks the url
+     */
+    @Nullable
+    private RequestParams getRewrittenRequestParams(
+            @NonNull final HurlStack.UrlRewriter urlRewriter) {
+        final String rewrittenUrl = urlRewriter.rewriteUrl(mOriginalUrl);
+        return rewrittenUrl != null ? RequestParams.fromUrl(rewrittenUrl) : null;
     }
 
     @NonNull
@@ -89,6 +134,28 @@ public abstract class MoPubRequest<T> extends Request<T>  {
         return mOriginalUrl;
     }
 
+    /**
+     * The lane this waits in on a {@link MoPubRequestQueue}. Requests that don't say otherwise go
+     * with the creative assets.
+     */
+    @NonNull
+    public MoPubRequestQueue.Lane getLane() {
+        return MoPubRequestQueue.Lane.CREATIVE_ASSET;
+    }
+
+    /**
+     * The ad unit this is for, if any. The requests of each ad unit take turns within a lane.
+     */
+    @Nullable
+    public String getAdUnitId() {
+        return null;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return getLane().getPriority();
+    }
+
     @Override
     public Map<String, String> getHeaders() {
         final TreeMap<String, String> headers = new TreeMap<>();
@@ -5,48 +5,134 @@
 package com.mopub.network;
 
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.volley.Cache;
+import com.mopub.volley.ExecutorDelivery;
 import com.mopub.volley.Network;
 import com.mopub.volley.Request;
 import com.mopub.volley.RequestQueue;
 import com.mopub.volley.ResponseDelivery;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * MoPub's custom implementation of the Google Volley RequestQueue.
  * This subclass provides convenience methods for adding a delayed request to run at a time in
  * the future. This is useful for our backoff policy architecture.
  *
+ * Requests wait in priority lanes, and are only handed to Volley while one of its network
+ * dispatchers is free, so an ad request never waits behind more than the requests already being
+ * sent. Within a lane, requests for different ad units take turns. Requests that may be cached
+ * are handed to Volley right away, since they may be served from its cache or wait for a
+ * duplicate instead of being sent. Delayed requests are kept on a single {@link TimerWheel}
+ * instead of a runnable each.
+ *
  * We've overridden certain implementation methods but have kept the contract of the
  * original method consistent.
  */
 public class MoPubRequestQueue extends RequestQueue {
 
+    /**
+     * The lanes requests wait in, in the order they are served. A lane is only served while the
+     * lanes before it are empty.
+     */
+    public enum Lane {
+        AD_FETCH(Request.Priority.HIGH),
+        CREATIVE_ASSET(Request.Priority.NORMAL),
+        CONSENT_SYNC(Request.Priority.LOW),
+        TRACKING(Request.Priority.LOW);
+
+        @NonNull private final Request.Priority mPriority;
+
+        Lane(@NonNull final Request.Priority priority) {
+            mPriority = priority;
+        }
+
+        /**
+         * The Volley priority of the requests in this lane, which orders them among the
+         * requests already handed to Volley.
+         */
+        @NonNull
+        public Request.Priority getPriority() {
+            return mPriority;
+        }
+    }
+
     private static final int CAPACITY = 10;
+    // The same as Volley's
+    private static final int DEFAULT_NETWORK_THREAD_POOL_SIZE = 4;
+    private static final long TIMER_TICK_MILLIS = 100;
+    private static final int TIMER_SLOT_COUNT = 512;
+    // Requests without an ad unit take turns as one
+    private static final String NO_AD_UNIT = "";
 
     @NonNull
-    private final Map<Request<?>, DelayedRequestHelper> mDelayedRequests;
+    private final Map<Request<?>, TimerWheel.Timeout> mDelayedRequests;
+    @NonNull private final TimerWheel mTimerWheel;
+    @NonNull private final LaneQueue[] mLanes;
+    // The uncached requests handed to Volley that haven't finished yet
+    @NonNull private final Set<Request<?>> mInFlightRequests;
+    private final int mMaxInFlight;
 
     MoPubRequestQueue(Cache cache, Network network, int threadPoolSize, ResponseDelivery delivery) {
         super(cache, network, threadPoolSize, delivery);
-        mDelayedRequests = new HashMap<Request<?>, DelayedRequestHelper>(CAPACITY);
+        mDelayedRequests = new HashMap<Request<?>, TimerWheel.Timeout>(CAPACITY);
+        mTimerWheel = new TimerWheel(new Handler(Looper.getMainLooper()), TIMER_TICK_MILLIS,
+                TIMER_SLOT_COUNT);
+        mLanes = createLanes();
+        mInFlightRequests = Collections.newSetFromMap(new IdentityHashMap<Request<?>, Boolean>());
+        mMaxInFlight = threadPoolSize;
+        addRequestFinishedListener(new RequestFinishedListener<Object>() {
+            @Override
+            public void onRequestFinished(final Request<Object> request) {
+                onFinished(request);
+            }
+        });
     }
 
     MoPubRequestQueue(Cache cache, Network network, int threadPoolSize) {
-        super(cache, network, threadPoolSize);
-        mDelayedRequests = new HashMap<Request<?>, DelayedRequestHelper>(CAPACITY);
+        this(cache, network, threadPoolSize,
+                new ExecutorDelivery(new Handler(Looper.getMainLooper())));
     }
 
     MoPubRequestQueue(Cache cache, Network network) {
-        super(cache, network);
-        mDelayedRequests = new HashMap<Request<?>, DelayedRequestHelper>(CAPACITY);
+        this(cache, network, DEFAULT_NETWORK_THREAD_POOL_SIZE);
+    }
+
+    /**
+     * Adds the request to its lane. It is handed to Volley once a network dispatcher is free and
+     * no request in an earlier lane, or for an ad unit whose turn comes first, is waiting.
+     * Requests that may be cached are handed to Volley right away.
+     */
+    @Override
+    public <T> Request<T> add(final Request<T> request) {
+        Preconditions.checkNotNull(request);
+
+        if (request.shouldCache()) {
+            return super.add(request);
+        }
+
+        final Lane lane = getLane(request);
+        synchronized (this) {
+            mLanes[lane.ordinal()].add(request, getAdUnitKey(request),
+                    SystemClock.elapsedRealtime());
+        }
+        admitRequests();
+        return request;
     }
 
     /**
@@ -55,25 +141,25 @@ public class MoPubRequestQueue extends RequestQueue {
      * @param request The request.
      * @param delayMs The delay in ms for adding the request to the request queue.
      */
-    public void addDelayedRequest(@NonNull Request<?> request, int delayMs) {
+    public void addDelayedRequest(@NonNull final Request<?> request, int delayMs) {
         Preconditions.checkNotNull(request);
-        addDelayedRequest(request, new DelayedRequestHelper(request, delayMs));
-    }
-
-    @VisibleForTesting
-    void addDelayedRequest(@NonNull Request<?> request, @NonNull DelayedRequestHelper delayedRequestHelper) {
-        Preconditions.checkNotNull(delayedRequestHelper);
 
         if (mDelayedRequests.containsKey(request)) {
             cancel(request);
         }
 
-        delayedRequestHelper.start();
-        mDelayedRequests.put(request, delayedRequestHelper);
+        final TimerWheel.Timeout timeout = mTimerWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mDelayedRequests.remove(request);
+                add(request);
+            }
+        }, delayMs);
+        mDelayedRequests.put(request, timeout);
     }
 
     /**
-     * Override of cancelAll method to ensure delayed requests are cancelled as well.
+     * Override of cancelAll method to ensure delayed and waiting requests are cancelled as well.
      */
     @Override
     public void cancelAll(@NonNull RequestFilter filter) {
@@ -81,16 +167,26 @@ public class MoPubRequestQueue extends RequestQueue {
 
         super.cancelAll(filter);
 
-        Iterator<Map.Entry<Request<?>, DelayedRequestHelper>> iterator = mDelayedRequests.entrySet().iterator();
+        Iterator<Map.Entry<Request<?>, TimerWheel.Timeout>> iterator = mDelayedRequests.entrySet().iterator();
         while (iterator.hasNext()) {
-            Map.Entry<Request<?>, DelayedRequestHelper> entry = iterator.next();
+            Map.Entry<Request<?>, TimerWheel.Timeout> entry = iterator.next();
             if (filter.apply(entry.getKey())) {
-                // Here we cancel both the request and the handler from posting the delayed runnable
+                // Here we cancel both the request and the timer from adding it later
                 entry.getKey().cancel();
-                entry.getValue().cancel();
+                mTimerWheel.cancel(entry.getValue());
                 iterator.remove();
             }
         }
+
+        final List<Request<?>> removed = new ArrayList<Request<?>>();
+        synchronized (this) {
+            for (final LaneQueue lane : mLanes) {
+                lane.removeAll(filter, removed);
+            }
+        }
+        for (final Request<?> request : removed) {
+            request.cancel();
+        }
     }
 
     /**
@@ -127,44 +223,196 @@ public class MoPubRequestQueue extends RequestQueue {
     }
 
     /**
-     * This helper class is used to package the supporting objects a request needs to
-     * run at a delayed time and cancel if needed.
+     * The number of requests waiting in all lanes for a network dispatcher.
      */
-    class DelayedRequestHelper {
-        final int mDelayMs;
-        @NonNull final Handler mHandler;
-        @NonNull final Runnable mDelayedRunnable;
-
-        DelayedRequestHelper(@NonNull final Request<?> request, int delayMs) {
-            this(request, delayMs, new Handler());
-        }
-
-        @VisibleForTesting
-        DelayedRequestHelper(@NonNull final Request<?> request, int delayMs, @NonNull Handler handler) {
-            mDelayMs = delayMs;
-            mHandler = handler;
-            mDelayedRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    mDelayedRequests.remove(request);
-                    MoPubRequestQueue.this.add(request);
-                }
-            };
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (final LaneQueue lane : mLanes) {
+            depth += lane.mSize;
         }
+        return depth;
+    }
+
+    /**
+     * The number of requests waiting in the lane for a network dispatcher.
+     */
+    public synchronized int getQueueDepth(@NonNull final Lane lane) {
+        return mLanes[lane.ordinal()].mSize;
+    }
+
+    /**
+     * The average time the requests of the lane waited before being handed to Volley, in
+     * milliseconds.
+     */
+    public synchronized double getAverageWaitMs(@NonNull final Lane lane) {
+        final LaneQueue laneQueue = mLanes[lane.ordinal()];
+        return laneQueue.mAdmittedCount == 0
+                ? 0
+                : (double) laneQueue.mTotalWaitMillis / laneQueue.mAdmittedCount;
+    }
+
+    /**
+     * The longest time a request of the lane waited before being handed to Volley, in
+     * milliseconds.
+     */
+    public synchronized long getMaxWaitMs(@NonNull final Lane lane) {
+        return mLanes[lane.ordinal()].mMaxWaitMillis;
+    }
+
+    /**
+     * The number of uncached requests handed to Volley that haven't finished yet.
+     */
+    public synchronized int getInFlightCount() {
+        return mInFlightRequests.size();
+    }
+
+    /**
+     * The number of requests waiting to be added after a delay.
+     */
+    public int getDelayedCount() {
+        return mTimerWheel.size();
+    }
 
-        void start() {
-            mHandler.postDelayed(mDelayedRunnable, mDelayMs);
+    @NonNull
+    @VisibleForTesting
+    static Lane getLane(@NonNull final Request<?> request) {
+        if (request instanceof MoPubRequest) {
+            return ((MoPubRequest<?>) request).getLane();
         }
+        // Images, and the other Volley requests made by the SDK
+        return Lane.CREATIVE_ASSET;
+    }
 
-        void cancel() {
-            mHandler.removeCallbacks(mDelayedRunnable);
+    @NonNull
+    private static String getAdUnitKey(@NonNull final Request<?> request) {
+        if (request instanceof MoPubRequest) {
+            final String adUnitId = ((MoPubRequest<?>) request).getAdUnitId();
+            if (adUnitId != null) {
+                return adUnitId;
+            }
         }
+        return NO_AD_UNIT;
     }
 
     @NonNull
-    @Deprecated
-    @VisibleForTesting
-    Map<Request<?>, DelayedRequestHelper> getDelayedRequests() {
-        return mDelayedRequests;
+    private static LaneQueue[] createLanes() {
+        final LaneQueue[] lanes = new LaneQueue[Lane.values().length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new LaneQueue();
+        }
+        return lanes;
+    }
+
+    private void onFinished(@NonNull final Request<?> request) {
+        synchronized (this) {
+            mInFlightRequests.remove(request);
+        }
+        admitRequests();
+    }
+
+    /**
+     * Hands waiting requests to Volley, first lane first, while it has a network dispatcher free.
+     */
+    private void admitRequests() {
+        final List<Request<?>> admitted = new ArrayList<Request<?>>();
+        synchronized (this) {
+            final long nowMillis = SystemClock.elapsedRealtime();
+            for (final LaneQueue lane : mLanes) {
+                while (mInFlightRequests.size() < mMaxInFlight) {
+                    final Request<?> request = lane.poll(nowMillis);
+                    if (request == null) {
+                        break;
+                    }
+                    mInFlightRequests.add(request);
+                    admitted.add(request);
+                }
+            }
+        }
+
+        for (final Request<?> request : admitted) {
+            super.add(request);
+        }
+    }
+
+    /**
+     * The requests waiting in a lane. Each ad unit has its own first-in first-out queue, and the
+     * ad units with requests waiting take turns.
+     */
+    private static class LaneQueue {
+        @NonNull private final Map<String, ArrayDeque<WaitingRequest>> mQueues =
+                new HashMap<String, ArrayDeque<WaitingRequest>>();
+        // The ad units with requests waiting, the next one to be served first
+        @NonNull private final ArrayDeque<String> mTurns = new ArrayDeque<String>();
+        private int mSize;
+        private long mAdmittedCount;
+        private long mTotalWaitMillis;
+        private long mMaxWaitMillis;
+
+        void add(@NonNull final Request<?> request, @NonNull final String adUnitKey,
+                final long nowMillis) {
+            ArrayDeque<WaitingRequest> queue = mQueues.get(adUnitKey);
+            if (queue == null) {
+                queue = new ArrayDeque<WaitingRequest>();
+                mQueues.put(adUnitKey, queue);
+                mTurns.addLast(adUnitKey);
+            }
+            queue.addLast(new WaitingRequest(request, nowMillis));
+            mSize++;
+        }
+
+        @Nullable
+        Request<?> poll(final long nowMillis) {
+            final String adUnitKey = mTurns.pollFirst();
+            if (adUnitKey == null) {
+                return null;
+            }
+
+            final ArrayDeque<WaitingRequest> queue = mQueues.get(adUnitKey);
+            final WaitingRequest waitingRequest = queue.pollFirst();
+            if (queue.isEmpty()) {
+                mQueues.remove(adUnitKey);
+            } else {
+                mTurns.addLast(adUnitKey);
+            }
+            mSize--;
+
+            final long waitMillis = nowMillis - waitingRequest.mAddedMillis;
+            mAdmittedCount++;
+            mTotalWaitMillis += waitMillis;
+            mMaxWaitMillis = Math.max(mMaxWaitMillis, waitMillis);
+            return waitingRequest.mRequest;
+        }
+
+        void removeAll(@NonNull final RequestFilter filter,
+                @NonNull final List<Request<?>> removed) {
+            final Iterator<Map.Entry<String, ArrayDeque<WaitingRequest>>> queues =
+                    mQueues.entrySet().iterator();
+            while (queues.hasNext()) {
+                final Map.Entry<String, ArrayDeque<WaitingRequest>> entry = queues.next();
+                final Iterator<WaitingRequest> requests = entry.getValue().iterator();
+                while (requests.hasNext()) {
+                    final Request<?> request = requests.next().mRequest;
+                    if (filter.apply(request)) {
+                        requests.remove();
+                        removed.add(request);
+                        mSize--;
+                    }
+                }
+                if (entry.getValue().isEmpty()) {
+                    mTurns.remove(entry.getKey());
+                    queues.remove();
+                }
+            }
+        }
+    }
+
+    private static class WaitingRequest {
+        @NonNull final Request<?> mRequest;
+        final long mAddedMillis;
+
+        WaitingRequest(@NonNull final Request<?> request, final long addedMillis) {
+            mRequest = request;
+            mAddedMillis = addedMillis;
+        }
     }
 }
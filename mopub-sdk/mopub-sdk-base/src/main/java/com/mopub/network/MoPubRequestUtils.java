@@ -4,26 +4,17 @@
 
 package com.mopub.network;
 
-import android.content.Context;
 import android.net.Uri;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Constants;
 import com.mopub.common.Preconditions;
-import com.mopub.common.logging.MoPubLog;
 import com.mopub.volley.Request;
-import com.mopub.volley.toolbox.HurlStack;
-
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.Map;
 
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-
 /**
  * Keeps utility methods regarding MoPubRequests in one place.
  */
@@ -60,17 +51,6 @@ public class MoPubRequestUtils {
         }
     }
 
-    @NonNull
-    public static Map<String, String> convertQueryToMap(@NonNull final Context context,
-            @NonNull final String url) {
-        Preconditions.checkNotNull(context);
-        Preconditions.checkNotNull(url);
-
-        HurlStack.UrlRewriter rewriter = Networking.getUrlRewriter(context);
-        final Uri uri = Uri.parse(rewriter.rewriteUrl(url));
-        return getQueryParamMap(uri);
-    }
-
     @NonNull
     public static Map<String, String> getQueryParamMap(@NonNull final Uri uri) {
         Preconditions.checkNotNull(uri);
@@ -83,26 +63,6 @@ public class MoPubRequestUtils {
         return params;
     }
 
-    @Nullable
-    public static String generateBodyFromParams(@Nullable final Map<String, String> params,
-            @NonNull final String url) {
-        Preconditions.checkNotNull(url);
-
-        if (!MoPubRequestUtils.isMoPubRequest(url) || params == null || params.isEmpty()) {
-            return null;
-        }
-
-        final JSONObject jsonBody = new JSONObject();
-        for (final String queryName : params.keySet()) {
-            try {
-                jsonBody.put(queryName, params.get(queryName));
-            } catch (JSONException e) {
-                MoPubLog.log(CUSTOM, "Unable to add " + queryName + " to JSON body.");
-            }
-        }
-        return jsonBody.toString();
-    }
-
     /**
      * This is a helper class and should not be instantiated.
      */
@@ -85,6 +85,18 @@ public class MultiAdRequest extends MoPubRequest<MultiAdResponse> {
         return url;
     }
 
+    @NonNull
+    @Override
+    public MoPubRequestQueue.Lane getLane() {
+        return MoPubRequestQueue.Lane.AD_FETCH;
+    }
+
+    @Nullable
+    @Override
+    public String getAdUnitId() {
+        return mAdUnitId;
+    }
+
     /**
      * Callback from Volley to parse network response
      * @param networkResponse data to be parsed
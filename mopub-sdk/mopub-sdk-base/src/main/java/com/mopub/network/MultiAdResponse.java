@@ -25,15 +25,15 @@ import com.mopub.mobileads.AdTypeTranslator;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.toolbox.HttpHeaderParser;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import static com.mopub.common.DataKeys.ADM_KEY;
 import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
@@ -46,7 +46,9 @@ import static com.mopub.network.HeaderUtils.extractPercentHeaderString;
 import static com.mopub.network.HeaderUtils.extractStringArray;
 
 /**
- * Immutable data class to parse client side waterfall network response.
+ * Parses client side waterfall network response. Only the top level fields and the first valid
+ * ad response are parsed up front; the remaining ad responses are kept as raw byte spans of the
+ * network response and parsed as the waterfall advances.
  */
 public class MultiAdResponse implements Iterator<AdResponse> {
 
@@ -59,7 +61,32 @@ public class MultiAdResponse implements Iterator<AdResponse> {
     }
 
     @NonNull
-    private final Iterator<AdResponse> mResponseIterator;
+    private final Context mAppContext;
+    @NonNull
+    private final NetworkResponse mNetworkResponse;
+    @NonNull
+    private final AdFormat mAdFormat;
+    @Nullable
+    private final String mAdUnitId;
+    @NonNull
+    private final String mAdUnitFormat;
+    @Nullable
+    private final String mRequestId;
+
+    @NonNull
+    private final JsonSpanReader mReader;
+    /**
+     * Start and exclusive end offsets of each entry of 'ad-responses', interleaved.
+     */
+    @NonNull
+    private final int[] mAdResponseSpans;
+    private int mNextSpanIndex;
+    private int mMaterializedCount;
+    private boolean mClearReached;
+    @Nullable
+    private AdResponse mNextAdResponse;
+    @Nullable
+    private AdResponse mAdResponseClear;
 
     @NonNull
     private String mFailUrl;
@@ -84,14 +111,36 @@ public class MultiAdResponse implements Iterator<AdResponse> {
                            @NonNull final NetworkResponse networkResponse,
                            @NonNull final AdFormat adFormat,
                            @Nullable final String adUnitId) throws JSONException, MoPubNetworkError {
+        mAppContext = appContext;
+        mNetworkResponse = networkResponse;
+        mAdFormat = adFormat;
+        mAdUnitId = adUnitId;
 
         // Response Body encoding / decoding
-        final String responseBody = parseStringBody(networkResponse);
+        mReader = createReader(networkResponse);
+
+        // Top level fields other than 'ad-responses' are small, so they are decoded into a
+        // JSONObject to keep using the HeaderUtils helpers.
+        final JSONObject jsonObject = new JSONObject();
+        int[] adResponseSpans = null;
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            final String name = mReader.nextName();
+            if (ResponseHeader.AD_RESPONSES.getKey().equals(name)) {
+                adResponseSpans = mReader.readArraySpans();
+            } else {
+                jsonObject.put(name, mReader.nextValue());
+            }
+        }
+        mReader.endObject();
+        if (adResponseSpans == null) {
+            throw new JSONException("No value for " + ResponseHeader.AD_RESPONSES.getKey());
+        }
+        mAdResponseSpans = adResponseSpans;
 
-        JSONObject jsonObject = new JSONObject(responseBody);
         mFailUrl = jsonObject.optString(ResponseHeader.FAIL_URL.getKey());
-        final String adUnitFormat = jsonObject.optString(ResponseHeader.ADUNIT_FORMAT.getKey());
-        String requestId = jsonObject.optString(ResponseHeader.REQUEST_ID.getKey());
+        mAdUnitFormat = jsonObject.optString(ResponseHeader.ADUNIT_FORMAT.getKey());
+        mRequestId = jsonObject.optString(ResponseHeader.REQUEST_ID.getKey());
 
         final Integer backoffMs = extractIntegerHeader(jsonObject, ResponseHeader.BACKOFF_MS);
         final String backoffReason = extractHeader(jsonObject, ResponseHeader.BACKOFF_REASON);
@@ -128,38 +177,90 @@ public class MultiAdResponse implements Iterator<AdResponse> {
             MoPubLog.setLogLevel(MoPubLog.LogLevel.DEBUG);
         }
 
-        JSONArray adResponses = jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey());
-        int ADS_PER_RESPONSE = 3;
-        List<AdResponse> list = new ArrayList<>(ADS_PER_RESPONSE);
-        AdResponse adResponseClear = null;
-        for (int i = 0; i < adResponses.length(); i++) {
+        // Parse eagerly up to the first valid ad response so that 'clear', 'warmup' and no fill
+        // are still reported from here.
+        mNextAdResponse = parseNextAdResponse();
+
+        // validate if there is any valid ad response
+        if (mNextAdResponse == null) {
+            Integer refreshTimeMilliseconds = Constants.THIRTY_SECONDS_MILLIS;
+            if (mAdResponseClear != null) {
+                refreshTimeMilliseconds = mAdResponseClear.getRefreshTimeMillis();
+            }
+            throw new MoPubNetworkError(
+                    "No ads found for ad unit.",
+                    MoPubNetworkError.Reason.NO_FILL,
+                    refreshTimeMilliseconds);
+        }
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        if (mNextAdResponse == null) {
             try {
-                JSONObject item = adResponses.getJSONObject(i);
-                AdResponse singleAdResponse = parseSingleAdResponse(appContext,
-                        networkResponse,
+                mNextAdResponse = parseNextAdResponse();
+            } catch (MoPubNetworkError ex) {
+                // A 'warmup' behind valid ad responses ends the waterfall like a 'clear' does.
+                MoPubLog.log(CUSTOM, "Invalid response item. Error: " + ex.getReason());
+            }
+        }
+        return mNextAdResponse != null;
+    }
+
+    @NonNull
+    @Override
+    public synchronized AdResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final AdResponse adResponse = mNextAdResponse;
+        mNextAdResponse = null;
+        return adResponse;
+    }
+
+    /**
+     * Parses entries of 'ad-responses' until a valid ad response is found. Invalid entries are
+     * skipped and nothing past a 'clear' entry is processed.
+     *
+     * @return the next valid {@link AdResponse}, or null if there are none left
+     * @throws MoPubNetworkError when the server reports that the ad unit is warming up
+     */
+    @Nullable
+    private AdResponse parseNextAdResponse() throws MoPubNetworkError {
+        while (!mClearReached && mNextSpanIndex < mAdResponseSpans.length) {
+            final int start = mAdResponseSpans[mNextSpanIndex];
+            final int end = mAdResponseSpans[mNextSpanIndex + 1];
+            mNextSpanIndex += 2;
+            mMaterializedCount++;
+
+            try {
+                JSONObject item = new JSONObject(mReader.decode(start, end));
+                AdResponse singleAdResponse = parseSingleAdResponse(mAppContext,
+                        mNetworkResponse,
                         item,
-                        adUnitId,
-                        adFormat,
-                        adUnitFormat,
-                        requestId);
+                        mAdUnitId,
+                        mAdFormat,
+                        mAdUnitFormat,
+                        mRequestId);
                 if (!AdType.CLEAR.equals(singleAdResponse.getAdType())) {
-                    list.add(singleAdResponse);
-                    continue;
+                    return singleAdResponse;
                 }
 
                 // received message 'clear'
                 mFailUrl = "";
-                adResponseClear = singleAdResponse;
+                mClearReached = true;
+                mAdResponseClear = singleAdResponse;
                 if (extractWarmup(item)) {
                     throw new MoPubNetworkError("Server is preparing this Ad Unit.",
                             MoPubNetworkError.Reason.WARMING_UP,
-                            adResponseClear.getRefreshTimeMillis());
+                            mAdResponseClear.getRefreshTimeMillis());
                 }
-                break; // we don't process items beyond 'clear'
+                // we don't process items beyond 'clear'
 
             } catch (JSONException ex) {
                 // don't break everything because of single item parsing error
-                MoPubLog.log(CUSTOM, "Invalid response item. Body: " + responseBody);
+                MoPubLog.log(CUSTOM, "Invalid response item. Body: " + mReader.decode(start, end));
             } catch (MoPubNetworkError ex) {
                 if (ex.getReason() == MoPubNetworkError.Reason.WARMING_UP) {
                     throw ex;
@@ -169,30 +270,23 @@ public class MultiAdResponse implements Iterator<AdResponse> {
                 MoPubLog.log(CUSTOM, "Unexpected error parsing response item. " + ex.getMessage());
             }
         }
-        mResponseIterator = list.iterator();
-
-        // validate if there is any valid ad response
-        if (!mResponseIterator.hasNext()) {
-            Integer refreshTimeMilliseconds = Constants.THIRTY_SECONDS_MILLIS;
-            if (adResponseClear != null) {
-                refreshTimeMilliseconds = adResponseClear.getRefreshTimeMillis();
-            }
-            throw new MoPubNetworkError(
-                    "No ads found for ad unit.",
-                    MoPubNetworkError.Reason.NO_FILL,
-                    refreshTimeMilliseconds);
-        }
+        return null;
     }
 
-    @Override
-    public boolean hasNext() {
-        return mResponseIterator.hasNext();
+    /**
+     * @return number of 'ad-responses' entries that have been parsed into {@link AdResponse}s so
+     * far, including ones that turned out to be invalid.
+     */
+    synchronized int getMaterializedCount() {
+        return mMaterializedCount;
     }
 
-    @NonNull
-    @Override
-    public AdResponse next() {
-        return mResponseIterator.next();
+    /**
+     * @return number of 'ad-responses' entries that have not been parsed. This includes entries
+     * after a 'clear', which are never parsed.
+     */
+    synchronized int getUnmaterializedCount() {
+        return (mAdResponseSpans.length - mNextSpanIndex) / 2;
     }
 
     boolean isWaterfallFinished() {
@@ -231,7 +325,9 @@ public class MultiAdResponse implements Iterator<AdResponse> {
         Preconditions.checkNotNull(adFormat);
         Preconditions.checkNotNull(adUnitFormat);
 
-        MoPubLog.log(RESPONSE_RECEIVED, jsonObject.toString());
+        if (MoPubLog.isLoggable(RESPONSE_RECEIVED)) {
+            MoPubLog.log(RESPONSE_RECEIVED, jsonObject.toString());
+        }
 
         final AdResponse.Builder builder = new AdResponse.Builder();
         final String content = jsonObject.optString(ResponseHeader.CONTENT.getKey());
@@ -479,17 +575,27 @@ public class MultiAdResponse implements Iterator<AdResponse> {
         return extractBooleanHeader(jsonHeaders, ResponseHeader.WARMUP, false);
     }
 
-    // Based on Volley's StringResponse class.
-    private static String parseStringBody(@NonNull final NetworkResponse response) {
+    /**
+     * The body is read straight from the response bytes when its charset allows it. Other
+     * charsets are decoded (based on Volley's StringResponse class) and re-encoded as UTF-8.
+     */
+    @NonNull
+    private static JsonSpanReader createReader(@NonNull final NetworkResponse response) {
         Preconditions.checkNotNull(response);
 
+        final String charsetName = HttpHeaderParser.parseCharset(response.headers);
+        if (JsonSpanReader.isSupportedCharset(charsetName)) {
+            return new JsonSpanReader(response.data, Charset.forName(charsetName));
+        }
+
         String parsed;
         try {
-            parsed = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
+            parsed = new String(response.data, charsetName);
         } catch (UnsupportedEncodingException e) {
             parsed = new String(response.data);
         }
-        return parsed;
+        final Charset utf8 = Charset.forName("UTF-8");
+        return new JsonSpanReader(parsed.getBytes(utf8), utf8);
     }
 
     private static boolean eventDataIsInResponseBody(@Nullable final String adType,
@@ -29,16 +29,19 @@ import com.mopub.volley.toolbox.BasicNetwork;
 import com.mopub.volley.toolbox.DiskBasedCache;
 import com.mopub.volley.toolbox.HurlStack;
 import com.mopub.volley.toolbox.ImageLoader;
+import com.mopub.volley.toolbox.NoCache;
 
 import java.io.File;
 
-import javax.net.ssl.SSLSocketFactory;
-
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 public class Networking {
     @VisibleForTesting
     static final String CACHE_DIRECTORY_NAME = "mopub-volley-cache";
+    // No more than the connections HttpURLConnection keeps alive per host, so that every
+    // tracking connection can be reused
+    @VisibleForTesting
+    static final int TRACKING_THREAD_POOL_SIZE = 2;
     @NonNull private static final String DEFAULT_USER_AGENT;
 
     static {
@@ -55,8 +58,10 @@ public class Networking {
     // See https://en.wikipedia.org/wiki/Double-checked_locking#Usage_in_Java
     // for more information.
     private volatile static MoPubRequestQueue sRequestQueue;
+    private volatile static MoPubRequestQueue sTrackingRequestQueue;
     private volatile static String sUserAgent;
     private volatile static MaxWidthImageLoader sMaxWidthImageLoader;
+    private volatile static HttpTransport sHttpTransport;
     private static boolean sUseHttps = false;
     private static HurlStack.UrlRewriter sUrlRewriter;
 
@@ -84,13 +89,10 @@ public class Networking {
             synchronized (Networking.class) {
                 requestQueue = sRequestQueue;
                 if (requestQueue == null) {
-
-                    final SSLSocketFactory socketFactory = CustomSSLSocketFactory.getDefault(Constants.TEN_SECONDS_MILLIS);
-
                     final String userAgent = Networking.getUserAgent(
                             context.getApplicationContext());
                     final BaseHttpStack httpStack = new RequestQueueHttpStack(userAgent,
-                            getUrlRewriter(context), socketFactory);
+                            getUrlRewriter(context), getHttpTransport());
 
                     final Network network = new BasicNetwork(httpStack);
                     final File volleyCacheDir = new File(context.getCacheDir().getPath() +
@@ -107,6 +109,70 @@ public class Networking {
         return requestQueue;
     }
 
+    /**
+     * The queue that {@link TrackingDispatcher} sends tracking requests on. It has dispatcher
+     * threads of its own, so trackers don't hold up ad requests, no cache, and a
+     * {@link TrackingNetwork} that reuses connections to tracking hosts.
+     */
+    @NonNull
+    public static MoPubRequestQueue getTrackingRequestQueue(@NonNull final Context context) {
+        MoPubRequestQueue requestQueue = sTrackingRequestQueue;
+        // Double-check locking to initialize.
+        if (requestQueue == null) {
+            synchronized (Networking.class) {
+                requestQueue = sTrackingRequestQueue;
+                if (requestQueue == null) {
+                    final String userAgent = Networking.getUserAgent(
+                            context.getApplicationContext());
+                    final Network network = new TrackingNetwork(userAgent,
+                            getUrlRewriter(context), getHttpTransport());
+
+                    requestQueue = new MoPubRequestQueue(new NoCache(), network,
+                            TRACKING_THREAD_POOL_SIZE);
+                    sTrackingRequestQueue = requestQueue;
+                    requestQueue.start();
+                }
+            }
+        }
+
+        return requestQueue;
+    }
+
+    /**
+     * The transport that every HTTP connection of the SDK is opened with. This is a
+     * {@link PooledHttpTransport} unless another one was set.
+     */
+    @NonNull
+    public static HttpTransport getHttpTransport() {
+        HttpTransport httpTransport = sHttpTransport;
+        // Double-check locking to initialize.
+        if (httpTransport == null) {
+            synchronized (Networking.class) {
+                httpTransport = sHttpTransport;
+                if (httpTransport == null) {
+                    httpTransport = new PooledHttpTransport(Constants.TEN_SECONDS_MILLIS);
+                    sHttpTransport = httpTransport;
+                }
+            }
+        }
+        return httpTransport;
+    }
+
+    /**
+     * Sets the transport to open every HTTP connection of the SDK with, such as one that
+     * multiplexes requests over HTTP/2. This has to be called before the SDK is initialized,
+     * since the request queues keep the transport they were created with.
+     */
+    public static synchronized void setHttpTransport(@NonNull final HttpTransport httpTransport) {
+        Preconditions.checkNotNull(httpTransport);
+
+        if (sRequestQueue != null || sTrackingRequestQueue != null) {
+            MoPubLog.log(CUSTOM, "The HTTP transport was set after the request queues were " +
+                    "created. They keep using the previous one.");
+        }
+        sHttpTransport = httpTransport;
+    }
+
     @NonNull
     public static ImageLoader getImageLoader(@NonNull Context context) {
         MaxWidthImageLoader imageLoader = sMaxWidthImageLoader;
@@ -127,6 +193,9 @@ public class Networking {
                             return super.sizeOf(key, value);
                         }
                     };
+                    // Opened by the image loader on its disk thread the first time it's used
+                    final DecodedImageDiskCache decodedImageDiskCache =
+                            new DecodedImageDiskCache(context);
                     imageLoader = new MaxWidthImageLoader(queue, context, new MaxWidthImageLoader.ImageCache() {
                         @Override
                         public Bitmap getBitmap(final String key) {
@@ -137,7 +206,7 @@ public class Networking {
                         public void putBitmap(final String key, final Bitmap bitmap) {
                             imageCache.put(key, bitmap);
                         }
-                    });
+                    }, decodedImageDiskCache);
                     sMaxWidthImageLoader = imageLoader;
                 }
             }
@@ -203,13 +272,25 @@ public class Networking {
     @VisibleForTesting
     public static synchronized void clearForTesting() {
         sRequestQueue = null;
+        sTrackingRequestQueue = null;
         sMaxWidthImageLoader = null;
         sUserAgent = null;
+        sHttpTransport = null;
+        sUrlRewriter = null;
     }
 
+    /**
+     * Sets the queue for both ad and tracking requests.
+     */
     @VisibleForTesting
     public static synchronized void setRequestQueueForTesting(MoPubRequestQueue queue) {
         sRequestQueue = queue;
+        sTrackingRequestQueue = queue;
+    }
+
+    @VisibleForTesting
+    public static synchronized void setTrackingRequestQueueForTesting(MoPubRequestQueue queue) {
+        sTrackingRequestQueue = queue;
     }
 
     @VisibleForTesting
@@ -217,11 +298,21 @@ public class Networking {
         sMaxWidthImageLoader = imageLoader;
     }
 
+    @VisibleForTesting
+    public static synchronized void setUrlRewriterForTesting(HurlStack.UrlRewriter urlRewriter) {
+        sUrlRewriter = urlRewriter;
+    }
+
     @VisibleForTesting
     public static synchronized void setUserAgentForTesting(String userAgent) {
         sUserAgent = userAgent;
     }
 
+    @VisibleForTesting
+    public static synchronized void setHttpTransportForTesting(HttpTransport httpTransport) {
+        sHttpTransport = httpTransport;
+    }
+
     /**
      * Set whether to use HTTP or HTTPS for WebView base urls.
      */
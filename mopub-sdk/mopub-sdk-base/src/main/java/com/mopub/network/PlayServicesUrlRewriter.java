@@ -5,6 +5,8 @@
 package com.mopub.network;
 
 import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.MoPub;
@@ -21,25 +23,89 @@ public class PlayServicesUrlRewriter implements HurlStack.UrlRewriter {
     public static final String DO_NOT_TRACK_TEMPLATE = "mp_tmpl_do_not_track";
     public static final String MOPUB_ID_TEMPLATE = "mp_tmpl_mopub_id";
 
+    /**
+     * The start of every template, so a string is searched once for all of them.
+     */
+    static final String TEMPLATE_PREFIX = "mp_tmpl_";
+    static final String[] TEMPLATES = {UDID_TEMPLATE, DO_NOT_TRACK_TEMPLATE, MOPUB_ID_TEMPLATE};
+
     public PlayServicesUrlRewriter() {
     }
 
     @Override
     public String rewriteUrl(final String url) {
-        if (!url.contains(UDID_TEMPLATE) && !url.contains(DO_NOT_TRACK_TEMPLATE)) {
+        if (!url.contains(TEMPLATE_PREFIX)) {
             return url;
         }
 
+        return replaceTemplates(url, getTemplateValues(), true);
+    }
+
+    /**
+     * @return the values to replace {@link #TEMPLATES} with, in the same order, or {@code null} if
+     * they aren't known yet.
+     */
+    @Nullable
+    public static String[] getTemplateValues() {
         ClientMetadata clientMetadata = ClientMetadata.getInstance();
         if (clientMetadata == null) {
-            return url;
+            return null;
         }
         MoPubIdentifier identifier = clientMetadata.getMoPubIdentifier();
         AdvertisingId info = identifier.getAdvertisingInfo();
-        String toReturn = url.replace(UDID_TEMPLATE,
-                Uri.encode(info.getIdWithPrefix(MoPub.canCollectPersonalInformation())));
-        toReturn = toReturn.replace(DO_NOT_TRACK_TEMPLATE, info.isDoNotTrack() ? "1" : "0");
-        toReturn = toReturn.replace(MOPUB_ID_TEMPLATE,  Uri.encode(info.getIdentifier(false)));
-        return toReturn;
+        return new String[]{
+                info.getIdWithPrefix(MoPub.canCollectPersonalInformation()),
+                info.isDoNotTrack() ? "1" : "0",
+                info.getIdentifier(false)
+        };
+    }
+
+    /**
+     * @return the index in {@link #TEMPLATES} of the template at the position in the string, or -1
+     * if there is none.
+     */
+    static int templateAt(@NonNull final String string, final int position) {
+        for (int i = 0; i < TEMPLATES.length; i++) {
+            if (string.startsWith(TEMPLATES[i], position)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces all the templates in a single pass over the string.
+     *
+     * @param templateValues The values from {@link #getTemplateValues()}, or {@code null} to
+     *                       leave the string as it is.
+     * @param encode         Whether to URL encode the values.
+     */
+    @NonNull
+    static String replaceTemplates(@NonNull final String string,
+            @Nullable final String[] templateValues, final boolean encode) {
+        if (templateValues == null) {
+            return string;
+        }
+
+        int templatePosition = string.indexOf(TEMPLATE_PREFIX);
+        if (templatePosition == -1) {
+            return string;
+        }
+
+        final StringBuilder result = new StringBuilder(string.length() + 64);
+        int start = 0;
+        while (templatePosition != -1) {
+            final int template = templateAt(string, templatePosition);
+            if (template == -1) {
+                templatePosition = string.indexOf(TEMPLATE_PREFIX, templatePosition + 1);
+                continue;
+            }
+            result.append(string, start, templatePosition);
+            result.append(encode ? Uri.encode(templateValues[template]) : templateValues[template]);
+            start = templatePosition + TEMPLATES[template].length();
+            templatePosition = string.indexOf(TEMPLATE_PREFIX, start);
+        }
+        result.append(string, start, string.length());
+        return result.toString();
     }
 }
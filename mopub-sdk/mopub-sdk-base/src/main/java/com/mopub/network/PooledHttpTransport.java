@@ -0,0 +1,176 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * The default {@link HttpTransport}, over the keep-alive connection pool of the platform's
+ * {@link HttpURLConnection}. All HTTPS connections share one socket factory, so a TLS session
+ * negotiated with a host is resumed by the later connections to it instead of doing a full
+ * handshake again. Connections are never held back: the request queues and video downloads
+ * already bound how many connections they open, and waiting for one to be released only delays
+ * the request. The open connections of each host are counted instead, so the connections opened
+ * while the pool of the host is full, which may not be kept alive, can be told apart. Connections
+ * are only held weakly, so the ones that are never released, such as those publishers open with
+ * {@link com.mopub.common.MoPubHttpUrlConnection}, stop being counted once they are collected.
+ */
+public class PooledHttpTransport implements HttpTransport {
+    // The keep-alive connections the platform keeps per host
+    @VisibleForTesting
+    static final int MAX_POOLED_CONNECTIONS_PER_HOST = 5;
+
+    @Nullable private final SSLSocketFactory mSslSocketFactory;
+    private final int mMaxPooledConnectionsPerHost;
+
+    // The host of each connection that is still open. Connections don't override equals, so
+    // they are compared by identity.
+    @NonNull private final Map<HttpURLConnection, String> mConnectionHosts =
+            new WeakHashMap<HttpURLConnection, String>();
+
+    private long mConnectionCount;
+    private long mHttpsConnectionCount;
+    private long mOverPoolSizeCount;
+    private long mHandshakeCount;
+    private long mResumedHandshakeCount;
+
+    PooledHttpTransport(final int handshakeTimeoutMillis) {
+        mSslSocketFactory = CustomSSLSocketFactory.getDefault(handshakeTimeoutMillis,
+                new CustomSSLSocketFactory.HandshakeListener() {
+                    @Override
+                    public void onHandshakeCompleted(final boolean resumed) {
+                        onHandshake(resumed);
+                    }
+                });
+        mMaxPooledConnectionsPerHost = MAX_POOLED_CONNECTIONS_PER_HOST;
+    }
+
+    @VisibleForTesting
+    PooledHttpTransport(@Nullable final SSLSocketFactory sslSocketFactory,
+            final int maxPooledConnectionsPerHost) {
+        Preconditions.checkArgument(maxPooledConnectionsPerHost > 0);
+
+        mSslSocketFactory = sslSocketFactory;
+        mMaxPooledConnectionsPerHost = maxPooledConnectionsPerHost;
+    }
+
+    @NonNull
+    @Override
+    public HttpURLConnection openConnection(@NonNull final URL url) throws IOException {
+        Preconditions.checkNotNull(url);
+
+        final HttpURLConnection connection = createConnection(url);
+
+        if (mSslSocketFactory != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(mSslSocketFactory);
+        }
+        synchronized (this) {
+            mConnectionCount++;
+            if (connection instanceof HttpsURLConnection) {
+                mHttpsConnectionCount++;
+            }
+            final String host = getHostKey(url);
+            if (getOpenConnectionCount(host) >= mMaxPooledConnectionsPerHost) {
+                mOverPoolSizeCount++;
+            }
+            mConnectionHosts.put(connection, host);
+        }
+        return connection;
+    }
+
+    @Override
+    public void release(@NonNull final HttpURLConnection connection) {
+        Preconditions.checkNotNull(connection);
+
+        synchronized (this) {
+            mConnectionHosts.remove(connection);
+        }
+    }
+
+    /**
+     * The number of connections opened.
+     */
+    public synchronized long getConnectionCount() {
+        return mConnectionCount;
+    }
+
+    /**
+     * The number of connections opened while their host already had as many open connections as
+     * the platform keeps alive, so they may be closed instead of going back to the pool.
+     */
+    public synchronized long getOverPoolSizeCount() {
+        return mOverPoolSizeCount;
+    }
+
+    /**
+     * The number of TLS handshakes, one for each new HTTPS socket.
+     */
+    public synchronized long getHandshakeCount() {
+        return mHandshakeCount;
+    }
+
+    /**
+     * The number of TLS handshakes that resumed an earlier session.
+     */
+    public synchronized long getResumedHandshakeCount() {
+        return mResumedHandshakeCount;
+    }
+
+    /**
+     * The number of HTTPS connections sent over a socket that was already open. The platform
+     * doesn't tell which connections are reused, but every new socket does a handshake, so this
+     * is the HTTPS connections less the handshakes. Cleartext connections aren't counted.
+     */
+    public synchronized long getReusedConnectionCount() {
+        return Math.max(0, mHttpsConnectionCount - mHandshakeCount);
+    }
+
+    @VisibleForTesting
+    synchronized int getOpenConnectionCount(@NonNull final String host) {
+        int openConnections = 0;
+        for (final String connectionHost : mConnectionHosts.values()) {
+            if (host.equals(connectionHost)) {
+                openConnections++;
+            }
+        }
+        return openConnections;
+    }
+
+    @NonNull
+    @VisibleForTesting
+    HttpURLConnection createConnection(@NonNull final URL url) throws IOException {
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    @VisibleForTesting
+    synchronized void onHandshake(final boolean resumed) {
+        mHandshakeCount++;
+        if (resumed) {
+            mResumedHandshakeCount++;
+        }
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static String getHostKey(@NonNull final URL url) {
+        final String host = url.getHost() == null ? "" : url.getHost().toLowerCase(Locale.US);
+        final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,303 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parameters of a request to MoPub, in the order they were added. A URL generator fills these
+ * in once, and they are written to the query of the URL, or straight to the bytes of the JSON body
+ * of the POST request that MoPub requests are sent as.
+ *
+ * A key may be added more than once. In the JSON body, and in {@link #toMap(String[])}, the values
+ * of a key are joined with commas, which is how the query parameters of a URL used to be sent.
+ */
+public class RequestParams {
+    private static final int DEFAULT_CAPACITY = 32;
+
+    @NonNull private String[] mKeys;
+    @NonNull private String[] mValues;
+    private int mSize;
+
+    public RequestParams() {
+        mKeys = new String[DEFAULT_CAPACITY];
+        mValues = new String[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Parses the query of a URL, decoding its keys and values.
+     */
+    @NonNull
+    public static RequestParams fromUrl(@NonNull final String url) {
+        Preconditions.checkNotNull(url);
+
+        final RequestParams params = new RequestParams();
+        final int fragmentPosition = url.indexOf('#');
+        final int queryEnd = fragmentPosition == -1 ? url.length() : fragmentPosition;
+        final int queryPosition = url.indexOf('?');
+        if (queryPosition == -1 || queryPosition >= queryEnd) {
+            return params;
+        }
+
+        int start = queryPosition + 1;
+        while (start < queryEnd) {
+            int end = url.indexOf('&', start);
+            if (end == -1 || end > queryEnd) {
+                end = queryEnd;
+            }
+            if (end > start) {
+                int separator = url.indexOf('=', start);
+                if (separator == -1 || separator > end) {
+                    separator = end;
+                }
+                final String value = separator < end
+                        ? Uri.decode(url.substring(separator + 1, end))
+                        : "";
+                params.add(Uri.decode(url.substring(start, separator)), value);
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    public void add(@NonNull final String key, @NonNull final String value) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(value);
+
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+        }
+        mKeys[mSize] = key;
+        mValues[mSize] = value;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @return the first value added for the key, or {@code null} if it hasn't been added.
+     */
+    @Nullable
+    public String get(@NonNull final String key) {
+        final int index = indexOf(key, 0);
+        return index == -1 ? null : mValues[index];
+    }
+
+    /**
+     * Appends the parameters to a URL as its query, encoding the values.
+     */
+    public void appendQuery(@NonNull final StringBuilder url) {
+        Preconditions.checkNotNull(url);
+
+        for (int i = 0; i < mSize; i++) {
+            url.append(i == 0 ? '?' : '&');
+            url.append(mKeys[i]);
+            url.append('=');
+            url.append(Uri.encode(mValues[i]));
+        }
+    }
+
+    /**
+     * @param templateValues The values of {@link PlayServicesUrlRewriter#TEMPLATES} to replace
+     *                       them with, or {@code null} to leave them in.
+     * @return the parameters with the values of each key joined with commas.
+     */
+    @NonNull
+    public Map<String, String> toMap(@Nullable final String[] templateValues) {
+        final Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < mSize; i++) {
+            if (indexOf(mKeys[i], 0) < i) {
+                continue;
+            }
+            String value = PlayServicesUrlRewriter.replaceTemplates(mValues[i], templateValues,
+                    false);
+            for (int j = indexOf(mKeys[i], i + 1); j != -1; j = indexOf(mKeys[i], j + 1)) {
+                value += "," + PlayServicesUrlRewriter.replaceTemplates(mValues[j],
+                        templateValues, false);
+            }
+            map.put(mKeys[i], value);
+        }
+        return map;
+    }
+
+    /**
+     * Writes the parameters as a JSON object straight to UTF-8 bytes, escaped the way
+     * {@link org.json.JSONObject} escapes strings. Templates are replaced as the values are
+     * written, without making new strings.
+     *
+     * @param templateValues The values of {@link PlayServicesUrlRewriter#TEMPLATES} to replace
+     *                       them with, or {@code null} to leave them in.
+     */
+    @NonNull
+    public byte[] toJsonBody(@Nullable final String[] templateValues) {
+        // Room for the values of the templates, which are longer than the templates
+        int estimatedLength = 64;
+        for (int i = 0; i < mSize; i++) {
+            estimatedLength += mKeys[i].length() + mValues[i].length() + 6;
+        }
+
+        final BodyBuffer body = new BodyBuffer(estimatedLength);
+        body.write('{');
+        for (int i = 0; i < mSize; i++) {
+            if (indexOf(mKeys[i], 0) < i) {
+                continue;
+            }
+            if (body.mLength > 1) {
+                body.write(',');
+            }
+            body.write('"');
+            body.writeEscaped(mKeys[i], 0, mKeys[i].length());
+            body.write('"');
+            body.write(':');
+            body.write('"');
+            writeValue(body, mValues[i], templateValues);
+            for (int j = indexOf(mKeys[i], i + 1); j != -1; j = indexOf(mKeys[i], j + 1)) {
+                body.write(',');
+                writeValue(body, mValues[j], templateValues);
+            }
+            body.write('"');
+        }
+        body.write('}');
+        return body.toByteArray();
+    }
+
+    private int indexOf(@NonNull final String key, final int fromIndex) {
+        for (int i = fromIndex; i < mSize; i++) {
+            if (mKeys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeValue(@NonNull final BodyBuffer body, @NonNull final String value,
+            @Nullable final String[] templateValues) {
+        if (templateValues == null) {
+            body.writeEscaped(value, 0, value.length());
+            return;
+        }
+
+        int start = 0;
+        int templatePosition = value.indexOf(PlayServicesUrlRewriter.TEMPLATE_PREFIX);
+        while (templatePosition != -1) {
+            final int template = PlayServicesUrlRewriter.templateAt(value, templatePosition);
+            if (template == -1) {
+                templatePosition = value.indexOf(PlayServicesUrlRewriter.TEMPLATE_PREFIX,
+                        templatePosition + 1);
+                continue;
+            }
+            body.writeEscaped(value, start, templatePosition);
+            final String templateValue = templateValues[template];
+            body.writeEscaped(templateValue, 0, templateValue.length());
+            start = templatePosition + PlayServicesUrlRewriter.TEMPLATES[template].length();
+            templatePosition = value.indexOf(PlayServicesUrlRewriter.TEMPLATE_PREFIX, start);
+        }
+        body.writeEscaped(value, start, value.length());
+    }
+
+    /**
+     * A growable array of UTF-8 bytes.
+     */
+    private static class BodyBuffer {
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        @NonNull private byte[] mBytes;
+        private int mLength;
+
+        BodyBuffer(final int capacity) {
+            mBytes = new byte[capacity];
+        }
+
+        void write(final int b) {
+            if (mLength == mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, mBytes.length * 2 + 16);
+            }
+            mBytes[mLength++] = (byte) b;
+        }
+
+        void writeEscaped(@NonNull final String string, final int start, final int end) {
+            for (int i = start; i < end; i++) {
+                final char c = string.charAt(i);
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        write('\\');
+                        write(c);
+                        break;
+                    case '\t':
+                        write('\\');
+                        write('t');
+                        break;
+                    case '\b':
+                        write('\\');
+                        write('b');
+                        break;
+                    case '\n':
+                        write('\\');
+                        write('n');
+                        break;
+                    case '\r':
+                        write('\\');
+                        write('r');
+                        break;
+                    case '\f':
+                        write('\\');
+                        write('f');
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            write('\\');
+                            write('u');
+                            write('0');
+                            write('0');
+                            write(HEX_DIGITS[c >> 4]);
+                            write(HEX_DIGITS[c & 0xf]);
+                        } else if (c < 0x80) {
+                            write(c);
+                        } else if (c < 0x800) {
+                            write(0xc0 | (c >> 6));
+                            write(0x80 | (c & 0x3f));
+                        } else if (Character.isHighSurrogate(c) && i + 1 < end
+                                && Character.isLowSurrogate(string.charAt(i + 1))) {
+                            final int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                            write(0xf0 | (codePoint >> 18));
+                            write(0x80 | ((codePoint >> 12) & 0x3f));
+                            write(0x80 | ((codePoint >> 6) & 0x3f));
+                            write(0x80 | (codePoint & 0x3f));
+                        } else if (Character.isSurrogate(c)) {
+                            // An unpaired surrogate, which String#getBytes writes as '?'
+                            write('?');
+                        } else {
+                            write(0xe0 | (c >> 12));
+                            write(0x80 | ((c >> 6) & 0x3f));
+                            write(0x80 | (c & 0x3f));
+                        }
+                        break;
+                }
+            }
+        }
+
+        @NonNull
+        byte[] toByteArray() {
+            return mLength == mBytes.length ? mBytes : Arrays.copyOf(mBytes, mLength);
+        }
+    }
+}
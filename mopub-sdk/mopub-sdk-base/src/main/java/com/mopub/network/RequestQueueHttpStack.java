@@ -7,13 +7,18 @@ package com.mopub.network;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.mopub.common.Preconditions;
 import com.mopub.common.util.ResponseHeader;
 import com.mopub.volley.AuthFailureError;
 import com.mopub.volley.Request;
 import com.mopub.volley.toolbox.HttpResponse;
 import com.mopub.volley.toolbox.HurlStack;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -23,17 +28,22 @@ import javax.net.ssl.SSLSocketFactory;
  * Modified Volley HurlStack with explicitly specified User-Agent.
  *
  * Used by Networking's singleton RequestQueue to ensure all network requests use WebView's
- * User-Agent.
+ * User-Agent. When given an {@link HttpTransport}, connections are opened with it, and released
+ * to it once the response has been read.
  */
 public class RequestQueueHttpStack extends HurlStack {
     @NonNull private final String mUserAgent;
+    @Nullable private final HttpTransport mHttpTransport;
+    // The connection of the request being sent on this thread, since HurlStack doesn't return it
+    @NonNull private final ThreadLocal<HttpURLConnection> mConnection =
+            new ThreadLocal<HttpURLConnection>();
 
     public RequestQueueHttpStack(@NonNull final String userAgent) {
         this(userAgent, null);
     }
 
     public RequestQueueHttpStack(@NonNull final String userAgent, @Nullable final UrlRewriter urlRewriter) {
-        this(userAgent, urlRewriter, null);
+        this(userAgent, urlRewriter, (SSLSocketFactory) null);
     }
 
     public RequestQueueHttpStack(@NonNull final String userAgent, @Nullable final UrlRewriter urlRewriter,
@@ -41,6 +51,17 @@ public class RequestQueueHttpStack extends HurlStack {
         super(urlRewriter, sslSocketFactory);
 
         mUserAgent = userAgent;
+        mHttpTransport = null;
+    }
+
+    public RequestQueueHttpStack(@NonNull final String userAgent, @Nullable final UrlRewriter urlRewriter,
+                                 @NonNull final HttpTransport httpTransport) {
+        // The transport sets up the TLS sockets itself
+        super(urlRewriter, null);
+        Preconditions.checkNotNull(httpTransport);
+
+        mUserAgent = userAgent;
+        mHttpTransport = httpTransport;
     }
 
     @Override
@@ -54,6 +75,68 @@ public class RequestQueueHttpStack extends HurlStack {
 
         additionalHeaders.put(ResponseHeader.USER_AGENT.getKey(), mUserAgent);
 
-        return super.executeRequest(request, additionalHeaders);
+        if (mHttpTransport == null) {
+            return super.executeRequest(request, additionalHeaders);
+        }
+
+        final HttpResponse response;
+        try {
+            response = super.executeRequest(request, additionalHeaders);
+        } catch (IOException e) {
+            releaseConnection();
+            throw e;
+        } catch (AuthFailureError e) {
+            releaseConnection();
+            throw e;
+        } catch (RuntimeException e) {
+            releaseConnection();
+            throw e;
+        }
+
+        final InputStream content = response.getContent();
+        if (content == null) {
+            // HurlStack has already disconnected, since there is no body to read
+            releaseConnection();
+            return response;
+        }
+
+        // Volley closes the content once it has read it
+        final HttpURLConnection connection = mConnection.get();
+        mConnection.remove();
+        return new HttpResponse(response.getStatusCode(), response.getHeaders(),
+                response.getContentLength(), new FilterInputStream(content) {
+            private boolean mReleased;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!mReleased && connection != null) {
+                        mReleased = true;
+                        mHttpTransport.release(connection);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(final URL url) throws IOException {
+        if (mHttpTransport == null) {
+            return super.createConnection(url);
+        }
+
+        final HttpURLConnection connection = mHttpTransport.openConnection(url);
+        mConnection.set(connection);
+        return connection;
+    }
+
+    private void releaseConnection() {
+        final HttpURLConnection connection = mConnection.get();
+        mConnection.remove();
+        if (mHttpTransport != null && connection != null) {
+            mHttpTransport.release(connection);
+        }
     }
 }
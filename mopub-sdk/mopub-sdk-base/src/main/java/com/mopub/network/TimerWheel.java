@@ -0,0 +1,166 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timer wheel. Timeouts are kept in a ring of slots, one per tick, so scheduling and
+ * cancelling take constant time however many timeouts are pending, and a single runnable posted
+ * to the handler drives all of them. Timeouts further out than one turn of the wheel wait for as
+ * many turns as they need. Delays are rounded up to a whole tick, and the handler is only woken
+ * while there are timeouts pending.
+ */
+class TimerWheel {
+    /**
+     * A scheduled task, which can be cancelled until it runs.
+     */
+    static class Timeout {
+        @NonNull private final Runnable mTask;
+        // The slot this is in, or -1 once it has run or been cancelled
+        private int mSlot;
+        // The turns of the wheel to wait before running
+        private long mRounds;
+        @Nullable private Timeout mPrevious;
+        @Nullable private Timeout mNext;
+
+        private Timeout(@NonNull final Runnable task) {
+            mTask = task;
+        }
+    }
+
+    @NonNull private final Handler mHandler;
+    private final long mTickMillis;
+    // The first timeout of each slot, in a doubly linked list
+    @NonNull private final Timeout[] mSlots;
+    @NonNull private final Runnable mTickRunnable;
+
+    // When the wheel started turning, and the last tick processed since
+    private long mStartMillis;
+    private long mTick;
+    private int mSize;
+    private boolean mTicking;
+
+    TimerWheel(@NonNull final Handler handler, final long tickMillis, final int slotCount) {
+        Preconditions.checkNotNull(handler);
+        Preconditions.checkArgument(tickMillis > 0);
+        Preconditions.checkArgument(slotCount > 0);
+
+        mHandler = handler;
+        mTickMillis = tickMillis;
+        mSlots = new Timeout[slotCount];
+        mTickRunnable = new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        };
+    }
+
+    /**
+     * Runs the task on the handler's thread once the delay has passed.
+     */
+    @NonNull
+    synchronized Timeout schedule(@NonNull final Runnable task, final long delayMillis) {
+        Preconditions.checkNotNull(task);
+
+        final long nowMillis = SystemClock.uptimeMillis();
+        if (!mTicking) {
+            mStartMillis = nowMillis;
+            mTick = 0;
+            mTicking = true;
+            mHandler.postDelayed(mTickRunnable, mTickMillis);
+        }
+
+        final long elapsedMillis = nowMillis - mStartMillis + Math.max(delayMillis, 0);
+        final long deadlineTick = Math.max((elapsedMillis + mTickMillis - 1) / mTickMillis,
+                mTick + 1);
+        final Timeout timeout = new Timeout(task);
+        timeout.mSlot = (int) (deadlineTick % mSlots.length);
+        timeout.mRounds = (deadlineTick - mTick - 1) / mSlots.length;
+        timeout.mNext = mSlots[timeout.mSlot];
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout;
+        }
+        mSlots[timeout.mSlot] = timeout;
+        mSize++;
+        return timeout;
+    }
+
+    /**
+     * @return whether the timeout was pending, and won't run now
+     */
+    synchronized boolean cancel(@NonNull final Timeout timeout) {
+        Preconditions.checkNotNull(timeout);
+
+        if (timeout.mSlot < 0) {
+            return false;
+        }
+        remove(timeout);
+        return true;
+    }
+
+    /**
+     * The number of timeouts pending.
+     */
+    synchronized int size() {
+        return mSize;
+    }
+
+    private void tick() {
+        final List<Runnable> expired = new ArrayList<Runnable>();
+        synchronized (this) {
+            // Catch up on the ticks missed while the handler's thread was busy
+            final long currentTick = (SystemClock.uptimeMillis() - mStartMillis) / mTickMillis;
+            while (mTick < currentTick && mSize > 0) {
+                mTick++;
+                Timeout timeout = mSlots[(int) (mTick % mSlots.length)];
+                while (timeout != null) {
+                    final Timeout next = timeout.mNext;
+                    if (timeout.mRounds > 0) {
+                        timeout.mRounds--;
+                    } else {
+                        remove(timeout);
+                        expired.add(timeout.mTask);
+                    }
+                    timeout = next;
+                }
+            }
+
+            if (mSize > 0) {
+                mHandler.postAtTime(mTickRunnable, mStartMillis + (mTick + 1) * mTickMillis);
+            } else {
+                mTicking = false;
+            }
+        }
+
+        for (final Runnable task : expired) {
+            task.run();
+        }
+    }
+
+    private void remove(@NonNull final Timeout timeout) {
+        if (timeout.mPrevious != null) {
+            timeout.mPrevious.mNext = timeout.mNext;
+        } else {
+            mSlots[timeout.mSlot] = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout.mPrevious;
+        }
+        timeout.mPrevious = null;
+        timeout.mNext = null;
+        timeout.mSlot = -1;
+        mSize--;
+    }
+}
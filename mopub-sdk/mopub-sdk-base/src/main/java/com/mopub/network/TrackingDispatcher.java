@@ -0,0 +1,239 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.volley.VolleyError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Sends tracking requests on the tracking request queue of {@link Networking}, which has its own
+ * dispatcher threads and keeps the connections to tracking hosts alive, so that impression, click
+ * and video trackers neither wait for nor hold up ad requests.
+ *
+ * A url that is already being sent, or that was sent successfully within
+ * {@link #COALESCE_WINDOW_MILLIS}, isn't sent again: the listeners of the second request get the
+ * result of the first. At most {@link #MAX_IN_FLIGHT} urls are sent at a time, and trackers
+ * beyond that fail with {@link MoPubNetworkError.Reason#TOO_MANY_REQUESTS}, which the
+ * {@link BeaconQueue} sends again later.
+ */
+public class TrackingDispatcher {
+    @VisibleForTesting static final long COALESCE_WINDOW_MILLIS = 1000;
+    @VisibleForTesting static final int MAX_IN_FLIGHT = 256;
+    // The most urls remembered as recently sent, oldest first
+    private static final int MAX_RECENT_URLS = 128;
+
+    @Nullable private static volatile TrackingDispatcher sInstance;
+
+    // The listeners of each url being sent, if any
+    @NonNull private final Map<String, List<TrackingRequest.Listener>> mInFlightUrls;
+    // When each url was last sent successfully
+    @NonNull private final LinkedHashMap<String, Long> mRecentUrls;
+
+    private long mDispatchedCount;
+    private long mCoalescedCount;
+    private long mDroppedCount;
+    private long mSucceededCount;
+    private long mFailedCount;
+    private long mTotalLatencyNanos;
+    private long mFirstDispatchNanos;
+    private long mLastCompletionNanos;
+
+    @NonNull
+    public static TrackingDispatcher getInstance() {
+        TrackingDispatcher dispatcher = sInstance;
+        if (dispatcher == null) {
+            synchronized (TrackingDispatcher.class) {
+                dispatcher = sInstance;
+                if (dispatcher == null) {
+                    dispatcher = new TrackingDispatcher();
+                    sInstance = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    @VisibleForTesting
+    TrackingDispatcher() {
+        mInFlightUrls = new HashMap<String, List<TrackingRequest.Listener>>();
+        mRecentUrls = new LinkedHashMap<String, Long>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > MAX_RECENT_URLS;
+            }
+        };
+    }
+
+    /**
+     * Sends a tracking request for the url, unless it was coalesced with an earlier one.
+     */
+    public void dispatch(@NonNull final Context context, @NonNull final String url,
+            @Nullable final TrackingRequest.Listener listener) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(url);
+
+        final long nowMillis = SystemClock.elapsedRealtime();
+        final boolean recentlySent;
+        final boolean dropped;
+        synchronized (this) {
+            final List<TrackingRequest.Listener> inFlightListeners = mInFlightUrls.get(url);
+            if (inFlightListeners != null) {
+                mCoalescedCount++;
+                if (listener != null) {
+                    inFlightListeners.add(listener);
+                }
+                return;
+            }
+
+            final Long sentMillis = mRecentUrls.get(url);
+            recentlySent = sentMillis != null && nowMillis - sentMillis < COALESCE_WINDOW_MILLIS;
+            dropped = !recentlySent && mInFlightUrls.size() >= MAX_IN_FLIGHT;
+            if (recentlySent) {
+                mCoalescedCount++;
+            } else if (dropped) {
+                mDroppedCount++;
+            } else {
+                final List<TrackingRequest.Listener> listeners =
+                        new ArrayList<TrackingRequest.Listener>(1);
+                if (listener != null) {
+                    listeners.add(listener);
+                }
+                mInFlightUrls.put(url, listeners);
+                if (mDispatchedCount == 0) {
+                    mFirstDispatchNanos = System.nanoTime();
+                }
+                mDispatchedCount++;
+            }
+        }
+
+        if (recentlySent) {
+            MoPubLog.log(CUSTOM, "Tracking endpoint was hit recently: " + url);
+            if (listener != null) {
+                listener.onResponse(url);
+            }
+            return;
+        }
+        if (dropped) {
+            MoPubLog.log(CUSTOM, "Too many tracking requests. Dropping: " + url);
+            if (listener != null) {
+                listener.onErrorResponse(new MoPubNetworkError(
+                        "Too many tracking requests in flight for url: " + url,
+                        MoPubNetworkError.Reason.TOO_MANY_REQUESTS));
+            }
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        Networking.getTrackingRequestQueue(context).add(new TrackingRequest(context, url,
+                new TrackingRequest.Listener() {
+                    @Override
+                    public void onResponse(@NonNull final String responseUrl) {
+                        MoPubLog.log(CUSTOM, "Successfully hit tracking endpoint: " + url);
+                        for (final TrackingRequest.Listener inFlightListener
+                                : onCompleted(url, true, startNanos)) {
+                            inFlightListener.onResponse(responseUrl);
+                        }
+                    }
+
+                    @Override
+                    public void onErrorResponse(final VolleyError volleyError) {
+                        MoPubLog.log(CUSTOM, "Failed to hit tracking endpoint: " + url);
+                        for (final TrackingRequest.Listener inFlightListener
+                                : onCompleted(url, false, startNanos)) {
+                            inFlightListener.onErrorResponse(volleyError);
+                        }
+                    }
+                }));
+    }
+
+    public synchronized long getDispatchedCount() {
+        return mDispatchedCount;
+    }
+
+    /**
+     * The number of trackers that weren't sent because the same url was being sent, or was sent
+     * recently.
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * The number of trackers that weren't sent because too many were being sent.
+     */
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public synchronized long getSucceededCount() {
+        return mSucceededCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return mFailedCount;
+    }
+
+    public synchronized int getInFlightCount() {
+        return mInFlightUrls.size();
+    }
+
+    /**
+     * The average time from sending a tracker to getting its response, in milliseconds.
+     */
+    public synchronized double getAverageLatencyMs() {
+        final long completedCount = mSucceededCount + mFailedCount;
+        return completedCount == 0 ? 0 : mTotalLatencyNanos / 1e6 / completedCount;
+    }
+
+    /**
+     * The number of trackers completed per second, from the first one sent to the last one
+     * completed.
+     */
+    public synchronized double getCompletedPerSecond() {
+        final long elapsedNanos = mLastCompletionNanos - mFirstDispatchNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (mSucceededCount + mFailedCount) * 1e9 / elapsedNanos;
+    }
+
+    @VisibleForTesting
+    public static synchronized void clearForTesting() {
+        sInstance = null;
+    }
+
+    @NonNull
+    private synchronized List<TrackingRequest.Listener> onCompleted(@NonNull final String url,
+            final boolean succeeded, final long startNanos) {
+        final long nowNanos = System.nanoTime();
+        mTotalLatencyNanos += nowNanos - startNanos;
+        mLastCompletionNanos = nowNanos;
+        if (succeeded) {
+            mSucceededCount++;
+            mRecentUrls.remove(url);
+            mRecentUrls.put(url, SystemClock.elapsedRealtime());
+        } else {
+            mFailedCount++;
+        }
+
+        final List<TrackingRequest.Listener> listeners = mInFlightUrls.remove(url);
+        return listeners != null ? listeners : new ArrayList<TrackingRequest.Listener>();
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.common.util.Streams;
+import com.mopub.volley.Network;
+import com.mopub.volley.NetworkError;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.NoConnectionError;
+import com.mopub.volley.Request;
+import com.mopub.volley.ServerError;
+import com.mopub.volley.TimeoutError;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.HurlStack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The network of the tracking request queue. Tracking requests are sent once each, without the
+ * retries and caching of Volley's BasicNetwork, and their responses are small, so each response
+ * is read to the end and its stream closed, which returns the connection to the keep-alive pool
+ * of its host. Unlike Volley's HurlStack, this never disconnects a connection that worked, since
+ * that would close the pooled connection instead of reusing it for the next tracker of the host.
+ * <p/>
+ * Failures before the connection is made are reported as a {@link NoConnectionError}, since the
+ * request can't have reached the server and may be sent again. Failures after that are reported
+ * as a {@link TimeoutError} or a {@link NetworkError}, since the server may have counted it.
+ */
+class TrackingNetwork implements Network {
+    @NonNull private final String mUserAgent;
+    @Nullable private final HurlStack.UrlRewriter mUrlRewriter;
+    @NonNull private final HttpTransport mHttpTransport;
+
+    TrackingNetwork(@NonNull final String userAgent,
+            @Nullable final HurlStack.UrlRewriter urlRewriter,
+            @NonNull final HttpTransport httpTransport) {
+        Preconditions.checkNotNull(userAgent);
+        Preconditions.checkNotNull(httpTransport);
+
+        mUserAgent = userAgent;
+        mUrlRewriter = urlRewriter;
+        mHttpTransport = httpTransport;
+    }
+
+    @Override
+    public NetworkResponse performRequest(final Request<?> request) throws VolleyError {
+        final long startMillis = SystemClock.elapsedRealtime();
+        final String url = mUrlRewriter == null
+                ? request.getUrl()
+                : mUrlRewriter.rewriteUrl(request.getUrl());
+        if (url == null) {
+            throw new NoConnectionError(new IOException("URL blocked by rewriter: "
+                    + request.getUrl()));
+        }
+
+        HttpURLConnection connection = null;
+        InputStream responseStream = null;
+        boolean connected = false;
+        try {
+            connection = mHttpTransport.openConnection(new URL(url));
+            connection.setConnectTimeout(request.getTimeoutMs());
+            connection.setReadTimeout(request.getTimeoutMs());
+            connection.setUseCaches(false);
+            for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            connection.setRequestProperty(ResponseHeader.USER_AGENT.getKey(), mUserAgent);
+
+            byte[] body = null;
+            if (request.getMethod() == Request.Method.POST) {
+                connection.setRequestMethod("POST");
+                body = request.getBody();
+                if (body != null) {
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty(ResponseHeader.CONTENT_TYPE.getKey(),
+                            request.getBodyContentType());
+                }
+            }
+
+            // Nothing has been sent until the connection is made
+            connection.connect();
+            connected = true;
+            if (body != null) {
+                final OutputStream bodyStream = connection.getOutputStream();
+                try {
+                    bodyStream.write(body);
+                } finally {
+                    Streams.closeStream(bodyStream);
+                }
+            }
+
+            final int statusCode = connection.getResponseCode();
+            if (statusCode == -1) {
+                throw new IOException("Could not retrieve response code from HttpUrlConnection.");
+            }
+            responseStream = statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream()
+                    : connection.getInputStream();
+            final ByteArrayOutputStream data = new ByteArrayOutputStream();
+            if (responseStream != null) {
+                Streams.copyContent(responseStream, data);
+            }
+
+            final NetworkResponse response = new NetworkResponse(statusCode, data.toByteArray(),
+                    getHeaders(connection), false, SystemClock.elapsedRealtime() - startMillis);
+            if (statusCode < 200 || statusCode > 299) {
+                throw new ServerError(response);
+            }
+            return response;
+        } catch (IOException e) {
+            // A connection that failed can't be reused
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (!connected) {
+                throw new NoConnectionError(e);
+            }
+            // The request may have reached the server
+            if (e instanceof SocketTimeoutException) {
+                throw new TimeoutError();
+            }
+            throw new NetworkError(e);
+        } finally {
+            Streams.closeStream(responseStream);
+            if (connection != null) {
+                mHttpTransport.release(connection);
+            }
+        }
+    }
+
+    @NonNull
+    private static Map<String, String> getHeaders(@NonNull final HttpURLConnection connection) {
+        final Map<String, String> headers =
+                new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (final Map.Entry<String, List<String>> header
+                : connection.getHeaderFields().entrySet()) {
+            // The status line has no name
+            if (header.getKey() != null && !header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+}
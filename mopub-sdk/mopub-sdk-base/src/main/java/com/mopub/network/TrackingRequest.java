@@ -10,24 +10,19 @@ import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
-import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Utils;
 import com.mopub.mobileads.VastErrorCode;
 import com.mopub.mobileads.VastMacroHelper;
 import com.mopub.mobileads.VastTracker;
 import com.mopub.volley.DefaultRetryPolicy;
 import com.mopub.volley.NetworkResponse;
-import com.mopub.volley.RequestQueue;
 import com.mopub.volley.Response;
-import com.mopub.volley.VolleyError;
 import com.mopub.volley.toolbox.HttpHeaderParser;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-
 public class TrackingRequest extends MoPubRequest<Void> {
 
     // Retrying may cause duplicate impressions
@@ -39,7 +34,7 @@ public class TrackingRequest extends MoPubRequest<Void> {
 
     @Nullable private final TrackingRequest.Listener mListener;
 
-    private TrackingRequest(@NonNull final Context context,
+    TrackingRequest(@NonNull final Context context,
             @NonNull final String url,
             @Nullable final Listener listener) {
         super(context, url, listener);
@@ -51,6 +46,12 @@ public class TrackingRequest extends MoPubRequest<Void> {
                 DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
     }
 
+    @NonNull
+    @Override
+    public MoPubRequestQueue.Lane getLane() {
+        return MoPubRequestQueue.Lane.TRACKING;
+    }
+
     @Override
     protected Response<Void> parseNetworkResponse(final NetworkResponse networkResponse) {
         if (networkResponse.statusCode != 200) {
@@ -110,32 +111,13 @@ public class TrackingRequest extends MoPubRequest<Void> {
             return;
         }
 
-        final RequestQueue requestQueue = Networking.getRequestQueue(context);
+        final BeaconQueue beaconQueue = BeaconQueue.getInstance(context);
         for (final String url : urls) {
             if (TextUtils.isEmpty(url)) {
                 continue;
             }
 
-            final TrackingRequest.Listener internalListener = new TrackingRequest.Listener() {
-                @Override
-                public void onResponse(@NonNull String url) {
-                    MoPubLog.log(CUSTOM, "Successfully hit tracking endpoint: " + url);
-                    if (listener != null) {
-                        listener.onResponse(url);
-                    }
-                }
-
-                @Override
-                public void onErrorResponse(final VolleyError volleyError) {
-                    MoPubLog.log(CUSTOM, "Failed to hit tracking endpoint: " + url);
-                    if (listener != null) {
-                        listener.onErrorResponse(volleyError);
-                    }
-                }
-            };
-            final TrackingRequest trackingRequest = new TrackingRequest(context, url,
-                    internalListener);
-            requestQueue.add(trackingRequest);
+            beaconQueue.add(url, listener);
         }
     }
 
@@ -156,4 +138,19 @@ public class TrackingRequest extends MoPubRequest<Void> {
             @Nullable final Context context) {
         makeTrackingHttpRequest(urls, context, null);
     }
+
+    /**
+     * Sends the tracking request without keeping it in the {@link BeaconQueue}, for callers that
+     * remember whether it was sent and send it again themselves. A beacon kept on disk can be sent
+     * by a later process, after the caller has lost its listener, so it would be sent twice.
+     */
+    public static void makeUnqueuedTrackingHttpRequest(@Nullable final String url,
+            @Nullable final Context context,
+            @Nullable final Listener listener) {
+        if (TextUtils.isEmpty(url) || context == null) {
+            return;
+        }
+
+        TrackingDispatcher.getInstance().dispatch(context, url, listener);
+    }
 }
@@ -4,6 +4,7 @@
 
 package com.mopub.mobileads;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
@@ -35,6 +36,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     @Nullable private JSONObject mVideoTrackers;
     @Nullable private Map<String, String> mExternalViewabilityTrackers;
     @Nullable private CreativeOrientation mOrientation;
+    private boolean mIsShown;
 
     @Override
     protected void extractExtras(Map<String, String> serverExtras) {
@@ -83,6 +85,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     @Override
     public void showInterstitial() {
         MoPubLog.log(SHOW_ATTEMPTED, ADAPTER_NAME);
+        mIsShown = true;
         MraidVideoPlayerActivity.startVast(mContext, mVastVideoConfig, mBroadcastIdentifier, mOrientation);
     }
 
@@ -113,6 +116,18 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
         mCustomEventInterstitialListener.onInterstitialLoaded();
     }
 
+    @Override
+    public void onVastVideoDownloadFailed(@NonNull final VastVideoConfig vastVideoConfig) {
+        // Once shown, the player fires the error trackers itself when the video stops loading.
+        if (mIsShown) {
+            return;
+        }
+
+        vastVideoConfig.handleError(mContext, VastErrorCode.GENERAL_LINEAR_AD_ERROR, 0);
+        mVastVideoConfig = null;
+        mCustomEventInterstitialListener.onInterstitialFailed(MoPubErrorCode.VIDEO_DOWNLOAD_ERROR);
+    }
+
 
     @Deprecated // for testing
     String getVastResponse() {
@@ -0,0 +1,99 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+/**
+ * How long an ad renderer has spent creating and rendering ad views. Use this to see whether
+ * creating ad views costs frames in your stream, and whether prewarming ad views helps.
+ *
+ * This class should only be used on the main thread.
+ */
+public final class AdRendererTimings {
+    private static final double NANOS_PER_MILLI = 1000 * 1000;
+
+    private int mMainThreadInflateCount;
+    private long mMainThreadInflateNanos;
+    private int mBackgroundInflateCount;
+    private long mBackgroundInflateNanos;
+    private int mPrewarmedViewsUsedCount;
+    private int mRenderCount;
+    private long mRenderNanos;
+
+    AdRendererTimings() {
+    }
+
+    /**
+     * @return Number of ad views inflated on the main thread.
+     */
+    public int getMainThreadInflateCount() {
+        return mMainThreadInflateCount;
+    }
+
+    /**
+     * @return Average time to inflate an ad view on the main thread, in milliseconds.
+     */
+    public double getAverageMainThreadInflateMillis() {
+        return average(mMainThreadInflateNanos, mMainThreadInflateCount);
+    }
+
+    /**
+     * @return Number of ad views inflated ahead of time on a background thread.
+     */
+    public int getBackgroundInflateCount() {
+        return mBackgroundInflateCount;
+    }
+
+    /**
+     * @return Average time to inflate an ad view on a background thread, in milliseconds.
+     */
+    public double getAverageBackgroundInflateMillis() {
+        return average(mBackgroundInflateNanos, mBackgroundInflateCount);
+    }
+
+    /**
+     * @return Number of ad views that were created from views inflated ahead of time.
+     */
+    public int getPrewarmedViewsUsedCount() {
+        return mPrewarmedViewsUsedCount;
+    }
+
+    /**
+     * @return Number of times an ad was rendered into an ad view.
+     */
+    public int getRenderCount() {
+        return mRenderCount;
+    }
+
+    /**
+     * @return Average time to render an ad into an ad view, in milliseconds. This includes
+     * looking up the views of an ad view the first time it is rendered into.
+     */
+    public double getAverageRenderMillis() {
+        return average(mRenderNanos, mRenderCount);
+    }
+
+    void onMainThreadInflate(final long nanos) {
+        mMainThreadInflateCount++;
+        mMainThreadInflateNanos += nanos;
+    }
+
+    void onBackgroundInflate(final long nanos) {
+        mBackgroundInflateCount++;
+        mBackgroundInflateNanos += nanos;
+    }
+
+    void onPrewarmedViewUsed() {
+        mPrewarmedViewsUsedCount++;
+    }
+
+    void onRender(final long nanos) {
+        mRenderCount++;
+        mRenderNanos += nanos;
+    }
+
+    private static double average(final long nanos, final int count) {
+        return count == 0 ? 0 : nanos / NANOS_PER_MILLI / count;
+    }
+}
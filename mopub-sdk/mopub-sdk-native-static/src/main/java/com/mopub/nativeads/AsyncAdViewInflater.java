@@ -0,0 +1,258 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Keeps a number of ad views for a {@link MoPubStaticNativeAdRenderer} inflated ahead of time,
+ * together with the {@link StaticNativeViewHolder} of each, so that creating an ad view doesn't
+ * inflate the layout and look up its views on the main thread.
+ *
+ * Views are inflated on a background thread shared by all renderers, the way AsyncLayoutInflater
+ * does it: with an inflater that doesn't have the factories of the context's inflater, and with
+ * the parent only used to create layout params. If a layout can't be inflated this way, no more
+ * views are inflated in the background and ad views are inflated on the main thread as before.
+ *
+ * The context and parent are only weakly referenced, but the inflated views hold on to the
+ * context, so they must be dropped with {@link #clear()} before the context is destroyed.
+ *
+ * Except for the inflation itself, this must only be used on the main thread.
+ */
+class AsyncAdViewInflater {
+    @Nullable private static Executor sInflationExecutor;
+
+    @NonNull private final ViewBinder mViewBinder;
+    @NonNull private final AdRendererTimings mTimings;
+    @NonNull private final Executor mExecutor;
+    @NonNull private final Handler mMainHandler;
+    @NonNull private final ArrayDeque<InflatedView> mInflatedViews;
+
+    @Nullable private WeakReference<Context> mContextRef;
+    @Nullable private WeakReference<ViewGroup> mParentRef;
+    private int mTargetCount;
+    private int mPendingCount;
+    // Changes whenever the inflated views are cleared, so that inflations started before are
+    // dropped
+    private int mGeneration;
+
+    AsyncAdViewInflater(@NonNull final ViewBinder viewBinder,
+            @NonNull final AdRendererTimings timings) {
+        this(viewBinder, timings, getInflationExecutor());
+    }
+
+    @VisibleForTesting
+    AsyncAdViewInflater(@NonNull final ViewBinder viewBinder,
+            @NonNull final AdRendererTimings timings, @NonNull final Executor executor) {
+        mViewBinder = viewBinder;
+        mTimings = timings;
+        mExecutor = executor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mInflatedViews = new ArrayDeque<InflatedView>();
+    }
+
+    /**
+     * Keeps {@code count} views inflated for the given context, replacing the views inflated for
+     * any other context.
+     */
+    void prewarm(@NonNull final Context context, @Nullable final ViewGroup parent,
+            final int count) {
+        Preconditions.checkNotNull(context);
+
+        if (context != getContext()) {
+            clear();
+        }
+        mContextRef = new WeakReference<Context>(context);
+        mParentRef = parent != null ? new WeakReference<ViewGroup>(parent) : null;
+        mTargetCount = Math.max(0, count);
+        while (mInflatedViews.size() > mTargetCount) {
+            mInflatedViews.removeLast();
+        }
+        inflateMissingViews();
+    }
+
+    /**
+     * Takes an inflated view for the given context, and starts inflating its replacement.
+     *
+     * @return the view, or {@code null} if none is ready.
+     */
+    @Nullable
+    InflatedView poll(@Nullable final Context context) {
+        if (context == null || context != getContext()) {
+            return null;
+        }
+
+        final InflatedView inflatedView = mInflatedViews.pollFirst();
+        if (inflatedView != null) {
+            inflateMissingViews();
+        }
+        return inflatedView;
+    }
+
+    void clear() {
+        mGeneration++;
+        mInflatedViews.clear();
+        mPendingCount = 0;
+        mTargetCount = 0;
+        mContextRef = null;
+        mParentRef = null;
+    }
+
+    @VisibleForTesting
+    int getInflatedViewCount() {
+        return mInflatedViews.size();
+    }
+
+    @Nullable
+    private Context getContext() {
+        return mContextRef != null ? mContextRef.get() : null;
+    }
+
+    private void inflateMissingViews() {
+        final Context context = getContext();
+        if (context == null) {
+            return;
+        }
+
+        final ViewGroup parent = mParentRef != null ? mParentRef.get() : null;
+        while (mInflatedViews.size() + mPendingCount < mTargetCount) {
+            inflateInBackground(context, parent);
+        }
+    }
+
+    private void inflateInBackground(@NonNull final Context context,
+            @Nullable final ViewGroup parent) {
+        final int generation = mGeneration;
+        final ViewBinder viewBinder = mViewBinder;
+        mPendingCount++;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long startNanos = System.nanoTime();
+                View view = null;
+                StaticNativeViewHolder viewHolder = null;
+                try {
+                    view = new BasicInflater(context).inflate(viewBinder.layoutId, parent, false);
+                    viewHolder = StaticNativeViewHolder.fromViewBinder(view, viewBinder);
+                } catch (RuntimeException e) {
+                    MoPubLog.log(CUSTOM, "Unable to inflate ad view in the background: "
+                            + e.getMessage());
+                }
+
+                final long inflateNanos = System.nanoTime() - startNanos;
+                final View inflatedView = view;
+                final StaticNativeViewHolder inflatedViewHolder = viewHolder;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onInflated(generation, inflatedView, inflatedViewHolder, inflateNanos);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onInflated(final int generation, @Nullable final View view,
+            @Nullable final StaticNativeViewHolder viewHolder, final long inflateNanos) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        mPendingCount--;
+        if (view == null || viewHolder == null) {
+            // It would fail again, so stop trying
+            mTargetCount = 0;
+            return;
+        }
+        mTimings.onBackgroundInflate(inflateNanos);
+        // Fewer views may have been asked for since this one was started
+        if (mInflatedViews.size() < mTargetCount) {
+            mInflatedViews.add(new InflatedView(view, viewHolder));
+        }
+    }
+
+    @NonNull
+    private static Executor getInflationExecutor() {
+        if (sInflationExecutor == null) {
+            sInflationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "AsyncAdViewInflater");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sInflationExecutor;
+    }
+
+    static class InflatedView {
+        @NonNull final View mView;
+        @NonNull final StaticNativeViewHolder mViewHolder;
+
+        InflatedView(@NonNull final View view,
+                @NonNull final StaticNativeViewHolder viewHolder) {
+            mView = view;
+            mViewHolder = viewHolder;
+        }
+    }
+
+    /**
+     * An inflater without the factories of the context's inflater, which aren't safe to use off
+     * the main thread.
+     */
+    private static class BasicInflater extends LayoutInflater {
+        private static final String[] CLASS_PREFIXES = {
+                "android.widget.",
+                "android.webkit.",
+                "android.app."
+        };
+
+        BasicInflater(@NonNull final Context context) {
+            super(context);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(final Context newContext) {
+            return new BasicInflater(newContext);
+        }
+
+        @Override
+        protected View onCreateView(final String name, final AttributeSet attrs)
+                throws ClassNotFoundException {
+            for (final String prefix : CLASS_PREFIXES) {
+                try {
+                    final View view = createView(name, prefix, attrs);
+                    if (view != null) {
+                        return view;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // Try the next prefix
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+}
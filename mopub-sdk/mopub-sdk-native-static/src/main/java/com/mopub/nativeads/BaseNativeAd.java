@@ -14,7 +14,9 @@ import com.mopub.common.logging.MoPubLog;
 import org.json.JSONArray;
 import org.json.JSONException;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
@@ -34,12 +36,16 @@ public abstract class BaseNativeAd {
     @NonNull final private Set<String> mImpressionTrackers;
     @NonNull final private Set<String> mClickTrackers;
     @Nullable private NativeEventListener mNativeEventListener;
+    // Size of the most recently decoded bitmap for each image url. Only accessed on the main thread.
+    @NonNull final private Map<String, Integer> mDecodedImageBytes;
+    @Nullable private NativeImageHelper.PreCacheToken mPreCacheToken;
 
     private boolean mInvalidated;
 
     protected BaseNativeAd() {
         mImpressionTrackers = new HashSet<String>();
         mClickTrackers = new HashSet<String>();
+        mDecodedImageBytes = new HashMap<String, Integer>();
         mInvalidated = false;
     }
 
@@ -165,8 +171,42 @@ public abstract class BaseNativeAd {
         return new HashSet<String>(mClickTrackers);
     }
 
+    /**
+     * Records the size of a bitmap decoded for one of this ad's images. An image that is decoded
+     * again, for example at a different size, replaces its previous size.
+     */
+    void setDecodedImageBytes(@NonNull final String url, final int bytes) {
+        Preconditions.checkNotNull(url);
+
+        mDecodedImageBytes.put(url, bytes);
+    }
+
+    /**
+     * Returns the number of bytes taken up by the decoded bitmaps of this ad's images that were
+     * loaded through {@link NativeImageHelper}. Use this to track the memory footprint of native
+     * ads.
+     */
+    public long getDecodedImageBytes() {
+        long bytes = 0;
+        for (final Integer imageBytes : mDecodedImageBytes.values()) {
+            bytes += imageBytes;
+        }
+        return bytes;
+    }
+
+    void setPreCacheToken(@Nullable final NativeImageHelper.PreCacheToken preCacheToken) {
+        mPreCacheToken = preCacheToken;
+    }
+
+    /**
+     * Marks the ad as no longer wanted and cancels precaching its images.
+     */
     public void invalidate(){
         mInvalidated = true;
+        if (mPreCacheToken != null) {
+            mPreCacheToken.cancel();
+            mPreCacheToken = null;
+        }
     }
 
     public boolean isInvalidated(){
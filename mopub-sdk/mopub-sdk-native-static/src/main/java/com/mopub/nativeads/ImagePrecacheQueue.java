@@ -0,0 +1,293 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.nativeads.NativeImageHelper.PreCacheToken;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
+
+/**
+ * Runs the image requests made to precache native ad images. At most a fixed number of images
+ * are requested at a time across all ads, images that an ad needs in order to be shown are
+ * requested before low priority images such as privacy information icons, and an image that
+ * several ads are waiting for is only requested once. Urls that recently failed fail again right
+ * away instead of being requested for every ad that uses them.
+ * <p/>
+ * This must only be used on the main thread.
+ */
+class ImagePrecacheQueue {
+    @VisibleForTesting static final int MAX_CONCURRENT_REQUESTS = 4;
+    @VisibleForTesting static final int MAX_FAILED_URLS = 100;
+    @VisibleForTesting static final long FAILED_URL_RETRY_MILLIS = 5 * 60 * 1000;
+
+    private static final int PRIORITY_HIGH = 0;
+    private static final int PRIORITY_LOW = 1;
+
+    @Nullable private static ImagePrecacheQueue sInstance;
+
+    @NonNull private final PriorityQueue<Task> mPendingTasks;
+    // Images being requested, mapped to the tasks waiting for them
+    @NonNull private final Map<String, InFlightRequest> mInFlightRequests;
+    // Urls that failed, mapped to when they failed, least recently failed first
+    @NonNull private final LinkedHashMap<String, Long> mFailedUrls;
+    private int mTaskSequence;
+    private boolean mIsDispatching;
+
+    @NonNull
+    static ImagePrecacheQueue getInstance() {
+        if (sInstance == null) {
+            sInstance = new ImagePrecacheQueue();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static void clearForTesting() {
+        sInstance = null;
+    }
+
+    @VisibleForTesting
+    ImagePrecacheQueue() {
+        mPendingTasks = new PriorityQueue<Task>(16, new Comparator<Task>() {
+            @Override
+            public int compare(final Task task1, final Task task2) {
+                if (task1.mPriority != task2.mPriority) {
+                    return task1.mPriority < task2.mPriority ? -1 : 1;
+                }
+                return task1.mSequence < task2.mSequence ? -1
+                        : (task1.mSequence == task2.mSequence ? 0 : 1);
+            }
+        });
+        mInFlightRequests = new HashMap<String, InFlightRequest>();
+        mFailedUrls = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > MAX_FAILED_URLS;
+            }
+        };
+    }
+
+    /**
+     * Queues the images of one ad.
+     *
+     * @param lowPriorityUrls urls in {@code urls} to request after the other images of all ads
+     * @param widths          the widths to decode urls in {@code urls} at, the full width for
+     *                        urls without one
+     */
+    void add(@NonNull final PreCacheToken token, @NonNull final List<String> urls,
+            @NonNull final Collection<String> lowPriorityUrls,
+            @NonNull final Map<String, Integer> widths) {
+        Preconditions.checkNotNull(token);
+        Preconditions.checkNotNull(urls);
+        Preconditions.checkNotNull(lowPriorityUrls);
+        Preconditions.checkNotNull(widths);
+
+        for (final String url : urls) {
+            final int priority = lowPriorityUrls.contains(url) ? PRIORITY_LOW : PRIORITY_HIGH;
+            final Integer width = widths.get(url);
+            mPendingTasks.add(new Task(token, url, width != null ? width : 0, priority,
+                    mTaskSequence++));
+        }
+        dispatch();
+    }
+
+    /**
+     * Drops the images of this token that haven't been cached yet. Requests that no other token
+     * is waiting for are cancelled.
+     */
+    void cancel(@NonNull final PreCacheToken token) {
+        Preconditions.checkNotNull(token);
+
+        final Iterator<Task> pendingIterator = mPendingTasks.iterator();
+        while (pendingIterator.hasNext()) {
+            if (pendingIterator.next().mToken == token) {
+                pendingIterator.remove();
+            }
+        }
+
+        final Iterator<InFlightRequest> inFlightIterator =
+                mInFlightRequests.values().iterator();
+        while (inFlightIterator.hasNext()) {
+            final InFlightRequest request = inFlightIterator.next();
+            final Iterator<Task> taskIterator = request.mTasks.iterator();
+            while (taskIterator.hasNext()) {
+                if (taskIterator.next().mToken == token) {
+                    taskIterator.remove();
+                }
+            }
+            if (request.mTasks.isEmpty()) {
+                inFlightIterator.remove();
+                if (request.mImageContainer != null) {
+                    request.mImageContainer.cancelRequest();
+                }
+            }
+        }
+        dispatch();
+    }
+
+    @VisibleForTesting
+    int getPendingCount() {
+        return mPendingTasks.size();
+    }
+
+    @VisibleForTesting
+    int getInFlightCount() {
+        return mInFlightRequests.size();
+    }
+
+    @VisibleForTesting
+    boolean hasRecentlyFailed(@NonNull final String url) {
+        final Long failedMillis = mFailedUrls.get(url);
+        if (failedMillis == null) {
+            return false;
+        }
+        if (SystemClock.uptimeMillis() - failedMillis >= FAILED_URL_RETRY_MILLIS) {
+            mFailedUrls.remove(url);
+            return false;
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        // Requests can complete while they are being started, if the image is in memory
+        if (mIsDispatching) {
+            return;
+        }
+
+        mIsDispatching = true;
+        try {
+            while (!mPendingTasks.isEmpty()) {
+                final Task task = mPendingTasks.peek();
+                final InFlightRequest inFlightRequest = mInFlightRequests.get(task.mUrl);
+                if (inFlightRequest != null) {
+                    mPendingTasks.poll();
+                    inFlightRequest.mTasks.add(task);
+                } else if (hasRecentlyFailed(task.mUrl)) {
+                    mPendingTasks.poll();
+                    MoPubLog.log(CUSTOM, "Not requesting recently failed image: " + task.mUrl);
+                    onTaskFailed(task);
+                } else if (mInFlightRequests.size() < MAX_CONCURRENT_REQUESTS) {
+                    mPendingTasks.poll();
+                    start(task);
+                } else {
+                    break;
+                }
+            }
+        } finally {
+            mIsDispatching = false;
+        }
+    }
+
+    private void start(@NonNull final Task task) {
+        final String url = task.mUrl;
+        final InFlightRequest inFlightRequest = new InFlightRequest();
+        inFlightRequest.mTasks.add(task);
+        mInFlightRequests.put(url, inFlightRequest);
+
+        final ImageLoader.ImageListener imageListener = new ImageLoader.ImageListener() {
+            @Override
+            public void onResponse(final ImageLoader.ImageContainer imageContainer,
+                    final boolean isImmediate) {
+                // Image Loader returns a "default" response immediately. We want to
+                // ignore this unless the image is already cached.
+                if (imageContainer.getBitmap() != null) {
+                    onRequestComplete(url, imageContainer.getBitmap());
+                }
+            }
+
+            @Override
+            public void onErrorResponse(final VolleyError volleyError) {
+                MoPubLog.log(ERROR, "Failed to download a native ads image:",
+                        volleyError);
+                onRequestFailed(url);
+            }
+        };
+        // Ads waiting for the same url share the request, at the width of the first one
+        final ImageLoader.ImageContainer imageContainer = task.mWidth > 0
+                ? task.mToken.mImageLoader.get(url, imageListener, task.mWidth, 0)
+                : task.mToken.mImageLoader.get(url, imageListener);
+        // Still waiting for the image, so it can be cancelled
+        if (mInFlightRequests.get(url) == inFlightRequest) {
+            inFlightRequest.mImageContainer = imageContainer;
+        }
+    }
+
+    private void onRequestComplete(@NonNull final String url, @NonNull final Bitmap bitmap) {
+        final InFlightRequest inFlightRequest = mInFlightRequests.remove(url);
+        if (inFlightRequest == null) {
+            return;
+        }
+
+        mFailedUrls.remove(url);
+        for (final Task task : inFlightRequest.mTasks) {
+            task.mToken.onImageCached(url, bitmap);
+        }
+        dispatch();
+    }
+
+    private void onRequestFailed(@NonNull final String url) {
+        final InFlightRequest inFlightRequest = mInFlightRequests.remove(url);
+        if (inFlightRequest == null) {
+            return;
+        }
+
+        mFailedUrls.remove(url);
+        mFailedUrls.put(url, SystemClock.uptimeMillis());
+        for (final Task task : inFlightRequest.mTasks) {
+            onTaskFailed(task);
+        }
+        dispatch();
+    }
+
+    private void onTaskFailed(@NonNull final Task task) {
+        // The ad can't be shown, so don't spend any more on its other images
+        cancel(task.mToken);
+        task.mToken.onImageFailed();
+    }
+
+    private static class Task {
+        @NonNull final PreCacheToken mToken;
+        @NonNull final String mUrl;
+        // 0 for the full width
+        final int mWidth;
+        final int mPriority;
+        final int mSequence;
+
+        Task(@NonNull final PreCacheToken token, @NonNull final String url, final int width,
+                final int priority, final int sequence) {
+            mToken = token;
+            mUrl = url;
+            mWidth = width;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+    }
+
+    private static class InFlightRequest {
+        @NonNull final List<Task> mTasks = new ArrayList<Task>();
+        @Nullable ImageLoader.ImageContainer mImageContainer;
+    }
+}
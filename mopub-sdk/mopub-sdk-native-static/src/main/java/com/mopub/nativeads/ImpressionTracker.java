@@ -5,8 +5,6 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.view.View;
@@ -24,12 +22,12 @@ import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 
 /**
  * Impression tracker used to call {@link ImpressionInterface#recordImpression(View)} when a
- * percentage of a native ad has been on screen for a duration of time.
+ * percentage of a native ad has been on screen for a duration of time. Visible views are timed on
+ * each visibility check, and further checks are scheduled until they record an impression or
+ * become invisible.
  */
 public class ImpressionTracker {
 
-    private static final int PERIOD = 250;
-
     // Object tracking visibility of added views
     @NonNull private final VisibilityTracker mVisibilityTracker;
 
@@ -39,11 +37,9 @@ public class ImpressionTracker {
     // Visible views being polled for time on screen before tracking impression
     @NonNull private final Map<View, TimestampWrapper<ImpressionInterface>> mPollingViews;
 
-    // Handler for polling visible views
-    @NonNull private final Handler mPollHandler;
-
-    // Runnable to run on each visibility loop
-    @NonNull private final PollingRunnable mPollingRunnable;
+    // Views that have been visible long enough. Create this once to avoid excessive garbage
+    // collection observed when calculating these on each pass.
+    @NonNull private final ArrayList<View> mImpressedViews;
 
     // Object to check actual visibility
     @NonNull private final VisibilityChecker mVisibilityChecker;
@@ -55,16 +51,14 @@ public class ImpressionTracker {
         this(new WeakHashMap<View, ImpressionInterface>(),
                 new WeakHashMap<View, TimestampWrapper<ImpressionInterface>>(),
                 new VisibilityChecker(),
-                new VisibilityTracker(context),
-                new Handler(Looper.getMainLooper()));
+                new VisibilityTracker(context));
     }
 
     @VisibleForTesting
     ImpressionTracker(@NonNull final Map<View, ImpressionInterface> trackedViews,
             @NonNull final Map<View, TimestampWrapper<ImpressionInterface>> pollingViews,
             @NonNull final VisibilityChecker visibilityChecker,
-            @NonNull final VisibilityTracker visibilityTracker,
-            @NonNull final Handler handler) {
+            @NonNull final VisibilityTracker visibilityTracker) {
         mTrackedViews = trackedViews;
         mPollingViews = pollingViews;
         mVisibilityChecker = visibilityChecker;
@@ -96,13 +90,12 @@ public class ImpressionTracker {
                 for (final View view : invisibleViews) {
                     mPollingViews.remove(view);
                 }
-                scheduleNextPoll();
+                pollImpressions();
             }
         };
         mVisibilityTracker.setVisibilityTrackerListener(mVisibilityTrackerListener);
 
-        mPollHandler = handler;
-        mPollingRunnable = new PollingRunnable();
+        mImpressedViews = new ArrayList<View>();
     }
 
     /**
@@ -139,7 +132,6 @@ public class ImpressionTracker {
         mTrackedViews.clear();
         mPollingViews.clear();
         mVisibilityTracker.clear();
-        mPollHandler.removeMessages(0);
     }
 
     public void destroy() {
@@ -148,58 +140,41 @@ public class ImpressionTracker {
         mVisibilityTrackerListener = null;
     }
 
-    @VisibleForTesting
-    void scheduleNextPoll() {
-        // Only schedule if there are no messages already scheduled.
-        if (mPollHandler.hasMessages(0)) {
-            return;
-        }
-
-        mPollHandler.postDelayed(mPollingRunnable, PERIOD);
-    }
-
     private void removePollingView(final View view) {
         mPollingViews.remove(view);
     }
 
+    /**
+     * Records impressions for the views that have been visible long enough, and schedules another
+     * visibility check if any are still waiting.
+     */
     @VisibleForTesting
-    class PollingRunnable implements Runnable {
-        // Create this once to avoid excessive garbage collection observed when calculating
-        // these on each pass.
-        @NonNull private final ArrayList<View> mRemovedViews;
-
-        PollingRunnable() {
-            mRemovedViews = new ArrayList<View>();
-        }
-
-        @Override
-        public void run() {
-            for (final Map.Entry<View, TimestampWrapper<ImpressionInterface>> entry : mPollingViews.entrySet()) {
-                final View view = entry.getKey();
-                final TimestampWrapper<ImpressionInterface> timestampWrapper = entry.getValue();
-
-                // If it's been visible for the min impression time, trigger the callback
-                if (!mVisibilityChecker.hasRequiredTimeElapsed(
-                        timestampWrapper.mCreatedTimestamp,
-                        timestampWrapper.mInstance.getImpressionMinTimeViewed())) {
-                    continue;
-                }
+    void pollImpressions() {
+        for (final Map.Entry<View, TimestampWrapper<ImpressionInterface>> entry : mPollingViews.entrySet()) {
+            final View view = entry.getKey();
+            final TimestampWrapper<ImpressionInterface> timestampWrapper = entry.getValue();
+
+            // If it's been visible for the min impression time, trigger the callback
+            if (!mVisibilityChecker.hasRequiredTimeElapsed(
+                    timestampWrapper.mCreatedTimestamp,
+                    timestampWrapper.mInstance.getImpressionMinTimeViewed())) {
+                continue;
+            }
 
-                timestampWrapper.mInstance.recordImpression(view);
-                timestampWrapper.mInstance.setImpressionRecorded();
+            timestampWrapper.mInstance.recordImpression(view);
+            timestampWrapper.mInstance.setImpressionRecorded();
 
-                // Removed in a separate loop to avoid a ConcurrentModification exception.
-                mRemovedViews.add(view);
-            }
+            // Removed in a separate loop to avoid a ConcurrentModification exception.
+            mImpressedViews.add(view);
+        }
 
-            for (View view : mRemovedViews) {
-              removeView(view);
-            }
-            mRemovedViews.clear();
+        for (View view : mImpressedViews) {
+            removeView(view);
+        }
+        mImpressedViews.clear();
 
-            if (!mPollingViews.isEmpty()) {
-                scheduleNextPoll();
-            }
+        if (!mPollingViews.isEmpty()) {
+            mVisibilityTracker.scheduleVisibilityCheck();
         }
     }
 
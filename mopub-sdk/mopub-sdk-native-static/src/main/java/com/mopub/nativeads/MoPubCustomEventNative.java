@@ -33,6 +33,7 @@ import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.LOAD_ATTEMPTED;
 import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.LOAD_FAILED;
 import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.LOAD_SUCCESS;
 import static com.mopub.common.util.Numbers.parseDouble;
+import static com.mopub.nativeads.NativeImageHelper.getPreCacheImageWidths;
 import static com.mopub.nativeads.NativeImageHelper.preCacheImages;
 
 public class MoPubCustomEventNative extends CustomEventNative {
@@ -218,7 +219,9 @@ public class MoPubCustomEventNative extends CustomEventNative {
                 setPrivacyInformationIconClickThroughUrl(PRIVACY_INFORMATION_CLICKTHROUGH_URL);
             }
 
-            preCacheImages(mContext, getAllImageUrls(), new ImageListener() {
+            preCacheImages(mContext, getAllImageUrls(), getLowPriorityImageUrls(),
+                    getPreCacheImageWidths(getMainImageUrl(), getIconImageUrl()),
+                    new ImageListener() {
                 @Override
                 public void onImagesCached() {
                     if (isInvalidated()) {
@@ -234,7 +237,7 @@ public class MoPubCustomEventNative extends CustomEventNative {
                     }
                     mCustomEventNativeListener.onNativeAdFailed(errorCode);
                 }
-            });
+            }, this);
         }
 
         private boolean containsRequiredKeys(@NonNull final JSONObject jsonObject) {
@@ -321,6 +324,15 @@ public class MoPubCustomEventNative extends CustomEventNative {
             return extrasBitmapUrls;
         }
 
+        @NonNull
+        Set<String> getLowPriorityImageUrls() {
+            final Set<String> imageUrls = new HashSet<String>();
+            if (!TextUtils.isEmpty(getPrivacyInformationIconImageUrl())) {
+                imageUrls.add(getPrivacyInformationIconImageUrl());
+            }
+            return imageUrls;
+        }
+
         @NonNull
         List<String> getAllImageUrls() {
             final List<String> imageUrls = new ArrayList<String>();
@@ -124,6 +124,11 @@ public class MoPubNative {
             mNativeRequest.cancel();
             mNativeRequest = null;
         }
+        // Stops a custom event that is still loading, which cancels precaching its images
+        if (mNativeAdapter != null) {
+            mNativeAdapter.stopLoading();
+            mNativeAdapter = null;
+        }
         mAdLoader = null;
 
         mMoPubNativeNetworkListener = EMPTY_NETWORK_LISTENER;
@@ -20,12 +20,14 @@ import com.mopub.common.VisibilityTracker;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubServerPositioning;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.WeakHashMap;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.INSERT_AT_END;
 import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.KEEP_ADS_FIXED;
+import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.MOVE_ALL_ADS_WITH_CONTENT;
 
 
 public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
@@ -99,65 +101,36 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
         mAdapterDataObserver = new RecyclerView.AdapterDataObserver() {
             @Override
             public void onChanged() {
+                // There is no way to tell what changed, so everything needs to be rebound.
                 mStreamAdPlacer.setItemCount(mOriginalAdapter.getItemCount());
                 notifyDataSetChanged();
             }
 
             @Override
             public void onItemRangeChanged(final int positionStart, final int itemCount) {
-                int adjustedEndPosition = mStreamAdPlacer.getAdjustedPosition(positionStart + itemCount - 1);
-                int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
-                int adjustedCount = adjustedEndPosition - adjustedStartPosition + 1;
-                notifyItemRangeChanged(adjustedStartPosition, adjustedCount);
+                handleItemRangeChanged(positionStart, itemCount, null);
+            }
+
+            @Override
+            public void onItemRangeChanged(final int positionStart, final int itemCount,
+                    @Nullable final Object payload) {
+                handleItemRangeChanged(positionStart, itemCount, payload);
             }
 
             @Override
             public void onItemRangeInserted(final int positionStart, final int itemCount) {
-                final int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
-                final int newOriginalCount = mOriginalAdapter.getItemCount();
-                mStreamAdPlacer.setItemCount(newOriginalCount);
-                final boolean addingToEnd = positionStart + itemCount >= newOriginalCount;
-                if (KEEP_ADS_FIXED == mStrategy
-                        || (INSERT_AT_END == mStrategy
-                        && addingToEnd)) {
-                    notifyDataSetChanged();
-                } else {
-                    for (int i = 0; i < itemCount; i++) {
-                        // We insert itemCount items at the original position, moving ads downstream.
-                        mStreamAdPlacer.insertItem(positionStart);
-                    }
-                    notifyItemRangeInserted(adjustedStartPosition, itemCount);
-                }
+                handleItemRangeInserted(positionStart, itemCount);
             }
 
             @Override
             public void onItemRangeRemoved(final int positionStart, final int itemsRemoved) {
-                int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
-                final int newOriginalCount = mOriginalAdapter.getItemCount();
-                mStreamAdPlacer.setItemCount(newOriginalCount);
-                final boolean removingFromEnd = positionStart + itemsRemoved >= newOriginalCount;
-                if (KEEP_ADS_FIXED == mStrategy
-                        || (INSERT_AT_END == mStrategy
-                        && removingFromEnd)) {
-                    notifyDataSetChanged();
-                } else {
-                    final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(newOriginalCount + itemsRemoved);
-                    for (int i = 0; i < itemsRemoved; i++) {
-                        // We remove itemsRemoved items at the original position.
-                        mStreamAdPlacer.removeItem(positionStart);
-                    }
-
-                    final int itemsRemovedIncludingAds = oldAdjustedCount - mStreamAdPlacer.getAdjustedCount(newOriginalCount);
-                    // Need to move the start position back by the # of ads removed.
-                    adjustedStartPosition -= itemsRemovedIncludingAds - itemsRemoved;
-                    notifyItemRangeRemoved(adjustedStartPosition, itemsRemovedIncludingAds);
-                }
+                handleItemRangeRemoved(positionStart, itemsRemoved);
             }
 
             @Override
             public void onItemRangeMoved(final int fromPosition, final int toPosition,
                     final int itemCount) {
-                notifyDataSetChanged();
+                handleItemRangeMoved(fromPosition, toPosition, itemCount);
             }
         };
 
@@ -544,6 +517,204 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
         notifyItemRemoved(position);
     }
 
+    @VisibleForTesting
+    void handleItemRangeChanged(final int positionStart, final int itemCount,
+            @Nullable final Object payload) {
+        if (itemCount <= 0) {
+            return;
+        }
+
+        // The ads between the changed items haven't changed, so only the items are rebound.
+        final int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
+        final int adjustedEndPosition =
+                mStreamAdPlacer.getAdjustedPosition(positionStart + itemCount - 1) + 1;
+        int rangeStart = adjustedStartPosition;
+        for (final int adPosition : getAdPositionsInRange(adjustedStartPosition,
+                adjustedEndPosition)) {
+            notifyRangeChanged(rangeStart, adPosition, payload);
+            rangeStart = adPosition + 1;
+        }
+        notifyRangeChanged(rangeStart, adjustedEndPosition, payload);
+    }
+
+    @VisibleForTesting
+    void handleItemRangeInserted(final int positionStart, final int itemCount) {
+        final int newOriginalCount = mOriginalAdapter.getItemCount();
+        final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(
+                newOriginalCount - itemCount);
+        final int adjustedStartPosition = getAdjustedPositionAfter(positionStart - 1);
+        mStreamAdPlacer.setItemCount(newOriginalCount);
+        if (shouldMoveAds(positionStart + itemCount >= newOriginalCount)) {
+            // We insert itemCount items at the original position, moving ads downstream. Ads
+            // right before the item at the original position end up after the new items.
+            mStreamAdPlacer.insertItems(positionStart, itemCount);
+            notifyItemRangeInserted(adjustedStartPosition, itemCount);
+            return;
+        }
+
+        // The ads stay where they are, so those after the new items are moved back up, and
+        // those after the old end are shown now that there are items after them.
+        notifyItemRangeInserted(adjustedStartPosition, itemCount);
+        for (final int adPosition : getAdPositionsInRange(adjustedStartPosition,
+                oldAdjustedCount)) {
+            notifyItemMoved(adPosition + itemCount, adPosition);
+        }
+        for (final int adPosition : getAdPositionsInRange(oldAdjustedCount,
+                mStreamAdPlacer.getAdjustedCount(newOriginalCount))) {
+            notifyItemInserted(adPosition);
+        }
+    }
+
+    @VisibleForTesting
+    void handleItemRangeRemoved(final int positionStart, final int itemsRemoved) {
+        final int newOriginalCount = mOriginalAdapter.getItemCount();
+        final int oldOriginalCount = newOriginalCount + itemsRemoved;
+        final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(oldOriginalCount);
+        final int adjustedStartPosition = getAdjustedPositionAfter(positionStart - 1);
+        mStreamAdPlacer.setItemCount(newOriginalCount);
+        if (shouldMoveAds(positionStart + itemsRemoved >= newOriginalCount)) {
+            // The ads between the removed items stay, right before the item after them. If there
+            // is no item after them, they aren't shown anymore.
+            if (positionStart + itemsRemoved >= oldOriginalCount) {
+                mStreamAdPlacer.removeItems(positionStart, itemsRemoved);
+                notifyItemRangeRemoved(adjustedStartPosition,
+                        oldAdjustedCount - adjustedStartPosition);
+                return;
+            }
+
+            final int firstRemovedPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
+            final int lastRemovedPosition = mStreamAdPlacer.getAdjustedPosition(
+                    positionStart + itemsRemoved - 1);
+            final List<Integer> adPositions = getAdPositionsInRange(firstRemovedPosition,
+                    lastRemovedPosition);
+            mStreamAdPlacer.removeItems(positionStart, itemsRemoved);
+
+            // Remove the items between the ads, starting from the end so that the positions
+            // before each range stay the same.
+            int rangeEnd = lastRemovedPosition + 1;
+            for (int i = adPositions.size() - 1; i >= 0; --i) {
+                final int adPosition = adPositions.get(i);
+                notifyRangeRemoved(adPosition + 1, rangeEnd);
+                rangeEnd = adPosition;
+            }
+            notifyRangeRemoved(firstRemovedPosition, rangeEnd);
+            return;
+        }
+
+        // The ads stay where they are. This undoes what inserting the items would have done:
+        // ads after the new end are hidden, and the ads after the removed items are moved down
+        // past them before they are removed.
+        final int newAdjustedCount = mStreamAdPlacer.getAdjustedCount(newOriginalCount);
+        final List<Integer> hiddenAdPositions = getAdPositionsInRange(newAdjustedCount,
+                oldAdjustedCount);
+        for (int i = hiddenAdPositions.size() - 1; i >= 0; --i) {
+            notifyItemRemoved(hiddenAdPositions.get(i));
+        }
+        final List<Integer> adPositions = getAdPositionsInRange(adjustedStartPosition,
+                newAdjustedCount);
+        for (int i = adPositions.size() - 1; i >= 0; --i) {
+            final int adPosition = adPositions.get(i);
+            notifyItemMoved(adPosition, adPosition + itemsRemoved);
+        }
+        notifyItemRangeRemoved(adjustedStartPosition, itemsRemoved);
+    }
+
+    @VisibleForTesting
+    void handleItemRangeMoved(final int fromPosition, final int toPosition,
+            final int itemCount) {
+        // Move the items one at a time. When moving down, the first item goes last each time.
+        for (int i = 0; i < itemCount; i++) {
+            if (fromPosition > toPosition) {
+                moveItem(fromPosition + i, toPosition + i);
+            } else {
+                moveItem(fromPosition, toPosition + itemCount - 1);
+            }
+        }
+    }
+
+    private void moveItem(final int fromPosition, final int toPosition) {
+        final int adjustedFromPosition = mStreamAdPlacer.getAdjustedPosition(fromPosition);
+        if (KEEP_ADS_FIXED != mStrategy) {
+            final int originalCount = mOriginalAdapter.getItemCount();
+            final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(originalCount);
+            mStreamAdPlacer.moveItem(fromPosition, toPosition);
+
+            // Moving the last item away leaves the ads right before it at the end, where they
+            // aren't shown.
+            final int hiddenAdCount =
+                    oldAdjustedCount - mStreamAdPlacer.getAdjustedCount(originalCount);
+            notifyRangeRemoved(adjustedFromPosition - hiddenAdCount, adjustedFromPosition);
+            notifyItemMoved(adjustedFromPosition - hiddenAdCount,
+                    mStreamAdPlacer.getAdjustedPosition(toPosition));
+            return;
+        }
+
+        // The ads between the two positions were shifted by one when the item moved past them,
+        // so they are moved back, starting with the one next to the item's new position.
+        final int adjustedToPosition = mStreamAdPlacer.getAdjustedPosition(toPosition);
+        notifyItemMoved(adjustedFromPosition, adjustedToPosition);
+        if (adjustedFromPosition < adjustedToPosition) {
+            final List<Integer> adPositions = getAdPositionsInRange(adjustedFromPosition,
+                    adjustedToPosition);
+            for (int i = adPositions.size() - 1; i >= 0; --i) {
+                final int adPosition = adPositions.get(i);
+                notifyItemMoved(adPosition - 1, adPosition);
+            }
+        } else {
+            for (final int adPosition : getAdPositionsInRange(adjustedToPosition,
+                    adjustedFromPosition)) {
+                notifyItemMoved(adPosition + 1, adPosition);
+            }
+        }
+    }
+
+    /**
+     * Whether content changes move the ads after them, as opposed to leaving them where they are.
+     *
+     * @param atEnd Whether the change is at the end of the original adapter.
+     */
+    private boolean shouldMoveAds(final boolean atEnd) {
+        return MOVE_ALL_ADS_WITH_CONTENT == mStrategy || (INSERT_AT_END == mStrategy && !atEnd);
+    }
+
+    /**
+     * The position right after the given item and after no ads, which is where items inserted
+     * after it go.
+     */
+    private int getAdjustedPositionAfter(final int originalPosition) {
+        if (originalPosition < 0) {
+            return 0;
+        }
+        return mStreamAdPlacer.getAdjustedPosition(originalPosition) + 1;
+    }
+
+    /**
+     * The positions of the ads in [start, end), in increasing order.
+     */
+    @NonNull
+    private List<Integer> getAdPositionsInRange(final int start, final int end) {
+        final List<Integer> adPositions = new ArrayList<>();
+        int adPosition = mStreamAdPlacer.getNextAdPosition(start - 1);
+        while (adPosition != PlacementData.NOT_FOUND && adPosition < end) {
+            adPositions.add(adPosition);
+            adPosition = mStreamAdPlacer.getNextAdPosition(adPosition);
+        }
+        return adPositions;
+    }
+
+    private void notifyRangeChanged(final int start, final int end,
+            @Nullable final Object payload) {
+        if (start < end) {
+            notifyItemRangeChanged(start, end - start, payload);
+        }
+    }
+
+    private void notifyRangeRemoved(final int start, final int end) {
+        if (start < end) {
+            notifyItemRangeRemoved(start, end - start);
+        }
+    }
+
     private void handleVisibilityChanged(final List<View> visibleViews,
             final List<View> invisibleViews) {
         // Loop through all visible positions in order to build a max and min range, and then
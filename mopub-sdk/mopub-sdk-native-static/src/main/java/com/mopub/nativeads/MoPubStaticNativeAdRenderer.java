@@ -15,6 +15,7 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
 
 import static android.view.View.VISIBLE;
 
@@ -27,6 +28,8 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
     // This is used instead of View.setTag, which causes a memory leak in 2.3
     // and earlier: https://code.google.com/p/android/issues/detail?id=18273
     @VisibleForTesting @NonNull final WeakHashMap<View, StaticNativeViewHolder> mViewHolderMap;
+    @NonNull private final AdRendererTimings mTimings;
+    @NonNull private final AsyncAdViewInflater mAsyncAdViewInflater;
 
     /**
      * Constructs a native ad renderer with a view binder.
@@ -36,19 +39,82 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
     public MoPubStaticNativeAdRenderer(@NonNull final ViewBinder viewBinder) {
         mViewBinder = viewBinder;
         mViewHolderMap = new WeakHashMap<View, StaticNativeViewHolder>();
+        mTimings = new AdRendererTimings();
+        mAsyncAdViewInflater = new AsyncAdViewInflater(viewBinder, mTimings);
+    }
+
+    @VisibleForTesting
+    MoPubStaticNativeAdRenderer(@NonNull final ViewBinder viewBinder,
+            @NonNull final Executor inflationExecutor) {
+        mViewBinder = viewBinder;
+        mViewHolderMap = new WeakHashMap<View, StaticNativeViewHolder>();
+        mTimings = new AdRendererTimings();
+        mAsyncAdViewInflater = new AsyncAdViewInflater(viewBinder, mTimings, inflationExecutor);
+    }
+
+    /**
+     * Inflates ad views on a background thread, so that {@link #createAdView} can return one of
+     * them instead of inflating the layout on the main thread. Call this before ads are shown,
+     * for example right after setting up your stream, and the given number of views will be kept
+     * ready from then on.
+     *
+     * The views are inflated without the view factories of the context's inflater, like
+     * AsyncLayoutInflater does, so views in the layout aren't replaced by compat versions. If
+     * your layout relies on that, or can't be inflated off the main thread, don't prewarm it.
+     *
+     * @param context The context ad views will be created with, usually the activity.
+     * @param parent The view that ad views will be added to, such as your RecyclerView. This is
+     * only used to create the layout params of the ad views.
+     * @param count The number of ad views to keep ready. 0 stops prewarming.
+     *
+     * The views kept ready hold on to the context. {@link MoPubStreamAdPlacer#destroy()} drops
+     * them, and if you don't use one, call {@link #clearPrewarmedAdViews()} before the context is
+     * destroyed.
+     */
+    public void prewarmAdViews(@NonNull final Context context, @Nullable final ViewGroup parent,
+            final int count) {
+        Preconditions.checkNotNull(context);
+
+        mAsyncAdViewInflater.prewarm(context, parent, count);
+    }
+
+    /**
+     * Drops the ad views inflated by {@link #prewarmAdViews} and stops prewarming.
+     */
+    public void clearPrewarmedAdViews() {
+        mAsyncAdViewInflater.clear();
+    }
+
+    /**
+     * @return How long this renderer has spent creating and rendering ad views.
+     */
+    @NonNull
+    public AdRendererTimings getTimings() {
+        return mTimings;
     }
 
     @Override
     @NonNull
     public View createAdView(@NonNull final Context context, @Nullable final ViewGroup parent) {
-        return LayoutInflater
+        final AsyncAdViewInflater.InflatedView inflatedView = mAsyncAdViewInflater.poll(context);
+        if (inflatedView != null) {
+            mViewHolderMap.put(inflatedView.mView, inflatedView.mViewHolder);
+            mTimings.onPrewarmedViewUsed();
+            return inflatedView.mView;
+        }
+
+        final long startNanos = System.nanoTime();
+        final View view = LayoutInflater
                 .from(context)
                 .inflate(mViewBinder.layoutId, parent, false);
+        mTimings.onMainThreadInflate(System.nanoTime() - startNanos);
+        return view;
     }
 
     @Override
     public void renderAdView(@NonNull final View view,
             @NonNull final StaticNativeAd staticNativeAd) {
+        final long startNanos = System.nanoTime();
         StaticNativeViewHolder staticNativeViewHolder = mViewHolderMap.get(view);
         if (staticNativeViewHolder == null) {
             staticNativeViewHolder = StaticNativeViewHolder.fromViewBinder(view, mViewBinder);
@@ -60,6 +126,7 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
                 mViewBinder.extras,
                 staticNativeAd.getExtras());
         setViewVisibility(staticNativeViewHolder, VISIBLE);
+        mTimings.onRender(System.nanoTime() - startNanos);
     }
 
     @Override
@@ -75,10 +142,10 @@ public class MoPubStaticNativeAdRenderer implements MoPubAdRenderer<StaticNative
         NativeRendererHelper.addTextView(staticNativeViewHolder.textView, staticNativeAd.getText());
         NativeRendererHelper.addTextView(staticNativeViewHolder.callToActionView,
                 staticNativeAd.getCallToAction());
-        NativeImageHelper.loadImageView(staticNativeAd.getMainImageUrl(),
-                staticNativeViewHolder.mainImageView);
-        NativeImageHelper.loadImageView(staticNativeAd.getIconImageUrl(),
-                staticNativeViewHolder.iconImageView);
+        NativeImageHelper.loadMainImageView(staticNativeAd.getMainImageUrl(),
+                staticNativeViewHolder.mainImageView, staticNativeAd);
+        NativeImageHelper.loadIconImageView(staticNativeAd.getIconImageUrl(),
+                staticNativeViewHolder.iconImageView, staticNativeAd);
         NativeRendererHelper.addPrivacyInformationIcon(
                 staticNativeViewHolder.privacyInformationIconImageView,
                 staticNativeAd.getPrivacyInformationIconImageUrl(),
@@ -7,6 +7,7 @@ package com.mopub.nativeads;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.view.View;
@@ -85,8 +86,8 @@ public class MoPubStreamAdPlacer {
     private int mVisibleRangeEnd;
 
     private int mItemCount;
-    // A buffer around the visible range where we'll place ads if possible.
-    private static final int RANGE_BUFFER = 6;
+    // Decides how far after the visible range we'll place ads if possible.
+    @NonNull private final PlacementPlanner mPlacementPlanner;
     private boolean mNeedsPlacement;
 
     /**
@@ -159,6 +160,7 @@ public class MoPubStreamAdPlacer {
             }
         };
 
+        mPlacementPlanner = new PlacementPlanner();
         mVisibleRangeStart = 0;
         mVisibleRangeEnd = 0;
     }
@@ -202,6 +204,19 @@ public class MoPubStreamAdPlacer {
         mAdLoadedListener = (listener == null) ? EMPTY_NATIVE_AD_LOADED_LISTENER : listener;
     }
 
+    /**
+     * Sets how many ads the SDK may load ahead of your stream. By default one ad is cached and
+     * one ad is loaded at a time. With larger limits, while the stream is scrolled quickly, the
+     * SDK caches more ads and loads several at the same time so that ads are ready when their
+     * positions come into view. Otherwise, a single ad is cached.
+     *
+     * @param maxCachedAds The most ads to cache. Defaults to 1.
+     * @param maxRequestsInFlight The most ads to load at the same time. Defaults to 1.
+     */
+    public void setAdCacheLimits(final int maxCachedAds, final int maxRequestsInFlight) {
+        mAdSource.setCacheLimits(maxCachedAds, maxRequestsInFlight);
+    }
+
     /**
      * Start loading ads from the MoPub server.
      *
@@ -319,6 +334,10 @@ public class MoPubStreamAdPlacer {
      * again before ads are retrieved from the server, the new ads will show in the new positions
      * rather than the old positions.
      *
+     * Ads are also placed in the positions after the given range. The ad placer measures how fast
+     * the range moves between calls, so call this method each time the visible range changes; the
+     * faster your user scrolls down, the further ahead ads are placed.
+     *
      * You can pass any integer as a startPosition and endPosition for the range, including negative
      * numbers or numbers greater than the current stream item count. The ad placer will only place
      * ads between 0 and item count.
@@ -327,6 +346,7 @@ public class MoPubStreamAdPlacer {
      * @param endPosition The end of the range in which to place ads, exclusive.
      */
     public void placeAdsInRange(final int startPosition, final int endPosition) {
+        mPlacementPlanner.onVisibleRangeChanged(startPosition, SystemClock.uptimeMillis());
         mVisibleRangeStart = startPosition;
         mVisibleRangeEnd = Math.min(endPosition, startPosition + MAX_VISIBLE_RANGE);
         notifyNeedsPlacement();
@@ -372,6 +392,7 @@ public class MoPubStreamAdPlacer {
     public void destroy() {
         mPlacementHandler.removeMessages(0);
         mAdSource.clear();
+        mAdSource.clearPrewarmedAdViews();
         mPlacementData.clearAds();
     }
 
@@ -475,6 +496,17 @@ public class MoPubStreamAdPlacer {
         return clearedAdsCount;
     }
 
+    /**
+     * Returns the position of the first ad after the given position, or
+     * {@link PlacementData#NOT_FOUND} if there are no more ads.
+     *
+     * @param position The stream position, which doesn't need to be an ad.
+     * @return The stream position of the next ad.
+     */
+    int getNextAdPosition(final int position) {
+        return mPlacementData.nextPlacedAdPosition(position);
+    }
+
     /**
      * Returns the number of ad view types that can be placed by this ad placer. The number of
      * possible ad view types is currently 1, but this is subject to change in future SDK versions.
@@ -593,6 +625,19 @@ public class MoPubStreamAdPlacer {
         mPlacementData.insertItem(originalPosition);
     }
 
+    /**
+     * Inserts content rows at the given position, adjusting ad positions accordingly. This is
+     * the same as calling {@link #insertItem} {@code itemCount} times with the same position,
+     * but takes the same time no matter how many items are inserted.
+     *
+     * @param originalPosition The position at which to add the items. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items to insert.
+     */
+    public void insertItems(final int originalPosition, final int itemCount) {
+        mPlacementData.insertItems(originalPosition, itemCount);
+    }
+
     /**
      * Removes the content row at the given position, adjusting ad positions accordingly.
      *
@@ -614,6 +659,19 @@ public class MoPubStreamAdPlacer {
         mPlacementData.removeItem(originalPosition);
     }
 
+    /**
+     * Removes content rows starting at the given position, adjusting ad positions accordingly.
+     * This is the same as calling {@link #removeItem} {@code itemCount} times with the same
+     * position, but takes the same time no matter how many items are removed.
+     *
+     * @param originalPosition The position of the first item to remove. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items to remove.
+     */
+    public void removeItems(final int originalPosition, final int itemCount) {
+        mPlacementData.removeItems(originalPosition, itemCount);
+    }
+
     /**
      * Moves the content row at the given position adjusting ad positions accordingly.
      *
@@ -658,8 +716,10 @@ public class MoPubStreamAdPlacer {
 
         // Place ads after the visible range so that user will see an ad if they scroll down. We
         // don't place an ad before the visible range, because we are trying to be mindful of
-        // changes that will affect scrolling.
-        tryPlaceAdsInRange(mVisibleRangeEnd, mVisibleRangeEnd + RANGE_BUFFER);
+        // changes that will affect scrolling. The faster the user scrolls down, the further ahead
+        // we place ads, so that they are in place before they scroll into view.
+        tryPlaceAdsInRange(mVisibleRangeEnd,
+                mVisibleRangeEnd + mPlacementPlanner.getLookahead(SystemClock.uptimeMillis()));
     }
 
     /**
@@ -10,9 +10,11 @@ import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.mopub.common.Constants.AD_EXPIRATION_DELAY;
@@ -26,8 +28,12 @@ import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
  * a queue, so that the first ad loaded from the server will be the first ad available for dequeue.
  * To take an ad out of the cache, call {@link #dequeueAd}.
  *
- * The cache size may be automatically adjusted by the MoPub server based on an app's usage and
- * ad fill rate. Cached ads have a maximum TTL of 4 hours before which they expire.
+ * By default a single ad is cached. If larger limits are set with {@link #setCacheLimits}, the
+ * cache size adapts to how quickly ads are dequeued and how long ad requests take to fill: when
+ * ads are taken faster than a single request can replace them, more ads are cached and several
+ * requests are made in parallel, each with its own {@link MoPubNative}, up to those limits. When
+ * ads are taken slowly, or not at all, the cache goes back to a single ad. Cached ads have a
+ * maximum TTL of 4 hours before which they expire and are evicted.
  *
  * The ad source also takes care of retrying failed ad requests, with a reasonable back-off to
  * avoid spamming the server.
@@ -36,9 +42,19 @@ import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
  */
 class NativeAdSource {
     /**
-     * Number of ads to cache
+     * Fewest ads to keep cached, used until ads are dequeued quickly
      */
-    private static final int CACHE_LIMIT = 1;
+    private static final int MIN_CACHE_SIZE = 1;
+    // Cache one ad and make one request at a time unless larger limits are set.
+    @VisibleForTesting static final int DEFAULT_MAX_CACHE_SIZE = 1;
+    @VisibleForTesting static final int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 1;
+    /**
+     * If no ad has been dequeued for this long, the stream is considered idle and the cache goes
+     * back to {@link #MIN_CACHE_SIZE}.
+     */
+    @VisibleForTesting static final int IDLE_TIMEOUT_MILLISECONDS = 10 * 1000;
+    // Weight of each new sample in the moving averages, as a divisor.
+    private static final int MOVING_AVERAGE_WEIGHT = 4;
 
     private static final int EXPIRATION_TIME_MILLISECONDS = AD_EXPIRATION_DELAY;
     private static final int MAXIMUM_RETRY_TIME_MILLISECONDS = 5 * 60 * 1000; // 5 minutes.
@@ -48,9 +64,14 @@ class NativeAdSource {
     @NonNull private final Handler mReplenishCacheHandler;
     @NonNull private final Runnable mReplenishCacheRunnable;
     @NonNull private final MoPubNativeNetworkListener mMoPubNativeNetworkListener;
+    // Requests beyond the first are made with these, since each MoPubNative loads one ad at a time.
+    @NonNull private final List<ParallelRequest> mParallelRequests;
 
     @VisibleForTesting boolean mRequestInFlight;
+    private long mRequestStartTime;
+    private int mRequestSequenceNumber;
     @VisibleForTesting boolean mRetryInFlight;
+    // The sequence number of the next request. Every request in flight has its own.
     @VisibleForTesting int mSequenceNumber;
     @VisibleForTesting int mCurrentRetries;
 
@@ -59,9 +80,23 @@ class NativeAdSource {
     // We will need collections of these when we support multiple ad units.
     @Nullable private RequestParameters mRequestParameters;
     @Nullable private MoPubNative mMoPubNative;
+    @Nullable private MoPubNativeProvider mMoPubNativeProvider;
 
     @NonNull private final AdRendererRegistry mAdRendererRegistry;
 
+    private int mMaxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    private int mMaxRequestsInFlight = DEFAULT_MAX_REQUESTS_IN_FLIGHT;
+
+    // Moving averages of the time between dequeues and the time a request takes to fill. 0 until
+    // there is a sample.
+    @VisibleForTesting long mDequeueIntervalMillis;
+    @VisibleForTesting long mFillLatencyMillis;
+    private long mLastDequeueTime;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mExpiredCount;
+
     /**
      * A listener for when ads are available for dequeueing.
      */
@@ -72,8 +107,16 @@ class NativeAdSource {
         void onAdsAvailable();
     }
 
+    /**
+     * Makes the additional {@link MoPubNative}s used to request ads in parallel.
+     */
+    interface MoPubNativeProvider {
+        @NonNull
+        MoPubNative newMoPubNative(@NonNull MoPubNativeNetworkListener moPubNativeNetworkListener);
+    }
+
     NativeAdSource() {
-        this(new ArrayList<TimestampWrapper<NativeAd>>(CACHE_LIMIT),
+        this(new ArrayList<TimestampWrapper<NativeAd>>(DEFAULT_MAX_CACHE_SIZE),
                 new Handler(),
                 new AdRendererRegistry());
     }
@@ -83,6 +126,7 @@ class NativeAdSource {
             @NonNull final Handler replenishCacheHandler,
             @NonNull AdRendererRegistry adRendererRegistry) {
         mNativeAdCache = nativeAdCache;
+        mParallelRequests = new ArrayList<ParallelRequest>();
         mReplenishCacheHandler = replenishCacheHandler;
         mReplenishCacheRunnable = new Runnable() {
             @Override
@@ -105,32 +149,14 @@ class NativeAdSource {
                 }
 
                 mRequestInFlight = false;
-                mSequenceNumber++;
-                resetRetryTime();
-
-                mNativeAdCache.add(new TimestampWrapper<NativeAd>(nativeAd));
-                if (mNativeAdCache.size() == 1 && mAdSourceListener != null) {
-                    mAdSourceListener.onAdsAvailable();
-                }
-
-                replenishCache();
+                onAdLoaded(nativeAd, mRequestStartTime);
             }
 
             @Override
             public void onNativeFail(final NativeErrorCode errorCode) {
                 // Reset the retry time for the next time we dequeue.
                 mRequestInFlight = false;
-
-                // Stopping requests after the max retry count prevents us from using battery when
-                // the user is not interacting with the stream, eg. the app is backgrounded.
-                if (mCurrentRetries >= RETRY_TIME_ARRAY_MILLISECONDS.length - 1) {
-                    resetRetryTime();
-                    return;
-                }
-
-                updateRetryTime();
-                mRetryInFlight = true;
-                mReplenishCacheHandler.postDelayed(mReplenishCacheRunnable, getRetryTime());
+                onAdFailed(mRequestSequenceNumber);
             }
         };
 
@@ -156,6 +182,21 @@ class NativeAdSource {
         if (mMoPubNative != null) {
             mMoPubNative.registerAdRenderer(moPubNativeAdRenderer);
         }
+        for (final ParallelRequest parallelRequest : mParallelRequests) {
+            parallelRequest.mMoPubNative.registerAdRenderer(moPubNativeAdRenderer);
+        }
+    }
+
+    /**
+     * Drops the ad views prewarmed by the registered renderers, which hold on to the context they
+     * were inflated with.
+     */
+    void clearPrewarmedAdViews() {
+        for (final MoPubAdRenderer renderer : mAdRendererRegistry.getRendererIterable()) {
+            if (renderer instanceof MoPubStaticNativeAdRenderer) {
+                ((MoPubStaticNativeAdRenderer) renderer).clearPrewarmedAdViews();
+            }
+        }
     }
 
     @Nullable
@@ -171,15 +212,47 @@ class NativeAdSource {
         mAdSourceListener = adSourceListener;
     }
 
+    /**
+     * Sets how far the cache may grow when ads are dequeued quickly. Both default to 1, which
+     * caches a single ad and makes one request at a time.
+     *
+     * @param maxCacheSize Most ads to keep cached, at least 1.
+     * @param maxRequestsInFlight Most ad requests to make at the same time, at least 1.
+     */
+    void setCacheLimits(final int maxCacheSize, final int maxRequestsInFlight) {
+        mMaxCacheSize = Math.max(MIN_CACHE_SIZE, maxCacheSize);
+        mMaxRequestsInFlight = Math.max(1, maxRequestsInFlight);
+    }
+
     void loadAds(@NonNull final Activity activity,
             @NonNull final String adUnitId,
             final RequestParameters requestParameters) {
-        loadAds(requestParameters, new MoPubNative(activity, adUnitId, mMoPubNativeNetworkListener));
+        loadAds(requestParameters,
+                new MoPubNative(activity, adUnitId, mMoPubNativeNetworkListener),
+                new MoPubNativeProvider() {
+                    @NonNull
+                    @Override
+                    public MoPubNative newMoPubNative(
+                            @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                        return new MoPubNative(activity, adUnitId, moPubNativeNetworkListener);
+                    }
+                });
     }
 
     @VisibleForTesting
     void loadAds(final RequestParameters requestParameters,
              final MoPubNative moPubNative) {
+        loadAds(requestParameters, moPubNative, null);
+    }
+
+    /**
+     * @param moPubNativeProvider Makes the {@link MoPubNative}s for parallel requests, or
+     *                            {@code null} to only make one request at a time.
+     */
+    @VisibleForTesting
+    void loadAds(final RequestParameters requestParameters,
+            final MoPubNative moPubNative,
+            @Nullable final MoPubNativeProvider moPubNativeProvider) {
         clear();
 
         for (MoPubAdRenderer renderer : mAdRendererRegistry.getRendererIterable()) {
@@ -188,6 +261,7 @@ class NativeAdSource {
 
         mRequestParameters = requestParameters;
         mMoPubNative = moPubNative;
+        mMoPubNativeProvider = moPubNativeProvider;
 
         replenishCache();
     }
@@ -201,6 +275,11 @@ class NativeAdSource {
             mMoPubNative.destroy();
             mMoPubNative = null;
         }
+        for (final ParallelRequest parallelRequest : mParallelRequests) {
+            parallelRequest.mMoPubNative.destroy();
+        }
+        mParallelRequests.clear();
+        mMoPubNativeProvider = null;
 
         mRequestParameters = null;
 
@@ -213,6 +292,10 @@ class NativeAdSource {
         mRequestInFlight = false;
         mSequenceNumber = 0;
         resetRetryTime();
+
+        mDequeueIntervalMillis = 0;
+        mFillLatencyMillis = 0;
+        mLastDequeueTime = 0;
     }
 
     /**
@@ -229,8 +312,13 @@ class NativeAdSource {
     NativeAd dequeueAd() {
         final long now = SystemClock.uptimeMillis();
 
+        if (mLastDequeueTime > 0 && now - mLastDequeueTime < IDLE_TIMEOUT_MILLISECONDS) {
+            mDequeueIntervalMillis = movingAverage(mDequeueIntervalMillis, now - mLastDequeueTime);
+        }
+        mLastDequeueTime = now;
+
         // Starting an ad request takes several millis. Post for performance reasons.
-        if (!mRequestInFlight && !mRetryInFlight) {
+        if (!mRetryInFlight && (!mRequestInFlight || canRequestInParallel())) {
             mReplenishCacheHandler.post(mReplenishCacheRunnable);
         }
 
@@ -239,12 +327,58 @@ class NativeAdSource {
             TimestampWrapper<NativeAd> responseWrapper = mNativeAdCache.remove(0);
 
             if (now - responseWrapper.mCreatedTimestamp < EXPIRATION_TIME_MILLISECONDS) {
+                mHitCount++;
                 return responseWrapper.mInstance;
             }
+            mExpiredCount++;
+            responseWrapper.mInstance.destroy();
         }
+        mMissCount++;
         return null;
     }
 
+    /**
+     * @return Number of times {@link #dequeueAd()} returned an ad.
+     */
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return Number of times {@link #dequeueAd()} had no ad to return.
+     */
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return Number of cached ads that expired before they were dequeued.
+     */
+    int getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    /**
+     * Number of ads to keep cached, which is enough to cover the time a request takes to fill at
+     * the rate ads are being dequeued.
+     */
+    @VisibleForTesting
+    int getTargetCacheSize() {
+        if (mDequeueIntervalMillis <= 0 || mFillLatencyMillis <= 0) {
+            return MIN_CACHE_SIZE;
+        }
+
+        final long sinceLastDequeue = SystemClock.uptimeMillis() - mLastDequeueTime;
+        if (sinceLastDequeue >= IDLE_TIMEOUT_MILLISECONDS) {
+            return MIN_CACHE_SIZE;
+        }
+
+        // A pause in dequeueing slows the rate down before the next dequeue is measured.
+        final long dequeueInterval = Math.max(mDequeueIntervalMillis, sinceLastDequeue);
+        final long adsPerFill = (mFillLatencyMillis + dequeueInterval - 1) / dequeueInterval;
+        return (int) Math.max(MIN_CACHE_SIZE, Math.min(mMaxCacheSize, adsPerFill));
+    }
+
     @VisibleForTesting
     void updateRetryTime() {
         if (mCurrentRetries < RETRY_TIME_ARRAY_MILLISECONDS.length - 1) {
@@ -272,9 +406,149 @@ class NativeAdSource {
      */
     @VisibleForTesting
     void replenishCache() {
-        if (!mRequestInFlight && mMoPubNative != null && mNativeAdCache.size() < CACHE_LIMIT) {
+        evictExpiredAds();
+
+        if (!mRequestInFlight && mMoPubNative != null
+                && mNativeAdCache.size() < getTargetCacheSize()) {
             mRequestInFlight = true;
-            mMoPubNative.makeRequest(mRequestParameters, mSequenceNumber);
+            mRequestStartTime = SystemClock.uptimeMillis();
+            mRequestSequenceNumber = mSequenceNumber++;
+            mMoPubNative.makeRequest(mRequestParameters, mRequestSequenceNumber);
+        }
+
+        while (canRequestInParallel()) {
+            ParallelRequest idleRequest = null;
+            for (final ParallelRequest parallelRequest : mParallelRequests) {
+                if (!parallelRequest.mInFlight) {
+                    idleRequest = parallelRequest;
+                    break;
+                }
+            }
+            if (idleRequest == null) {
+                idleRequest = new ParallelRequest();
+                mParallelRequests.add(idleRequest);
+            }
+
+            idleRequest.mInFlight = true;
+            idleRequest.mRequestStartTime = SystemClock.uptimeMillis();
+            idleRequest.mRequestSequenceNumber = mSequenceNumber++;
+            idleRequest.mMoPubNative.makeRequest(mRequestParameters,
+                    idleRequest.mRequestSequenceNumber);
+        }
+    }
+
+    private boolean canRequestInParallel() {
+        if (mMoPubNativeProvider == null || mMoPubNative == null || mRetryInFlight) {
+            return false;
+        }
+        final int requestsInFlight = getRequestsInFlight();
+        return requestsInFlight > 0 && requestsInFlight < mMaxRequestsInFlight
+                && mNativeAdCache.size() + requestsInFlight < getTargetCacheSize();
+    }
+
+    private int getRequestsInFlight() {
+        int requestsInFlight = mRequestInFlight ? 1 : 0;
+        for (final ParallelRequest parallelRequest : mParallelRequests) {
+            if (parallelRequest.mInFlight) {
+                requestsInFlight++;
+            }
+        }
+        return requestsInFlight;
+    }
+
+    private void evictExpiredAds() {
+        final long now = SystemClock.uptimeMillis();
+        final Iterator<TimestampWrapper<NativeAd>> iterator = mNativeAdCache.iterator();
+        while (iterator.hasNext()) {
+            final TimestampWrapper<NativeAd> timestampWrapper = iterator.next();
+            if (now - timestampWrapper.mCreatedTimestamp >= EXPIRATION_TIME_MILLISECONDS) {
+                iterator.remove();
+                mExpiredCount++;
+                timestampWrapper.mInstance.destroy();
+            }
+        }
+    }
+
+    private void onAdLoaded(@NonNull final NativeAd nativeAd, final long requestStartTime) {
+        resetRetryTime();
+        mFillLatencyMillis = movingAverage(mFillLatencyMillis,
+                SystemClock.uptimeMillis() - requestStartTime);
+
+        mNativeAdCache.add(new TimestampWrapper<NativeAd>(nativeAd));
+        if (mNativeAdCache.size() == 1 && mAdSourceListener != null) {
+            mAdSourceListener.onAdsAvailable();
+        }
+
+        replenishCache();
+    }
+
+    /**
+     * @param sequenceNumber The sequence number of the request that failed.
+     */
+    private void onAdFailed(final int sequenceNumber) {
+        // No ad was loaded for this number, so the next request can ask for it again, as long as
+        // no later number has been handed out.
+        if (sequenceNumber == mSequenceNumber - 1) {
+            mSequenceNumber = sequenceNumber;
+        }
+
+        // Another request already failed and scheduled the retry.
+        if (mRetryInFlight) {
+            return;
+        }
+
+        // Stopping requests after the max retry count prevents us from using battery when
+        // the user is not interacting with the stream, eg. the app is backgrounded.
+        if (mCurrentRetries >= RETRY_TIME_ARRAY_MILLISECONDS.length - 1) {
+            resetRetryTime();
+            return;
+        }
+
+        updateRetryTime();
+        mRetryInFlight = true;
+        mReplenishCacheHandler.postDelayed(mReplenishCacheRunnable, getRetryTime());
+    }
+
+    private static long movingAverage(final long average, final long sample) {
+        if (average <= 0) {
+            return Math.max(1, sample);
+        }
+        return Math.max(1, average + (sample - average) / MOVING_AVERAGE_WEIGHT);
+    }
+
+    /**
+     * An additional {@link MoPubNative} and whether it is loading an ad.
+     */
+    private class ParallelRequest {
+        @NonNull final MoPubNative mMoPubNative;
+        boolean mInFlight;
+        long mRequestStartTime;
+        int mRequestSequenceNumber;
+
+        ParallelRequest() {
+            Preconditions.checkNotNull(mMoPubNativeProvider);
+
+            mMoPubNative = mMoPubNativeProvider.newMoPubNative(new MoPubNativeNetworkListener() {
+                @Override
+                public void onNativeLoad(@NonNull final NativeAd nativeAd) {
+                    // Drop responses that arrive after the ad source was cleared.
+                    if (NativeAdSource.this.mMoPubNative == null) {
+                        return;
+                    }
+
+                    mInFlight = false;
+                    onAdLoaded(nativeAd, mRequestStartTime);
+                }
+
+                @Override
+                public void onNativeFail(final NativeErrorCode errorCode) {
+                    mInFlight = false;
+                    onAdFailed(mRequestSequenceNumber);
+                }
+            });
+            for (final MoPubAdRenderer renderer : mAdRendererRegistry.getRendererIterable()) {
+                mMoPubNative.registerAdRenderer(renderer);
+            }
         }
     }
 
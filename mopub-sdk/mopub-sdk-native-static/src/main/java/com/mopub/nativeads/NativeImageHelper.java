@@ -5,29 +5,38 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.nativeads.CustomEventNative.CustomEventNativeListener;
 import com.mopub.network.Networking;
 import com.mopub.volley.VolleyError;
 import com.mopub.volley.toolbox.ImageLoader;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
 
 /**
  * Collection of helper methods to assist with image downloading and displaying
  */
 public class NativeImageHelper {
+    // The widths the main image and the icon were last shown at, so that the images of later ads
+    // are precached at the size they will be shown at. 0 until an ad has been shown, which
+    // precaches at the full width.
+    private static int sMainImageWidth;
+    private static int sIconImageWidth;
 
     public interface ImageListener {
         /**
@@ -45,6 +54,69 @@ public class NativeImageHelper {
         void onImagesFailedToCache(NativeErrorCode errorCode);
     }
 
+    /**
+     * Cancels the precaching of one ad's images. Returned by {@link #preCacheImages}.
+     */
+    public static class PreCacheToken {
+        @NonNull private final ImagePrecacheQueue mQueue;
+        @NonNull final ImageLoader mImageLoader;
+        @NonNull private final ImageListener mImageListener;
+        @Nullable private final BaseNativeAd mNativeAd;
+        private int mRemainingImageCount;
+        private boolean mIsFinished;
+        private boolean mIsCancelled;
+
+        PreCacheToken(@NonNull final ImagePrecacheQueue queue,
+                @NonNull final ImageLoader imageLoader,
+                @NonNull final ImageListener imageListener,
+                @Nullable final BaseNativeAd nativeAd,
+                final int imageCount) {
+            mQueue = queue;
+            mImageLoader = imageLoader;
+            mImageListener = imageListener;
+            mNativeAd = nativeAd;
+            mRemainingImageCount = imageCount;
+        }
+
+        /**
+         * Stops requesting the images that haven't been cached yet. The {@link ImageListener} is
+         * not called after this.
+         */
+        public void cancel() {
+            if (mIsFinished || mIsCancelled) {
+                return;
+            }
+            mIsCancelled = true;
+            mQueue.cancel(this);
+        }
+
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        void onImageCached(@NonNull final String url, @NonNull final Bitmap bitmap) {
+            if (mIsFinished || mIsCancelled) {
+                return;
+            }
+
+            recordDecodedImage(mNativeAd, url, bitmap);
+            mRemainingImageCount--;
+            if (mRemainingImageCount == 0) {
+                mIsFinished = true;
+                mImageListener.onImagesCached();
+            }
+        }
+
+        void onImageFailed() {
+            if (mIsFinished || mIsCancelled) {
+                return;
+            }
+
+            mIsFinished = true;
+            mImageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        }
+    }
+
     /**
      * Pre caches the given set of image urls. We recommend using this method to warm the image
      * cache before calling {@link CustomEventNativeListener#onNativeAdLoaded}. Doing so will
@@ -53,43 +125,109 @@ public class NativeImageHelper {
     public static void preCacheImages(@NonNull final Context context,
             @NonNull final List<String> imageUrls,
             @NonNull final ImageListener imageListener) {
-        final ImageLoader imageLoader = Networking.getImageLoader(context);
-        // These Atomics are only accessed on the main thread.
-        // We use Atomics here so we can change their values while keeping a reference for the inner class.
-        final AtomicInteger imageCounter = new AtomicInteger(imageUrls.size());
-        final AtomicBoolean anyFailures = new AtomicBoolean(false);
-        ImageLoader.ImageListener volleyImageListener = new ImageLoader.ImageListener() {
-            @Override
-            public void onResponse(final ImageLoader.ImageContainer imageContainer, final boolean isImmediate) {
-                // Image Loader returns a "default" response immediately. We want to ignore this
-                // unless the image is already cached.
-                if (imageContainer.getBitmap() != null) {
-                    final int count = imageCounter.decrementAndGet();
-                    if (count == 0 && !anyFailures.get()) {
-                        imageListener.onImagesCached();
-                    }
-                }
-            }
+        preCacheImages(context, imageUrls, Collections.<String>emptySet(), imageListener, null);
+    }
 
-            @Override
-            public void onErrorResponse(final VolleyError volleyError) {
-                MoPubLog.log(ERROR, "Failed to download a native ads image:", volleyError);
-                boolean anyPreviousErrors = anyFailures.getAndSet(true);
-                imageCounter.decrementAndGet();
-                if (!anyPreviousErrors) {
-                    imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
-                }
-            }
-        };
+    /**
+     * Pre caches the given set of image urls for a native ad at the full width. See
+     * {@link #preCacheImages(Context, List, Collection, Map, ImageListener, BaseNativeAd)}.
+     */
+    @NonNull
+    public static PreCacheToken preCacheImages(@NonNull final Context context,
+            @NonNull final List<String> imageUrls,
+            @NonNull final Collection<String> lowPriorityImageUrls,
+            @NonNull final ImageListener imageListener,
+            @Nullable final BaseNativeAd nativeAd) {
+        return preCacheImages(context, imageUrls, lowPriorityImageUrls,
+                Collections.<String, Integer>emptyMap(), imageListener, nativeAd);
+    }
+
+    /**
+     * Pre caches the given set of image urls for a native ad. Images are requested a few at a
+     * time across all ads, and the first image that fails fails the ad and stops the requests for
+     * its other images. The size of the decoded images is recorded on the ad, see
+     * {@link BaseNativeAd#getDecodedImageBytes()}, and invalidating the ad cancels the requests.
+     *
+     * @param lowPriorityImageUrls urls in {@code imageUrls} that are only requested once the
+     *                             other images of all ads have been requested, such as privacy
+     *                             information icons
+     * @param imageWidths          the widths to decode images in {@code imageUrls} at, such as
+     *                             the ones from {@link #getPreCacheImageWidths}. Other images are
+     *                             decoded at the full width.
+     * @return a token that cancels the requests
+     */
+    @NonNull
+    public static PreCacheToken preCacheImages(@NonNull final Context context,
+            @NonNull final List<String> imageUrls,
+            @NonNull final Collection<String> lowPriorityImageUrls,
+            @NonNull final Map<String, Integer> imageWidths,
+            @NonNull final ImageListener imageListener,
+            @Nullable final BaseNativeAd nativeAd) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(imageUrls);
+        Preconditions.checkNotNull(lowPriorityImageUrls);
+        Preconditions.checkNotNull(imageWidths);
+        Preconditions.checkNotNull(imageListener);
 
-        for (String url : imageUrls) {
+        final ImagePrecacheQueue queue = ImagePrecacheQueue.getInstance();
+        final PreCacheToken token = new PreCacheToken(queue, Networking.getImageLoader(context),
+                imageListener, nativeAd, imageUrls.size());
+        for (final String url : imageUrls) {
             if (TextUtils.isEmpty(url)) {
-                anyFailures.set(true);
-                imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
-                return;
+                token.onImageFailed();
+                return token;
             }
-            imageLoader.get(url, volleyImageListener);
         }
+
+        if (nativeAd != null) {
+            nativeAd.setPreCacheToken(token);
+        }
+        queue.add(token, imageUrls, lowPriorityImageUrls, imageWidths);
+        return token;
+    }
+
+    /**
+     * The widths the main image and the icon of an ad were last shown at by
+     * {@link #loadMainImageView} and {@link #loadIconImageView}, so that they can be precached at
+     * the size they will be shown at.
+     *
+     * @return the widths by url, without the images that haven't been shown yet
+     */
+    @NonNull
+    public static Map<String, Integer> getPreCacheImageWidths(@Nullable final String mainImageUrl,
+            @Nullable final String iconImageUrl) {
+        final Map<String, Integer> imageWidths = new HashMap<String, Integer>();
+        if (!TextUtils.isEmpty(mainImageUrl) && sMainImageWidth > 0) {
+            imageWidths.put(mainImageUrl, sMainImageWidth);
+        }
+        if (!TextUtils.isEmpty(iconImageUrl) && sIconImageWidth > 0) {
+            imageWidths.put(iconImageUrl, sIconImageWidth);
+        }
+        return imageWidths;
+    }
+
+    /**
+     * Loads the main image of an ad, and remembers the width it is shown at for precaching the
+     * main images of later ads. See {@link #loadImageView(String, ImageView, BaseNativeAd)}.
+     */
+    public static void loadMainImageView(@Nullable final String url,
+            @Nullable final ImageView imageView, @Nullable final BaseNativeAd nativeAd) {
+        if (imageView != null) {
+            sMainImageWidth = getTargetWidth(imageView);
+        }
+        loadImageView(url, imageView, nativeAd);
+    }
+
+    /**
+     * Loads the icon of an ad, and remembers the width it is shown at for precaching the icons of
+     * later ads. See {@link #loadImageView(String, ImageView, BaseNativeAd)}.
+     */
+    public static void loadIconImageView(@Nullable final String url,
+            @Nullable final ImageView imageView, @Nullable final BaseNativeAd nativeAd) {
+        if (imageView != null) {
+            sIconImageWidth = getTargetWidth(imageView);
+        }
+        loadImageView(url, imageView, nativeAd);
     }
 
     /**
@@ -99,6 +237,21 @@ public class NativeImageHelper {
      * @param imageView The image view into which to load the image
      */
     public static void loadImageView(@Nullable final String url, @Nullable final ImageView imageView) {
+        loadImageView(url, imageView, null);
+    }
+
+    /**
+     * Helper method that takes an image url and loads the image into an image view. The image is
+     * decoded at the width of the image view, once it has been laid out, or at the width of its
+     * layout params, so that small views such as icons don't hold full size images.
+     *
+     * @param url The image url
+     * @param imageView The image view into which to load the image
+     * @param nativeAd The native ad the image belongs to, which the size of the decoded image is
+     *                 recorded on. See {@link BaseNativeAd#getDecodedImageBytes()}.
+     */
+    public static void loadImageView(@Nullable final String url, @Nullable final ImageView imageView,
+            @Nullable final BaseNativeAd nativeAd) {
         if (!Preconditions.NoThrow.checkNotNull(imageView, "Cannot load image into null ImageView")) {
             return;
         }
@@ -116,6 +269,7 @@ public class NativeImageHelper {
                 if (!isImmediate) {
                     MoPubLog.log(CUSTOM, "Image was not loaded immediately into your ad view. You should call preCacheImages as part of your custom event loading process.");
                 }
+                recordDecodedImage(nativeAd, url, imageContainer.getBitmap());
                 imageView.setImageBitmap(imageContainer.getBitmap());
             }
 
@@ -124,6 +278,42 @@ public class NativeImageHelper {
                 MoPubLog.log(CUSTOM, "Failed to load image.", volleyError);
                 imageView.setImageDrawable(null);
             }
-        });
+        }, getTargetWidth(imageView), 0 /* no height limit, so cropped images stay sharp */);
+    }
+
+    /**
+     * The width to decode an image shown in the given view at.
+     *
+     * @return the width in pixels, or 0 if it isn't known yet
+     */
+    @VisibleForTesting
+    static int getTargetWidth(@NonNull final ImageView imageView) {
+        if (imageView.getWidth() > 0) {
+            return imageView.getWidth();
+        }
+
+        final ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+        if (layoutParams != null && layoutParams.width > 0) {
+            return layoutParams.width;
+        }
+        return 0;
+    }
+
+    @VisibleForTesting
+    public static void clearPreCacheQueueForTesting() {
+        ImagePrecacheQueue.clearForTesting();
+        sMainImageWidth = 0;
+        sIconImageWidth = 0;
+    }
+
+    private static void recordDecodedImage(@Nullable final BaseNativeAd nativeAd,
+            @Nullable final String url, @Nullable final Bitmap bitmap) {
+        if (nativeAd == null || url == null || bitmap == null) {
+            return;
+        }
+
+        nativeAd.setDecodedImageBytes(url, bitmap.getByteCount());
+        MoPubLog.log(CUSTOM, "Native ad images decoded: " + nativeAd.getDecodedImageBytes()
+                + " bytes");
     }
 }
@@ -119,10 +119,16 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * originalPositions: {3}
  * adjustedPositions: {3}
  *
- * Some runtime guarantees in terms of number of insertion ads:
+ * Repeating insertion positions are added to the desired positions as they are needed, so there
+ * is no limit on the number of ads in a stream.
+ *
+ * Both the desired and the placed positions are kept in a {@link PlacementTree}. Some runtime
+ * guarantees in terms of number of insertion ads:
  * - Finds the next or previous insertion position in O(logN)
  * - Maps from adjusted to original positions and vice versa in O(logN)
- * - Places an ad (moves positions from desired to placed) in O(N)
+ * - Places an ad (moves positions from desired to placed) in O(logN)
+ * - Inserts or removes any number of content items in O(logN), plus O(logN) for each ad
+ *   position inside a removed range
  */
 class PlacementData {
     /**
@@ -130,27 +136,29 @@ class PlacementData {
      */
     public final static int NOT_FOUND = -1;
 
-    // Cap the number of ads to avoid unrestrained memory usage. 200 allows the 5 positioning
-    // arrays to fit in less than 4K.
-    private final static int MAX_ADS = 200;
+    @NonNull private final PlacementTree mDesiredPositions = new PlacementTree();
+    @NonNull private final PlacementTree mPlacedAds = new PlacementTree();
 
-    // Initialize all of these to their max capacity. This prevents garbage collection when
-    // reallocating the list, which causes noticeable stuttering when scrolling on some devices.
-    @NonNull private final int[] mDesiredOriginalPositions = new int[MAX_ADS];
-    @NonNull private final int[] mDesiredInsertionPositions = new int[MAX_ADS];
-    private int mDesiredCount = 0;
-    @NonNull private final int[] mOriginalAdPositions = new int[MAX_ADS];
-    @NonNull private final int[] mAdjustedAdPositions = new int[MAX_ADS];
-    @NonNull private final NativeAd[] mNativeAds = new NativeAd[MAX_ADS];
-    private int mPlacedCount = 0;
+    // Repeating positions after the ones that have been added to the desired positions are
+    // mRepeatingInterval - 1 items apart, starting at mNextRepeatingPosition. The next position
+    // moves with inserted and removed items just as the desired positions do.
+    private final int mRepeatingInterval;
+    private int mNextRepeatingPosition;
 
     /**
      * @param desiredInsertionPositions Insertion positions, expressed as original positions
+     * @param repeatingInterval         The repeating interval, or
+     *                                  {@link MoPubClientPositioning#NO_REPEAT}
+     * @param nextRepeatingPosition     The first repeating insertion position after the given
+     *                                  ones, expressed as an original position
      */
-    private PlacementData(@NonNull final int[] desiredInsertionPositions) {
-        mDesiredCount = Math.min(desiredInsertionPositions.length, MAX_ADS);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredInsertionPositions, 0, mDesiredCount);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredOriginalPositions, 0, mDesiredCount);
+    private PlacementData(@NonNull final int[] desiredInsertionPositions,
+            final int repeatingInterval, final int nextRepeatingPosition) {
+        for (final int position : desiredInsertionPositions) {
+            mDesiredPositions.insert(mDesiredPositions.size(), position, position, null);
+        }
+        mRepeatingInterval = repeatingInterval;
+        mNextRepeatingPosition = nextRepeatingPosition;
     }
 
     @NonNull
@@ -158,8 +166,7 @@ class PlacementData {
         final List<Integer> fixed = adPositioning.getFixedPositions();
         final int interval = adPositioning.getRepeatingInterval();
 
-        final int size = (interval == MoPubClientPositioning.NO_REPEAT ? fixed.size() : MAX_ADS);
-        final int[] desiredInsertionPositions = new int[size];
+        final int[] desiredInsertionPositions = new int[fixed.size()];
 
         // Fixed positions are in terms of final positions. Calculate current insertion positions
         // by decrementing numAds at each index.
@@ -170,25 +177,23 @@ class PlacementData {
             desiredInsertionPositions[numAds++] = lastPos;
         }
 
-        // Expand the repeating positions, if there are any
-        while (numAds < size) {
-            lastPos = lastPos + interval - 1;
-            desiredInsertionPositions[numAds++] = lastPos;
-        }
-        return new PlacementData(desiredInsertionPositions);
+        // The repeating positions are added as they are needed
+        return new PlacementData(desiredInsertionPositions, interval, lastPos + interval - 1);
     }
 
     @NonNull
     static PlacementData empty() {
-        return new PlacementData(new int[] {});
+        return new PlacementData(new int[] {}, MoPubClientPositioning.NO_REPEAT, 0);
     }
 
     /**
      * Whether the given position should be an ad.
      */
     boolean shouldPlaceAd(final int position) {
-        final int index = binarySearch(mDesiredInsertionPositions, 0, mDesiredCount, position);
-        return index >= 0;
+        addRepeatingPositionsThrough(position);
+        final int index = mDesiredPositions.indexOfFirstAtLeast(true, position);
+        return index < mDesiredPositions.size()
+                && mDesiredPositions.getAdjustedPosition(index) == position;
     }
 
     /**
@@ -196,12 +201,16 @@ class PlacementData {
      * more ads.
      */
     int nextInsertionPosition(final int position) {
-        final int index = binarySearchGreaterThan(
-                mDesiredInsertionPositions, mDesiredCount, position);
-        if (index == mDesiredCount) {
-            return NOT_FOUND;
+        addRepeatingPositionsThrough(position);
+        int index = mDesiredPositions.indexOfFirstGreaterThan(true, position);
+        if (index == mDesiredPositions.size()) {
+            if (!isRepeating()) {
+                return NOT_FOUND;
+            }
+            // The next repeating position is after this position
+            addNextRepeatingPosition();
         }
-        return mDesiredInsertionPositions[index];
+        return mDesiredPositions.getAdjustedPosition(index);
     }
 
     /**
@@ -209,67 +218,46 @@ class PlacementData {
      * are no more ads.
      */
     int previousInsertionPosition(final int position) {
-        final int index = binarySearchFirstEquals(
-                mDesiredInsertionPositions,  mDesiredCount, position);
+        addRepeatingPositionsThrough(position);
+        final int index = mDesiredPositions.indexOfFirstAtLeast(true, position);
         if (index == 0) {
             return NOT_FOUND;
         }
-        return mDesiredInsertionPositions[index - 1];
+        return mDesiredPositions.getAdjustedPosition(index - 1);
     }
 
     /**
      * Sets ad data at the given position.
      */
     void placeAd(final int adjustedPosition, final NativeAd nativeAd) {
+        addRepeatingPositionsThrough(adjustedPosition);
+
         // See if this is a insertion ad
-        final int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, adjustedPosition);
-        if (desiredIndex == mDesiredCount
-                || mDesiredInsertionPositions[desiredIndex] != adjustedPosition) {
+        final int desiredIndex = mDesiredPositions.indexOfFirstAtLeast(true, adjustedPosition);
+        if (desiredIndex == mDesiredPositions.size()
+                || mDesiredPositions.getAdjustedPosition(desiredIndex) != adjustedPosition) {
             MoPubLog.log(CUSTOM, "Attempted to insert an ad at an invalid position");
             return;
         }
 
-        // Add to placed array
-        final int originalPosition = mDesiredOriginalPositions[desiredIndex];
-        int placeIndex = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        if (placeIndex < mPlacedCount) {
-            final int num = mPlacedCount - placeIndex;
-            System.arraycopy(mOriginalAdPositions, placeIndex,
-                    mOriginalAdPositions, placeIndex + 1, num);
-            System.arraycopy(mAdjustedAdPositions, placeIndex,
-                    mAdjustedAdPositions, placeIndex + 1, num);
-            System.arraycopy(mNativeAds, placeIndex, mNativeAds, placeIndex + 1, num);
-        }
-        mOriginalAdPositions[placeIndex] = originalPosition;
-        mAdjustedAdPositions[placeIndex] = adjustedPosition;
-        mNativeAds[placeIndex] = nativeAd;
-        mPlacedCount++;
+        // Add to placed ads
+        final int originalPosition = mDesiredPositions.getOriginalPosition(desiredIndex);
+        final int placeIndex = mPlacedAds.indexOfFirstGreaterThan(false, originalPosition);
+        mPlacedAds.insert(placeIndex, originalPosition, adjustedPosition, nativeAd);
 
         // Remove desired index
-        final int num = mDesiredCount - desiredIndex - 1;
-        System.arraycopy(mDesiredInsertionPositions, desiredIndex + 1,
-                mDesiredInsertionPositions, desiredIndex, num);
-        System.arraycopy(mDesiredOriginalPositions, desiredIndex + 1,
-                mDesiredOriginalPositions, desiredIndex, num);
-        mDesiredCount--;
+        mDesiredPositions.remove(desiredIndex);
 
         // Increment adjusted positions
-        for (int i = desiredIndex; i < mDesiredCount; ++i) {
-            mDesiredInsertionPositions[i]++;
-        }
-        for (int i = placeIndex + 1; i < mPlacedCount; ++i) {
-            mAdjustedAdPositions[i]++;
-        }
+        mDesiredPositions.addToPositions(desiredIndex, mDesiredPositions.size(), 0, 1);
+        mPlacedAds.addToPositions(placeIndex + 1, mPlacedAds.size(), 0, 1);
     }
 
     /**
      * @see {@link com.mopub.nativeads.MoPubStreamAdPlacer#isAd(int)}
      */
     boolean isPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        return index >= 0;
+        return findPlacedAd(position) >= 0;
     }
 
     /**
@@ -278,11 +266,23 @@ class PlacementData {
      */
     @Nullable
     NativeAd getPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
+        final int index = findPlacedAd(position);
         if (index < 0) {
             return null;
         }
-        return mNativeAds[index];
+        return mPlacedAds.getNativeAd(index);
+    }
+
+    /**
+     * The position of the first placed ad after this position. Returns NOT_FOUND if there are no
+     * more placed ads.
+     */
+    int nextPlacedAdPosition(final int position) {
+        final int index = mPlacedAds.indexOfFirstGreaterThan(true, position);
+        if (index == mPlacedAds.size()) {
+            return NOT_FOUND;
+        }
+        return mPlacedAds.getAdjustedPosition(index);
     }
 
     /**
@@ -291,8 +291,8 @@ class PlacementData {
      */
     @NonNull
     int[] getPlacedAdPositions() {
-        int[] positions = new int[mPlacedCount];
-        System.arraycopy(mAdjustedAdPositions, 0, positions, 0, mPlacedCount);
+        int[] positions = new int[mPlacedAds.size()];
+        mPlacedAds.getAdjustedPositions(positions);
         return positions;
     }
 
@@ -300,7 +300,7 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getOriginalPosition(int)
      */
     int getOriginalPosition(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
+        final int index = findPlacedAd(position);
 
         // No match, ~index is the number of ads before this pos.
         if (index < 0) {
@@ -315,8 +315,8 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getAdjustedPosition(int)
      */
     int getAdjustedPosition(final int originalPosition) {
-        // This is an ad. Since binary search doesn't properly handle dups, find the first non-ad.
-        int index = binarySearchGreaterThan(mOriginalAdPositions, mPlacedCount, originalPosition);
+        // This is an ad. Find the first non-ad.
+        final int index = mPlacedAds.indexOfFirstGreaterThan(false, originalPosition);
         return originalPosition + index;
     }
 
@@ -349,61 +349,45 @@ class PlacementData {
      * positions.
      */
     int clearAdsInRange(final int adjustedStartRange, final int adjustedEndRange) {
-        // Temporary arrays to store the cleared positions. Using temporary arrays makes it
-        // easy to debug what positions are being cleared.
-        int[] clearOriginalPositions = new int[mPlacedCount];
-        int[] clearAdjustedPositions = new int[mPlacedCount];
-        int clearCount = 0;
-
-        // Add to the clear position arrays any positions that fall inside
-        // [adjustedRangeStart, adjustedRangeEnd).
-        for (int i = 0; i < mPlacedCount; ++i) {
-            int originalPosition = mOriginalAdPositions[i];
-            int adjustedPosition = mAdjustedAdPositions[i];
-            if (adjustedStartRange <= adjustedPosition && adjustedPosition < adjustedEndRange) {
-                // When copying adjusted positions, subtract the current clear count because there
-                // is no longer an ad incrementing the desired insertion position.
-                clearOriginalPositions[clearCount] = originalPosition;
-                clearAdjustedPositions[clearCount] = adjustedPosition - clearCount;
-
-                // Destroying and nulling out the ad objects to avoids a memory leak.
-                mNativeAds[i].destroy();
-                mNativeAds[i] = null;
-                clearCount++;
-            } else if (clearCount > 0) {
-                // The position is not in the range; shift it by the number of cleared ads.
-                int newIndex = i - clearCount;
-                mOriginalAdPositions[newIndex] = originalPosition;
-                mAdjustedAdPositions[newIndex] = adjustedPosition - clearCount;
-                mNativeAds[newIndex] = mNativeAds[i];
-            }
-        }
+        // The ads in [adjustedRangeStart, adjustedRangeEnd).
+        final int startIndex = mPlacedAds.indexOfFirstAtLeast(true, adjustedStartRange);
+        final int clearCount = mPlacedAds.indexOfFirstAtLeast(true, adjustedEndRange) - startIndex;
 
         // If we have cleared nothing, this method was a no-op.
-        if (clearCount == 0) {
+        if (clearCount <= 0) {
             return 0;
         }
 
-        // Modify the desired positions arrays in order to make space to put back the
-        // cleared ad positions. For example if the desired array was {1, 10,
-        // 15} and we need to insert {3, 7} we'll shift the desired array to be {1, ?, ? , 10, 15}.
-        int firstCleared = clearAdjustedPositions[0];
-        int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, firstCleared);
-        for (int i = mDesiredCount - 1; i >= desiredIndex; --i) {
-            mDesiredOriginalPositions[i + clearCount] = mDesiredOriginalPositions[i];
-            mDesiredInsertionPositions[i + clearCount] = mDesiredInsertionPositions[i] - clearCount;
+        // Temporary arrays to store the cleared positions. Using temporary arrays makes it
+        // easy to debug what positions are being cleared.
+        final int[] clearOriginalPositions = new int[clearCount];
+        final int[] clearAdjustedPositions = new int[clearCount];
+        for (int i = 0; i < clearCount; ++i) {
+            // When copying adjusted positions, subtract the current clear count because there
+            // is no longer an ad incrementing the desired insertion position.
+            clearOriginalPositions[i] = mPlacedAds.getOriginalPosition(startIndex);
+            clearAdjustedPositions[i] = mPlacedAds.getAdjustedPosition(startIndex) - i;
+
+            // Destroying the ad objects to avoids a memory leak.
+            final NativeAd nativeAd = mPlacedAds.remove(startIndex);
+            if (nativeAd != null) {
+                nativeAd.destroy();
+            }
         }
 
-        // Copy the cleared ad positions into the desired arrays.
+        // The positions after the range are shifted by the number of cleared ads.
+        mPlacedAds.addToPositions(startIndex, mPlacedAds.size(), 0, -clearCount);
+
+        // Put the cleared ad positions back into the desired positions. For example if the
+        // desired positions were {1, 10, 15} and we need to insert {3, 7} they become
+        // {1, 3, 7, 10 - 2, 15 - 2}.
+        final int desiredIndex = mDesiredPositions.indexOfFirstAtLeast(true,
+                clearAdjustedPositions[0]);
+        mDesiredPositions.addToPositions(desiredIndex, mDesiredPositions.size(), 0, -clearCount);
         for (int i = 0; i < clearCount; ++i) {
-            mDesiredOriginalPositions[desiredIndex + i] = clearOriginalPositions[i];
-            mDesiredInsertionPositions[desiredIndex + i] = clearAdjustedPositions[i];
+            mDesiredPositions.insert(desiredIndex + i, clearOriginalPositions[i],
+                    clearAdjustedPositions[i], null);
         }
-
-        // Update the array counts, and we're done.
-        mDesiredCount = mDesiredCount + clearCount;
-        mPlacedCount = mPlacedCount - clearCount;
         return clearCount;
     }
 
@@ -412,59 +396,73 @@ class PlacementData {
      * will be back to the desired insertion positions.
      */
     void clearAds() {
-        if (mPlacedCount == 0) {
+        final int placedCount = mPlacedAds.size();
+        if (placedCount == 0) {
             return;
         }
 
-        clearAdsInRange(0, mAdjustedAdPositions[mPlacedCount - 1] + 1);
+        clearAdsInRange(0, mPlacedAds.getAdjustedPosition(placedCount - 1) + 1);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItem(int)
      */
     void insertItem(final int originalPosition) {
+        insertItems(originalPosition, 1);
+    }
 
-        // Increment desired arrays.
-        int indexToIncrement = binarySearchFirstEquals(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-        for (int i = indexToIncrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]++;
-            mDesiredInsertionPositions[i]++;
+    /**
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItems(int, int)
+     */
+    void insertItems(final int originalPosition, final int count) {
+        if (count <= 0) {
+            return;
         }
 
-        // Increment placed arrays.
-        indexToIncrement = binarySearchFirstEquals(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        for (int i = indexToIncrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]++;
-            mAdjustedAdPositions[i]++;
+        // Every repeating position that hasn't been added yet is moved, so they can stay lazy.
+        addRepeatingPositionsBefore(originalPosition);
+        if (isRepeating()) {
+            mNextRepeatingPosition += count;
         }
+
+        // Increment desired positions.
+        int indexToIncrement = mDesiredPositions.indexOfFirstAtLeast(false, originalPosition);
+        mDesiredPositions.addToPositions(indexToIncrement, mDesiredPositions.size(),
+                count, count);
+
+        // Increment placed positions.
+        indexToIncrement = mPlacedAds.indexOfFirstAtLeast(false, originalPosition);
+        mPlacedAds.addToPositions(indexToIncrement, mPlacedAds.size(), count, count);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItem(int)
      */
     void removeItem(final int originalPosition) {
+        removeItems(originalPosition, 1);
+    }
+
+    /**
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItems(int, int)
+     */
+    void removeItems(final int originalPosition, final int count) {
+        if (count <= 0) {
+            return;
+        }
+
         // When removing items, we only decrement ad position values *greater* than the original
         // position we're removing. The original position associated with an ad is the original
         // position of the first content item after the ad, so we shouldn't change the original
-        // position of an ad that matches the original position removed.
-        int indexToDecrement = binarySearchGreaterThan(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-
-        // Decrement desired arrays.
-        for (int i = indexToDecrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]--;
-            mDesiredInsertionPositions[i]--;
+        // position of an ad that matches the original position removed. Ads whose item is
+        // removed end up at the original position, which is where removing the items one at a
+        // time would leave them.
+        addRepeatingPositionsBefore(originalPosition + count + 1);
+        if (isRepeating()) {
+            mNextRepeatingPosition -= count;
         }
 
-        indexToDecrement = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-
-        for (int i = indexToDecrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]--;
-            mAdjustedAdPositions[i]--;
-        }
+        removeItems(mDesiredPositions, originalPosition, count);
+        removeItems(mPlacedAds, originalPosition, count);
     }
 
     /**
@@ -475,59 +473,68 @@ class PlacementData {
         insertItem(newPosition);
     }
 
-    private static int binarySearchFirstEquals(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    private static void removeItems(@NonNull final PlacementTree positions,
+            final int originalPosition, final int count) {
+        final int startIndex = positions.indexOfFirstGreaterThan(false, originalPosition);
+        final int endIndex = positions.indexOfFirstGreaterThan(false, originalPosition + count);
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+        // Move the positions in the removed range to the start of the range.
+        for (int i = startIndex; i < endIndex; ++i) {
+            final int delta = positions.getOriginalPosition(i) - originalPosition;
+            positions.addToPositions(i, i + 1, -delta, -delta);
         }
 
-        int duplicateValue = array[index];
-        while (index >= 0 && array[index] == duplicateValue) {
-            index--;
-        }
+        // Decrement the positions after the range.
+        positions.addToPositions(endIndex, positions.size(), -count, -count);
+    }
 
-        return index + 1;
+    /**
+     * The index of the placed ad at this adjusted position, or if there is none, the 2's
+     * complement of the number of placed ads before it.
+     */
+    private int findPlacedAd(final int position) {
+        final int index = mPlacedAds.indexOfFirstAtLeast(true, position);
+        if (index < mPlacedAds.size() && mPlacedAds.getAdjustedPosition(index) == position) {
+            return index;
+        }
+        return ~index;
     }
 
-    private static int binarySearchGreaterThan(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    private boolean isRepeating() {
+        return mRepeatingInterval != MoPubClientPositioning.NO_REPEAT;
+    }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+    /**
+     * Adds the repeating positions up to and including this adjusted position to the desired
+     * positions.
+     */
+    private void addRepeatingPositionsThrough(final int adjustedPosition) {
+        if (!isRepeating()) {
+            return;
         }
 
-        int duplicateValue = array[index];
-        while (index < count && array[index] == duplicateValue) {
-            index++;
+        // Every placed ad is before the repeating positions that haven't been added yet
+        while (mNextRepeatingPosition + mPlacedAds.size() <= adjustedPosition) {
+            addNextRepeatingPosition();
         }
-
-        return index;
     }
 
     /**
-     * Copied from Arrays.java, which isn't available until Gingerbread.
+     * Adds the repeating positions before this original position to the desired positions.
      */
-    private static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
-        int lo = startIndex;
-        int hi = endIndex - 1;
-
-        while (lo <= hi) {
-            int mid = (lo + hi) >>> 1;
-            int midVal = array[mid];
-
-            if (midVal < value) {
-                lo = mid + 1;
-            } else if (midVal > value) {
-                hi = mid - 1;
-            } else {
-                return mid;  // value found
-            }
+    private void addRepeatingPositionsBefore(final int originalPosition) {
+        if (!isRepeating()) {
+            return;
         }
-        return ~lo;  // value not present
+
+        while (mNextRepeatingPosition < originalPosition) {
+            addNextRepeatingPosition();
+        }
+    }
+
+    private void addNextRepeatingPosition() {
+        mDesiredPositions.insert(mDesiredPositions.size(), mNextRepeatingPosition,
+                mNextRepeatingPosition + mPlacedAds.size(), null);
+        mNextRepeatingPosition += mRepeatingInterval - 1;
     }
 }
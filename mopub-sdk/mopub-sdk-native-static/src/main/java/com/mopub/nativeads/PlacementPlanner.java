@@ -0,0 +1,90 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.VisibleForTesting;
+
+/**
+ * Decides how far past the visible range of a stream {@link MoPubStreamAdPlacer} places ads, so
+ * that ads are in place before their positions scroll into view.
+ *
+ * The scroll speed is measured from how the start of the visible range moves between updates.
+ * While the stream is scrolled down, a position {@code n} positions past the visible range is
+ * expected to be visible in {@code n / speed}, and ads are placed in the positions expected to be
+ * visible within {@link #LOOKAHEAD_MILLIS}. Otherwise ads are placed in a small fixed number of
+ * positions past the visible range.
+ */
+class PlacementPlanner {
+    @VisibleForTesting static final int MIN_LOOKAHEAD = 6;
+    @VisibleForTesting static final int MAX_LOOKAHEAD = 50;
+    @VisibleForTesting static final long LOOKAHEAD_MILLIS = 1000;
+    /**
+     * If the visible range hasn't changed for this long, the stream is considered to have stopped.
+     */
+    @VisibleForTesting static final long IDLE_TIMEOUT_MILLIS = 500;
+    // Weight of each new sample in the moving average, as a divisor.
+    private static final int MOVING_AVERAGE_WEIGHT = 2;
+
+    private boolean mHasVisibleRange;
+    private boolean mHasSpeed;
+    private int mVisibleRangeStart;
+    private long mLastUpdateMillis;
+    // Moving average of the scroll speed in positions per second, negative when scrolling up.
+    private float mPositionsPerSecond;
+
+    /**
+     * Records the new start of the visible range.
+     */
+    void onVisibleRangeChanged(final int visibleRangeStart, final long nowMillis) {
+        if (!mHasVisibleRange) {
+            mHasVisibleRange = true;
+            mVisibleRangeStart = visibleRangeStart;
+            mLastUpdateMillis = nowMillis;
+            return;
+        }
+
+        final long elapsedMillis = nowMillis - mLastUpdateMillis;
+        if (elapsedMillis <= 0) {
+            return;
+        }
+
+        final float positionsPerSecond =
+                (visibleRangeStart - mVisibleRangeStart) * 1000f / elapsedMillis;
+        if (!mHasSpeed || elapsedMillis >= IDLE_TIMEOUT_MILLIS) {
+            // This is the first sample, or the stream had stopped and earlier samples are of a
+            // different scroll.
+            mHasSpeed = true;
+            mPositionsPerSecond = positionsPerSecond;
+        } else {
+            mPositionsPerSecond +=
+                    (positionsPerSecond - mPositionsPerSecond) / MOVING_AVERAGE_WEIGHT;
+        }
+        mVisibleRangeStart = visibleRangeStart;
+        mLastUpdateMillis = nowMillis;
+    }
+
+    /**
+     * The estimated scroll speed, in positions per second. 0 if the stream isn't scrolling.
+     */
+    float getPositionsPerSecond(final long nowMillis) {
+        if (!mHasVisibleRange || nowMillis - mLastUpdateMillis >= IDLE_TIMEOUT_MILLIS) {
+            return 0;
+        }
+        return mPositionsPerSecond;
+    }
+
+    /**
+     * The number of positions past the end of the visible range in which to place ads.
+     */
+    int getLookahead(final long nowMillis) {
+        final float positionsPerSecond = getPositionsPerSecond(nowMillis);
+        if (positionsPerSecond <= 0) {
+            return MIN_LOOKAHEAD;
+        }
+
+        final int lookahead = (int) Math.ceil(positionsPerSecond * LOOKAHEAD_MILLIS / 1000f);
+        return Math.max(MIN_LOOKAHEAD, Math.min(MAX_LOOKAHEAD, lookahead));
+    }
+}
@@ -0,0 +1,280 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A list of ad positions used by {@link PlacementData}, sorted by both of its positions. Each
+ * entry has an original position, an adjusted position and optionally the ad placed there.
+ *
+ * The list is a treap ordered by index, where each node knows the size of its subtree, so
+ * entries can be found by index or by position, inserted and removed in O(logN). Adding to the
+ * positions of a range of entries is also O(logN): the amount is stored on the root of the range
+ * and only pushed down to the children when they are visited.
+ */
+class PlacementTree {
+    private static class Node {
+        final int mPriority;
+        int mSize = 1;
+        @Nullable Node mLeft;
+        @Nullable Node mRight;
+
+        int mOriginalPosition;
+        int mAdjustedPosition;
+        // Amounts that still need to be added to the positions of every node below this one
+        int mPendingOriginalDelta;
+        int mPendingAdjustedDelta;
+        @Nullable NativeAd mNativeAd;
+
+        Node(final int priority, final int originalPosition, final int adjustedPosition,
+                @Nullable final NativeAd nativeAd) {
+            mPriority = priority;
+            mOriginalPosition = originalPosition;
+            mAdjustedPosition = adjustedPosition;
+            mNativeAd = nativeAd;
+        }
+    }
+
+    @Nullable private Node mRoot;
+    // Seed for the node priorities. A fixed seed keeps the tree shapes reproducible.
+    private int mRandomState = 0x2545F491;
+
+    // Results of the last split, to avoid allocating a pair for every split
+    @Nullable private Node mSplitLeft;
+    @Nullable private Node mSplitRight;
+
+    int size() {
+        return size(mRoot);
+    }
+
+    int getOriginalPosition(final int index) {
+        return getNode(index).mOriginalPosition;
+    }
+
+    int getAdjustedPosition(final int index) {
+        return getNode(index).mAdjustedPosition;
+    }
+
+    @Nullable
+    NativeAd getNativeAd(final int index) {
+        return getNode(index).mNativeAd;
+    }
+
+    /**
+     * The index of the first entry whose position is greater than or equal to the given
+     * position, or {@link #size()} if there is none.
+     *
+     * @param adjusted whether to compare adjusted positions, rather than original positions
+     */
+    int indexOfFirstAtLeast(final boolean adjusted, final int position) {
+        return search(adjusted, position, false);
+    }
+
+    /**
+     * The index of the first entry whose position is greater than the given position, or
+     * {@link #size()} if there is none.
+     *
+     * @param adjusted whether to compare adjusted positions, rather than original positions
+     */
+    int indexOfFirstGreaterThan(final boolean adjusted, final int position) {
+        return search(adjusted, position, true);
+    }
+
+    /**
+     * Inserts an entry. The caller must keep both positions sorted.
+     */
+    void insert(final int index, final int originalPosition, final int adjustedPosition,
+            @Nullable final NativeAd nativeAd) {
+        final Node node = new Node(nextPriority(), originalPosition, adjustedPosition, nativeAd);
+        split(mRoot, index);
+        final Node right = mSplitRight;
+        mRoot = merge(merge(mSplitLeft, node), right);
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @return the ad of the entry
+     */
+    @Nullable
+    NativeAd remove(final int index) {
+        split(mRoot, index);
+        final Node left = mSplitLeft;
+        split(mSplitRight, 1);
+        final Node removed = mSplitLeft;
+        mRoot = merge(left, mSplitRight);
+        return removed == null ? null : removed.mNativeAd;
+    }
+
+    /**
+     * Adds to the positions of the entries in [fromIndex, toIndex).
+     */
+    void addToPositions(final int fromIndex, final int toIndex, final int originalDelta,
+            final int adjustedDelta) {
+        if (fromIndex >= toIndex || (originalDelta == 0 && adjustedDelta == 0)) {
+            return;
+        }
+
+        split(mRoot, toIndex);
+        final Node right = mSplitRight;
+        split(mSplitLeft, fromIndex);
+        final Node left = mSplitLeft;
+        final Node middle = mSplitRight;
+        addToPositions(middle, originalDelta, adjustedDelta);
+        mRoot = merge(merge(left, middle), right);
+    }
+
+    /**
+     * Copies the adjusted positions, in order, into the given array.
+     */
+    void getAdjustedPositions(@NonNull final int[] adjustedPositions) {
+        copyAdjustedPositions(mRoot, adjustedPositions, 0);
+    }
+
+    @NonNull
+    private Node getNode(final int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+
+        Node node = mRoot;
+        int remaining = index;
+        while (true) {
+            pushDown(node);
+            final int leftSize = size(node.mLeft);
+            if (remaining < leftSize) {
+                node = node.mLeft;
+            } else if (remaining == leftSize) {
+                return node;
+            } else {
+                remaining -= leftSize + 1;
+                node = node.mRight;
+            }
+        }
+    }
+
+    private int search(final boolean adjusted, final int position, final boolean strictlyGreater) {
+        Node node = mRoot;
+        int index = 0;
+        int result = size();
+        while (node != null) {
+            pushDown(node);
+            final int nodePosition = adjusted ? node.mAdjustedPosition : node.mOriginalPosition;
+            final boolean matches = strictlyGreater
+                    ? nodePosition > position
+                    : nodePosition >= position;
+            if (matches) {
+                result = index + size(node.mLeft);
+                node = node.mLeft;
+            } else {
+                index += size(node.mLeft) + 1;
+                node = node.mRight;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits the tree into its first {@code count} entries and the rest, which are left in
+     * {@link #mSplitLeft} and {@link #mSplitRight}.
+     */
+    private void split(@Nullable final Node node, final int count) {
+        if (node == null) {
+            mSplitLeft = null;
+            mSplitRight = null;
+            return;
+        }
+
+        pushDown(node);
+        final int leftSize = size(node.mLeft);
+        if (count <= leftSize) {
+            split(node.mLeft, count);
+            node.mLeft = mSplitRight;
+            update(node);
+            mSplitRight = node;
+        } else {
+            split(node.mRight, count - leftSize - 1);
+            node.mRight = mSplitLeft;
+            update(node);
+            mSplitLeft = node;
+        }
+    }
+
+    @Nullable
+    private static Node merge(@Nullable final Node left, @Nullable final Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.mPriority > right.mPriority) {
+            pushDown(left);
+            left.mRight = merge(left.mRight, right);
+            update(left);
+            return left;
+        }
+        pushDown(right);
+        right.mLeft = merge(left, right.mLeft);
+        update(right);
+        return right;
+    }
+
+    private static void pushDown(@NonNull final Node node) {
+        if (node.mPendingOriginalDelta == 0 && node.mPendingAdjustedDelta == 0) {
+            return;
+        }
+
+        addToPositions(node.mLeft, node.mPendingOriginalDelta, node.mPendingAdjustedDelta);
+        addToPositions(node.mRight, node.mPendingOriginalDelta, node.mPendingAdjustedDelta);
+        node.mPendingOriginalDelta = 0;
+        node.mPendingAdjustedDelta = 0;
+    }
+
+    private static void addToPositions(@Nullable final Node node, final int originalDelta,
+            final int adjustedDelta) {
+        if (node == null) {
+            return;
+        }
+
+        node.mOriginalPosition += originalDelta;
+        node.mAdjustedPosition += adjustedDelta;
+        node.mPendingOriginalDelta += originalDelta;
+        node.mPendingAdjustedDelta += adjustedDelta;
+    }
+
+    private static void update(@NonNull final Node node) {
+        node.mSize = size(node.mLeft) + size(node.mRight) + 1;
+    }
+
+    private static int size(@Nullable final Node node) {
+        return node == null ? 0 : node.mSize;
+    }
+
+    private static int copyAdjustedPositions(@Nullable final Node node,
+            @NonNull final int[] adjustedPositions, final int index) {
+        if (node == null) {
+            return index;
+        }
+
+        pushDown(node);
+        int nextIndex = copyAdjustedPositions(node.mLeft, adjustedPositions, index);
+        adjustedPositions[nextIndex++] = node.mAdjustedPosition;
+        return copyAdjustedPositions(node.mRight, adjustedPositions, nextIndex);
+    }
+
+    private int nextPriority() {
+        // xorshift
+        int x = mRandomState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        mRandomState = x;
+        return x;
+    }
+}
@@ -6,10 +6,13 @@ package com.mopub.nativeads;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.mopub.common.VisibleForTesting;
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.MoPubRequestUtils;
+import com.mopub.network.PlayServicesUrlRewriter;
+import com.mopub.network.RequestParams;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.Response;
 import com.mopub.volley.VolleyError;
@@ -37,7 +40,7 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
     private static final int MAX_VALUE = 1 << 16;
 
     @NonNull private final String mOriginalUrl;
-    @NonNull private final Context mContext;
+    @Nullable private RequestParams mRequestParams;
 
     public PositioningRequest(@NonNull final Context context,
             final String url,
@@ -50,7 +53,6 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
                 errorListener);
 
         mOriginalUrl = url;
-        mContext = context.getApplicationContext();
     }
 
     // This is done just for unit testing visibility.
@@ -149,15 +151,22 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
             return null;
         }
 
-        return MoPubRequestUtils.convertQueryToMap(mContext, mOriginalUrl);
+        return getRequestParams().toMap(PlayServicesUrlRewriter.getTemplateValues());
     }
 
     @Override
     public byte[] getBody() {
-        final String body = MoPubRequestUtils.generateBodyFromParams(getParams(), getUrl());
-        if (body == null) {
+        if (!MoPubRequestUtils.isMoPubRequest(getUrl()) || getRequestParams().isEmpty()) {
             return null;
         }
-        return body.getBytes();
+        return getRequestParams().toJsonBody(PlayServicesUrlRewriter.getTemplateValues());
+    }
+
+    @NonNull
+    private synchronized RequestParams getRequestParams() {
+        if (mRequestParams == null) {
+            mRequestParams = RequestParams.fromUrl(mOriginalUrl);
+        }
+        return mRequestParams;
     }
 }
@@ -60,6 +60,7 @@ import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.SHOW_ATTEMPTED;
 import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.SHOW_FAILED;
 import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.SHOW_SUCCESS;
 import static com.mopub.common.logging.MoPubLog.AdapterLogEvent.WILL_LEAVE_APPLICATION;
+import static com.mopub.nativeads.NativeImageHelper.getPreCacheImageWidths;
 import static com.mopub.nativeads.NativeImageHelper.preCacheImages;
 import static com.mopub.nativeads.NativeVideoController.VisibilityTrackingEvent;
 
@@ -303,7 +304,9 @@ public class MoPubCustomEventVideoNative extends CustomEventNative {
                 setPrivacyInformationIconClickThroughUrl(PRIVACY_INFORMATION_CLICKTHROUGH_URL);
             }
 
-            preCacheImages(mContext, getAllImageUrls(), new NativeImageHelper.ImageListener() {
+            preCacheImages(mContext, getAllImageUrls(), getLowPriorityImageUrls(),
+                    getPreCacheImageWidths(getMainImageUrl(), getIconImageUrl()),
+                    new NativeImageHelper.ImageListener() {
                 @Override
                 public void onImagesCached() {
                     MoPubLog.log(LOAD_SUCCESS, ADAPTER_NAME);
@@ -326,7 +329,12 @@ public class MoPubCustomEventVideoNative extends CustomEventNative {
                             errorCode);
                     mCustomEventNativeListener.onNativeAdFailed(errorCode);
                 }
-            });
+            }, this);
+        }
+
+        @Override
+        public void onVastVideoDownloadFailed(@NonNull VastVideoConfig vastVideoConfig) {
+            // Native videos are completely downloaded before they are prepared.
         }
 
         @Override
@@ -843,6 +851,15 @@ public class MoPubCustomEventVideoNative extends CustomEventNative {
             return extrasBitmapUrls;
         }
 
+        @NonNull
+        private Set<String> getLowPriorityImageUrls() {
+            final Set<String> imageUrls = new HashSet<String>();
+            if (!TextUtils.isEmpty(getPrivacyInformationIconImageUrl())) {
+                imageUrls.add(getPrivacyInformationIconImageUrl());
+            }
+            return imageUrls;
+        }
+
         @NonNull
         private List<String> getAllImageUrls() {
             final List<String> imageUrls = new ArrayList<String>();
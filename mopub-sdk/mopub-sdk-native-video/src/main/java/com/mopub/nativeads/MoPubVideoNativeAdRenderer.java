@@ -76,11 +76,11 @@ public class MoPubVideoNativeAdRenderer implements MoPubAdRenderer<VideoNativeAd
                 mediaViewHolder.mainView, videoNativeAd.getCallToAction()
         );
         if (mediaViewHolder.mediaLayout != null) {
-            NativeImageHelper.loadImageView(videoNativeAd.getMainImageUrl(),
-                    mediaViewHolder.mediaLayout.getMainImageView());
+            NativeImageHelper.loadMainImageView(videoNativeAd.getMainImageUrl(),
+                    mediaViewHolder.mediaLayout.getMainImageView(), videoNativeAd);
         }
-        NativeImageHelper.loadImageView(videoNativeAd.getIconImageUrl(),
-                mediaViewHolder.iconImageView);
+        NativeImageHelper.loadIconImageView(videoNativeAd.getIconImageUrl(),
+                mediaViewHolder.iconImageView, videoNativeAd);
         NativeRendererHelper.addPrivacyInformationIcon(
                 mediaViewHolder.privacyInformationIconImageView,
                 videoNativeAd.getPrivacyInformationIconImageUrl(),
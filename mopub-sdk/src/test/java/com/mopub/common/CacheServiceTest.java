@@ -18,6 +18,7 @@ import org.robolectric.Robolectric;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Semaphore;
 
 import static com.mopub.common.CacheService.DiskLruCacheGetListener;
@@ -94,6 +95,47 @@ public class CacheServiceTest {
         assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
     }
 
+    @Test
+    public void getMappedFromDiskCache_whenPopulated_shouldMapValue() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        final CacheService.MappedCacheEntry mappedCacheEntry =
+                CacheService.getMappedFromDiskCache(key1);
+
+        assertThat(mappedCacheEntry.getLength()).isEqualTo(data1.length());
+        final ByteBuffer buffer = mappedCacheEntry.getBuffer();
+        assertThat(buffer.isReadOnly()).isTrue();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertThat(bytes).isEqualTo(data1.getBytes());
+        assertThat(mappedCacheEntry.getFileDescriptor().valid()).isTrue();
+        mappedCacheEntry.close();
+    }
+
+    @Test
+    public void getMappedFromDiskCache_whenEmpty_shouldReturnNull() throws Exception {
+        CacheService.initialize(context);
+
+        assertThat(CacheService.getMappedFromDiskCache(key1)).isNull();
+    }
+
+    @Test
+    public void getMappedFromDiskCache_whileOpen_shouldKeepEntryFromBeingEvicted() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+        final CacheService.MappedCacheEntry mappedCacheEntry =
+                CacheService.getMappedFromDiskCache(key1);
+
+        CacheService.getDiskLruCache().setMaxSize(1);
+        CacheService.getDiskLruCache().flush();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isTrue();
+
+        mappedCacheEntry.close();
+        CacheService.getDiskLruCache().flush();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+    }
+
     @Test
     public void diskLruCacheGet_whenEmpty_shouldReturnNull() throws Exception {
         CacheService.initialize(context);
@@ -0,0 +1,212 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Reads a cache from several threads while another thread commits to it, and while another
+ * thread holds the cache's lock, which DiskLruCache used to hold for every read. Also compares
+ * the text and the binary journal of a cache with many entries.
+ */
+public class DiskLruCacheBenchmarkTest {
+    private static final int APP_VERSION = 1;
+    private static final int KEY_COUNT = 64;
+    private static final int READER_COUNT = 4;
+    private static final int READS_PER_READER = 2000;
+    private static final long READ_TIMEOUT_SECONDS = 10;
+    private static final int JOURNAL_ENTRY_COUNT = 10000;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DiskLruCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = DiskLruCache.open(temporaryFolder.newFolder("cache"), APP_VERSION, 1,
+                Integer.MAX_VALUE);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            set("key" + i, Integer.toString(i));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        subject.close();
+    }
+
+    @Test
+    public void get_withConcurrentCommits_shouldAlwaysReadCommittedValue() throws Exception {
+        readWhileCommitting(READS_PER_READER);
+    }
+
+    @Test
+    public void get_whileCacheLockIsHeld_shouldNotWaitForIt() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch unlock = new CountDownLatch(1);
+        final Thread lockHolder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (subject) {
+                    locked.countDown();
+                    try {
+                        unlock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        lockHolder.start();
+        locked.await();
+
+        final CountDownLatch readsDone = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < KEY_COUNT; i++) {
+                        read("key" + i);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    readsDone.countDown();
+                }
+            }
+        });
+        reader.start();
+
+        try {
+            assertThat(readsDone.await(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+            assertThat(failure.get()).isNull();
+        } finally {
+            unlock.countDown();
+            lockHolder.join();
+            reader.join();
+        }
+    }
+
+    @Test
+    public void open_withBinaryJournal_shouldReadSmallerJournalWithSameEntriesAsText()
+            throws Exception {
+        final File textDirectory = createJournalCache("text", false);
+        final File binaryDirectory = createJournalCache("binary", true);
+
+        final long textJournalLength = new File(textDirectory, DiskLruCache.JOURNAL_FILE).length();
+        final long binaryJournalLength =
+                new File(binaryDirectory, DiskLruCache.BINARY_JOURNAL_FILE).length();
+        assertThat(binaryJournalLength).isLessThan(textJournalLength * 9 / 10);
+
+        final DiskLruCache textCache = DiskLruCache.open(textDirectory, APP_VERSION, 1,
+                Long.MAX_VALUE, false);
+        final DiskLruCache binaryCache = DiskLruCache.open(binaryDirectory, APP_VERSION, 1,
+                Long.MAX_VALUE, true);
+        try {
+            assertThat(binaryCache.size()).isEqualTo(textCache.size());
+            for (int i = 0; i < JOURNAL_ENTRY_COUNT; i += JOURNAL_ENTRY_COUNT / 10) {
+                final DiskLruCache.Snapshot snapshot = binaryCache.get("key" + i);
+                assertThat(snapshot.getString(0)).isEqualTo(Integer.toString(i));
+                snapshot.close();
+            }
+        } finally {
+            textCache.close();
+            binaryCache.close();
+        }
+    }
+
+    private File createJournalCache(final String name, final boolean binaryJournal)
+            throws IOException {
+        final File directory = temporaryFolder.newFolder(name);
+        final DiskLruCache cache = DiskLruCache.open(directory, APP_VERSION, 1, Long.MAX_VALUE,
+                binaryJournal);
+        for (int i = 0; i < JOURNAL_ENTRY_COUNT; i++) {
+            final DiskLruCache.Editor editor = cache.edit("key" + i);
+            editor.set(0, Integer.toString(i));
+            editor.commit();
+        }
+        cache.close();
+        return directory;
+    }
+
+    /**
+     * Reads every key while it is being committed to. Each read must return a value.
+     */
+    private void readWhileCommitting(final int readsPerReader) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch readersDone = new CountDownLatch(READER_COUNT);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; readersDone.getCount() > 0; i++) {
+                        set("key" + (i % KEY_COUNT), Integer.toString(i));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        writer.start();
+
+        final Thread[] readers = new Thread[READER_COUNT];
+        for (int r = 0; r < READER_COUNT; r++) {
+            readers[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < readsPerReader; i++) {
+                            read("key" + (i % KEY_COUNT));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        readersDone.countDown();
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        start.countDown();
+        readersDone.await();
+        writer.join();
+
+        assertThat(failure.get()).isNull();
+    }
+
+    private void read(final String key) throws IOException {
+        final DiskLruCache.Snapshot snapshot = subject.get(key);
+        assertThat(snapshot).isNotNull();
+        try {
+            assertThat(snapshot.getString(0)).isNotEmpty();
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    private void set(final String key, final String value) throws IOException {
+        final DiskLruCache.Editor editor = subject.edit(key);
+        editor.set(0, value);
+        editor.commit();
+    }
+}
@@ -0,0 +1,519 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DiskLruCacheTest {
+    private static final int APP_VERSION = 1;
+    private static final int VALUE_COUNT = 2;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheDirectory;
+    private DiskLruCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDirectory = temporaryFolder.newFolder("cache");
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        subject.close();
+    }
+
+    @Test
+    public void get_afterCommit_shouldReturnCommittedValues() throws Exception {
+        set("key", "a", "bb");
+
+        final DiskLruCache.Snapshot snapshot = subject.get("key");
+
+        assertThat(snapshot.getString(0)).isEqualTo("a");
+        assertThat(snapshot.getLength(0)).isEqualTo(1);
+        assertThat(snapshot.getString(1)).isEqualTo("bb");
+        assertThat(snapshot.getLength(1)).isEqualTo(2);
+        assertThat(subject.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void get_withMissingKey_shouldReturnNull() throws Exception {
+        assertThat(subject.get("missing")).isNull();
+    }
+
+    @Test
+    public void get_afterRemove_shouldReturnNull() throws Exception {
+        set("key", "a", "b");
+
+        assertThat(subject.remove("key")).isTrue();
+
+        assertThat(subject.get("key")).isNull();
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_shouldWriteReadRecordToJournalOnFlush() throws Exception {
+        set("key", "a", "b");
+        subject.get("key").close();
+
+        subject.flush();
+
+        assertThat(readJournal()).contains("READ key");
+    }
+
+    @Test
+    public void get_shouldPromoteEntryInLruOrderBeforeEviction() throws Exception {
+        set("a", "a", "a");
+        set("b", "b", "b");
+        subject.get("a").close();
+
+        // Adding "c" makes the cache exceed its size, which must evict "b" and keep "a".
+        subject.setMaxSize(4);
+        set("c", "c", "c");
+        subject.flush();
+
+        assertThat(subject.get("a")).isNotNull();
+        assertThat(subject.get("b")).isNull();
+        assertThat(subject.get("c")).isNotNull();
+    }
+
+    @Test
+    public void getPinned_shouldKeepEntryFromBeingEvictedUntilClosed() throws Exception {
+        set("a", "a", "a");
+        set("b", "b", "b");
+        final DiskLruCache.Snapshot pinned = subject.getPinned("a");
+
+        subject.setMaxSize(0);
+        subject.flush();
+
+        assertThat(subject.get("a")).isNotNull();
+        assertThat(subject.get("b")).isNull();
+        assertThat(subject.size()).isEqualTo(2);
+
+        pinned.close();
+        subject.flush();
+
+        assertThat(subject.get("a")).isNull();
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void getPinned_withMissingEntry_shouldReturnNull() throws Exception {
+        assertThat(subject.getPinned("a")).isNull();
+
+        set("a", "a", "a");
+        subject.remove("a");
+
+        assertThat(subject.getPinned("a")).isNull();
+    }
+
+    @Test
+    public void getPinned_whileEvictingConcurrently_shouldOnlyReturnReadableSnapshots()
+            throws Exception {
+        set("a", "aaaa", "aaaa");
+        subject.setMaxSize(0);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread evictor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    subject.flush();
+                } catch (Throwable t) {
+                    failure.set(t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        evictor.start();
+
+        final DiskLruCache.Snapshot snapshot = subject.getPinned("a");
+        done.await();
+        assertThat(failure.get()).isNull();
+        if (snapshot != null) {
+            // Pinned before the eviction, so the entry must have stayed
+            assertThat(subject.get("a")).isNotNull();
+            assertThat(snapshot.getString(0)).isEqualTo("aaaa");
+            snapshot.close();
+        } else {
+            assertThat(subject.get("a")).isNull();
+        }
+    }
+
+    @Test
+    public void getChannel_shouldReadValueWithoutStreamCopy() throws Exception {
+        set("key", "abc", "de");
+        final DiskLruCache.Snapshot snapshot = subject.get("key");
+
+        final FileChannel channel = snapshot.getChannel(1);
+        final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, snapshot.getLength(1));
+        snapshot.close();
+
+        assertThat(buffer.remaining()).isEqualTo(2);
+        assertThat((char) buffer.get()).isEqualTo('d');
+        assertThat((char) buffer.get()).isEqualTo('e');
+    }
+
+    @Test
+    public void newChannel_withKeepCleanValue_shouldAppendToCommittedValue() throws Exception {
+        set("key", "ab", "c");
+
+        final DiskLruCache.Editor editor = subject.edit("key");
+        final FileChannel channel = editor.newChannel(0, true);
+        channel.write(ByteBuffer.wrap("cd".getBytes()), 2);
+        channel.close();
+        editor.commit();
+
+        final DiskLruCache.Snapshot snapshot = subject.get("key");
+        assertThat(snapshot.getString(0)).isEqualTo("abcd");
+        assertThat(snapshot.getString(1)).isEqualTo("c");
+        assertThat(subject.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void rename_shouldMoveEntryAndReplaceTarget() throws Exception {
+        set("from", "a", "b");
+        set("to", "old", "old");
+
+        assertThat(subject.rename("from", "to")).isTrue();
+
+        assertThat(subject.get("from")).isNull();
+        final DiskLruCache.Snapshot snapshot = subject.get("to");
+        assertThat(snapshot.getString(0)).isEqualTo("a");
+        assertThat(snapshot.getString(1)).isEqualTo("b");
+        assertThat(subject.size()).isEqualTo(2);
+
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE);
+        assertThat(subject.get("from")).isNull();
+        assertThat(subject.get("to").getString(0)).isEqualTo("a");
+    }
+
+    @Test
+    public void rename_withEntryBeingEdited_shouldReturnFalse() throws Exception {
+        set("from", "a", "b");
+        final DiskLruCache.Editor editor = subject.edit("from");
+
+        assertThat(subject.rename("from", "to")).isFalse();
+
+        editor.abort();
+        assertThat(subject.get("to")).isNull();
+    }
+
+    @Test
+    public void open_afterLockFreeReads_shouldRestoreEntries() throws Exception {
+        set("key", "a", "b");
+        subject.get("key").close();
+        subject.close();
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE);
+
+        assertThat(subject.get("key").getString(1)).isEqualTo("b");
+    }
+
+    @Test
+    public void open_withBinaryJournal_shouldRestoreEntries() throws Exception {
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        set("a", "a", "aa");
+        set("b", "b", "bb");
+        subject.remove("b");
+        subject.close();
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+
+        assertThat(subject.get("a").getString(1)).isEqualTo("aa");
+        assertThat(subject.get("b")).isNull();
+        assertThat(subject.size()).isEqualTo(3);
+        assertThat(readJournalMagic()).isEqualTo(DiskLruCacheJournal.BINARY_MAGIC);
+        assertThat(new File(cacheDirectory, DiskLruCache.JOURNAL_FILE).exists()).isFalse();
+    }
+
+    @Test
+    public void open_withTextJournal_withBinaryJournalRequested_shouldMigrateJournal()
+            throws Exception {
+        set("a", "a", "aa");
+        subject.close();
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+
+        assertThat(readJournalMagic()).isEqualTo(DiskLruCacheJournal.BINARY_MAGIC);
+        assertThat(new File(cacheDirectory, DiskLruCache.JOURNAL_FILE).exists()).isFalse();
+        assertThat(subject.get("a").getString(1)).isEqualTo("aa");
+
+        // And back again.
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE);
+
+        assertThat(readJournal()).startsWith(DiskLruCacheJournal.TEXT_MAGIC);
+        assertThat(new File(cacheDirectory, DiskLruCache.BINARY_JOURNAL_FILE).exists()).isFalse();
+        assertThat(subject.get("a").getString(1)).isEqualTo("aa");
+    }
+
+    @Test
+    public void open_withNewerTextJournalFromOlderVersion_shouldUseItAndDeleteOtherValues()
+            throws Exception {
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        set("a", "a", "aa");
+        subject.close();
+        // An older version only knows the text journal, so it started a new one and stored b.
+        writeFile(new File(cacheDirectory, "b.0"), "b");
+        writeFile(new File(cacheDirectory, "b.1"), "bb");
+        final File textJournal = new File(cacheDirectory, DiskLruCache.JOURNAL_FILE);
+        writeFile(textJournal, DiskLruCacheJournal.TEXT_MAGIC + "\n"
+                + DiskLruCacheJournal.TEXT_VERSION + "\n" + APP_VERSION + "\n" + VALUE_COUNT
+                + "\n\nCLEAN b 1 2\n");
+        textJournal.setLastModified(
+                new File(cacheDirectory, DiskLruCache.BINARY_JOURNAL_FILE).lastModified() + 2000);
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+
+        assertThat(subject.get("a")).isNull();
+        assertThat(subject.get("b").getString(1)).isEqualTo("bb");
+        assertThat(subject.size()).isEqualTo(3);
+        assertThat(new File(cacheDirectory, "a.0").exists()).isFalse();
+        assertThat(new File(cacheDirectory, "a.1").exists()).isFalse();
+        assertThat(textJournal.exists()).isFalse();
+        assertThat(readJournalMagic()).isEqualTo(DiskLruCacheJournal.BINARY_MAGIC);
+    }
+
+    @Test
+    public void open_withTruncatedBinaryJournal_shouldDropPartialRecordAndKeepAppending()
+            throws Exception {
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        set("a", "a", "aa");
+        subject.close();
+        final FileOutputStream journal = new FileOutputStream(
+                new File(cacheDirectory, DiskLruCache.BINARY_JOURNAL_FILE), true);
+        journal.write(new byte[] {DiskLruCacheJournal.CLEAN, 5, 'b'});
+        journal.close();
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        set("c", "c", "cc");
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+
+        assertThat(subject.get("a").getString(1)).isEqualTo("aa");
+        assertThat(subject.get("c").getString(1)).isEqualTo("cc");
+        assertThat(subject.size()).isEqualTo(6);
+    }
+
+    @Test
+    public void open_with10000Entries_shouldRestoreEntriesFromEitherJournalFormat()
+            throws Exception {
+        subject.close();
+
+        for (final boolean binaryJournal : new boolean[] {false, true}) {
+            final File directory = temporaryFolder.newFolder("cache-" + binaryJournal);
+            subject = DiskLruCache.open(directory, APP_VERSION, 1, Long.MAX_VALUE,
+                    binaryJournal);
+            for (int i = 0; i < 10000; i++) {
+                final DiskLruCache.Editor editor = subject.edit("key" + i);
+                editor.set(0, Integer.toString(i));
+                editor.commit();
+            }
+            subject.close();
+
+            subject = DiskLruCache.open(directory, APP_VERSION, 1, Long.MAX_VALUE,
+                    binaryJournal);
+
+            assertThat(subject.get("key0").getString(0)).isEqualTo("0");
+            assertThat(subject.get("key9999").getString(0)).isEqualTo("9999");
+            // 10 one-digit, 90 two-digit, 900 three-digit and 9000 four-digit values
+            assertThat(subject.size()).isEqualTo(10 + 180 + 2700 + 36000);
+            subject.close();
+        }
+
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void compaction_shouldKeepLatestValuesAndShrinkJournal() throws Exception {
+        subject.close();
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        final File journalFile = new File(cacheDirectory, DiskLruCache.BINARY_JOURNAL_FILE);
+
+        // Every commit adds two records for one of only four entries, so the
+        // journal is compacted several times along the way.
+        for (int i = 0; i < 5000; i++) {
+            set("k" + (i % 4), "v", Integer.toString(i));
+        }
+        subject.flush();
+        subject.executorService.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        }).get();
+        subject.close();
+
+        // Without compaction the journal would be about 50KB.
+        assertThat(journalFile.length()).isLessThan(25000L);
+        subject = DiskLruCache.open(cacheDirectory, APP_VERSION, VALUE_COUNT, Integer.MAX_VALUE,
+                true);
+        assertThat(subject.get("k0").getString(1)).isEqualTo("4996");
+        assertThat(subject.get("k3").getString(1)).isEqualTo("4999");
+    }
+
+    /**
+     * Stress test for concurrent readers and writers. Writers always store the same token in both
+     * values of an entry, so a reader that ever sees two different values (or a length that does
+     * not match its value) has observed a torn commit.
+     */
+    @Test
+    public void concurrentReadsAndWrites_shouldOnlyObserveCommittedSnapshots() throws Exception {
+        final int threadCount = 8;
+        final int operationsPerThread = 500;
+        final int keyCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicInteger reads = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Random random = new Random(seed);
+                    try {
+                        start.await();
+                        for (int i = 0; i < operationsPerThread; i++) {
+                            final String key = "k" + random.nextInt(keyCount);
+                            final int operation = random.nextInt(10);
+                            if (operation < 7) {
+                                final DiskLruCache.Snapshot snapshot = subject.get(key);
+                                if (snapshot != null) {
+                                    final String value0 = snapshot.getString(0);
+                                    final String value1 = snapshot.getString(1);
+                                    if (!value0.equals(value1)
+                                            || snapshot.getLength(0) != value0.length()) {
+                                        throw new AssertionError("Torn read: " + value0 + " / "
+                                                + value1);
+                                    }
+                                    reads.incrementAndGet();
+                                }
+                            } else if (operation < 9) {
+                                final String token = seed + "-" + i + "-" + key;
+                                final DiskLruCache.Editor editor = subject.edit(key);
+                                if (editor != null) {
+                                    editor.set(0, token);
+                                    editor.set(1, token);
+                                    editor.commit();
+                                }
+                            } else {
+                                subject.remove(key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertThat(reads.get()).isGreaterThan(0);
+
+        // The size must match what is actually readable.
+        subject.flush();
+        long expectedSize = 0;
+        for (int k = 0; k < keyCount; k++) {
+            final DiskLruCache.Snapshot snapshot = subject.get("k" + k);
+            if (snapshot != null) {
+                expectedSize += snapshot.getLength(0) + snapshot.getLength(1);
+                snapshot.close();
+            }
+        }
+        assertThat(subject.size()).isEqualTo(expectedSize);
+    }
+
+    private void set(final String key, final String value0, final String value1)
+            throws IOException {
+        final DiskLruCache.Editor editor = subject.edit(key);
+        editor.set(0, value0);
+        editor.set(1, value1);
+        editor.commit();
+    }
+
+    private void writeFile(final File file, final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private int readJournalMagic() throws IOException {
+        final DataInputStream in = new DataInputStream(
+                new FileInputStream(new File(cacheDirectory, DiskLruCache.BINARY_JOURNAL_FILE)));
+        try {
+            return in.readInt();
+        } finally {
+            in.close();
+        }
+    }
+
+    private String readJournal() throws IOException {
+        final BufferedReader reader = new BufferedReader(
+                new FileReader(new File(cacheDirectory, DiskLruCache.JOURNAL_FILE)));
+        try {
+            final StringBuilder result = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                result.append(line).append('\n');
+            }
+            return result.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
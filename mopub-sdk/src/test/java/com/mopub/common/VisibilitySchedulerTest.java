@@ -0,0 +1,166 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.view.ViewTreeObserver;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+
+import java.util.concurrent.TimeUnit;
+
+import static android.view.ViewTreeObserver.OnPreDrawListener;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class VisibilitySchedulerTest {
+    @Mock private ViewTreeObserver viewTreeObserver;
+    @Mock private ViewTreeObserver viewTreeObserver2;
+    @Mock private VisibilityScheduler.Client client;
+    @Mock private VisibilityScheduler.Client client2;
+
+    @Before
+    public void setUp() {
+        when(viewTreeObserver.isAlive()).thenReturn(true);
+        when(viewTreeObserver2.isAlive()).thenReturn(true);
+    }
+
+    @Test
+    public void register_withSameViewTreeObserver_shouldReturnSameScheduler_shouldAddOneListener() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        final VisibilityScheduler scheduler2 = VisibilityScheduler.register(viewTreeObserver, client2);
+
+        assertThat(scheduler2).isSameAs(scheduler);
+        assertThat(scheduler.getClientCount()).isEqualTo(2);
+        verify(viewTreeObserver, times(1)).addOnPreDrawListener(scheduler.mOnPreDrawListener);
+    }
+
+    @Test
+    public void register_withDifferentViewTreeObservers_shouldReturnDifferentSchedulers() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        final VisibilityScheduler scheduler2 = VisibilityScheduler.register(viewTreeObserver2, client);
+
+        assertThat(scheduler2).isNotSameAs(scheduler);
+        assertThat(VisibilityScheduler.getScheduler(viewTreeObserver)).isSameAs(scheduler);
+        assertThat(VisibilityScheduler.getScheduler(viewTreeObserver2)).isSameAs(scheduler2);
+    }
+
+    @Test
+    public void register_withSameClientTwice_shouldOnlyAddClientOnce() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        VisibilityScheduler.register(viewTreeObserver, client);
+
+        assertThat(scheduler.getClientCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void unregister_withOtherClientsLeft_shouldKeepListener() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        VisibilityScheduler.register(viewTreeObserver, client2);
+
+        scheduler.unregister(client);
+
+        verify(viewTreeObserver, never()).removeOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(VisibilityScheduler.getScheduler(viewTreeObserver)).isSameAs(scheduler);
+    }
+
+    @Test
+    public void unregister_withLastClient_shouldRemoveListener_shouldForgetScheduler_shouldCancelPass() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        scheduler.schedulePass();
+
+        scheduler.unregister(client);
+        advancePastThrottle();
+
+        verify(viewTreeObserver).removeOnPreDrawListener(scheduler.mOnPreDrawListener);
+        assertThat(VisibilityScheduler.getScheduler(viewTreeObserver)).isNull();
+        verify(client, never()).onVisibilityPass();
+        assertThat(VisibilityScheduler.register(viewTreeObserver, client)).isNotSameAs(scheduler);
+    }
+
+    @Test
+    public void onPreDraw_shouldRunOnePassForAllClientsAfterThrottle() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        VisibilityScheduler.register(viewTreeObserver, client2);
+
+        scheduler.mOnPreDrawListener.onPreDraw();
+        scheduler.mOnPreDrawListener.onPreDraw();
+        scheduler.schedulePass();
+        verify(client, never()).onVisibilityPass();
+
+        advancePastThrottle();
+
+        verify(client).onVisibilityPass();
+        verify(client2).onVisibilityPass();
+        assertThat(scheduler.getPassCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void schedulePass_afterPass_shouldRunAnotherPass() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+
+        scheduler.schedulePass();
+        advancePastThrottle();
+        scheduler.schedulePass();
+        advancePastThrottle();
+
+        verify(client, times(2)).onVisibilityPass();
+        assertThat(scheduler.getPassCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void runPass_withClientUnregisteredDuringPass_shouldNotCallIt() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        VisibilityScheduler.register(viewTreeObserver, client2);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                scheduler.unregister(client2);
+                return null;
+            }
+        }).when(client).onVisibilityPass();
+
+        scheduler.runPass();
+
+        verify(client).onVisibilityPass();
+        verify(client2, never()).onVisibilityPass();
+    }
+
+    @Test
+    public void runPass_shouldRecordPassTimes() {
+        final VisibilityScheduler scheduler = VisibilityScheduler.register(viewTreeObserver, client);
+        assertThat(scheduler.getAveragePassMicros()).isEqualTo(0);
+
+        scheduler.runPass();
+        scheduler.runPass();
+
+        assertThat(scheduler.getPassCount()).isEqualTo(2);
+        assertThat(scheduler.getLastPassNanos()).isGreaterThan(0);
+        assertThat(scheduler.getMaxPassNanos()).isGreaterThanOrEqualTo(
+                scheduler.getLastPassNanos());
+        assertThat(scheduler.getTotalPassNanos()).isGreaterThanOrEqualTo(
+                scheduler.getMaxPassNanos());
+        assertThat(scheduler.getAveragePassMicros()).isEqualTo(
+                scheduler.getTotalPassNanos() / 2 / 1000);
+    }
+
+    private static void advancePastThrottle() {
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                VisibilityScheduler.PASS_THROTTLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Runs visibility passes over a few hundred tracked views, first while nothing moves and then
+ * while the views are scrolled on every pass, and compares how many views are checked.
+ */
+@RunWith(SdkTestRunner.class)
+public class VisibilityTrackerBenchmarkTest {
+    private static final int VIEW_COUNT = 300;
+    private static final int VIEW_HEIGHT_PX = 20;
+    private static final int PASSES = 50;
+
+    private FrameLayout container;
+    private VisibilityTracker subject;
+
+    @Before
+    public void setUp() {
+        // XXX We need this to ensure that our SystemClock starts
+        ShadowSystemClock.currentTimeMillis();
+
+        final Activity activity = Robolectric.buildActivity(Activity.class)
+                .create().start().resume().visible().get();
+        container = new FrameLayout(activity);
+        activity.setContentView(container);
+
+        subject = new VisibilityTracker(activity);
+        for (int i = 0; i < VIEW_COUNT; i++) {
+            final View view = new View(activity);
+            container.addView(view, new FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT, VIEW_HEIGHT_PX));
+            view.setTranslationY(i * VIEW_HEIGHT_PX);
+            subject.addView(view, 50, null);
+        }
+        container.measure(0, 0);
+        container.layout(0, 0, 1000, VIEW_COUNT * VIEW_HEIGHT_PX);
+    }
+
+    @Test
+    public void passes_withViewsThatHaveNotMoved_shouldOnlyCheckViewsOnFullChecks() {
+        final VisibilityScheduler scheduler = subject.mVisibilityScheduler;
+        assertThat(scheduler).isNotNull();
+
+        runPasses(scheduler, false);
+        assertThat(subject.getCheckedViewCount()).isEqualTo(VIEW_COUNT);
+        assertThat(subject.getSkippedViewCount()).isEqualTo((PASSES - 1) * VIEW_COUNT);
+
+        runPasses(scheduler, true);
+        assertThat(subject.getCheckedViewCount()).isEqualTo((PASSES + 1) * VIEW_COUNT);
+        assertThat(subject.getSkippedViewCount()).isEqualTo((PASSES - 1) * VIEW_COUNT);
+
+        // Views that haven't moved are still checked once the full check interval has passed
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                VisibilityTracker.FULL_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.runPass();
+        assertThat(subject.getCheckedViewCount()).isEqualTo((PASSES + 2) * VIEW_COUNT);
+
+        // After the full check, idle passes skip every view again
+        runPasses(scheduler, false);
+        assertThat(subject.getCheckedViewCount()).isEqualTo((PASSES + 2) * VIEW_COUNT);
+        assertThat(subject.getSkippedViewCount()).isEqualTo((2 * PASSES - 1) * VIEW_COUNT);
+    }
+
+    private void runPasses(final VisibilityScheduler scheduler, final boolean scroll) {
+        for (int i = 0; i < PASSES; i++) {
+            if (scroll) {
+                container.scrollBy(0, 1);
+            }
+            scheduler.runPass();
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static android.view.ViewTreeObserver.OnPreDrawListener;
 import static com.mopub.common.VisibilityTracker.VisibilityChecker;
@@ -38,10 +39,13 @@ import static com.mopub.common.VisibilityTracker.VisibilityTrackerListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -85,7 +89,7 @@ public class VisibilityTrackerTest {
     }
 
     @Test
-    public void constructor_shouldSetOnPreDrawListenerForDecorView() throws Exception {
+    public void constructor_shouldRegisterWithVisibilitySchedulerForDecorView() throws Exception {
         Activity activity1 = spy(Robolectric.buildActivity(Activity.class).create().get());
         Window window = mock(Window.class);
         View decorView = mock(View.class);
@@ -98,8 +102,10 @@ public class VisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
         subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        assertThat(subject.mOnPreDrawListener).isNotNull();
-        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
+        assertThat(subject.mVisibilityScheduler).isNotNull();
+        assertThat(subject.mVisibilityScheduler)
+                .isSameAs(VisibilityScheduler.getScheduler(viewTreeObserver));
+        verify(viewTreeObserver).addOnPreDrawListener(subject.mVisibilityScheduler.mOnPreDrawListener);
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
@@ -116,7 +122,8 @@ public class VisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(false);
 
         subject = new VisibilityTracker(activity1, trackedViews, visibilityChecker, visibilityHandler);
-        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
+        verify(viewTreeObserver, never()).addOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(subject.mVisibilityScheduler).isNull();
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
 
@@ -126,6 +133,37 @@ public class VisibilityTrackerTest {
                 visibilityChecker, visibilityHandler);
 
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
+        assertThat(subject.mVisibilityScheduler).isNull();
+    }
+
+    @Test
+    public void constructor_withSameDecorView_shouldShareVisibilityScheduler() throws Exception {
+        Activity activity1 = spy(Robolectric.buildActivity(Activity.class).create().get());
+        Window window = mock(Window.class);
+        View decorView = mock(View.class);
+        ViewTreeObserver viewTreeObserver = mock(ViewTreeObserver.class);
+
+        when(activity1.getWindow()).thenReturn(window);
+        when(window.getDecorView()).thenReturn(decorView);
+        when(decorView.findViewById(anyInt())).thenReturn(decorView);
+        when(decorView.getViewTreeObserver()).thenReturn(viewTreeObserver);
+        when(viewTreeObserver.isAlive()).thenReturn(true);
+
+        VisibilityTracker tracker1 = new VisibilityTracker(activity1, trackedViews,
+                visibilityChecker, visibilityHandler);
+        VisibilityTracker tracker2 = new VisibilityTracker(activity1,
+                new WeakHashMap<View, TrackingInfo>(), visibilityChecker, visibilityHandler);
+
+        assertThat(tracker2.mVisibilityScheduler).isSameAs(tracker1.mVisibilityScheduler);
+        assertThat(tracker1.mVisibilityScheduler.getClientCount()).isEqualTo(2);
+        verify(viewTreeObserver, times(1)).addOnPreDrawListener(any(OnPreDrawListener.class));
+
+        tracker1.destroy();
+        verify(viewTreeObserver, never()).removeOnPreDrawListener(any(OnPreDrawListener.class));
+
+        tracker2.destroy();
+        verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(VisibilityScheduler.getScheduler(viewTreeObserver)).isNull();
     }
 
     @Test
@@ -150,6 +188,8 @@ public class VisibilityTrackerTest {
         subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
 
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
+        assertThat(subject.mVisibilityScheduler)
+                .isSameAs(VisibilityScheduler.getScheduler(viewTreeObserver));
     }
 
     @Test(expected = NullPointerException.class)
@@ -208,6 +248,34 @@ public class VisibilityTrackerTest {
         verify(visibilityHandler).removeMessages(0);
         verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
+        assertThat(subject.mVisibilityScheduler).isNull();
+    }
+
+    @Test
+    public void scheduleVisibilityCheck_withVisibilityScheduler_shouldRunCheckInSchedulerPass() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        assertThat(subject.mVisibilityScheduler).isNotNull();
+        reset(visibilityHandler);
+
+        subject.scheduleVisibilityCheck();
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                VisibilityScheduler.PASS_THROTTLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(visibilityHandler, never()).postDelayed(any(Runnable.class), anyLong());
+        verify(visibilityTrackerListener).onVisibilityChanged(
+                Lists.newArrayList(view), Lists.<View>newArrayList());
+        assertThat(subject.mVisibilityScheduler.getPassCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void scheduleVisibilityCheck_withoutVisibilityScheduler_shouldPostToVisibilityHandler() throws Exception {
+        subject = new VisibilityTracker(activity.getApplicationContext(), trackedViews,
+                visibilityChecker, visibilityHandler);
+
+        subject.scheduleVisibilityCheck();
+
+        verify(visibilityHandler).postDelayed(any(VisibilityTracker.VisibilityRunnable.class),
+                anyLong());
     }
 
     @Test
@@ -236,6 +304,85 @@ public class VisibilityTrackerTest {
         assertThat(invisibleCaptor.getValue().size()).isEqualTo(1);
     }
 
+    @Test
+    public void visibilityRunnable_run_withViewThatHasNotMoved_shouldReuseLastResult() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+
+        subject.new VisibilityRunnable().run();
+        subject.new VisibilityRunnable().run();
+
+        verify(view, times(1)).getGlobalVisibleRect(any(Rect.class));
+        verify(visibilityTrackerListener, times(2)).onVisibilityChanged(
+                Lists.newArrayList(view), Lists.<View>newArrayList());
+        assertThat(subject.getCheckedViewCount()).isEqualTo(1);
+        assertThat(subject.getSkippedViewCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void visibilityRunnable_run_withViewThatHasFaded_shouldCheckAgain() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        subject.new VisibilityRunnable().run();
+
+        when(view.getAlpha()).thenReturn(0.5f);
+        subject.new VisibilityRunnable().run();
+
+        verify(view, times(2)).getGlobalVisibleRect(any(Rect.class));
+        assertThat(subject.getSkippedViewCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void visibilityRunnable_run_afterFullCheckInterval_shouldCheckViewsThatHaveNotMoved() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        subject.new VisibilityRunnable().run();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                VisibilityTracker.FULL_CHECK_INTERVAL_MILLIS - 1, TimeUnit.MILLISECONDS);
+        subject.new VisibilityRunnable().run();
+        verify(view, times(1)).getGlobalVisibleRect(any(Rect.class));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1, TimeUnit.MILLISECONDS);
+        subject.new VisibilityRunnable().run();
+        verify(view, times(2)).getGlobalVisibleRect(any(Rect.class));
+
+        // The interval starts again from the full check
+        subject.new VisibilityRunnable().run();
+        verify(view, times(2)).getGlobalVisibleRect(any(Rect.class));
+    }
+
+    @Test
+    public void visibilityRunnable_run_withViewThatHasMoved_shouldCheckAgain() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        subject.new VisibilityRunnable().run();
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                final int[] location = (int[]) invocation.getArguments()[0];
+                location[0] = 0;
+                location[1] = 500;
+                return null;
+            }
+        }).when(view).getLocationInWindow(any(int[].class));
+        when(view.getGlobalVisibleRect(any(Rect.class))).thenReturn(false);
+        subject.new VisibilityRunnable().run();
+
+        verify(visibilityTrackerListener).onVisibilityChanged(
+                Lists.newArrayList(view), Lists.<View>newArrayList());
+        verify(visibilityTrackerListener).onVisibilityChanged(
+                Lists.<View>newArrayList(), Lists.newArrayList(view));
+    }
+
+    @Test
+    public void visibilityRunnable_run_afterViewIsAddedAgain_shouldCheckAgain() throws Exception {
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        subject.new VisibilityRunnable().run();
+
+        subject.addView(view, MIN_PERCENTAGE_VIEWED, null);
+        subject.new VisibilityRunnable().run();
+
+        verify(view, times(2)).getGlobalVisibleRect(any(Rect.class));
+    }
+
     // VisibilityChecker tests
 
     @Test
@@ -369,6 +516,43 @@ public class VisibilityTrackerTest {
         assertThat(trackedViews).hasSize(1);
     }
 
+    @Test
+    public void hasGeometryChanged_shouldDetectEachChange() throws Exception {
+        final TrackingInfo trackingInfo = new TrackingInfo();
+        final VisibilityTracker.ViewGeometry geometry = trackingInfo.mGeometry;
+
+        // Nothing recorded yet
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+
+        when(view.getWidth()).thenReturn(50);
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+
+        when(view.getAlpha()).thenReturn(1f);
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+
+        when(view.isShown()).thenReturn(true);
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+
+        when(view.getParent()).thenReturn(null);
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((int[]) invocation.getArguments()[0])[0] = 10;
+                return null;
+            }
+        }).when(view).getLocationInWindow(any(int[].class));
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isTrue();
+        assertThat(visibilityChecker.hasGeometryChanged(view, view, geometry)).isFalse();
+        assertThat(geometry.mWindowX).isEqualTo(10);
+    }
+
     public static View createViewMock(final int visibility,
             final int visibleWidth,
             final int visibleHeight,
@@ -0,0 +1,131 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.mopub.common.logging.MoPubLog.AdLogEvent;
+import static com.mopub.common.logging.MoPubLog.LogLevel;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Checks that MoPubLog does no work for events no logger accepts, and that it logs the same
+ * messages as it used to when it walked the stack before checking the loggers.
+ */
+@RunWith(SdkTestRunner.class)
+public class MoPubLogBenchmarkTest {
+    private static final int CALLS = 1000;
+
+    private CountingLogger logger;
+    private Map<MoPubLogger, LogLevel> loggers;
+    private LogLevel previousLogLevel;
+
+    @Before
+    public void setUp() {
+        // Other tests may have left the default logger accepting debug events
+        previousLogLevel = MoPubLog.getLogLevel();
+        MoPubLog.setLogLevel(LogLevel.INFO);
+        logger = new CountingLogger();
+        MoPubLog.addLogger(logger, LogLevel.INFO);
+        loggers = new HashMap<MoPubLogger, LogLevel>();
+        loggers.put(logger, LogLevel.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        MoPubLog.removeLogger(logger);
+        MoPubLog.setLogLevel(previousLogLevel);
+    }
+
+    @Test
+    public void log_withEventBelowLoggerLevels_shouldNotBuildMessages() {
+        final CountingArgument argument = new CountingArgument();
+
+        for (int i = 0; i < CALLS; i++) {
+            MoPubLog.log(AdLogEvent.CUSTOM, argument);
+            MoPubLog.log("identifier", AdLogEvent.CUSTOM, argument);
+        }
+
+        assertThat(MoPubLog.isLoggable(AdLogEvent.CUSTOM)).isFalse();
+        assertThat(argument.mToStringCount).isEqualTo(0);
+        assertThat(logger.mCount).isEqualTo(0);
+    }
+
+    @Test
+    public void log_withEventAtLevelOfTwoLoggers_shouldBuildMessageOnce() {
+        final CountingLogger otherLogger = new CountingLogger();
+        MoPubLog.addLogger(otherLogger, LogLevel.DEBUG);
+        final CountingArgument argument = new CountingArgument();
+
+        try {
+            for (int i = 0; i < CALLS; i++) {
+                MoPubLog.log(AdLogEvent.LOAD_FAILED, argument, "error");
+            }
+        } finally {
+            MoPubLog.removeLogger(otherLogger);
+        }
+
+        assertThat(argument.mToStringCount).isEqualTo(CALLS);
+        assertThat(logger.mCount).isEqualTo(CALLS);
+        assertThat(otherLogger.mCount).isEqualTo(CALLS);
+        assertThat(otherLogger.mLastMessage).isEqualTo(logger.mLastMessage);
+    }
+
+    @Test
+    public void log_withEventAtLoggerLevel_shouldLogSameMessageAsStackWalk() {
+        logWithStackWalk(1, AdLogEvent.LOAD_FAILED);
+        final String stackWalkMessage = logger.mLastMessage;
+        MoPubLog.log(AdLogEvent.LOAD_FAILED, 1, "error");
+
+        assertThat(logger.mCount).isEqualTo(2);
+        assertThat(logger.mLastMessage).isEqualTo(stackWalkMessage);
+    }
+
+    /**
+     * What MoPubLog.log did before checking the level of the event first.
+     */
+    private void logWithStackWalk(final int calls, final AdLogEvent event) {
+        for (int i = 0; i < calls; i++) {
+            final StackTraceElement caller = Thread.currentThread().getStackTrace()[2];
+            for (final MoPubLogger mopubLogger : loggers.keySet()) {
+                if (loggers.get(mopubLogger) != null
+                        && loggers.get(mopubLogger).intValue() <= event.getLogLevel().intValue()) {
+                    mopubLogger.log(caller.getClassName(), caller.getMethodName(), null,
+                            event.getMessage(1, "error"));
+                }
+            }
+        }
+    }
+
+    private static class CountingArgument {
+        int mToStringCount;
+
+        @Override
+        public String toString() {
+            mToStringCount++;
+            return "argument";
+        }
+    }
+
+    private static class CountingLogger implements MoPubLogger {
+        int mCount;
+        String mLastMessage;
+
+        @Override
+        public void log(final String className, final String methodName,
+                final String identifier, final String message) {
+            mCount++;
+            mLastMessage = message;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mopub.common.logging.MoPubLog.AdLogEvent;
+import static com.mopub.common.logging.MoPubLog.LogLevel;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class MoPubLogTest {
+    private List<MoPubLogger> addedLoggers;
+
+    @Before
+    public void setUp() {
+        addedLoggers = new ArrayList<MoPubLogger>();
+    }
+
+    @After
+    public void tearDown() {
+        // MoPubLog is static, so keep these loggers out of the tests that run next
+        for (final MoPubLogger logger : addedLoggers) {
+            MoPubLog.removeLogger(logger);
+        }
+    }
+
+    @Test
+    public void log_withLoggerAtInfo_withDebugEvent_shouldNotLog() {
+        final MoPubLogger logger = addLogger(LogLevel.INFO);
+
+        MoPubLog.log(AdLogEvent.CLICKED);
+
+        verify(logger, never()).log(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void log_withLoggerAtInfo_withInfoEvent_shouldLogWithCallingClassAndMethod() {
+        final MoPubLogger logger = addLogger(LogLevel.INFO);
+
+        MoPubLog.log("identifier", AdLogEvent.LOAD_FAILED, 1, "error");
+
+        verify(logger).log(MoPubLogTest.class.getName(),
+                "log_withLoggerAtInfo_withInfoEvent_shouldLogWithCallingClassAndMethod",
+                "identifier", "Ad failed to load: (1) error");
+    }
+
+    @Test
+    public void log_withLoggerAtDebug_withNullEvent_shouldNotLog() {
+        final MoPubLogger logger = addLogger(LogLevel.DEBUG);
+
+        MoPubLog.log(null, "message");
+
+        verify(logger, never()).log(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void log_withLoggerAtNullLevel_shouldNotLog() {
+        final MoPubLogger logger = addLogger(null);
+
+        MoPubLog.log(AdLogEvent.LOAD_SUCCESS);
+
+        verify(logger, never()).log(anyString(), anyString(), anyString(), eq("Ad loaded"));
+    }
+
+    @Test
+    public void isLoggable_withLoggerAtDebug_shouldAcceptDebugEvents() {
+        addLogger(LogLevel.DEBUG);
+
+        assertThat(MoPubLog.isLoggable(AdLogEvent.CLICKED)).isTrue();
+        assertThat(MoPubLog.isLoggable(AdLogEvent.LOAD_SUCCESS)).isTrue();
+    }
+
+    @Test
+    public void isLoggable_withNullEvent_shouldReturnFalse() {
+        assertThat(MoPubLog.isLoggable(null)).isFalse();
+    }
+
+    private MoPubLogger addLogger(final LogLevel logLevel) {
+        final MoPubLogger logger = mock(MoPubLogger.class);
+        MoPubLog.addLogger(logger, logLevel);
+        addedLoggers.add(logger);
+        return logger;
+    }
+}
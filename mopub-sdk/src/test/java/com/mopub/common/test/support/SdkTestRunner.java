@@ -21,6 +21,7 @@ import com.mopub.common.util.test.support.ShadowMoatFactory;
 import com.mopub.common.util.test.support.ShadowReflection;
 import com.mopub.common.util.test.support.TestDateAndTime;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
+import com.mopub.mobileads.VastWrapperResolver;
 import com.mopub.mobileads.factories.AdViewControllerFactory;
 import com.mopub.mobileads.factories.CustomEventBannerAdapterFactory;
 import com.mopub.mobileads.factories.CustomEventBannerFactory;
@@ -41,8 +42,12 @@ import com.mopub.mobileads.test.support.TestHtmlInterstitialWebViewFactory;
 import com.mopub.mobileads.test.support.TestMoPubViewFactory;
 import com.mopub.mobileads.test.support.TestMraidControllerFactory;
 import com.mopub.mobileads.test.support.TestVastManagerFactory;
+import com.mopub.nativeads.NativeImageHelper;
 import com.mopub.nativeads.factories.CustomEventNativeFactory;
 import com.mopub.nativeads.test.support.TestCustomEventNativeFactory;
+import com.mopub.network.BeaconQueue;
+import com.mopub.network.Networking;
+import com.mopub.network.TrackingDispatcher;
 
 import org.junit.runners.model.InitializationError;
 import org.mockito.MockitoAnnotations;
@@ -103,6 +108,11 @@ public class SdkTestRunner extends RobolectricTestRunner {
 
             AsyncTasks.setExecutor(new RoboExecutorService());
             CacheService.clearAndNullCaches();
+            VastWrapperResolver.clearCache();
+            NativeImageHelper.clearPreCacheQueueForTesting();
+            TrackingDispatcher.clearForTesting();
+            BeaconQueue.clearForTesting();
+            Networking.setHttpTransportForTesting(null);
         }
     }
 }
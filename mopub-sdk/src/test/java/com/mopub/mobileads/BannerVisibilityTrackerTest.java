@@ -66,7 +66,7 @@ public class BannerVisibilityTrackerTest {
     }
 
     @Test
-    public void constructor_shouldSetOnPreDrawListenerForDecorView() throws Exception {
+    public void constructor_shouldRegisterWithVisibilitySchedulerForDecorView() throws Exception {
         Activity spyActivity = spy(Robolectric.buildActivity(Activity.class).create().get());
         Window window = mock(Window.class);
         View decorView = mock(View.class);
@@ -79,8 +79,8 @@ public class BannerVisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(true);
 
         subject = new BannerVisibilityTracker(spyActivity, mockView, mockView, MIN_VISIBLE_DIPS, MIN_VISIBLE_MILLIS);
-        assertThat(subject.mOnPreDrawListener).isNotNull();
-        verify(viewTreeObserver).addOnPreDrawListener(subject.mOnPreDrawListener);
+        assertThat(subject.mVisibilityScheduler).isNotNull();
+        verify(viewTreeObserver).addOnPreDrawListener(any(OnPreDrawListener.class));
         assertThat(subject.mWeakViewTreeObserver.get()).isEqualTo(viewTreeObserver);
     }
 
@@ -97,7 +97,8 @@ public class BannerVisibilityTrackerTest {
         when(viewTreeObserver.isAlive()).thenReturn(false);
 
         subject = new BannerVisibilityTracker(mockActivity, mockView, mockView, MIN_VISIBLE_DIPS, MIN_VISIBLE_MILLIS);
-        verify(viewTreeObserver, never()).addOnPreDrawListener(subject.mOnPreDrawListener);
+        verify(viewTreeObserver, never()).addOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(subject.mVisibilityScheduler).isNull();
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
     }
 
@@ -141,6 +142,7 @@ public class BannerVisibilityTrackerTest {
         assertThat(visibilityHandler.hasMessages(0)).isFalse();
         assertThat(subject.isVisibilityScheduled()).isFalse();
         verify(viewTreeObserver).removeOnPreDrawListener(any(OnPreDrawListener.class));
+        assertThat(subject.mVisibilityScheduler).isNull();
         assertThat(subject.mWeakViewTreeObserver.get()).isNull();
         assertThat(subject.getBannerVisibilityTrackerListener()).isNull();
     }
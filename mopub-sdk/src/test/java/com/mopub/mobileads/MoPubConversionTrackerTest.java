@@ -16,6 +16,7 @@ import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.Reflection;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
+import com.mopub.network.TrackingDispatcher;
 import com.mopub.network.TrackingRequest;
 import com.mopub.volley.VolleyError;
 
@@ -99,6 +100,19 @@ public class MoPubConversionTrackerTest {
         verify(mockRequestQueue).add(any(TrackingRequest.class));
     }
 
+    @Test
+    public void reportAppOpen_shouldDispatchRightAwayWithoutBeaconQueue() throws Exception {
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
+        when(mockPersonalInfoManager.getPersonalInfoConsentStatus()).thenReturn(ConsentStatus.EXPLICIT_YES);
+
+        prepareMoPub_getPersonalInfoManager();
+
+        subject.reportAppOpen(false);
+
+        verify(mockRequestQueue).add(any(TrackingRequest.class));
+        assertThat(TrackingDispatcher.getInstance().getDispatchedCount()).isEqualTo(1);
+    }
+
     @Test
     public void reportAppOpen_shouldNotTrackIfConsentIsFalse() throws Exception {
         when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(false);
@@ -0,0 +1,205 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.test.support.RangeHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class ProgressiveVideoServerTest {
+    private static final long MAX_SIZE = 25 * 1024 * 1024;
+
+    private byte[] mBody;
+    private RangeHttpServer mVideoServer;
+    private ProgressiveVideoServer subject;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initialize(context);
+
+        mBody = new byte[(int) (RangedVideoDownload.MIN_PART_SIZE * 3)];
+        new Random(1).nextBytes(mBody);
+        mVideoServer = new RangeHttpServer(mBody);
+        subject = new ProgressiveVideoServer();
+    }
+
+    @After
+    public void tearDown() {
+        subject.shutdown();
+        mVideoServer.shutdown();
+        CacheService.clearAndNullCaches();
+    }
+
+    @Test
+    public void serve_whileDownloading_shouldServeBytesAsTheyArrive() throws Exception {
+        mVideoServer.setBytesPerSecondPerConnection(4 * 1024 * 1024);
+        final CountDownLatch buffered = new CountDownLatch(1);
+        final RangedVideoDownload download =
+                new RangedVideoDownload(mVideoServer.getUrl(), MAX_SIZE, null);
+        download.setBufferListener(1024 * 1024, new RangedVideoDownload.BufferListener() {
+            @Override
+            public void onBuffered() {
+                buffered.countDown();
+            }
+        });
+        final AtomicBoolean downloaded = new AtomicBoolean();
+        final Thread downloadThread = new Thread() {
+            @Override
+            public void run() {
+                downloaded.set(download.download());
+            }
+        };
+        downloadThread.start();
+
+        assertThat(buffered.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(CacheService.getFromDiskCache(mVideoServer.getUrl())).isNull();
+        final String playbackUrl = subject.register(mVideoServer.getUrl());
+
+        final HttpURLConnection tail = open(playbackUrl, "bytes=" + (mBody.length - 1000) + "-");
+        assertThat(tail.getResponseCode()).isEqualTo(206);
+        assertThat(tail.getHeaderField("Content-Range"))
+                .isEqualTo("bytes " + (mBody.length - 1000) + "-" + (mBody.length - 1) + "/"
+                        + mBody.length);
+        assertThat(read(tail))
+                .isEqualTo(Arrays.copyOfRange(mBody, mBody.length - 1000, mBody.length));
+
+        final HttpURLConnection whole = open(playbackUrl, null);
+        assertThat(whole.getResponseCode()).isEqualTo(200);
+        assertThat(read(whole)).isEqualTo(mBody);
+
+        downloadThread.join();
+        assertThat(downloaded.get()).isTrue();
+    }
+
+    @Test
+    public void serve_afterDownloadCompletes_shouldServeCachedVideo() throws Exception {
+        assertThat(new RangedVideoDownload(mVideoServer.getUrl(), MAX_SIZE, null).download())
+                .isTrue();
+        final String playbackUrl = subject.register(mVideoServer.getUrl());
+
+        final HttpURLConnection connection = open(playbackUrl, "bytes=10-19");
+
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(read(connection)).isEqualTo(Arrays.copyOfRange(mBody, 10, 20));
+    }
+
+    @Test
+    public void serve_withUnregisteredPath_shouldReturn404() throws Exception {
+        final String playbackUrl = subject.register(mVideoServer.getUrl());
+        final String otherUrl = playbackUrl.substring(0, playbackUrl.lastIndexOf('/')) + "/other";
+
+        assertThat(open(otherUrl, null).getResponseCode()).isEqualTo(404);
+    }
+
+    @Test
+    public void unregister_shouldStopServingPath() throws Exception {
+        assertThat(new RangedVideoDownload(mVideoServer.getUrl(), MAX_SIZE, null).download())
+                .isTrue();
+        final String playbackUrl = subject.register(mVideoServer.getUrl());
+
+        assertThat(open(playbackUrl, "bytes=0-0").getResponseCode()).isEqualTo(206);
+
+        subject.unregister(playbackUrl.substring(playbackUrl.lastIndexOf('/') + 1));
+
+        assertThat(subject.getRegisteredCount()).isEqualTo(0);
+        assertThat(open(playbackUrl, null).getResponseCode()).isEqualTo(404);
+    }
+
+    @Test
+    public void register_withMoreThanMaxRegisteredVideos_shouldForgetOldestPath()
+            throws Exception {
+        final String oldestUrl = subject.register(mVideoServer.getUrl());
+        for (int i = 0; i < ProgressiveVideoServer.MAX_REGISTERED_VIDEOS; i++) {
+            subject.register(mVideoServer.getUrl());
+        }
+
+        assertThat(subject.getRegisteredCount())
+                .isEqualTo(ProgressiveVideoServer.MAX_REGISTERED_VIDEOS);
+        assertThat(open(oldestUrl, null).getResponseCode()).isEqualTo(404);
+    }
+
+    @Test
+    public void serve_withRangePastEnd_shouldReturn416() throws Exception {
+        assertThat(new RangedVideoDownload(mVideoServer.getUrl(), MAX_SIZE, null).download())
+                .isTrue();
+        final String playbackUrl = subject.register(mVideoServer.getUrl());
+
+        final HttpURLConnection connection = open(playbackUrl, "bytes=" + mBody.length + "-");
+
+        assertThat(connection.getResponseCode()).isEqualTo(416);
+        assertThat(connection.getHeaderField("Content-Range")).isEqualTo("bytes */" + mBody.length);
+    }
+
+    @Test
+    public void getPlaybackUrl_withoutActiveDownload_shouldReturnDiskMediaFileUrl() {
+        assertThat(ProgressiveVideoServer.getPlaybackUrl(mVideoServer.getUrl(), "/disk/path"))
+                .isEqualTo("/disk/path");
+        assertThat(ProgressiveVideoServer.getPlaybackUrl(null, "/disk/path"))
+                .isEqualTo("/disk/path");
+    }
+
+    @Test
+    public void parseRange_shouldReturnFirstAndLastByte() {
+        assertThat(ProgressiveVideoServer.parseRange("bytes=100-199"))
+                .isEqualTo(new long[]{100, 199});
+        assertThat(ProgressiveVideoServer.parseRange("bytes=100-"))
+                .isEqualTo(new long[]{100, -1});
+    }
+
+    @Test
+    public void parseRange_withUnsupportedRange_shouldReturnNull() {
+        assertThat(ProgressiveVideoServer.parseRange(null)).isNull();
+        assertThat(ProgressiveVideoServer.parseRange("bytes=-100")).isNull();
+        assertThat(ProgressiveVideoServer.parseRange("bytes=0-1,5-6")).isNull();
+        assertThat(ProgressiveVideoServer.parseRange("bytes=9-1")).isNull();
+        assertThat(ProgressiveVideoServer.parseRange("items=0-1")).isNull();
+    }
+
+    private static HttpURLConnection open(final String url, final String range) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        return connection;
+    }
+
+    private static byte[] read(final HttpURLConnection connection) throws Exception {
+        final InputStream inputStream = connection.getInputStream();
+        try {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.test.support.RangeHttpServer;
+import com.mopub.network.Networking;
+import com.mopub.network.PooledHttpTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@RunWith(SdkTestRunner.class)
+public class RangedVideoDownloadTest {
+    private static final long MAX_SIZE = 25 * 1024 * 1024;
+    // The threads of a request queue
+    private static final int QUEUE_THREAD_COUNT = 4;
+
+    private byte[] mBody;
+    private RangeHttpServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initialize(context);
+
+        mBody = new byte[(int) (RangedVideoDownload.MIN_PART_SIZE * 3)];
+        new Random(1).nextBytes(mBody);
+        mServer = new RangeHttpServer(mBody);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.shutdown();
+        CacheService.clearAndNullCaches();
+        Networking.clearForTesting();
+    }
+
+    @Test
+    public void download_shouldSplitVideoIntoParts_shouldCacheCompleteVideo() {
+        RangedVideoDownload subject = new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+
+        assertThat(subject.download()).isTrue();
+
+        assertThat(subject.getPartCount()).isEqualTo(3);
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isEqualTo(mBody);
+        assertThat(CacheService.getPartialLengthDiskCache(mServer.getUrl())).isEqualTo(0);
+        assertThat(mServer.getBytesServed()).isEqualTo(mBody.length);
+    }
+
+    @Test
+    public void download_afterDroppedConnection_shouldResumeFromPartialVideo() {
+        mServer.dropNextResponseAfter(1024 * 1024);
+        RangedVideoDownload first = new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+
+        assertThat(first.download()).isFalse();
+        assertThat(CacheService.getPartialLengthDiskCache(mServer.getUrl()))
+                .isEqualTo(1024 * 1024);
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isNull();
+
+        final int firstRangeCount = mServer.getRangeHeaders().size();
+        RangedVideoDownload second = new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+
+        assertThat(second.download()).isTrue();
+        assertThat(second.getResumedFrom()).isEqualTo(1024 * 1024);
+        assertThat(second.getBytesDownloaded()).isEqualTo(mBody.length - 1024 * 1024);
+        assertThat(mServer.getRangeHeaders().get(firstRangeCount)).startsWith("bytes=1048576-");
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isEqualTo(mBody);
+        assertThat(CacheService.getPartialLengthDiskCache(mServer.getUrl())).isEqualTo(0);
+    }
+
+    @Test
+    public void download_withBufferListener_whenDroppedMidStream_shouldBufferThenNotifyFailure() {
+        mServer.dropNextResponseAfter(1024 * 1024);
+        final RangedVideoDownload subject =
+                new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+        final boolean[] buffered = new boolean[1];
+        final List<Boolean> finished = new ArrayList<Boolean>();
+        subject.setBufferListener(512 * 1024, new RangedVideoDownload.BufferListener() {
+            @Override
+            public void onBuffered() {
+                buffered[0] = true;
+            }
+        });
+        assertThat(subject.addFinishListener(new RangedVideoDownload.FinishListener() {
+            @Override
+            public void onFinished(final boolean success) {
+                finished.add(success);
+            }
+        })).isTrue();
+
+        assertThat(subject.download()).isFalse();
+
+        assertThat(buffered[0]).isTrue();
+        assertThat(finished).containsExactly(false);
+        assertThat(RangedVideoDownload.getActiveDownload(mServer.getUrl())).isNull();
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isNull();
+    }
+
+    @Test
+    public void addFinishListener_afterDownloadFinished_shouldNotAddListener() {
+        final RangedVideoDownload subject =
+                new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+        assertThat(subject.download()).isTrue();
+
+        assertThat(subject.addFinishListener(mock(RangedVideoDownload.FinishListener.class)))
+                .isFalse();
+    }
+
+    @Test
+    public void download_withoutRangeSupport_shouldUseOnePart() {
+        mServer.setRangesSupported(false);
+        RangedVideoDownload subject = new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+
+        assertThat(subject.download()).isTrue();
+
+        assertThat(subject.getPartCount()).isEqualTo(1);
+        assertThat(mServer.getRequestCount()).isEqualTo(1);
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isEqualTo(mBody);
+    }
+
+    @Test
+    public void download_withoutRangeSupport_withPartialVideo_shouldStartOver() {
+        mServer.dropNextResponseAfter(1024 * 1024);
+        assertThat(new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null).download()).isFalse();
+        mServer.setRangesSupported(false);
+        RangedVideoDownload subject = new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+
+        assertThat(subject.download()).isTrue();
+
+        assertThat(subject.getBytesDownloaded()).isEqualTo(mBody.length);
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isEqualTo(mBody);
+    }
+
+    @Test
+    public void download_withVideoLargerThanMaxSize_shouldNotKeepPartialVideo() {
+        RangedVideoDownload subject =
+                new RangedVideoDownload(mServer.getUrl(), mBody.length - 1, null);
+
+        assertThat(subject.download()).isFalse();
+
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isNull();
+        assertThat(CacheService.getPartialLengthDiskCache(mServer.getUrl())).isEqualTo(0);
+    }
+
+    @Test
+    public void download_withConcurrentRequestsToSameHost_shouldNotHoldUpRequests()
+            throws Exception {
+        Networking.clearForTesting();
+        final PooledHttpTransport transport = (PooledHttpTransport) Networking.getHttpTransport();
+        // Slow enough that the parts are still being downloaded while the requests are sent
+        mServer.setBytesPerSecondPerConnection(RangedVideoDownload.MIN_PART_SIZE / 2);
+        final RangedVideoDownload subject =
+                new RangedVideoDownload(mServer.getUrl(), MAX_SIZE, null);
+        final ExecutorService executor = Executors.newFixedThreadPool(QUEUE_THREAD_COUNT + 1);
+        try {
+            final Future<Boolean> download = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return subject.download();
+                }
+            });
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (mServer.getRequestCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(mServer.getRequestCount()).isEqualTo(3);
+
+            // Every queue thread has a connection open before any of them is released
+            final CountDownLatch opened = new CountDownLatch(QUEUE_THREAD_COUNT);
+            final List<Future<Integer>> requests = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < QUEUE_THREAD_COUNT; i++) {
+                requests.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return sendRequest(transport, opened);
+                    }
+                }));
+            }
+            for (final Future<Integer> request : requests) {
+                assertThat(request.get()).isEqualTo(HttpURLConnection.HTTP_PARTIAL);
+            }
+
+            // Every request was answered while the video was still downloading
+            assertThat(download.isDone()).isFalse();
+            assertThat(download.get()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(CacheService.getFromDiskCache(mServer.getUrl())).isEqualTo(mBody);
+        assertThat(transport.getConnectionCount()).isEqualTo(3 + QUEUE_THREAD_COUNT);
+        assertThat(transport.getOverPoolSizeCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void splitIntoParts_withLargeRemainder_shouldSplitIntoEqualParts() {
+        List<RangedVideoDownload.Part> parts = new ArrayList<RangedVideoDownload.Part>();
+        final long min = RangedVideoDownload.MIN_PART_SIZE;
+
+        RangedVideoDownload.splitIntoParts(100, min + 100, 3 * min + 101, parts);
+
+        assertThat(parts).hasSize(3);
+        assertThat(parts.get(0).start).isEqualTo(100);
+        assertThat(parts.get(0).end).isEqualTo(min + 100);
+        assertThat(parts.get(1).start).isEqualTo(min + 100);
+        assertThat(parts.get(1).end).isEqualTo(2 * min + 100);
+        assertThat(parts.get(2).start).isEqualTo(2 * min + 100);
+        assertThat(parts.get(2).end).isEqualTo(3 * min + 101);
+    }
+
+    @Test
+    public void splitIntoParts_withSmallRemainder_shouldUseOneMorePart() {
+        List<RangedVideoDownload.Part> parts = new ArrayList<RangedVideoDownload.Part>();
+
+        RangedVideoDownload.splitIntoParts(0, 10, 20, parts);
+
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(1).start).isEqualTo(10);
+        assertThat(parts.get(1).end).isEqualTo(20);
+    }
+
+    @Test
+    public void splitIntoParts_withFirstPartCoveringVideo_shouldUseOnePart() {
+        List<RangedVideoDownload.Part> parts = new ArrayList<RangedVideoDownload.Part>();
+
+        RangedVideoDownload.splitIntoParts(0, 20, 20, parts);
+
+        assertThat(parts).hasSize(1);
+    }
+
+    @Test
+    public void splitIntoParts_withUnknownTotal_shouldAddOpenEndedPart() {
+        List<RangedVideoDownload.Part> parts = new ArrayList<RangedVideoDownload.Part>();
+
+        RangedVideoDownload.splitIntoParts(0, 10, -1, parts);
+
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(1).start).isEqualTo(10);
+        assertThat(parts.get(1).end).isEqualTo(-1);
+    }
+
+    @Test
+    public void parseContentRange_shouldReturnFirstLastAndTotal() {
+        assertThat(RangedVideoDownload.parseContentRange("bytes 100-199/1000"))
+                .isEqualTo(new long[]{100, 199, 1000});
+        assertThat(RangedVideoDownload.parseContentRange("bytes 0-9/*"))
+                .isEqualTo(new long[]{0, 9, -1});
+    }
+
+    @Test
+    public void parseContentRange_withMalformedHeader_shouldReturnNull() {
+        assertThat(RangedVideoDownload.parseContentRange(null)).isNull();
+        assertThat(RangedVideoDownload.parseContentRange("bytes */1000")).isNull();
+        assertThat(RangedVideoDownload.parseContentRange("items 0-9/10")).isNull();
+        assertThat(RangedVideoDownload.parseContentRange("bytes a-9/10")).isNull();
+    }
+
+    /**
+     * Sends a request for the first byte of the video, the way a request queue would, once
+     * {@code opened} says the other requests have opened their connections too.
+     *
+     * @return the status code of the response
+     */
+    private int sendRequest(final PooledHttpTransport transport, final CountDownLatch opened)
+            throws Exception {
+        final HttpURLConnection connection = transport.openConnection(new URL(mServer.getUrl()));
+        try {
+            opened.countDown();
+            assertThat(opened.await(5, TimeUnit.SECONDS)).isTrue();
+            connection.setRequestProperty("Range", "bytes=0-0");
+            final InputStream inputStream = connection.getInputStream();
+            try {
+                while (inputStream.read() != -1) {
+                    // Read the whole response so the connection can be reused
+                }
+            } finally {
+                inputStream.close();
+            }
+            return connection.getResponseCode();
+        } finally {
+            transport.release(connection);
+        }
+    }
+}
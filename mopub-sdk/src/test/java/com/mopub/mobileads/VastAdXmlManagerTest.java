@@ -6,10 +6,10 @@ package com.mopub.mobileads;
 
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.test.support.VastUtils;
+import com.mopub.mobileads.util.XmlNode;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.w3c.dom.Node;
 
 import static com.mopub.mobileads.test.support.VastUtils.createNode;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -34,7 +34,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         VastInLineXmlManager vastInLineXmlManager = subject.getInLineXmlManager();
@@ -62,7 +62,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         VastInLineXmlManager vastInLineXmlManager = subject.getInLineXmlManager();
@@ -80,7 +80,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         assertThat(subject.getInLineXmlManager()).isNull();
@@ -101,7 +101,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         VastWrapperXmlManager vastWrapperXmlManager = subject.getWrapperXmlManager();
@@ -129,7 +129,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         VastWrapperXmlManager vastWrapperXmlManager = subject.getWrapperXmlManager();
@@ -147,7 +147,7 @@ public class VastAdXmlManagerTest {
                 "    </InLine>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         assertThat(subject.getWrapperXmlManager()).isNull();
@@ -168,7 +168,7 @@ public class VastAdXmlManagerTest {
                 "    </Wrapper>" +
                 "</Ad>";
 
-        Node adNode = createNode(adXml);
+        XmlNode adNode = createNode(adXml);
         subject = new VastAdXmlManager(adNode);
 
         assertThat(subject.getSequence()).isEqualTo("42");
@@ -6,10 +6,10 @@ package com.mopub.mobileads;
 
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.test.support.VastUtils;
+import com.mopub.mobileads.util.XmlNode;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.w3c.dom.Node;
 
 import java.util.List;
 
@@ -42,7 +42,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(VastUtils.vastTrackersToStrings(subject.getImpressionTrackers()))
@@ -54,7 +54,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
         String inLineXml = "<InLine>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getImpressionTrackers()).isEmpty();
@@ -103,7 +103,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         List<VastLinearXmlManager> linearXmlManagers = subject.getLinearXmlManagers();
@@ -136,7 +136,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -162,7 +162,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -188,7 +188,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "                 </Creative>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -240,7 +240,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getCompanionAdXmlManagers()).hasSize(2);
@@ -263,7 +263,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -285,7 +285,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -307,7 +307,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "          </Creatives>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -329,7 +329,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "                 </Creative>" +
                 "</InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getLinearXmlManagers()).isEmpty();
@@ -344,7 +344,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "               </Extensions>" +
                 "           </InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getVastExtensionParentXmlManager()).isNotNull();
@@ -364,7 +364,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "               </Extensions>" +
                 "           </InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getVastExtensionParentXmlManager()).isNotNull();
@@ -388,7 +388,7 @@ public class VastBaseInLineWrapperXmlManagerTest {
                 "                 </Creative>" +
                 "           </InLine>";
 
-        Node inLineNode = createNode(inLineXml);
+        XmlNode inLineNode = createNode(inLineXml);
         subject = new VastInLineXmlManager(inLineNode);
 
         assertThat(subject.getVastExtensionParentXmlManager()).isNull();
@@ -6,11 +6,11 @@ package com.mopub.mobileads;
 
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.mobileads.test.support.VastUtils;
+import com.mopub.mobileads.util.XmlNode;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.w3c.dom.Node;
 
 import static com.mopub.mobileads.test.support.VastUtils.createNode;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -19,7 +19,7 @@ import static org.fest.assertions.api.Assertions.assertThat;
 public class VastCompanionAdConfigXmlManagerTest {
 
     private VastCompanionAdXmlManager subject;
-    private Node companionNode;
+    private XmlNode companionNode;
 
     @Before
     public void setup() throws Exception {
@@ -5,11 +5,11 @@
 package com.mopub.mobileads;
 
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.util.XmlNode;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.w3c.dom.Node;
 
 import static com.mopub.mobileads.test.support.VastUtils.createNode;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -18,7 +18,7 @@ import static org.fest.assertions.api.Assertions.assertThat;
 public class VastResourceXmlManagerTest {
 
     private VastResourceXmlManager subject;
-    private Node resourceNode;
+    private XmlNode resourceNode;
 
     @Before
     public void setup() throws Exception {
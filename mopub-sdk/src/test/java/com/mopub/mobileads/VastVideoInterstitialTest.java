@@ -39,10 +39,12 @@ import static com.mopub.mobileads.MoPubErrorCode.NETWORK_INVALID_STATE;
 import static com.mopub.mobileads.VastManager.VastManagerListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
@@ -226,4 +228,33 @@ public class VastVideoInterstitialTest extends ResponseBodyInterstitialTest {
 
         verify(customEventInterstitialListener).onInterstitialFailed(MoPubErrorCode.VIDEO_DOWNLOAD_ERROR);
     }
+
+    @Test
+    public void onVastVideoDownloadFailed_beforeShown_shouldFireErrorTrackersAndSignalOnInterstitialFailed() throws Exception {
+        final VastVideoConfig vastVideoConfig = mock(VastVideoConfig.class);
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras, serverExtras);
+        ((VastVideoInterstitial) subject).onVastVideoConfigurationPrepared(vastVideoConfig);
+
+        ((VastVideoInterstitial) subject).onVastVideoDownloadFailed(vastVideoConfig);
+
+        verify(customEventInterstitialListener).onInterstitialLoaded();
+        verify(vastVideoConfig).handleError(any(Context.class),
+                eq(VastErrorCode.GENERAL_LINEAR_AD_ERROR), eq(0));
+        verify(customEventInterstitialListener).onInterstitialFailed(MoPubErrorCode.VIDEO_DOWNLOAD_ERROR);
+    }
+
+    @Test
+    public void onVastVideoDownloadFailed_afterShown_shouldLeaveErrorToVideoPlayer() throws Exception {
+        final VastVideoConfig vastVideoConfig = spy(new VastVideoConfig());
+        vastVideoConfig.setNetworkMediaFileUrl(videoUrl);
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras, serverExtras);
+        ((VastVideoInterstitial) subject).onVastVideoConfigurationPrepared(vastVideoConfig);
+        subject.showInterstitial();
+
+        ((VastVideoInterstitial) subject).onVastVideoDownloadFailed(vastVideoConfig);
+
+        verify(vastVideoConfig, never()).handleError(any(Context.class),
+                any(VastErrorCode.class), anyInt());
+        verify(customEventInterstitialListener, never()).onInterstitialFailed(any(MoPubErrorCode.class));
+    }
 }
@@ -23,6 +23,7 @@ import android.webkit.WebView;
 import android.widget.ImageView;
 import android.widget.VideoView;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.ExternalViewabilitySession;
 import com.mopub.common.MoPubBrowser;
 import com.mopub.common.test.support.SdkTestRunner;
@@ -617,6 +618,25 @@ public class VastVideoViewControllerTest {
                 argThat(new IntentIsEqual(expectedIntent)));
     }
 
+    @Test
+    public void constructor_withVideoInDiskCache_shouldPinVideoUntilDestroyed() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache("video_url", "video".getBytes());
+
+        initializeSubject();
+
+        assertThat(subject.getPinnedVideo()).isNotNull();
+        CacheService.getDiskLruCache().setMaxSize(1);
+        CacheService.getDiskLruCache().flush();
+        assertThat(CacheService.containsKeyDiskCache("video_url")).isTrue();
+
+        subject.onDestroy();
+
+        assertThat(subject.getPinnedVideo()).isNull();
+        CacheService.getDiskLruCache().flush();
+        assertThat(CacheService.containsKeyDiskCache("video_url")).isFalse();
+    }
+
     @Test
     public void onDestroy_withBlurLastVideoFrameTaskStillRunning_shouldCancelTask() throws Exception {
         initializeSubject();
@@ -9,15 +9,20 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.media.MediaMetadataRetriever;
 import android.os.AsyncTask;
+import android.widget.ImageView;
 
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
 
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
@@ -79,4 +84,56 @@ public class VastVideoViewTest {
 
         verify(mockBlurLastVideoFrameTask, never()).cancel(anyBoolean());
     }
+
+    @Test
+    public void prepareBlurredLastVideoFrame_withDownloadInProgress_shouldWaitForDownloadToSucceed() throws Exception {
+        final RangedVideoDownload mockDownload = mock(RangedVideoDownload.class);
+        when(mockDownload.addFinishListener(any(RangedVideoDownload.FinishListener.class)))
+                .thenReturn(true);
+
+        subject.prepareBlurredLastVideoFrame(new ImageView(context), "disk_video_path",
+                mockDownload);
+
+        final ArgumentCaptor<RangedVideoDownload.FinishListener> finishListenerCaptor =
+                ArgumentCaptor.forClass(RangedVideoDownload.FinishListener.class);
+        verify(mockDownload).addFinishListener(finishListenerCaptor.capture());
+        assertThat(subject.getBlurLastVideoFrameTask()).isNull();
+
+        finishListenerCaptor.getValue().onFinished(true);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(subject.getBlurLastVideoFrameTask()).isNotNull();
+        verify(mockMediaMetadataRetriever).setDataSource("disk_video_path");
+    }
+
+    @Test
+    public void prepareBlurredLastVideoFrame_withDownloadFailing_shouldNotBlurFrame() throws Exception {
+        final RangedVideoDownload mockDownload = mock(RangedVideoDownload.class);
+        when(mockDownload.addFinishListener(any(RangedVideoDownload.FinishListener.class)))
+                .thenReturn(true);
+
+        subject.prepareBlurredLastVideoFrame(new ImageView(context), "disk_video_path",
+                mockDownload);
+
+        final ArgumentCaptor<RangedVideoDownload.FinishListener> finishListenerCaptor =
+                ArgumentCaptor.forClass(RangedVideoDownload.FinishListener.class);
+        verify(mockDownload).addFinishListener(finishListenerCaptor.capture());
+        finishListenerCaptor.getValue().onFinished(false);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(subject.getBlurLastVideoFrameTask()).isNull();
+    }
+
+    @Test
+    public void prepareBlurredLastVideoFrame_withDownloadAlreadyFinished_shouldBlurFrameFromDisk() throws Exception {
+        final RangedVideoDownload mockDownload = mock(RangedVideoDownload.class);
+        when(mockDownload.addFinishListener(any(RangedVideoDownload.FinishListener.class)))
+                .thenReturn(false);
+
+        subject.prepareBlurredLastVideoFrame(new ImageView(context), "disk_video_path",
+                mockDownload);
+
+        assertThat(subject.getBlurLastVideoFrameTask()).isNotNull();
+        verify(mockMediaMetadataRetriever).setDataSource("disk_video_path");
+    }
 }
@@ -0,0 +1,266 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import android.os.SystemClock;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.test.support.ShadowMoPubHttpUrlConnection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+@Config(shadows = {ShadowMoPubHttpUrlConnection.class})
+public class VastWrapperResolverTest {
+    private static final String URL = "https://dsp.x-team.staging.mopub.com/xml";
+
+    @Test
+    public void resolve_shouldFetchDocument_shouldRecordHop() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "first");
+
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        assertThat(subject.resolve(URL)).isEqualTo("first");
+        assertThat(ShadowMoPubHttpUrlConnection.getLatestRequestUrl()).isEqualTo(URL);
+        final List<VastWrapperResolver.Hop> hops = subject.getHops();
+        assertThat(hops).hasSize(1);
+        assertThat(hops.get(0).mUrl).isEqualTo(URL);
+        assertThat(hops.get(0).mSource).isEqualTo(VastWrapperResolver.Source.NETWORK);
+        assertThat(hops.get(0).mLatencyMs).isGreaterThanOrEqualTo(0);
+        assertThat(hops.get(0).mSucceeded).isTrue();
+    }
+
+    @Test
+    public void resolve_afterPrefetch_shouldUsePrefetchedDocument() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "prefetched");
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        subject.prefetch(URL);
+
+        assertThat(subject.resolve(URL)).isEqualTo("prefetched");
+        assertThat(subject.getHops().get(0).mSource)
+                .isEqualTo(VastWrapperResolver.Source.PREFETCH);
+        assertThat(subject.getPrefetchCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void resolve_afterPrefetchFailed_shouldThrow_shouldRecordFailedHop() throws Exception {
+        // No pending response, so there is no connection to read from
+        final VastWrapperResolver subject = new VastWrapperResolver();
+        subject.prefetch(URL);
+
+        try {
+            subject.resolve(URL);
+            fail("Expected the failed prefetch to be rethrown");
+        } catch (Exception e) {
+            // pass
+        }
+
+        assertThat(subject.getHops().get(0).mSource)
+                .isEqualTo(VastWrapperResolver.Source.PREFETCH);
+        assertThat(subject.getHops().get(0).mSucceeded).isFalse();
+    }
+
+    @Test
+    public void cancelPrefetch_shouldFetchAgainWhenFollowed() throws Exception {
+        // No pending response, so neither the prefetch nor the fetch has a connection
+        final VastWrapperResolver subject = new VastWrapperResolver();
+        subject.prefetch(URL);
+
+        subject.cancelPrefetch(URL);
+
+        assertThat(subject.getPrefetchCount()).isEqualTo(0);
+        try {
+            subject.resolve(URL);
+            fail("Expected the fetch to fail");
+        } catch (Exception e) {
+            // pass
+        }
+        assertThat(subject.getHops().get(0).mSource)
+                .isEqualTo(VastWrapperResolver.Source.NETWORK);
+    }
+
+    @Test
+    public void prefetch_withCachedDocument_shouldNotFetch() throws Exception {
+        VastWrapperResolver.cacheDocument(URL, "cached",
+                SystemClock.uptimeMillis() + VastWrapperResolver.CACHE_TTL_MS);
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        subject.prefetch(URL);
+
+        assertThat(subject.getPrefetchCount()).isEqualTo(0);
+        assertThat(subject.resolve(URL)).isEqualTo("cached");
+    }
+
+    @Test
+    public void resolve_withDocumentFetchedByAnotherResolver_shouldUseCache() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "first",
+                header("Cache-Control", "max-age=30"));
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "second");
+        new VastWrapperResolver().resolve(URL);
+
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        assertThat(subject.resolve(URL)).isEqualTo("first");
+        assertThat(subject.getHops().get(0).mSource).isEqualTo(VastWrapperResolver.Source.CACHE);
+        assertThat(ShadowMoPubHttpUrlConnection.getPendingUrlConnections()).hasSize(1);
+    }
+
+    @Test
+    public void resolve_withoutCacheHeaders_shouldNotCacheDocument() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "first");
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "second");
+        new VastWrapperResolver().resolve(URL);
+
+        assertThat(new VastWrapperResolver().resolve(URL)).isEqualTo("second");
+    }
+
+    @Test
+    public void resolve_withNoCacheHeader_shouldNotCacheDocument() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "first",
+                header("Cache-Control", "no-cache, max-age=30"));
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "second");
+        new VastWrapperResolver().resolve(URL);
+
+        assertThat(new VastWrapperResolver().resolve(URL)).isEqualTo("second");
+    }
+
+    @Test
+    public void resolve_withUrlAlreadyFollowed_shouldFetchAgain() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "first",
+                header("Cache-Control", "max-age=30"));
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "second");
+
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        assertThat(subject.resolve(URL)).isEqualTo("first");
+        assertThat(subject.resolve(URL)).isEqualTo("second");
+        assertThat(subject.getHops().get(1).mSource).isEqualTo(VastWrapperResolver.Source.NETWORK);
+    }
+
+    @Test
+    public void resolve_withExpiredCachedDocument_shouldFetchAgain() throws Exception {
+        VastWrapperResolver.cacheDocument(URL, "stale", SystemClock.uptimeMillis());
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "fresh");
+
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        assertThat(subject.resolve(URL)).isEqualTo("fresh");
+    }
+
+    @Test
+    public void resolve_withErrorResponse_shouldNotCacheDocument() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(404, "not found",
+                header("Cache-Control", "max-age=30"));
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "found");
+        new VastWrapperResolver().resolve(URL);
+
+        assertThat(new VastWrapperResolver().resolve(URL)).isEqualTo("found");
+    }
+
+    @Test
+    public void resolve_withoutResponse_shouldThrow_shouldRecordFailedHop() throws Exception {
+        // No pending response, so there is no connection to read from
+        final VastWrapperResolver subject = new VastWrapperResolver();
+
+        try {
+            subject.resolve(URL);
+            fail("Expected the failed fetch to be rethrown");
+        } catch (Exception e) {
+            // pass
+        }
+
+        assertThat(subject.getHops()).hasSize(1);
+        assertThat(subject.getHops().get(0).mSucceeded).isFalse();
+    }
+
+    @Test
+    public void getFreshnessMs_withMaxAge_shouldReturnMaxAge() {
+        final HttpURLConnection connection =
+                connectionWithHeaders(header("Cache-Control", "max-age=30"));
+
+        final long freshnessMs = VastWrapperResolver.getFreshnessMs(200, connection);
+
+        assertThat(freshnessMs).isGreaterThan(29 * 1000);
+        assertThat(freshnessMs).isLessThanOrEqualTo(30 * 1000);
+    }
+
+    @Test
+    public void getFreshnessMs_withMaxAgeOverTtl_shouldReturnTtl() {
+        final HttpURLConnection connection =
+                connectionWithHeaders(header("Cache-Control", "max-age=3600"));
+
+        assertThat(VastWrapperResolver.getFreshnessMs(200, connection))
+                .isEqualTo(VastWrapperResolver.CACHE_TTL_MS);
+    }
+
+    @Test
+    public void getFreshnessMs_withExpires_shouldReturnTimeUntilExpires() {
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Date", Collections.singletonList("Thu, 01 Jan 2015 00:00:00 GMT"));
+        headers.put("Expires", Collections.singletonList("Thu, 01 Jan 2015 00:00:20 GMT"));
+
+        final long freshnessMs =
+                VastWrapperResolver.getFreshnessMs(200, connectionWithHeaders(headers));
+
+        assertThat(freshnessMs).isGreaterThan(19 * 1000);
+        assertThat(freshnessMs).isLessThanOrEqualTo(20 * 1000);
+    }
+
+    @Test
+    public void getFreshnessMs_withNoStore_shouldReturnZero() {
+        final HttpURLConnection connection =
+                connectionWithHeaders(header("Cache-Control", "no-store"));
+
+        assertThat(VastWrapperResolver.getFreshnessMs(200, connection)).isEqualTo(0);
+    }
+
+    @Test
+    public void getFreshnessMs_withExpiresInPast_shouldReturnZero() {
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Date", Collections.singletonList("Thu, 01 Jan 2015 00:00:20 GMT"));
+        headers.put("Expires", Collections.singletonList("Thu, 01 Jan 2015 00:00:00 GMT"));
+
+        assertThat(VastWrapperResolver.getFreshnessMs(200, connectionWithHeaders(headers)))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void clearCache_shouldRemoveCachedDocuments() throws Exception {
+        VastWrapperResolver.cacheDocument(URL, "cached",
+                SystemClock.uptimeMillis() + VastWrapperResolver.CACHE_TTL_MS);
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, "fetched");
+
+        VastWrapperResolver.clearCache();
+
+        assertThat(new VastWrapperResolver().resolve(URL)).isEqualTo("fetched");
+    }
+
+    private static Map<String, List<String>> header(final String name, final String value) {
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put(name, Collections.singletonList(value));
+        return headers;
+    }
+
+    private static HttpURLConnection connectionWithHeaders(
+            final Map<String, List<String>> headers) {
+        final HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getHeaderFields()).thenReturn(headers);
+        return connection;
+    }
+}
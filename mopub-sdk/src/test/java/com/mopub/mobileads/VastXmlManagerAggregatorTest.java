@@ -28,6 +28,8 @@ import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
@@ -416,6 +418,80 @@ public class VastXmlManagerAggregatorTest {
                 VastXmlManagerAggregator.MAX_TIMES_TO_FOLLOW_VAST_REDIRECT);
     }
 
+    @Test
+    public void evaluateVastXmlManager_withWrapperResolvedByAnotherAggregator_shouldNotFetchRedirectAgain() throws Exception {
+        final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("Cache-Control", Collections.singletonList("max-age=60"));
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING, headers);
+        final VastVideoConfig firstVastVideoConfig = subject.evaluateVastXmlManager(
+                TEST_VAST_XML_STRING, new ArrayList<VastTracker>());
+
+        final VastXmlManagerAggregator otherSubject = new VastXmlManagerAggregator(
+                vastXmlManagerAggregatorListener, (double) DIM_LONG / DIM_SHORT, DIM_LONG,
+                context);
+        final VastVideoConfig secondVastVideoConfig = otherSubject.evaluateVastXmlManager(
+                TEST_VAST_XML_STRING, new ArrayList<VastTracker>());
+
+        assertThat(firstVastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        assertThat(secondVastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        final List<VastWrapperResolver.Hop> hops = otherSubject.getWrapperResolver().getHops();
+        assertThat(hops).hasSize(1);
+        assertThat(hops.get(0).mUrl).isEqualTo("https://dsp.x-team.staging.mopub.com/xml");
+        assertThat(hops.get(0).mSource).isEqualTo(VastWrapperResolver.Source.CACHE);
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withInLineBeforeWrapper_shouldCancelPrefetchedRedirect() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        final String vastXml = TEST_NESTED_VAST_XML_STRING.replace("</VAST>",
+                "<Ad id='62833'><Wrapper><AdSystem>Tapad</AdSystem>" +
+                "<VASTAdTagURI>https://dsp.x-team.staging.mopub.com/xml</VASTAdTagURI>" +
+                "</Wrapper></Ad></VAST>");
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(
+                vastXml, new ArrayList<VastTracker>());
+
+        assertThat(vastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        assertThat(subject.getWrapperResolver().getHops()).isEmpty();
+        assertThat(subject.getWrapperResolver().getPrefetchCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withFailedInLineBeforeWrapper_shouldFollowPrefetchedRedirect() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(
+                TEST_VAST_XML_STRING, new ArrayList<VastTracker>());
+
+        assertThat(vastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        final List<VastWrapperResolver.Hop> hops = subject.getWrapperResolver().getHops();
+        assertThat(hops).hasSize(1);
+        assertThat(hops.get(0).mSource).isEqualTo(VastWrapperResolver.Source.PREFETCH);
+        assertThat(hops.get(0).mSucceeded).isTrue();
+    }
+
+    @Test
+    public void evaluateVastXmlManager_withWrapperFirst_shouldFetchRedirectWhenFollowed() throws Exception {
+        ShadowMoPubHttpUrlConnection.addPendingResponse(200, TEST_NESTED_VAST_XML_STRING);
+        final String vastXml = "<VAST version='2.0'><Ad id='62833'><Wrapper>" +
+                "<AdSystem>Tapad</AdSystem>" +
+                "<VASTAdTagURI>https://dsp.x-team.staging.mopub.com/xml</VASTAdTagURI>" +
+                "</Wrapper></Ad></VAST>";
+
+        final VastVideoConfig vastVideoConfig = subject.evaluateVastXmlManager(
+                vastXml, new ArrayList<VastTracker>());
+
+        assertThat(vastVideoConfig.getNetworkMediaFileUrl())
+                .isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4");
+        final List<VastWrapperResolver.Hop> hops = subject.getWrapperResolver().getHops();
+        assertThat(hops).hasSize(1);
+        assertThat(hops.get(0).mSource).isEqualTo(VastWrapperResolver.Source.NETWORK);
+    }
+
     @Test
     public void getBestMediaFileUrl_shouldReturnMediaFileUrl() {
         final VastMediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(300, 250, "video/mp4", "video_url");
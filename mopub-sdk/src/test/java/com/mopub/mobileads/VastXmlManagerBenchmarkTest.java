@@ -0,0 +1,249 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Strings;
+import com.mopub.mobileads.util.DomXmlNode;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xml.sax.InputSource;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Compares parsing the VAST 2, 3, and 4 documents in the test resources in a single pass with
+ * {@link com.mopub.mobileads.util.XmlPullNode} to parsing them into a DOM and reading it through
+ * {@link DomXmlNode}, which is how they used to be parsed. Each document is parsed and then read
+ * through every xml manager, the same as {@link VastXmlManagerAggregator} does.
+ */
+@RunWith(SdkTestRunner.class)
+public class VastXmlManagerBenchmarkTest {
+    private static final String[] CORPUS = {
+            "vast2_inline.xml",
+            "vast3_inline.xml",
+            "vast3_wrapper.xml",
+            "vast4_inline.xml",
+    };
+    private static final int WARM_UP_ITERATIONS = 20;
+    private static final int ITERATIONS = 100;
+
+    private List<String> mDocuments;
+
+    @Before
+    public void setUp() throws Exception {
+        mDocuments = new ArrayList<String>();
+        for (final String name : CORPUS) {
+            final InputStream inputStream =
+                    getClass().getResourceAsStream("/com/mopub/mobileads/vast/" + name);
+            try {
+                mDocuments.add(Strings.fromStream(inputStream));
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
+
+    @Test
+    public void parseVastXml_withCorpus_shouldReadSameValuesAsDom() throws Exception {
+        for (int i = 0; i < CORPUS.length; i++) {
+            final String pulled = describe(parse(mDocuments.get(i), false));
+            final String dom = describe(parse(mDocuments.get(i), true));
+
+            assertThat(pulled).as(CORPUS[i]).isEqualTo(dom);
+            assertThat(pulled).as(CORPUS[i]).contains("ad sequence=");
+        }
+    }
+
+    @Test
+    public void parseVastXml_withCorpus_shouldAllocateLessThanDom() throws Exception {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < CORPUS.length; i++) {
+            final String document = mDocuments.get(i);
+            final long pulledBytes = measureAllocatedBytes(document, false, threadMXBean);
+            final long domBytes = measureAllocatedBytes(document, true, threadMXBean);
+
+            if (pulledBytes >= 0 && domBytes >= 0) {
+                assertThat(pulledBytes).as(CORPUS[i]).isLessThan(domBytes);
+            }
+        }
+    }
+
+    /**
+     * @return bytes allocated by one parse and read of the document, or -1 if the JVM doesn't
+     * count them.
+     */
+    private static long measureAllocatedBytes(final String document, final boolean withDom,
+            final ThreadMXBean threadMXBean) throws Exception {
+        // Classes loaded and caches filled by the first parses don't count
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            describe(parse(document, withDom));
+        }
+
+        final long startBytes = getAllocatedBytes(threadMXBean);
+        for (int i = 0; i < ITERATIONS; i++) {
+            describe(parse(document, withDom));
+        }
+        final long endBytes = getAllocatedBytes(threadMXBean);
+
+        return startBytes < 0 || endBytes < 0
+                ? -1
+                : (endBytes - startBytes) / ITERATIONS;
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, or -1 if the JVM doesn't count them.
+     */
+    private static long getAllocatedBytes(final ThreadMXBean threadMXBean) {
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threadMXBean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static VastXmlManager parse(final String document, final boolean withDom)
+            throws Exception {
+        final VastXmlManager xmlManager = new VastXmlManager();
+        if (withDom) {
+            final DocumentBuilderFactory documentBuilderFactory =
+                    DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setCoalescing(true);
+            final DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            xmlManager.setVastDoc(new DomXmlNode(documentBuilder.parse(new InputSource(
+                    new StringReader(VastXmlManager.wrapDocument(document))))));
+        } else {
+            xmlManager.parseVastXml(document);
+        }
+        return xmlManager;
+    }
+
+    /**
+     * Reads everything the aggregator reads from the document.
+     */
+    private static String describe(final VastXmlManager xmlManager) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("error=").append(describe(xmlManager.getErrorTracker()))
+                .append(" mopubImpressions=").append(describe(xmlManager.getMoPubImpressionTrackers()))
+                .append(" cta=").append(xmlManager.getCustomCtaText())
+                .append(" skip=").append(xmlManager.getCustomSkipText())
+                .append(" closeIcon=").append(xmlManager.getCustomCloseIconUrl());
+
+        for (final VastAdXmlManager adXmlManager : xmlManager.getAdXmlManagers()) {
+            builder.append("\nad sequence=").append(adXmlManager.getSequence());
+            final VastInLineXmlManager inLineXmlManager = adXmlManager.getInLineXmlManager();
+            if (inLineXmlManager != null) {
+                builder.append("\n inLine");
+                describe(inLineXmlManager, builder);
+            }
+            final VastWrapperXmlManager wrapperXmlManager = adXmlManager.getWrapperXmlManager();
+            if (wrapperXmlManager != null) {
+                builder.append("\n wrapper adTagUri=").append(wrapperXmlManager.getVastAdTagURI());
+                describe(wrapperXmlManager, builder);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void describe(final VastBaseInLineWrapperXmlManager xmlManager,
+            final StringBuilder builder) {
+        builder.append(" impressions=").append(describe(xmlManager.getImpressionTrackers()))
+                .append(" errors=").append(describe(xmlManager.getErrorTrackers()));
+
+        for (final VastLinearXmlManager linear : xmlManager.getLinearXmlManagers()) {
+            builder.append("\n  linear skipOffset=").append(linear.getSkipOffset())
+                    .append(" clickThrough=").append(linear.getClickThroughUrl())
+                    .append(" clicks=").append(describe(linear.getClickTrackers()))
+                    .append(" pause=").append(describe(linear.getPauseTrackers()))
+                    .append(" resume=").append(describe(linear.getResumeTrackers()))
+                    .append(" complete=").append(describe(linear.getVideoCompleteTrackers()))
+                    .append(" close=").append(describe(linear.getVideoCloseTrackers()))
+                    .append(" skip=").append(describe(linear.getVideoSkipTrackers()));
+            for (final VastAbsoluteProgressTracker tracker : linear.getAbsoluteProgressTrackers()) {
+                builder.append(" absolute=").append(tracker.getTrackingMilliseconds())
+                        .append(':').append(tracker.getContent());
+            }
+            for (final VastFractionalProgressTracker tracker
+                    : linear.getFractionalProgressTrackers()) {
+                builder.append(" fractional=").append(tracker.trackingFraction())
+                        .append(':').append(tracker.getContent());
+            }
+            for (final VastMediaXmlManager media : linear.getMediaXmlManagers()) {
+                builder.append("\n   media=").append(media.getMediaUrl())
+                        .append(' ').append(media.getType())
+                        .append(' ').append(media.getWidth())
+                        .append('x').append(media.getHeight())
+                        .append(' ').append(media.getBitrate());
+            }
+            for (final VastIconXmlManager icon : linear.getIconXmlManagers()) {
+                builder.append("\n   icon=").append(icon.getWidth())
+                        .append('x').append(icon.getHeight())
+                        .append(' ').append(icon.getOffsetMS())
+                        .append(' ').append(icon.getDurationMS())
+                        .append(' ').append(icon.getClickThroughUri())
+                        .append(' ').append(describe(icon.getClickTrackingUris()))
+                        .append(' ').append(describe(icon.getViewTrackingUris()))
+                        .append(' ').append(describe(icon.getResourceXmlManager()));
+            }
+        }
+
+        for (final VastCompanionAdXmlManager companion : xmlManager.getCompanionAdXmlManagers()) {
+            builder.append("\n  companion=").append(companion.getWidth())
+                    .append('x').append(companion.getHeight())
+                    .append(' ').append(companion.getAdSlotId())
+                    .append(' ').append(companion.getClickThroughUrl())
+                    .append(' ').append(describe(companion.getClickTrackers()))
+                    .append(' ').append(describe(companion.getCompanionCreativeViewTrackers()))
+                    .append(' ').append(companion.hasResources())
+                    .append(' ').append(describe(companion.getResourceXmlManager()));
+        }
+
+        final VastExtensionParentXmlManager extensionParent =
+                xmlManager.getVastExtensionParentXmlManager();
+        if (extensionParent != null) {
+            for (final VastExtensionXmlManager extension
+                    : extensionParent.getVastExtensionXmlManagers()) {
+                builder.append("\n  extension=").append(extension.getType())
+                        .append(' ').append(extension.getAvidJavaScriptResources())
+                        .append(' ').append(extension.getMoatImpressionPixels());
+                final VideoViewabilityTracker tracker = extension.getVideoViewabilityTracker();
+                if (tracker != null) {
+                    builder.append(' ').append(tracker.getViewablePlaytimeMS())
+                            .append(' ').append(tracker.getPercentViewable())
+                            .append(' ').append(tracker.getContent());
+                }
+            }
+        }
+    }
+
+    private static String describe(final VastResourceXmlManager resource) {
+        return resource.getStaticResource() + " " + resource.getStaticResourceType() + " "
+                + resource.getIFrameResource() + " " + resource.getHTMLResource();
+    }
+
+    private static String describe(final List<VastTracker> trackers) {
+        final StringBuilder builder = new StringBuilder("[");
+        for (final VastTracker tracker : trackers) {
+            builder.append(describe(tracker)).append(',');
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String describe(final VastTracker tracker) {
+        return tracker == null ? null : tracker.getContent() + (tracker.isRepeatable() ? "*" : "");
+    }
+}
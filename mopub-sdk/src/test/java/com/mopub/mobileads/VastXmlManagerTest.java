@@ -11,13 +11,11 @@ import com.mopub.mobileads.test.support.VastUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-
 import static org.fest.assertions.api.Assertions.assertThat;
 
 @RunWith(SdkTestRunner.class)
@@ -365,15 +363,12 @@ public class VastXmlManagerTest {
 
         try {
             mXmlManager.parseVastXml(TEST_VAST_XML_STRING);
-        } catch (ParserConfigurationException e) {
+        } catch (XmlPullParserException e) {
             e.printStackTrace();
             mExceptionRaised = true;
         } catch (IOException e) {
             e.printStackTrace();
             mExceptionRaised = true;
-        } catch (SAXException e) {
-            e.printStackTrace();
-            mExceptionRaised = true;
         }
     }
 
@@ -387,7 +382,7 @@ public class VastXmlManagerTest {
     }
 
     @Test
-    public void parseVastXml_shouldNotRaiseAnExceptionProcessingXmlWithXmlHeaderTag() throws ParserConfigurationException, IOException, SAXException {
+    public void parseVastXml_shouldNotRaiseAnExceptionProcessingXmlWithXmlHeaderTag() throws XmlPullParserException, IOException {
         String xmlString = XML_HEADER_TAG + TEST_VAST_XML_STRING;
 
         mXmlManager = new VastXmlManager();
@@ -402,12 +397,10 @@ public class VastXmlManagerTest {
 
         try {
             badManager.parseVastXml(badXml);
-        } catch (ParserConfigurationException e) {
+        } catch (XmlPullParserException e) {
             e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (SAXException e) {
-            e.printStackTrace();
         }
 
         assertThat(badManager.getMoPubImpressionTrackers().size()).isEqualTo(0);
@@ -421,12 +414,10 @@ public class VastXmlManagerTest {
 
         try {
             badManager.parseVastXml(badXml);
-        } catch (ParserConfigurationException e) {
+        } catch (XmlPullParserException e) {
             e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (SAXException e) {
-            e.printStackTrace();
         }
 
         assertThat(badManager.getAdXmlManagers()).isEmpty();
@@ -0,0 +1,177 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads.test.support;
+
+import androidx.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP server for download tests. Serves one body, optionally honoring {@code Range}
+ * requests, and can drop a response part way through or limit each connection's bandwidth. It
+ * counts the body bytes it sends so tests can measure how much a resumed download saves.
+ */
+public class RangeHttpServer {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @NonNull private final byte[] mBody;
+    @NonNull private final HttpServer mServer;
+    @NonNull private final ExecutorService mExecutor;
+    @NonNull private final AtomicLong mBytesServed = new AtomicLong();
+    @NonNull private final AtomicInteger mRequestCount = new AtomicInteger();
+    @NonNull private final List<String> mRangeHeaders = new CopyOnWriteArrayList<String>();
+    private volatile boolean mRangesSupported = true;
+    private volatile long mDropAfterBytes = -1;
+    private volatile long mBytesPerSecond = -1;
+
+    public RangeHttpServer(@NonNull final byte[] body) throws IOException {
+        mBody = body;
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mExecutor = Executors.newCachedThreadPool();
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        mServer.start();
+    }
+
+    @NonNull
+    public String getUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/video.mp4";
+    }
+
+    public void setRangesSupported(final boolean rangesSupported) {
+        mRangesSupported = rangesSupported;
+    }
+
+    /**
+     * Makes the next response close its connection after sending this many body bytes.
+     */
+    public void dropNextResponseAfter(final long bytes) {
+        mDropAfterBytes = bytes;
+    }
+
+    /**
+     * Limits the bandwidth of each connection, or removes the limit if negative.
+     */
+    public void setBytesPerSecondPerConnection(final long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesServed() {
+        return mBytesServed.get();
+    }
+
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    @NonNull
+    public List<String> getRangeHeaders() {
+        return mRangeHeaders;
+    }
+
+    public void shutdown() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private void serve(@NonNull final HttpExchange exchange) throws IOException {
+        mRequestCount.incrementAndGet();
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            mRangeHeaders.add(range);
+        }
+
+        long start = 0;
+        long end = mBody.length - 1;
+        int statusCode = 200;
+        if (mRangesSupported && range != null && range.startsWith("bytes=")) {
+            final String[] bounds = range.substring(6).split("-", -1);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            if (start >= mBody.length) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + mBody.length);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            statusCode = 206;
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + end + "/" + mBody.length);
+        }
+        if (mRangesSupported) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        }
+
+        final long length = end - start + 1;
+        final long dropAfter = mDropAfterBytes;
+        mDropAfterBytes = -1;
+        exchange.sendResponseHeaders(statusCode, length);
+
+        final OutputStream body = exchange.getResponseBody();
+        final long startTime = System.nanoTime();
+        long sent = 0;
+        try {
+            while (sent < length) {
+                int count = (int) Math.min(CHUNK_SIZE, length - sent);
+                if (dropAfter >= 0) {
+                    count = (int) Math.min(count, dropAfter - sent);
+                    if (count <= 0) {
+                        // Closing before the whole body is sent drops the connection.
+                        break;
+                    }
+                }
+                body.write(mBody, (int) (start + sent), count);
+                body.flush();
+                sent += count;
+                mBytesServed.addAndGet(count);
+                throttle(startTime, sent);
+            }
+        } catch (IOException e) {
+            // The client went away.
+        } finally {
+            try {
+                exchange.close();
+            } catch (Exception e) {
+                // Expected when the body is cut short.
+            }
+        }
+    }
+
+    private void throttle(final long startTime, final long sent) {
+        final long bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        final long expectedElapsedMs = sent * 1000 / bytesPerSecond;
+        final long elapsedMs = (System.nanoTime() - startTime) / 1000000;
+        if (expectedElapsedMs > elapsedMs) {
+            try {
+                Thread.sleep(expectedElapsedMs - elapsedMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
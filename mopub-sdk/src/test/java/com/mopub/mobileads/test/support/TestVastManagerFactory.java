@@ -23,7 +23,8 @@ public class TestVastManagerFactory extends VastManagerFactory {
     }
 
     @Override
-    public VastManager internalCreate(final Context context, final boolean preCacheVideo) {
+    public VastManager internalCreate(final Context context, final boolean preCacheVideo,
+            final boolean playProgressively) {
         return getTestFactory().mockVastManager;
     }
 }
\ No newline at end of file
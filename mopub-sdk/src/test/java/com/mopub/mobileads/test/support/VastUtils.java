@@ -5,25 +5,15 @@
 package com.mopub.mobileads.test.support;
 
 import com.mopub.mobileads.VastTracker;
+import com.mopub.mobileads.util.XmlNode;
+import com.mopub.mobileads.util.XmlPullNode;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
 public class VastUtils {
-    public static Node createNode(String xml) throws Exception {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setCoalescing(true);
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        Document document = documentBuilder.parse(new InputSource(new StringReader(xml)));
-        return document.getFirstChild();
+    public static XmlNode createNode(String xml) throws Exception {
+        return XmlPullNode.parse(xml).getChildNodes().get(0);
     }
 
     public static List<VastTracker> stringsToVastTrackers(String... strings) {
@@ -0,0 +1,99 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link XmlNode} backed by a DOM element or document. VAST documents used to be parsed into a
+ * DOM, so tests use this to compare against {@link XmlPullNode}.
+ */
+public class DomXmlNode implements XmlNode {
+    @NonNull private final Node mNode;
+
+    public DomXmlNode(@NonNull final Node node) {
+        Preconditions.checkNotNull(node);
+
+        mNode = node;
+    }
+
+    @NonNull
+    @Override
+    public String getNodeName() {
+        return mNode.getNodeName();
+    }
+
+    @Nullable
+    @Override
+    public String getAttribute(@NonNull final String attributeName) {
+        final NamedNodeMap attrMap = mNode.getAttributes();
+        if (attrMap == null) {
+            return null;
+        }
+
+        // The attribute value must be retrieved using attrNode.getNodeValue(). Even though
+        // getNodeValue(attrNode) works in unit testing, it does not work on devices.
+        final Node attrNode = attrMap.getNamedItem(attributeName);
+        return attrNode == null ? null : attrNode.getNodeValue();
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return mNode.hasAttributes();
+    }
+
+    @Nullable
+    @Override
+    public String getFirstChildValue() {
+        final Node firstChild = mNode.getFirstChild();
+        return firstChild == null ? null : firstChild.getNodeValue();
+    }
+
+    @NonNull
+    @Override
+    public List<XmlNode> getChildNodes() {
+        final NodeList nodeList = mNode.getChildNodes();
+        final List<XmlNode> children = new ArrayList<XmlNode>(nodeList.getLength());
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            final Node child = nodeList.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                children.add(new DomXmlNode(child));
+            }
+        }
+        return children;
+    }
+
+    @NonNull
+    @Override
+    public List<XmlNode> getElementsByTagName(@NonNull final String nodeName) {
+        final NodeList nodeList;
+        if (mNode instanceof Document) {
+            nodeList = ((Document) mNode).getElementsByTagName(nodeName);
+        } else if (mNode instanceof Element) {
+            nodeList = ((Element) mNode).getElementsByTagName(nodeName);
+        } else {
+            return Collections.emptyList();
+        }
+
+        final List<XmlNode> elements = new ArrayList<XmlNode>(nodeList.getLength());
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            elements.add(new DomXmlNode(nodeList.item(i)));
+        }
+        return elements;
+    }
+}
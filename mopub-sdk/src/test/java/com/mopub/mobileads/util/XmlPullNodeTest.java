@@ -0,0 +1,94 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads.util;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class XmlPullNodeTest {
+
+    @Test
+    public void parse_shouldBuildElementTree() throws Exception {
+        final XmlPullNode document = XmlPullNode.parse(
+                "<Root><First a=\"1\" b=\"2\">one</First><Second/><First>two</First></Root>");
+
+        assertThat(document.getNodeName()).isEqualTo("#document");
+        final XmlNode root = document.getChildNodes().get(0);
+        assertThat(root.getNodeName()).isEqualTo("Root");
+        final List<XmlNode> children = root.getChildNodes();
+        assertThat(children).hasSize(3);
+        assertThat(children.get(0).getNodeName()).isEqualTo("First");
+        assertThat(children.get(0).getAttribute("a")).isEqualTo("1");
+        assertThat(children.get(0).getAttribute("b")).isEqualTo("2");
+        assertThat(children.get(0).getAttribute("c")).isNull();
+        assertThat(children.get(0).hasAttributes()).isTrue();
+        assertThat(children.get(0).getFirstChildValue()).isEqualTo("one");
+        assertThat(children.get(1).getNodeName()).isEqualTo("Second");
+        assertThat(children.get(1).hasAttributes()).isFalse();
+        assertThat(children.get(1).getFirstChildValue()).isNull();
+        assertThat(children.get(1).getChildNodes()).isEmpty();
+        assertThat(children.get(2).getFirstChildValue()).isEqualTo("two");
+    }
+
+    @Test
+    public void parse_shouldJoinTextAndCdata() throws Exception {
+        final XmlNode root = XmlPullNode.parse(
+                "<Root> a &amp; <![CDATA[<b>]]> c </Root>").getChildNodes().get(0);
+
+        assertThat(root.getFirstChildValue()).isEqualTo(" a & <b> c ");
+    }
+
+    @Test
+    public void parse_shouldOnlyKeepTextBeforeFirstChildElement() throws Exception {
+        final XmlNode startsWithText = XmlPullNode.parse(
+                "<Root>text<Child/>more</Root>").getChildNodes().get(0);
+        final XmlNode startsWithChild = XmlPullNode.parse(
+                "<Root><Child/>text</Root>").getChildNodes().get(0);
+
+        assertThat(startsWithText.getFirstChildValue()).isEqualTo("text");
+        assertThat(startsWithChild.getFirstChildValue()).isNull();
+    }
+
+    @Test
+    public void parse_shouldKeepNamespacePrefixes() throws Exception {
+        final XmlNode root = XmlPullNode.parse(
+                "<aw:Root xmlns:aw=\"https://www.adventure-works.com\" aw:Type=\"Billing\"/>")
+                .getChildNodes().get(0);
+
+        assertThat(root.getNodeName()).isEqualTo("aw:Root");
+        assertThat(root.getAttribute("aw:Type")).isEqualTo("Billing");
+    }
+
+    @Test
+    public void getElementsByTagName_shouldReturnElementsAtAnyDepthInDocumentOrder()
+            throws Exception {
+        final XmlPullNode document = XmlPullNode.parse(
+                "<Root><Item>1</Item><Group><Item>2</Item></Group><Item>3</Item></Root>");
+
+        final List<XmlNode> fromDocument = document.getElementsByTagName("Item");
+        final List<XmlNode> fromRoot =
+                document.getChildNodes().get(0).getElementsByTagName("Item");
+
+        assertThat(fromDocument).hasSize(3);
+        assertThat(XmlUtils.getNodeValue(fromDocument.get(0))).isEqualTo("1");
+        assertThat(XmlUtils.getNodeValue(fromDocument.get(1))).isEqualTo("2");
+        assertThat(XmlUtils.getNodeValue(fromDocument.get(2))).isEqualTo("3");
+        assertThat(fromRoot).isEqualTo(fromDocument);
+        assertThat(document.getElementsByTagName("Missing")).isEmpty();
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void parse_withMalformedXml_shouldThrowXmlPullParserException() throws Exception {
+        XmlPullNode.parse("<Root><Child></Root>");
+    }
+}
@@ -10,17 +10,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 import java.io.StringReader;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -124,8 +118,8 @@ public class XmlUtilsTest {
             "    </aw:Items>\n" +
             "  </aw:PurchaseOrder>\n" +
             "</aw:PurchaseOrders>";
-    private Document testDoc;
-    private Node purchaseOrderNode;
+    private XmlNode testDoc;
+    private XmlNode purchaseOrderNode;
 
 
     @Before
@@ -133,13 +127,14 @@ public class XmlUtilsTest {
         DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
         documentBuilderFactory.setCoalescing(true);
         DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        testDoc = documentBuilder.parse(new InputSource(new StringReader(testXml)));
-        purchaseOrderNode = testDoc.getFirstChild();
+        Document document = documentBuilder.parse(new InputSource(new StringReader(testXml)));
+        testDoc = new DomXmlNode(document);
+        purchaseOrderNode = new DomXmlNode(document.getFirstChild());
     }
 
     @Test
     public void getFirstMatchingNode_shouldReturnValue() {
-        Node resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder");
+        XmlNode resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder");
         assertThat(resultNode).isNotNull();
     }
 
@@ -147,35 +142,35 @@ public class XmlUtilsTest {
     public void getFirstMatchingChildNode_shouldFindNode() throws Exception {
         ArrayList<String> testList = new ArrayList<String>();
         testList.add("1999-10-22");
-        Node resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", testList);
+        XmlNode resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", testList);
         assertThat(resultNode).isNotNull();
         assertThat(resultNode.getNodeName()).isEqualTo("aw:PurchaseOrder");
-        assertThat(resultNode.getAttributes().getNamedItem("aw:OrderDate").getNodeValue()).isEqualTo("1999-10-22");
+        assertThat(resultNode.getAttribute("aw:OrderDate")).isEqualTo("1999-10-22");
     }
 
     @Test
     public void getFirstMatchingChildNode_withUnmatchedAttribute_shouldNotFindNode() throws Exception {
         ArrayList<String> testList = new ArrayList<String>();
         testList.add("1999-10-");
-        Node resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", testList);
+        XmlNode resultNode = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", testList);
         assertThat(resultNode).isNull();
     }
 
     @Test
     public void getMatchingChildNodes_withNullAttributeValues_shouldReturnMultiple() throws Exception {
-        List<Node> results = XmlUtils.getMatchingChildNodes(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", null);
+        List<XmlNode> results = XmlUtils.getMatchingChildNodes(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", null);
         assertThat(results.size()).isEqualTo(3);
     }
 
     @Test
     public void getMatchingChildNodes_withEmptyAttributeValues_shouldReturnNone() {
-        List<Node> results = XmlUtils.getMatchingChildNodes(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", new ArrayList<String>());
+        List<XmlNode> results = XmlUtils.getMatchingChildNodes(purchaseOrderNode, "aw:PurchaseOrder", "aw:OrderDate", new ArrayList<String>());
         assertThat(results).isEmpty();
     }
 
     @Test
     public void getAttributeValue_shouldReturnCorrectValue() throws Exception {
-        Node child = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder");
+        XmlNode child = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder");
 
         String purchaseOrderNumber = XmlUtils.getAttributeValue(child, "aw:PurchaseOrderNumber");
         String orderDate = XmlUtils.getAttributeValue(child, "aw:OrderDate");
@@ -185,60 +180,16 @@ public class XmlUtilsTest {
     }
 
     @Test
-    public void getListFromDocument_shouldReturnCorrectValue() throws Exception {
-        // Get all the "aw:PurchaseOrder" nodes. If any of them have an "aw:OrderDate" attribute, extract a Date.
-        List<Date> orderDates = XmlUtils.getListFromDocument(testDoc, "aw:PurchaseOrder", "aw:OrderDate", null, new XmlUtils.NodeProcessor<Date>() {
-            DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-
-            @Override
-            public Date process(final Node node) {
-                try {
-                    return formatter.parse(node.getAttributes().getNamedItem("aw:OrderDate").getNodeValue());
-                } catch (ParseException e) {
-                    return null;
-                }
-            }
-        });
-
-        assertThat(orderDates.size()).isEqualTo(3);
-        assertThat(orderDates.get(0).getYear()).isEqualTo(99);
-        assertThat(orderDates.get(0).getMonth()).isEqualTo(9);
-        assertThat(orderDates.get(0).getDate()).isEqualTo(20);
-
-        assertThat(orderDates.get(1).getYear()).isEqualTo(99);
-        assertThat(orderDates.get(1).getMonth()).isEqualTo(9);
-        assertThat(orderDates.get(1).getDate()).isEqualTo(22);
-
-        assertThat(orderDates.get(2).getYear()).isEqualTo(99);
-        assertThat(orderDates.get(2).getMonth()).isEqualTo(9);
-        assertThat(orderDates.get(2).getDate()).isEqualTo(22);
-    }
+    public void getAttributeValueAsInt_shouldReturnCorrectValue() throws Exception {
+        XmlNode child = XmlUtils.getFirstMatchingChildNode(purchaseOrderNode, "aw:PurchaseOrder");
 
-    @Test
-    public void getFirstMatchFromDocument_shouldReturnCorrectValue() throws Exception {
-        // Get the first "aw:PurchaseOrder" nodes. If it has an "aw:OrderDate" attribute, extract a Date.
-        Date orderDate = XmlUtils.getFirstMatchFromDocument(testDoc, "aw:PurchaseOrder", "aw:OrderDate", null, new XmlUtils.NodeProcessor<Date>() {
-            DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-
-            @Override
-            public Date process(final Node node) {
-                try {
-                    return formatter.parse(node.getAttributes().getNamedItem("aw:OrderDate").getNodeValue());
-                } catch (ParseException e) {
-                    return null;
-                }
-            }
-        });
-
-        assertThat(orderDate).isNotNull();
-        assertThat(orderDate.getYear()).isEqualTo(99);
-        assertThat(orderDate.getMonth()).isEqualTo(9);
-        assertThat(orderDate.getDate()).isEqualTo(20);
+        assertThat(XmlUtils.getAttributeValueAsInt(child, "aw:PurchaseOrderNumber")).isEqualTo(99503);
+        assertThat(XmlUtils.getAttributeValueAsInt(child, "aw:OrderDate")).isNull();
     }
 
     @Test
     public void getStringDataAsList_shouldFindDeepNested() throws Exception {
-        final List<String> strings = XmlUtils.getStringDataAsList(testDoc, "aw:Comment", null, null);
+        final List<String> strings = XmlUtils.getStringDataAsList(testDoc, "aw:Comment");
         assertThat(strings.size()).isEqualTo(2);
         assertThat(strings.get(0)).isEqualTo("Confirm this is electric");
         assertThat(strings.get(1)).isEqualTo("this thing breaks all the time");
@@ -246,7 +197,7 @@ public class XmlUtilsTest {
 
     @Test
     public void getFirstMatchingStringData_shouldFindFirstMatch() throws Exception {
-        final String firstMatch = XmlUtils.getFirstMatchingStringData(testDoc, "aw:Comment", null, null);
+        final String firstMatch = XmlUtils.getFirstMatchingStringData(testDoc, "aw:Comment");
         assertThat(firstMatch).isNotNull();
         assertThat(firstMatch).isEqualTo("Confirm this is electric");
     }
@@ -15,6 +15,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
+import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -67,4 +68,15 @@ public class BaseNativeAdTest {
 
         verifyNoMoreInteractions(mockEventListener);
     }
+
+    @Test
+    public void getDecodedImageBytes_shouldSumLatestSizeOfEachImage() {
+        assertThat(subject.getDecodedImageBytes()).isEqualTo(0);
+
+        subject.setDecodedImageBytes("mainimageurl", 1000);
+        subject.setDecodedImageBytes("iconimageurl", 100);
+        subject.setDecodedImageBytes("mainimageurl", 400);
+
+        assertThat(subject.getDecodedImageBytes()).isEqualTo(500);
+    }
 }
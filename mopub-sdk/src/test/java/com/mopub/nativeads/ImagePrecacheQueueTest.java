@@ -0,0 +1,289 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import androidx.annotation.NonNull;
+import android.view.View;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.NativeImageHelper.ImageListener;
+import com.mopub.nativeads.NativeImageHelper.PreCacheToken;
+import com.mopub.network.MaxWidthImageLoader;
+import com.mopub.network.Networking;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class ImagePrecacheQueueTest {
+    private Activity context;
+    @Mock private MaxWidthImageLoader mockImageLoader;
+    @Mock private ImageLoader.ImageContainer mockImageContainer;
+    @Mock private ImageListener mockListener;
+    @Mock private ImageListener mockListener2;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        Networking.setImageLoaderForTesting(mockImageLoader);
+        when(mockImageLoader.get(anyString(), any(ImageLoader.ImageListener.class)))
+                .thenReturn(mockImageContainer);
+    }
+
+    @After
+    public void tearDown() {
+        Networking.setImageLoaderForTesting(null);
+    }
+
+    @Test
+    public void preCacheImages_shouldLimitConcurrentRequests() {
+        final List<String> urls = Arrays.asList("url1", "url2", "url3", "url4", "url5", "url6");
+
+        preCache(urls, mockListener);
+
+        verifyRequested("url1", "url2", "url3", "url4");
+        verifyNotRequested("url5", "url6");
+        assertThat(ImagePrecacheQueue.getInstance().getPendingCount()).isEqualTo(2);
+
+        respond("url2");
+
+        verifyRequested("url5");
+        verifyNotRequested("url6");
+    }
+
+    @Test
+    public void preCacheImages_shouldRequestLowPriorityImagesAfterOtherAdsImages() {
+        NativeImageHelper.preCacheImages(context,
+                Arrays.asList("privacy1", "main1", "icon1", "extra1", "extra2"),
+                Collections.singleton("privacy1"), mockListener, null);
+        NativeImageHelper.preCacheImages(context,
+                Arrays.asList("main2", "privacy2"),
+                Collections.singleton("privacy2"), mockListener2, null);
+
+        verifyRequested("main1", "icon1", "extra1", "extra2");
+        verifyNotRequested("privacy1", "main2", "privacy2");
+
+        respond("main1");
+
+        verifyRequested("main2");
+        verifyNotRequested("privacy1", "privacy2");
+
+        respond("icon1");
+
+        verifyRequested("privacy1");
+        verifyNotRequested("privacy2");
+    }
+
+    @Test
+    public void preCacheImages_withAllImagesCached_shouldCallOnImagesCachedOnce() {
+        preCache(Arrays.asList("url1", "url2"), mockListener);
+
+        respond("url1");
+        verify(mockListener, never()).onImagesCached();
+        respond("url2");
+
+        verify(mockListener).onImagesCached();
+        verify(mockListener, never()).onImagesFailedToCache(any(NativeErrorCode.class));
+    }
+
+    @Test
+    public void preCacheImages_withDefaultImageResponse_shouldNotCountImage() {
+        preCache(Collections.singletonList("url1"), mockListener);
+
+        final ImageLoader.ImageContainer emptyContainer = mock(ImageLoader.ImageContainer.class);
+        getImageListener("url1").onResponse(emptyContainer, true);
+
+        verify(mockListener, never()).onImagesCached();
+        assertThat(ImagePrecacheQueue.getInstance().getInFlightCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void preCacheImages_withSameUrlForTwoAds_shouldRequestOnce_shouldNotifyBoth() {
+        preCache(Collections.singletonList("url1"), mockListener);
+        preCache(Collections.singletonList("url1"), mockListener2);
+
+        verify(mockImageLoader, times(1)).get(eq("url1"), any(ImageLoader.ImageListener.class));
+
+        respond("url1");
+
+        verify(mockListener).onImagesCached();
+        verify(mockListener2).onImagesCached();
+    }
+
+    @Test
+    public void preCacheImages_withEmptyUrl_shouldFailWithoutRequests() {
+        preCache(Arrays.asList("url1", ""), mockListener);
+
+        verify(mockListener).onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        verify(mockImageLoader, never()).get(anyString(), any(ImageLoader.ImageListener.class));
+    }
+
+    @Test
+    public void preCacheImages_withFailedImage_shouldFailOnce_shouldCancelOtherImages() {
+        preCache(Arrays.asList("url1", "url2", "url3", "url4", "url5"), mockListener);
+
+        fail("url1");
+
+        verify(mockListener, times(1)).onImagesFailedToCache(
+                NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        verify(mockImageContainer, times(3)).cancelRequest();
+        verifyNotRequested("url5");
+        assertThat(ImagePrecacheQueue.getInstance().getPendingCount()).isEqualTo(0);
+        assertThat(ImagePrecacheQueue.getInstance().getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void preCacheImages_withRecentlyFailedUrl_shouldFailWithoutRequest() {
+        preCache(Collections.singletonList("url1"), mockListener);
+        fail("url1");
+
+        preCache(Collections.singletonList("url1"), mockListener2);
+
+        verify(mockListener2).onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        verify(mockImageLoader, times(1)).get(eq("url1"), any(ImageLoader.ImageListener.class));
+    }
+
+    @Test
+    public void preCacheImages_withFailedUrlAfterRetryInterval_shouldRequestAgain() {
+        preCache(Collections.singletonList("url1"), mockListener);
+        fail("url1");
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                ImagePrecacheQueue.FAILED_URL_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        preCache(Collections.singletonList("url1"), mockListener2);
+
+        verify(mockImageLoader, times(2)).get(eq("url1"), any(ImageLoader.ImageListener.class));
+        verify(mockListener2, never()).onImagesFailedToCache(any(NativeErrorCode.class));
+    }
+
+    @Test
+    public void cancel_shouldCancelRequests_shouldNotCallListener() {
+        final PreCacheToken token = preCache(
+                Arrays.asList("url1", "url2", "url3", "url4", "url5"), mockListener);
+        final ImageLoader.ImageListener imageListener = getImageListener("url1");
+
+        token.cancel();
+        respondTo(imageListener);
+
+        assertThat(token.isCancelled()).isTrue();
+        verify(mockImageContainer, times(4)).cancelRequest();
+        verifyNotRequested("url5");
+        verify(mockListener, never()).onImagesCached();
+        verify(mockListener, never()).onImagesFailedToCache(any(NativeErrorCode.class));
+    }
+
+    @Test
+    public void cancel_withUrlSharedWithOtherAd_shouldKeepRequest() {
+        final PreCacheToken token = preCache(Collections.singletonList("url1"), mockListener);
+        preCache(Collections.singletonList("url1"), mockListener2);
+
+        token.cancel();
+        respond("url1");
+
+        verify(mockImageContainer, never()).cancelRequest();
+        verify(mockListener, never()).onImagesCached();
+        verify(mockListener2).onImagesCached();
+    }
+
+    @Test
+    public void invalidate_withNativeAd_shouldCancelPreCache_shouldRecordDecodedBytes() {
+        final BaseNativeAd nativeAd = new BaseNativeAd() {
+            @Override
+            public void prepare(@NonNull View view) { }
+
+            @Override
+            public void clear(@NonNull View view) { }
+
+            @Override
+            public void destroy() { }
+        };
+        final PreCacheToken token = NativeImageHelper.preCacheImages(context,
+                Arrays.asList("url1", "url2"), Collections.<String>emptySet(), mockListener,
+                nativeAd);
+        final Bitmap bitmap = respond("url1");
+
+        nativeAd.invalidate();
+
+        assertThat(token.isCancelled()).isTrue();
+        assertThat(nativeAd.getDecodedImageBytes()).isEqualTo(bitmap.getByteCount());
+        assertThat(ImagePrecacheQueue.getInstance().getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void preCacheImages_withImageWidths_shouldRequestThoseImagesAtTheirWidth() {
+        NativeImageHelper.preCacheImages(context, Arrays.asList("main", "icon", "extra"),
+                Collections.<String>emptySet(), Collections.singletonMap("icon", 64),
+                mockListener, null);
+
+        verify(mockImageLoader).get(eq("icon"), any(ImageLoader.ImageListener.class), eq(64),
+                eq(0));
+        verifyRequested("main", "extra");
+        verifyNotRequested("icon");
+    }
+
+    private PreCacheToken preCache(final List<String> urls, final ImageListener listener) {
+        return NativeImageHelper.preCacheImages(context, urls, Collections.<String>emptySet(),
+                listener, null);
+    }
+
+    private ImageLoader.ImageListener getImageListener(final String url) {
+        final ArgumentCaptor<ImageLoader.ImageListener> listenerCaptor =
+                ArgumentCaptor.forClass(ImageLoader.ImageListener.class);
+        verify(mockImageLoader).get(eq(url), listenerCaptor.capture());
+        return listenerCaptor.getValue();
+    }
+
+    private Bitmap respond(final String url) {
+        return respondTo(getImageListener(url));
+    }
+
+    private Bitmap respondTo(final ImageLoader.ImageListener imageListener) {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        final ImageLoader.ImageContainer imageContainer = mock(ImageLoader.ImageContainer.class);
+        when(imageContainer.getBitmap()).thenReturn(bitmap);
+        imageListener.onResponse(imageContainer, false);
+        return bitmap;
+    }
+
+    private void fail(final String url) {
+        getImageListener(url).onErrorResponse(new VolleyError("failed"));
+    }
+
+    private void verifyRequested(final String... urls) {
+        for (final String url : urls) {
+            verify(mockImageLoader).get(eq(url), any(ImageLoader.ImageListener.class));
+        }
+    }
+
+    private void verifyNotRequested(final String... urls) {
+        for (final String url : urls) {
+            verify(mockImageLoader, never()).get(eq(url), any(ImageLoader.ImageListener.class));
+        }
+    }
+}
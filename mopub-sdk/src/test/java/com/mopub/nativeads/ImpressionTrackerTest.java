@@ -4,7 +4,6 @@
 
 package com.mopub.nativeads;
 
-import android.os.Handler;
 import android.view.View;
 
 import com.mopub.common.test.support.SdkTestRunner;
@@ -20,11 +19,10 @@ import org.robolectric.Robolectric;
 import org.robolectric.shadows.ShadowSystemClock;
 
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.common.VisibilityTracker.VisibilityChecker;
 import static org.fest.assertions.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -40,7 +38,6 @@ public class ImpressionTrackerTest {
     @Mock private ImpressionInterface impressionInterface;
     @Mock private ImpressionInterface impressionInterface2;
     @Mock private VisibilityTracker visibilityTracker;
-    @Mock private Handler handler;
     @Mock private View view;
     @Mock private View view2;
 
@@ -53,7 +50,7 @@ public class ImpressionTrackerTest {
         trackedViews = new HashMap<View, ImpressionInterface>(10);
         final VisibilityChecker visibilityChecker = new VisibilityChecker();
         subject = new ImpressionTracker(trackedViews, pollingViews, visibilityChecker,
-                visibilityTracker, handler);
+                visibilityTracker);
 
         timeStampWrapper = new TimestampWrapper<ImpressionInterface>(impressionInterface);
 
@@ -169,7 +166,7 @@ public class ImpressionTrackerTest {
     }
 
     @Test
-    public void clear_shouldClearViewTrackedViews_shouldClearPollingViews_shouldClearVisibilityTracker_shouldClearPollHandler() {
+    public void clear_shouldClearViewTrackedViews_shouldClearPollingViews_shouldClearVisibilityTracker() {
         trackedViews.put(view, impressionInterface);
         trackedViews.put(view2, impressionInterface);
         pollingViews.put(view, timeStampWrapper);
@@ -184,7 +181,6 @@ public class ImpressionTrackerTest {
         assertThat(trackedViews).isEmpty();
         assertThat(pollingViews).isEmpty();
         verify(visibilityTracker).clear();
-        verify(handler).removeMessages(0);
     }
     
     @Test
@@ -204,42 +200,40 @@ public class ImpressionTrackerTest {
         assertThat(trackedViews).isEmpty();
         assertThat(pollingViews).isEmpty();
         verify(visibilityTracker).clear();
-        verify(handler).removeMessages(0);
 
         verify(visibilityTracker).destroy();
         assertThat(subject.getVisibilityTrackerListener()).isNull();
     }
 
     @Test
-    public void scheduleNextPoll_shouldPostDelayedThePollingRunnable() {
-        when(handler.hasMessages(0)).thenReturn(false);
-
-        subject.scheduleNextPoll();
-
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
-    }
+    public void visibilityTrackerListener_onVisibilityChanged_withVisibleViews_shouldAddViewToPollingViews_shouldScheduleVisibilityCheck() {
+        subject.addView(view, impressionInterface);
 
-    @Test
-    public void scheduleNextPoll_withMessages_shouldNotPostDelayedThePollingRunnable() {
-        when(handler.hasMessages(0)).thenReturn(true);
+        assertThat(pollingViews).isEmpty();
 
-        subject.scheduleNextPoll();
+        subject.getVisibilityTrackerListener()
+                .onVisibilityChanged(Lists.newArrayList(view), Lists.<View>newArrayList());
 
-        verify(handler, never())
-                .postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        assertThat(pollingViews.keySet()).containsOnly(view);
+        verify(visibilityTracker).scheduleVisibilityCheck();
     }
 
     @Test
-    public void visibilityTrackerListener_onVisibilityChanged_withVisibleViews_shouldAddViewToPollingViews_shouldScheduleNextPoll() {
+    public void visibilityTrackerListener_onVisibilityChanged_withViewVisibleForMinTime_shouldTrackImpression() {
         subject.addView(view, impressionInterface);
+        subject.getVisibilityTrackerListener()
+                .onVisibilityChanged(Lists.newArrayList(view), Lists.<View>newArrayList());
+        verify(impressionInterface, never()).recordImpression(view);
 
-        assertThat(pollingViews).isEmpty();
-
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000, TimeUnit.MILLISECONDS);
         subject.getVisibilityTrackerListener()
                 .onVisibilityChanged(Lists.newArrayList(view), Lists.<View>newArrayList());
 
-        assertThat(pollingViews.keySet()).containsOnly(view);
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(impressionInterface).recordImpression(view);
+        verify(impressionInterface).setImpressionRecorded();
+        assertThat(trackedViews).isEmpty();
+        assertThat(pollingViews).isEmpty();
+        verify(visibilityTracker).removeView(view);
     }
 
     @Test
@@ -260,52 +254,51 @@ public class ImpressionTrackerTest {
     }
 
     @Test
-    public void pollingRunnableRun_whenLessThanOneSecondHasElapsed_shouldNotTrackImpression_shouldScheduleNextPoll() {
+    public void pollImpressions_whenLessThanOneSecondHasElapsed_shouldNotTrackImpression_shouldScheduleVisibilityCheck() {
         // Force the last viewed timestamp to be a known value
         timeStampWrapper.mCreatedTimestamp = 5555;
         pollingViews.put(view, timeStampWrapper);
 
         // We progress 999 milliseconds
         Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 999);
-        subject.new PollingRunnable().run();
+        subject.pollImpressions();
 
         verify(impressionInterface, never()).recordImpression(view);
 
         assertThat(pollingViews.keySet()).containsOnly(view);
-        verify(handler).postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(visibilityTracker).scheduleVisibilityCheck();
     }
 
     @Test
-    public void pollingRunnableRun_whenMoreThanOneSecondHasElapsed_shouldTrackImpression_shouldNotScheduleNextPoll() {
+    public void pollImpressions_whenMoreThanOneSecondHasElapsed_shouldTrackImpression_shouldNotScheduleVisibilityCheck() {
         // Force the last viewed timestamp to be a known value
         timeStampWrapper.mCreatedTimestamp = 5555;
         pollingViews.put(view, timeStampWrapper);
 
         // We progress 1000 milliseconds
         Robolectric.getForegroundThreadScheduler().advanceTo(5555 + 1000);
-        subject.new PollingRunnable().run();
+        subject.pollImpressions();
 
         verify(impressionInterface).recordImpression(view);
 
         assertThat(pollingViews).isEmpty();
-        verify(handler, never())
-                .postDelayed(any(ImpressionTracker.PollingRunnable.class), eq((long) 250));
+        verify(visibilityTracker, never()).scheduleVisibilityCheck();
     }
 
     @Test(expected = NullPointerException.class)
-    public void pollingRunnableRun_whenWrapperIsNull_shouldThrowNPE() {
+    public void pollImpressions_whenWrapperIsNull_shouldThrowNPE() {
         pollingViews.put(view, null);
-        subject.new PollingRunnable().run();
+        subject.pollImpressions();
 
         verify(impressionInterface, never()).recordImpression(view);
     }
 
     @Test(expected = NullPointerException.class)
-    public void pollingRunnableRun_whenImpressionInterfaceIsNull_shouldThrowNPE() {
+    public void pollImpressions_whenImpressionInterfaceIsNull_shouldThrowNPE() {
         // This doesn't normally happen; perhaps we're being overly defensive
         pollingViews.put(view, new TimestampWrapper<ImpressionInterface>(null));
 
-        subject.new PollingRunnable().run();
+        subject.pollImpressions();
 
         verify(impressionInterface, never()).recordImpression(view);
     }
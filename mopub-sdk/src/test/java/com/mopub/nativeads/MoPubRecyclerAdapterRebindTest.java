@@ -0,0 +1,284 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.mopub.common.VisibilityTracker;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.INSERT_AT_END;
+import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.KEEP_ADS_FIXED;
+import static com.mopub.nativeads.MoPubRecyclerAdapter.ContentChangeStrategy.MOVE_ALL_ADS_WITH_CONTENT;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Makes content changes to an adapter wrapped in a {@link MoPubRecyclerAdapter} with ads placed
+ * in it, and applies the notifications of the {@link MoPubRecyclerAdapter} to a list of what a
+ * RecyclerView would be showing. After every change that list has to match the adapter, and only
+ * the items that were inserted or changed may have been bound again.
+ */
+@RunWith(SdkTestRunner.class)
+public class MoPubRecyclerAdapterRebindTest {
+    private static final int INITIAL_ITEM_COUNT = 40;
+
+    @Mock private NativeAdSource mockAdSource;
+    @Mock private PositioningSource mockPositioningSource;
+    @Mock private VisibilityTracker mockVisibilityTracker;
+
+    private MoPubStreamAdPlacer streamAdPlacer;
+    private TestAdapter originalAdapter;
+    private RecordingObserver observer;
+    private int nextItemId;
+    // What notifyDataSetChanged() would have bound for the changes so far
+    private int dataSetChangedBindCount;
+
+    private MoPubRecyclerAdapter subject;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        // Ads are placed when the main looper runs, which tests do between changes.
+        Robolectric.getForegroundThreadScheduler().pause();
+        when(mockAdSource.dequeueAd()).thenAnswer(new Answer<NativeAd>() {
+            @Override
+            public NativeAd answer(final InvocationOnMock invocation) throws Throwable {
+                return mock(NativeAd.class);
+            }
+        });
+
+        streamAdPlacer = new MoPubStreamAdPlacer(activity, mockAdSource, mockPositioningSource);
+        streamAdPlacer.handlePositioningLoad(MoPubNativeAdPositioning.clientPositioning()
+                .addFixedPosition(1)
+                .enableRepeatingPositions(5));
+
+        originalAdapter = new TestAdapter();
+        for (int i = 0; i < INITIAL_ITEM_COUNT; i++) {
+            originalAdapter.mItems.add(newItem());
+        }
+        subject = new MoPubRecyclerAdapter(streamAdPlacer, originalAdapter,
+                mockVisibilityTracker);
+        observer = new RecordingObserver(getDisplayedItems());
+        subject.registerAdapterDataObserver(observer);
+
+        streamAdPlacer.handleAdsAvailable();
+        streamAdPlacer.placeAdsInRange(0, INITIAL_ITEM_COUNT * 2);
+        ShadowLooper.runUiThreadTasks();
+        observer.checkAndReset(getDisplayedItems());
+        observer.mBindCount = 0;
+        assertThat(subject.getItemCount()).isGreaterThan(INITIAL_ITEM_COUNT);
+    }
+
+    @Test
+    public void contentChanges_withMoveAdsStrategy_shouldOnlyRebindChangedItems() {
+        runContentChanges(MOVE_ALL_ADS_WITH_CONTENT);
+    }
+
+    @Test
+    public void contentChanges_withInsertAtEndStrategy_shouldOnlyRebindChangedItems() {
+        runContentChanges(INSERT_AT_END);
+    }
+
+    @Test
+    public void contentChanges_withKeepAdsStrategy_shouldOnlyRebindChangedItems() {
+        runContentChanges(KEEP_ADS_FIXED);
+    }
+
+    private void runContentChanges(@NonNull final ContentChangeStrategy strategy) {
+        subject.setContentChangeStrategy(strategy);
+        int contentBindCount = 0;
+
+        originalAdapter.insertItems(7, 3);
+        contentBindCount += checkAfterChange();
+        originalAdapter.insertItems(originalAdapter.getItemCount(), 2);
+        contentBindCount += checkAfterChange();
+        originalAdapter.removeItems(10, 4);
+        contentBindCount += checkAfterChange();
+        originalAdapter.removeItems(originalAdapter.getItemCount() - 3, 3);
+        contentBindCount += checkAfterChange();
+        originalAdapter.moveItem(2, 20);
+        contentBindCount += checkAfterChange();
+        originalAdapter.moveItem(25, 4);
+        contentBindCount += checkAfterChange();
+        originalAdapter.moveItem(originalAdapter.getItemCount() - 1, 0);
+        contentBindCount += checkAfterChange();
+        originalAdapter.changeItems(3, 5);
+        contentBindCount += checkAfterChange();
+        originalAdapter.changeItems(0, 1);
+        contentBindCount += checkAfterChange();
+
+        assertThat(observer.mDataSetChangedCount).isEqualTo(0);
+        // Only the 5 inserted and the 6 changed items
+        assertThat(contentBindCount).isEqualTo(11);
+        assertThat(observer.mBindCount).isLessThan(dataSetChangedBindCount / 10);
+    }
+
+    /**
+     * Places ads the way the main looper would after the change, then checks what is displayed.
+     *
+     * @return The number of content items bound since the last check.
+     */
+    private int checkAfterChange() {
+        ShadowLooper.runUiThreadTasks();
+        dataSetChangedBindCount += subject.getItemCount();
+        return observer.checkAndReset(getDisplayedItems());
+    }
+
+    @NonNull
+    private List<Object> getDisplayedItems() {
+        final List<Object> items = new ArrayList<Object>();
+        for (int position = 0; position < subject.getItemCount(); position++) {
+            final Object adData = streamAdPlacer.getAdData(position);
+            items.add(adData != null
+                    ? adData
+                    : originalAdapter.mItems.get(streamAdPlacer.getOriginalPosition(position)));
+        }
+        return items;
+    }
+
+    @NonNull
+    private String newItem() {
+        return "item" + nextItemId++;
+    }
+
+    /**
+     * Keeps the list of items a RecyclerView would be showing, from the notifications it gets.
+     */
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        // An item that has been bound since the last check
+        private static final Object BOUND = new Object();
+
+        @NonNull private List<Object> mDisplayedItems;
+        int mBindCount;
+        int mDataSetChangedCount;
+
+        RecordingObserver(@NonNull final List<Object> displayedItems) {
+            mDisplayedItems = new ArrayList<Object>(displayedItems);
+        }
+
+        @Override
+        public void onChanged() {
+            mDataSetChangedCount++;
+            mBindCount += mDisplayedItems.size();
+        }
+
+        @Override
+        public void onItemRangeChanged(final int positionStart, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mDisplayedItems.set(positionStart + i, BOUND);
+            }
+            mBindCount += itemCount;
+        }
+
+        @Override
+        public void onItemRangeInserted(final int positionStart, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mDisplayedItems.add(positionStart + i, BOUND);
+            }
+            mBindCount += itemCount;
+        }
+
+        @Override
+        public void onItemRangeRemoved(final int positionStart, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mDisplayedItems.remove(positionStart);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(final int fromPosition, final int toPosition,
+                final int itemCount) {
+            assertThat(itemCount).isEqualTo(1);
+            mDisplayedItems.add(toPosition, mDisplayedItems.remove(fromPosition));
+        }
+
+        /**
+         * Checks that every item is either where it should be or was bound again.
+         *
+         * @return The number of content items that were bound again.
+         */
+        int checkAndReset(@NonNull final List<Object> expectedItems) {
+            assertThat(mDisplayedItems.size()).isEqualTo(expectedItems.size());
+            int contentBindCount = 0;
+            for (int i = 0; i < expectedItems.size(); i++) {
+                final Object expected = expectedItems.get(i);
+                if (mDisplayedItems.get(i) == BOUND) {
+                    if (expected instanceof String) {
+                        contentBindCount++;
+                    }
+                } else {
+                    assertThat(mDisplayedItems.get(i)).isSameAs(expected);
+                }
+            }
+            mDisplayedItems = new ArrayList<Object>(expectedItems);
+            return contentBindCount;
+        }
+    }
+
+    private class TestAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @NonNull final List<String> mItems = new ArrayList<String>();
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(final ViewGroup parent,
+                final int viewType) {
+            return new RecyclerView.ViewHolder(mock(View.class)) { };
+        }
+
+        @Override
+        public void onBindViewHolder(final RecyclerView.ViewHolder holder, final int position) {
+            // Do nothing
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItems.size();
+        }
+
+        void insertItems(final int position, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mItems.add(position + i, newItem());
+            }
+            notifyItemRangeInserted(position, itemCount);
+        }
+
+        void removeItems(final int position, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mItems.remove(position);
+            }
+            notifyItemRangeRemoved(position, itemCount);
+        }
+
+        void moveItem(final int fromPosition, final int toPosition) {
+            mItems.add(toPosition, mItems.remove(fromPosition));
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        void changeItems(final int position, final int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mItems.set(position + i, newItem());
+            }
+            notifyItemRangeChanged(position, itemCount);
+        }
+    }
+}
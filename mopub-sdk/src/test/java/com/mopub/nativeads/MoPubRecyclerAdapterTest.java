@@ -124,6 +124,18 @@ public class MoPubRecyclerAdapterTest {
                 return adjusted;
             }
         });
+        when(mockStreamAdPlacer.getNextAdPosition(anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(final InvocationOnMock invocation) throws Throwable {
+                final int position = (Integer) invocation.getArguments()[0];
+                if (position < AD_POSITION_1) {
+                    return AD_POSITION_1;
+                } else if (position < AD_POSITION_7) {
+                    return AD_POSITION_7;
+                }
+                return PlacementData.NOT_FOUND;
+            }
+        });
         when(mockStreamAdPlacer.getAdViewType(anyInt())).thenAnswer(new Answer<Integer>() {
             @Override
             public Integer answer(final InvocationOnMock invocation) throws Throwable {
@@ -457,7 +469,30 @@ public class MoPubRecyclerAdapterTest {
     }
 
     @Test
-    public void onItemRangeInsertedAtEnd_withInsertAtEndStrategy_shouldNotifyDataChanged() {
+    public void onChanged_shouldNotifyDataChanged() {
+        subject.registerAdapterDataObserver(mockObserver);
+
+        originalAdapter.notifyDataSetChanged();
+
+        verify(mockObserver).onChanged();
+        verifyNoMoreInteractions(mockObserver);
+        verify(mockStreamAdPlacer).setItemCount(originalAdapter.getItemCount());
+    }
+
+    @Test
+    public void onItemRangeChanged_withAdInRange_shouldNotifyItemRangeChangedAroundAd() {
+        subject.registerAdapterDataObserver(mockObserver);
+        final Object payload = new Object();
+
+        originalAdapter.notifyItemRangeChanged(AD_POSITION_7 - 2, 5, payload);
+
+        verify(mockObserver).onItemRangeChanged(AD_POSITION_7 - 1, 1, payload);
+        verify(mockObserver).onItemRangeChanged(AD_POSITION_7 + 1, 4, payload);
+        verifyNoMoreInteractions(mockObserver);
+    }
+
+    @Test
+    public void onItemRangeInsertedAtEnd_withInsertAtEndStrategy_shouldNotifyItemRangeInserted() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(INSERT_AT_END);
 
@@ -465,11 +500,11 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount + 3);
         originalAdapter.notifyItemRangeInserted(originalItemCount, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeInserted(originalItemCount + 2, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount);
+        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 1);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verifyNoMoreInteractions(mockStreamAdPlacer);
+        verify(mockStreamAdPlacer, never()).insertItems(anyInt(), anyInt());
     }
 
     @Test
@@ -483,14 +518,15 @@ public class MoPubRecyclerAdapterTest {
 
         verify(mockObserver).onItemRangeInserted(originalItemCount + 2, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount);
+        verify(mockStreamAdPlacer).getAdjustedCount(originalItemCount);
+        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 1);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
     @Test
-    public void onItemRangeInsertedAtEnd_withKeepAdsPlacedStrategy_shouldNotifyDataChanged() {
+    public void onItemRangeInsertedAtEnd_withKeepAdsPlacedStrategy_shouldNotifyItemRangeInserted() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(KEEP_ADS_FIXED);
 
@@ -498,11 +534,10 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount + 3);
         originalAdapter.notifyItemRangeInserted(originalItemCount, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeInserted(originalItemCount + 2, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verifyNoMoreInteractions(mockStreamAdPlacer);
+        verify(mockStreamAdPlacer, never()).insertItems(anyInt(), anyInt());
     }
 
     @Test
@@ -516,9 +551,10 @@ public class MoPubRecyclerAdapterTest {
 
         verify(mockObserver).onItemRangeInserted(originalItemCount - 5, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
+        verify(mockStreamAdPlacer).getAdjustedCount(originalItemCount);
+        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 8);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -533,14 +569,15 @@ public class MoPubRecyclerAdapterTest {
 
         verify(mockObserver).onItemRangeInserted(originalItemCount - 5, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
+        verify(mockStreamAdPlacer).getAdjustedCount(originalItemCount);
+        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 8);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
     @Test
-    public void onItemRangeInsertedInMiddle_withKeepAdsStrategy_shouldNotifyDataChanged() {
+    public void onItemRangeInsertedInMiddle_withKeepAdsStrategy_shouldNotifyItemRangeInserted() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(KEEP_ADS_FIXED);
 
@@ -548,15 +585,28 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount + 3);
         originalAdapter.notifyItemRangeInserted(originalItemCount - 7, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeInserted(originalItemCount - 5, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verifyNoMoreInteractions(mockStreamAdPlacer);
+        verify(mockStreamAdPlacer, never()).insertItems(anyInt(), anyInt());
     }
 
     @Test
-    public void onItemRangeRemovedFromEnd_withInsertAtEndStrategy_shouldNotifyDataChanged() {
+    public void onItemRangeInsertedBeforeAd_withKeepAdsStrategy_shouldMoveAdBack() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(KEEP_ADS_FIXED);
+
+        final int originalItemCount = originalAdapter.getItemCount();
+        originalAdapter.setItemCount(originalItemCount + 3);
+        originalAdapter.notifyItemRangeInserted(3, 3);
+
+        verify(mockObserver).onItemRangeInserted(4, 3);
+        verify(mockObserver).onItemRangeMoved(AD_POSITION_7 + 3, AD_POSITION_7, 1);
+        verifyNoMoreInteractions(mockObserver);
+    }
+
+    @Test
+    public void onItemRangeRemovedFromEnd_withInsertAtEndStrategy_shouldNotifyItemRangeRemoved() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(INSERT_AT_END);
 
@@ -564,11 +614,10 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount - 3);
         originalAdapter.notifyItemRangeRemoved(originalItemCount - 4, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeRemoved(originalItemCount - 2, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 4);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verifyNoMoreInteractions(mockStreamAdPlacer);
+        verify(mockStreamAdPlacer, never()).removeItems(anyInt(), anyInt());
     }
 
     @Test
@@ -584,7 +633,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 4, 3);
     }
 
     @Test
@@ -596,18 +645,18 @@ public class MoPubRecyclerAdapterTest {
         final int originalItemCount = AD_POSITION_7 + 1;
 
         originalAdapter.setItemCount(originalItemCount - 3);
-        originalAdapter.notifyItemRangeRemoved(originalItemCount - 4, 3);
+        originalAdapter.notifyItemRangeRemoved(originalItemCount - 3, 3);
 
-        // We remove 3 items + 1 ad
-        verify(mockObserver).onItemRangeRemoved(originalItemCount - 4, 4);
+        // We remove 3 items + 1 ad, which has no item after it anymore
+        verify(mockObserver).onItemRangeRemoved(originalItemCount - 2, 4);
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 3, 3);
     }
 
     @Test
-    public void onItemRangeRemovedFromEnd_withKeepAdsStrategy_shouldNotifyDataChanged() {
+    public void onItemRangeRemovedFromEnd_withKeepAdsStrategy_shouldNotifyItemRangeRemoved() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(KEEP_ADS_FIXED);
 
@@ -615,10 +664,11 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount - 3);
         originalAdapter.notifyItemRangeRemoved(originalItemCount - 4, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeRemoved(originalItemCount - 2, 3);
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
+        verify(mockStreamAdPlacer, never()).removeItems(anyInt(), anyInt());
     }
 
     @Test
@@ -634,7 +684,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
     }
 
     @Test
@@ -650,11 +700,11 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
     }
 
     @Test
-    public void onItemRangeRemovedFromMiddle_withKeepAdsStrategy_shouldNotifyChanged() {
+    public void onItemRangeRemovedFromMiddle_withKeepAdsStrategy_shouldNotifyItemRangeRemoved() {
         subject.registerAdapterDataObserver(mockObserver);
         subject.setContentChangeStrategy(KEEP_ADS_FIXED);
 
@@ -662,11 +712,49 @@ public class MoPubRecyclerAdapterTest {
         originalAdapter.setItemCount(originalItemCount - 3);
         originalAdapter.notifyItemRangeRemoved(originalItemCount - 8, 3);
 
-        verify(mockObserver).onChanged();
+        verify(mockObserver).onItemRangeRemoved(originalItemCount - 6, 3);
         verifyNoMoreInteractions(mockObserver);
-        verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 8);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verifyNoMoreInteractions(mockStreamAdPlacer);
+        verify(mockStreamAdPlacer, never()).removeItems(anyInt(), anyInt());
+    }
+
+    @Test
+    public void onItemRangeRemovedBeforeAd_withKeepAdsStrategy_shouldMoveAdDownBeforeRemoving() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(KEEP_ADS_FIXED);
+
+        final int originalItemCount = originalAdapter.getItemCount();
+        originalAdapter.setItemCount(originalItemCount - 3);
+        originalAdapter.notifyItemRangeRemoved(2, 3);
+
+        verify(mockObserver).onItemRangeMoved(AD_POSITION_7, AD_POSITION_7 + 3, 1);
+        verify(mockObserver).onItemRangeRemoved(3, 3);
+        verifyNoMoreInteractions(mockObserver);
+    }
+
+    @Test
+    public void onItemRangeMoved_withMoveAdsStrategy_shouldNotifyItemMoved() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(MOVE_ALL_ADS_WITH_CONTENT);
+
+        originalAdapter.notifyItemMoved(12, 3);
+
+        verify(mockObserver).onItemRangeMoved(14, 4, 1);
+        verifyNoMoreInteractions(mockObserver);
+        verify(mockStreamAdPlacer).moveItem(12, 3);
+    }
+
+    @Test
+    public void onItemRangeMoved_withKeepAdsStrategy_shouldMoveAdsBetweenBack() {
+        subject.registerAdapterDataObserver(mockObserver);
+        subject.setContentChangeStrategy(KEEP_ADS_FIXED);
+
+        originalAdapter.notifyItemMoved(12, 3);
+
+        verify(mockObserver).onItemRangeMoved(14, 4, 1);
+        verify(mockObserver).onItemRangeMoved(AD_POSITION_7 + 1, AD_POSITION_7, 1);
+        verifyNoMoreInteractions(mockObserver);
+        verify(mockStreamAdPlacer, never()).moveItem(anyInt(), anyInt());
     }
 
     private class TestAdapter extends RecyclerView.Adapter<TestHolder> {
@@ -4,6 +4,7 @@
 
 package com.mopub.nativeads;
 
+import android.app.Activity;
 import android.graphics.Bitmap;
 import android.view.View;
 import android.view.ViewGroup;
@@ -25,6 +26,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
@@ -192,4 +198,103 @@ public class MoPubStaticNativeAdRendererTest {
         assertThat(subject.supports(mock(MoPubCustomEventVideoNative.MoPubVideoNativeAd.class)))
                 .isFalse();
     }
+
+    @Test
+    public void prewarmAdViews_shouldInflateOnExecutor_shouldBeUsedByCreateAdView() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final RecordingExecutor executor = new RecordingExecutor();
+        subject = new MoPubStaticNativeAdRenderer(new ViewBinder.Builder(
+                android.R.layout.simple_list_item_1).titleId(android.R.id.text1).build(),
+                executor);
+
+        subject.prewarmAdViews(activity, null, 2);
+
+        assertThat(executor.mRunnables).hasSize(2);
+        executor.runAll();
+        assertThat(subject.getTimings().getBackgroundInflateCount()).isEqualTo(2);
+
+        final View adView = subject.createAdView(activity, null);
+
+        assertThat(subject.getTimings().getPrewarmedViewsUsedCount()).isEqualTo(1);
+        assertThat(subject.getTimings().getMainThreadInflateCount()).isEqualTo(0);
+        assertThat(subject.mViewHolderMap.get(adView).titleView)
+                .isSameAs(adView.findViewById(android.R.id.text1));
+        // The view that was used is replaced
+        assertThat(executor.mRunnables).hasSize(1);
+
+        subject.renderAdView(adView, mStaticNativeAd);
+
+        assertThat(((TextView) adView.findViewById(android.R.id.text1)).getText())
+                .isEqualTo("test title");
+        assertThat(subject.getTimings().getRenderCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void createAdView_withPrewarmedViewsOfOtherContext_shouldInflateOnMainThread() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final Activity otherActivity = Robolectric.buildActivity(Activity.class).create().get();
+        final RecordingExecutor executor = new RecordingExecutor();
+        subject = new MoPubStaticNativeAdRenderer(new ViewBinder.Builder(
+                android.R.layout.simple_list_item_1).titleId(android.R.id.text1).build(),
+                executor);
+        subject.prewarmAdViews(activity, null, 1);
+        executor.runAll();
+
+        subject.createAdView(otherActivity, null);
+
+        assertThat(subject.getTimings().getPrewarmedViewsUsedCount()).isEqualTo(0);
+        assertThat(subject.getTimings().getMainThreadInflateCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void prewarmAdViews_withZeroCount_shouldStopPrewarming() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final RecordingExecutor executor = new RecordingExecutor();
+        subject = new MoPubStaticNativeAdRenderer(new ViewBinder.Builder(
+                android.R.layout.simple_list_item_1).titleId(android.R.id.text1).build(),
+                executor);
+        subject.prewarmAdViews(activity, null, 2);
+        executor.runAll();
+
+        subject.prewarmAdViews(activity, null, 0);
+        subject.createAdView(activity, null);
+
+        assertThat(subject.getTimings().getPrewarmedViewsUsedCount()).isEqualTo(0);
+        assertThat(executor.mRunnables).isEmpty();
+    }
+
+    @Test
+    public void clearPrewarmedAdViews_shouldDropViews_shouldStopPrewarming() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final RecordingExecutor executor = new RecordingExecutor();
+        subject = new MoPubStaticNativeAdRenderer(new ViewBinder.Builder(
+                android.R.layout.simple_list_item_1).titleId(android.R.id.text1).build(),
+                executor);
+        subject.prewarmAdViews(activity, null, 2);
+        executor.runAll();
+
+        subject.clearPrewarmedAdViews();
+        subject.createAdView(activity, null);
+
+        assertThat(subject.getTimings().getPrewarmedViewsUsedCount()).isEqualTo(0);
+        assertThat(subject.getTimings().getMainThreadInflateCount()).isEqualTo(1);
+        assertThat(executor.mRunnables).isEmpty();
+    }
+
+    private static class RecordingExecutor implements Executor {
+        final List<Runnable> mRunnables = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(final Runnable runnable) {
+            mRunnables.add(runnable);
+        }
+
+        void runAll() {
+            final List<Runnable> runnables = new ArrayList<Runnable>(mRunnables);
+            mRunnables.clear();
+            for (final Runnable runnable : runnables) {
+                runnable.run();
+            }
+        }
+    }
 }
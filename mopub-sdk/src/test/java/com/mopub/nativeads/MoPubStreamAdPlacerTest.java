@@ -23,6 +23,7 @@ import org.robolectric.Robolectric;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -303,6 +304,29 @@ public class MoPubStreamAdPlacerTest {
         verify(mockAdLoadedListener, never()).onAdLoaded(50);
     }
 
+    @Test
+    public void placeAdsInRange_whileScrollingDownQuickly_shouldPlaceFurtherAhead() {
+        when(mockAdSource.dequeueAd()).thenReturn(mStubNativeAd);
+        subject.registerAdRenderer(mockAdRenderer);
+        subject.loadAds("test-ad-unit-id");
+        subject.handlePositioningLoad(positioning);
+        subject.handleAdsAvailable();
+
+        Robolectric.getForegroundThreadScheduler().pause();
+        subject.setItemCount(200);
+        subject.placeAdsInRange(50, 54);
+        Robolectric.getForegroundThreadScheduler().advanceBy(100, TimeUnit.MILLISECONDS);
+
+        assertThat(subject.isAd(80)).isFalse();
+
+        // 30 positions per second
+        subject.placeAdsInRange(53, 57);
+        Robolectric.getForegroundThreadScheduler().advanceToLastPostedRunnable();
+
+        assertThat(subject.isAd(80)).isTrue();
+        assertThat(subject.isAd(81)).isFalse();
+    }
+
     @Test
     public void getAdView_withNoAds_returnsNull() {
         assertThat(subject.getAdView(1, null, null)).isNull();
@@ -361,6 +385,7 @@ public class MoPubStreamAdPlacerTest {
         subject.destroy();
 
         verify(mockAdSource).clear();
+        verify(mockAdSource).clearPrewarmedAdViews();
         verify(mStubNativeAd).destroy();
     }
 
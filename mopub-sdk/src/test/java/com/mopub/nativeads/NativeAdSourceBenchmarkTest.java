@@ -0,0 +1,158 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scrolls a simulated stream past a {@link NativeAdSource} backed by a stub ad server that fills
+ * every request after a fixed latency, and compares how often an ad position comes into view with
+ * no ad to show (a gap) with a single cached ad and with the adaptive cache.
+ */
+@RunWith(SdkTestRunner.class)
+public class NativeAdSourceBenchmarkTest {
+    private static final long FILL_LATENCY_MS = 1500;
+    private static final int ADAPTIVE_MAX_CACHE_SIZE = 4;
+    private static final int ADAPTIVE_MAX_REQUESTS_IN_FLIGHT = 2;
+    /**
+     * Each phase is a duration and the time between ad positions coming into view, or 0 if the
+     * stream isn't scrolled.
+     */
+    private static final long[][] SCROLL_PHASES_MS = {
+            {20000, 3000},
+            {15000, 400},
+            {20000, 2500},
+            {10000, 300},
+            {30000, 0},
+    };
+
+    private AdRendererRegistry mockAdRendererRegistry;
+
+    @Before
+    public void setUp() {
+        // XXX We need this to ensure that our SystemClock starts
+        ShadowSystemClock.currentTimeMillis();
+
+        mockAdRendererRegistry = mock(AdRendererRegistry.class);
+        when(mockAdRendererRegistry.getRendererIterable())
+                .thenReturn(new ArrayList<MoPubAdRenderer>());
+    }
+
+    @Test
+    public void simulatedScroll_withAdaptiveCache_shouldHaveFewerGaps() {
+        final Result singleAd = scroll(1, 1);
+        final Result adaptive = scroll(ADAPTIVE_MAX_CACHE_SIZE, ADAPTIVE_MAX_REQUESTS_IN_FLIGHT);
+
+        assertThat(adaptive.getGapRate()).isLessThan(singleAd.getGapRate());
+        // Every request beyond the ads shown was for an ad still cached or loading at the end
+        assertThat(adaptive.requests).isLessThanOrEqualTo(adaptive.positions - adaptive.gaps
+                + ADAPTIVE_MAX_CACHE_SIZE + ADAPTIVE_MAX_REQUESTS_IN_FLIGHT);
+        // No ad fails to fill, so no sequence number is asked for twice
+        assertThat(adaptive.sequenceNumbers).hasSize(adaptive.requests);
+        assertThat(singleAd.sequenceNumbers).hasSize(singleAd.requests);
+    }
+
+    @NonNull
+    private Result scroll(final int maxCacheSize, final int maxRequestsInFlight) {
+        final Handler handler = new Handler();
+        final Result result = new Result();
+        final NativeAdSource subject = new NativeAdSource(
+                new ArrayList<TimestampWrapper<NativeAd>>(), handler, mockAdRendererRegistry);
+        subject.setCacheLimits(maxCacheSize, maxRequestsInFlight);
+        subject.loadAds(new RequestParameters.Builder().build(),
+                newStubMoPubNative(handler, subject.getMoPubNativeNetworkListener(), result),
+                new NativeAdSource.MoPubNativeProvider() {
+                    @NonNull
+                    @Override
+                    public MoPubNative newMoPubNative(
+                            @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                        return newStubMoPubNative(handler, moPubNativeNetworkListener, result);
+                    }
+                });
+
+        for (final long[] phase : SCROLL_PHASES_MS) {
+            final long durationMs = phase[0];
+            final long positionIntervalMs = phase[1];
+            if (positionIntervalMs == 0) {
+                advanceBy(durationMs);
+                continue;
+            }
+            for (long elapsedMs = 0; elapsedMs < durationMs; elapsedMs += positionIntervalMs) {
+                advanceBy(positionIntervalMs);
+                result.positions++;
+                if (subject.dequeueAd() == null) {
+                    result.gaps++;
+                }
+            }
+        }
+
+        assertThat(subject.getMissCount()).isEqualTo(result.gaps);
+        subject.clear();
+        return result;
+    }
+
+    /**
+     * A MoPubNative that loads from a stub ad server, which fills every request after
+     * {@link #FILL_LATENCY_MS}.
+     */
+    @NonNull
+    private static MoPubNative newStubMoPubNative(@NonNull final Handler handler,
+            @NonNull final MoPubNativeNetworkListener listener, @NonNull final Result result) {
+        final MoPubNative moPubNative = mock(MoPubNative.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                result.requests++;
+                result.sequenceNumbers.add((Integer) invocation.getArguments()[1]);
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onNativeLoad(mock(NativeAd.class));
+                    }
+                }, FILL_LATENCY_MS);
+                return null;
+            }
+        }).when(moPubNative).makeRequest(any(RequestParameters.class), any(Integer.class));
+        return moPubNative;
+    }
+
+    private static void advanceBy(final long ms) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(ms, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Result {
+        int positions;
+        int gaps;
+        int requests;
+        @NonNull final Set<Integer> sequenceNumbers = new HashSet<Integer>();
+
+        double getGapRate() {
+            return positions == 0 ? 0 : (double) gaps / positions;
+        }
+    }
+}
@@ -6,6 +6,7 @@ package com.mopub.nativeads;
 
 import android.os.Handler;
 import android.os.SystemClock;
+import androidx.annotation.NonNull;
 
 import com.mopub.common.test.support.SdkTestRunner;
 
@@ -13,10 +14,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.robolectric.Robolectric;
 import org.robolectric.shadows.ShadowSystemClock;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
+import static com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
 import static com.mopub.nativeads.NativeAdSource.AdSourceListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -70,6 +74,13 @@ public class NativeAdSourceTest {
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
     }
 
+    @Test
+    public void clearPrewarmedAdViews_shouldClearPrewarmedAdViewsOfStaticRenderers() {
+        subject.clearPrewarmedAdViews();
+
+        verify(mockRenderer).clearPrewarmedAdViews();
+    }
+
     @Test
     public void getAdRendererCount_shouldCallAdRendererRegistryGetAdRendererCount() throws Exception {
         when(mockAdRendererRegistry.getAdRendererCount()).thenReturn(123);
@@ -316,18 +327,31 @@ public class NativeAdSourceTest {
     }
 
     @Test
-    public void moPubNativeNetworkListener_onNativeLoad_shouldIncrementSequenceNumber_shouldResetRetryTime() {
+    public void moPubNativeNetworkListener_onNativeLoad_shouldKeepSequenceNumber_shouldResetRetryTime() {
         subject.setMoPubNative(mockMoPubNative);
-
-        subject.mCurrentRetries = maxRetries;
         subject.mSequenceNumber = 5;
+        subject.replenishCache();
+        verify(mockMoPubNative).makeRequest(any(RequestParameters.class), eq(5));
+        assertThat(subject.mSequenceNumber).isEqualTo(6);
 
+        subject.mCurrentRetries = maxRetries;
         subject.getMoPubNativeNetworkListener().onNativeLoad(mMockNativeAd);
 
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
         assertThat(subject.mSequenceNumber).isEqualTo(6);
     }
 
+    @Test
+    public void moPubNativeNetworkListener_onNativeFail_shouldReuseSequenceNumber() {
+        subject.setMoPubNative(mockMoPubNative);
+        subject.mSequenceNumber = 5;
+        subject.replenishCache();
+
+        subject.getMoPubNativeNetworkListener().onNativeFail(NativeErrorCode.NETWORK_NO_FILL);
+
+        assertThat(subject.mSequenceNumber).isEqualTo(5);
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void moPubNativeNetworkListener_onNativeLoad_withFullCache_shouldResetRequestInFlight() {
@@ -382,4 +406,180 @@ public class NativeAdSourceTest {
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
         verify(mockReplenishCacheHandler, never()).postDelayed(any(Runnable.class), anyLong());
     }
+
+    @Test
+    public void dequeueAd_shouldCountHitsAndMisses() {
+        subject.setMoPubNative(mockMoPubNative);
+        nativeAdCache.add(new TimestampWrapper<NativeAd>(mMockNativeAd));
+
+        subject.dequeueAd();
+        subject.dequeueAd();
+
+        assertThat(subject.getHitCount()).isEqualTo(1);
+        assertThat(subject.getMissCount()).isEqualTo(1);
+        assertThat(subject.getExpiredCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dequeueAd_withStaleAd_shouldDestroyAd_shouldCountExpiredAd() {
+        subject.setMoPubNative(mockMoPubNative);
+        TimestampWrapper<NativeAd> timestampWrapper = new TimestampWrapper<NativeAd>(
+                mMockNativeAd);
+        timestampWrapper.mCreatedTimestamp = SystemClock.uptimeMillis() - (4*60*60*1000+1);
+        nativeAdCache.add(timestampWrapper);
+
+        subject.dequeueAd();
+
+        verify(mMockNativeAd).destroy();
+        assertThat(subject.getExpiredCount()).isEqualTo(1);
+        assertThat(subject.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void replenishCache_withStaleAd_shouldEvictAd_shouldLoadNativeAd() {
+        subject.setMoPubNative(mockMoPubNative);
+        TimestampWrapper<NativeAd> timestampWrapper = new TimestampWrapper<NativeAd>(
+                mMockNativeAd);
+        timestampWrapper.mCreatedTimestamp = SystemClock.uptimeMillis() - (4*60*60*1000+1);
+        nativeAdCache.add(timestampWrapper);
+
+        subject.replenishCache();
+
+        assertThat(nativeAdCache).isEmpty();
+        verify(mMockNativeAd).destroy();
+        assertThat(subject.getExpiredCount()).isEqualTo(1);
+        verify(mockMoPubNative).makeRequest(any(RequestParameters.class), eq(0));
+    }
+
+    @Test
+    public void getTargetCacheSize_withNoSamples_shouldReturnOne() {
+        assertThat(subject.getTargetCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void getTargetCacheSize_withAdsDequeuedFasterThanTheyFill_shouldCoverFillLatency() {
+        subject.setCacheLimits(4, 2);
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+
+        assertThat(subject.getTargetCacheSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void getTargetCacheSize_shouldNotExceedMaxCacheSize() {
+        subject.setCacheLimits(2, 2);
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 100;
+        subject.mFillLatencyMillis = 10000;
+
+        assertThat(subject.getTargetCacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void getTargetCacheSize_afterIdleTimeout_shouldReturnOne() {
+        subject.setCacheLimits(4, 2);
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                NativeAdSource.IDLE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+        assertThat(subject.getTargetCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void replenishCache_withTargetAboveOne_shouldRequestInParallel() {
+        final MoPubNative parallelMoPubNative = mock(MoPubNative.class);
+        subject.setCacheLimits(4, 2);
+        subject.loadAds(requestParameters, mockMoPubNative, new NativeAdSource.MoPubNativeProvider() {
+            @NonNull
+            @Override
+            public MoPubNative newMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                return parallelMoPubNative;
+            }
+        });
+        verify(mockMoPubNative).makeRequest(requestParameters, 0);
+        verify(parallelMoPubNative, never()).makeRequest(any(RequestParameters.class), any(Integer.class));
+
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+        subject.replenishCache();
+
+        // One more request, up to 2 in flight, even though 3 ads are wanted
+        verify(parallelMoPubNative).makeRequest(requestParameters, 1);
+        verify(parallelMoPubNative).registerAdRenderer(mockRenderer);
+    }
+
+    @Test
+    public void moPubNativeNetworkListener_onNativeFail_withLaterRequestInFlight_shouldNotReuseSequenceNumber() {
+        final MoPubNative parallelMoPubNative = mock(MoPubNative.class);
+        subject.setCacheLimits(4, 2);
+        subject.loadAds(requestParameters, mockMoPubNative, new NativeAdSource.MoPubNativeProvider() {
+            @NonNull
+            @Override
+            public MoPubNative newMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                return parallelMoPubNative;
+            }
+        });
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+        subject.replenishCache();
+        verify(parallelMoPubNative).makeRequest(requestParameters, 1);
+
+        subject.getMoPubNativeNetworkListener().onNativeFail(NativeErrorCode.NETWORK_NO_FILL);
+
+        // 1 is still being requested, so the next request must not ask for 0 or 1
+        assertThat(subject.mSequenceNumber).isEqualTo(2);
+    }
+
+    @Test
+    public void replenishCache_withMaxRequestsInFlightOfOne_shouldNotRequestInParallel() {
+        final MoPubNative parallelMoPubNative = mock(MoPubNative.class);
+        subject.setCacheLimits(4, 1);
+        subject.loadAds(requestParameters, mockMoPubNative, new NativeAdSource.MoPubNativeProvider() {
+            @NonNull
+            @Override
+            public MoPubNative newMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                return parallelMoPubNative;
+            }
+        });
+
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+        subject.replenishCache();
+
+        verify(parallelMoPubNative, never()).makeRequest(any(RequestParameters.class), any(Integer.class));
+    }
+
+    @Test
+    public void clear_shouldDestroyParallelMoPubNatives() {
+        final MoPubNative parallelMoPubNative = mock(MoPubNative.class);
+        subject.setCacheLimits(4, 2);
+        subject.loadAds(requestParameters, mockMoPubNative, new NativeAdSource.MoPubNativeProvider() {
+            @NonNull
+            @Override
+            public MoPubNative newMoPubNative(
+                    @NonNull final MoPubNativeNetworkListener moPubNativeNetworkListener) {
+                return parallelMoPubNative;
+            }
+        });
+        subject.dequeueAd();
+        subject.mDequeueIntervalMillis = 500;
+        subject.mFillLatencyMillis = 1200;
+        subject.replenishCache();
+
+        subject.clear();
+
+        verify(parallelMoPubNative).destroy();
+        assertThat(subject.mDequeueIntervalMillis).isEqualTo(0);
+        assertThat(subject.mFillLatencyMillis).isEqualTo(0);
+    }
 }
@@ -0,0 +1,149 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import androidx.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.network.MaxWidthImageLoader;
+import com.mopub.network.Networking;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class NativeImageHelperTest {
+    private static final String URL = "iconimageurl";
+
+    private ImageView imageView;
+    private BaseNativeAd nativeAd;
+    @Mock private MaxWidthImageLoader mockImageLoader;
+    @Mock private ImageLoader.ImageContainer mockImageContainer;
+
+    @Before
+    public void setUp() {
+        Networking.setImageLoaderForTesting(mockImageLoader);
+        imageView = new ImageView(Robolectric.buildActivity(Activity.class).create().get());
+        nativeAd = new BaseNativeAd() {
+            @Override
+            public void prepare(@NonNull View view) { }
+
+            @Override
+            public void clear(@NonNull View view) { }
+
+            @Override
+            public void destroy() { }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        Networking.setImageLoaderForTesting(null);
+    }
+
+    @Test
+    public void getTargetWidth_withLaidOutView_shouldReturnWidth() {
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+        imageView.layout(0, 0, 48, 48);
+
+        assertThat(NativeImageHelper.getTargetWidth(imageView)).isEqualTo(48);
+    }
+
+    @Test
+    public void getTargetWidth_withViewNotLaidOut_shouldReturnLayoutParamsWidth() {
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+
+        assertThat(NativeImageHelper.getTargetWidth(imageView)).isEqualTo(64);
+    }
+
+    @Test
+    public void getTargetWidth_withMatchParentLayoutParams_shouldReturnZero() {
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, 64));
+
+        assertThat(NativeImageHelper.getTargetWidth(imageView)).isEqualTo(0);
+    }
+
+    @Test
+    public void loadImageView_shouldRequestImageAtViewWidth_shouldRecordDecodedBytes() {
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+        final Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        when(mockImageContainer.getBitmap()).thenReturn(bitmap);
+
+        NativeImageHelper.loadImageView(URL, imageView, nativeAd);
+
+        final ArgumentCaptor<ImageLoader.ImageListener> listenerCaptor =
+                ArgumentCaptor.forClass(ImageLoader.ImageListener.class);
+        verify(mockImageLoader).get(eq(URL), listenerCaptor.capture(), eq(64), eq(0));
+        listenerCaptor.getValue().onResponse(mockImageContainer, true);
+
+        assertThat(nativeAd.getDecodedImageBytes()).isEqualTo(bitmap.getByteCount());
+    }
+
+    @Test
+    public void loadImageView_withoutNativeAd_shouldRequestImageAtViewWidth() {
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+
+        NativeImageHelper.loadImageView(URL, imageView);
+
+        verify(mockImageLoader).get(eq(URL), any(ImageLoader.ImageListener.class), eq(64), eq(0));
+    }
+
+    @Test
+    public void getPreCacheImageWidths_beforeImagesShown_shouldBeEmpty() {
+        assertThat(NativeImageHelper.getPreCacheImageWidths("main", "icon")).isEmpty();
+    }
+
+    @Test
+    public void getPreCacheImageWidths_shouldReturnWidthsImagesWereLastShownAt() {
+        final ImageView mainImageView = new ImageView(imageView.getContext());
+        mainImageView.setLayoutParams(new ViewGroup.LayoutParams(320, 160));
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+
+        NativeImageHelper.loadMainImageView(URL, mainImageView, nativeAd);
+        NativeImageHelper.loadIconImageView(URL, imageView, nativeAd);
+
+        final Map<String, Integer> imageWidths =
+                NativeImageHelper.getPreCacheImageWidths("main", "icon");
+        assertThat(imageWidths).hasSize(2);
+        assertThat(imageWidths.get("main")).isEqualTo(320);
+        assertThat(imageWidths.get("icon")).isEqualTo(64);
+    }
+
+    @Test
+    public void getPreCacheImageWidths_withMatchParentMainImage_shouldOnlyReturnIconWidth() {
+        final ImageView mainImageView = new ImageView(imageView.getContext());
+        mainImageView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, 160));
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(64, 64));
+
+        NativeImageHelper.loadMainImageView(URL, mainImageView, nativeAd);
+        NativeImageHelper.loadIconImageView(URL, imageView, nativeAd);
+
+        final Map<String, Integer> imageWidths =
+                NativeImageHelper.getPreCacheImageWidths("main", "icon");
+        assertThat(imageWidths).hasSize(1);
+        assertThat(imageWidths.get("icon")).isEqualTo(64);
+    }
+}
@@ -0,0 +1,162 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Places ads in a stream with a repeating positioning and then inserts, removes and maps items,
+ * with {@link PlacementData} and with sorted arrays of placed positions, which is how
+ * {@link PlacementData} used to keep them. Both are checked to end up with the same positions
+ * and to look up the same adjusted positions along the way.
+ */
+@RunWith(SdkTestRunner.class)
+public class PlacementDataBenchmarkTest {
+    private static final int[] AD_COUNTS = {100, 1000, 10000};
+    private static final int REPEATING_INTERVAL = 5;
+    private static final int OPERATIONS = 2000;
+    private static final int MAX_ITEMS_PER_OPERATION = 10;
+
+    @Test
+    public void operations_withManyAds_shouldMatchArrays() {
+        final NativeAd nativeAd = mock(NativeAd.class);
+        for (final int adCount : AD_COUNTS) {
+            final PlacementData placementData = PlacementData.fromAdPositioning(
+                    MoPubNativeAdPositioning.clientPositioning()
+                            .enableRepeatingPositions(REPEATING_INTERVAL));
+            final ArrayPlacements arrays = new ArrayPlacements();
+
+            int position = placementData.nextInsertionPosition(0);
+            for (int i = 0; i < adCount; i++) {
+                placementData.placeAd(position, nativeAd);
+                position = placementData.nextInsertionPosition(position);
+            }
+            for (int i = 0; i < adCount; i++) {
+                arrays.placeAd((i + 1) * (REPEATING_INTERVAL - 1),
+                        (i + 1) * REPEATING_INTERVAL - 1);
+            }
+            assertThat(Arrays.equals(placementData.getPlacedAdPositions(),
+                    arrays.getPlacedAdPositions())).isTrue();
+
+            final int itemCount = adCount * (REPEATING_INTERVAL - 1);
+            final long treeChecksum = runOperations(placementData, null, itemCount);
+            final long arrayChecksum = runOperations(null, arrays, itemCount);
+
+            assertThat(treeChecksum).isEqualTo(arrayChecksum);
+            assertThat(Arrays.equals(placementData.getPlacedAdPositions(),
+                    arrays.getPlacedAdPositions())).isTrue();
+        }
+    }
+
+    /**
+     * Runs the same random operations on whichever of the two is given.
+     *
+     * @return a checksum of the adjusted positions looked up along the way
+     */
+    private static long runOperations(final PlacementData placementData,
+            final ArrayPlacements arrays, final int itemCount) {
+        final Random random = new Random(itemCount);
+        long checksum = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final int originalPosition = random.nextInt(itemCount);
+            final int count = 1 + random.nextInt(MAX_ITEMS_PER_OPERATION);
+            switch (i % 3) {
+                case 0:
+                    if (placementData != null) {
+                        placementData.insertItems(originalPosition, count);
+                    } else {
+                        arrays.insertItems(originalPosition, count);
+                    }
+                    break;
+                case 1:
+                    if (placementData != null) {
+                        placementData.removeItems(originalPosition, count);
+                    } else {
+                        arrays.removeItems(originalPosition, count);
+                    }
+                    break;
+                default:
+                    checksum = checksum * 31 + (placementData != null
+                            ? placementData.getAdjustedPosition(originalPosition)
+                            : arrays.getAdjustedPosition(originalPosition));
+                    break;
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Placed ad positions in sorted arrays, updated one entry at a time.
+     */
+    private static class ArrayPlacements {
+        private int[] mOriginalPositions = new int[16];
+        private int[] mAdjustedPositions = new int[16];
+        private int mCount;
+
+        void placeAd(final int originalPosition, final int adjustedPosition) {
+            if (mCount == mOriginalPositions.length) {
+                mOriginalPositions = Arrays.copyOf(mOriginalPositions, mCount * 2);
+                mAdjustedPositions = Arrays.copyOf(mAdjustedPositions, mCount * 2);
+            }
+            final int index = firstGreaterThan(originalPosition);
+            System.arraycopy(mOriginalPositions, index, mOriginalPositions, index + 1,
+                    mCount - index);
+            System.arraycopy(mAdjustedPositions, index, mAdjustedPositions, index + 1,
+                    mCount - index);
+            mOriginalPositions[index] = originalPosition;
+            mAdjustedPositions[index] = adjustedPosition;
+            mCount++;
+            for (int i = index + 1; i < mCount; i++) {
+                mAdjustedPositions[i]++;
+            }
+        }
+
+        void insertItems(final int originalPosition, final int count) {
+            for (int i = firstGreaterThan(originalPosition - 1); i < mCount; i++) {
+                mOriginalPositions[i] += count;
+                mAdjustedPositions[i] += count;
+            }
+        }
+
+        void removeItems(final int originalPosition, final int count) {
+            for (int i = firstGreaterThan(originalPosition); i < mCount; i++) {
+                final int delta = Math.min(mOriginalPositions[i] - originalPosition, count);
+                mOriginalPositions[i] -= delta;
+                mAdjustedPositions[i] -= delta;
+            }
+        }
+
+        int getAdjustedPosition(final int originalPosition) {
+            return originalPosition + firstGreaterThan(originalPosition);
+        }
+
+        int[] getPlacedAdPositions() {
+            return Arrays.copyOf(mAdjustedPositions, mCount);
+        }
+
+        private int firstGreaterThan(final int originalPosition) {
+            int low = 0;
+            int high = mCount;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mOriginalPositions[mid] <= originalPosition) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -780,6 +780,88 @@ public class PlacementDataTest {
         assertThat(adsAt15repeating.getAdjustedPosition(5)).isEqualTo(7);
     }
 
+    @Test
+    public void insertItems_shouldMatchInsertingOneAtATime() {
+        final PlacementData oneAtATime = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning()
+                        .addFixedPosition(1)
+                        .addFixedPosition(5)
+                        .enableRepeatingPositions(3));
+        adsAt15repeating.placeAd(1, mMockNativeAd);
+        adsAt15repeating.placeAd(5, mMockNativeAd);
+        oneAtATime.placeAd(1, mMockNativeAd);
+        oneAtATime.placeAd(5, mMockNativeAd);
+
+        adsAt15repeating.insertItems(3, 4);
+        for (int i = 0; i < 4; i++) {
+            oneAtATime.insertItem(3);
+        }
+
+        checkPlacedPositions(30, adsAt15repeating, 1, 9);
+        checkPlacedPositions(30, oneAtATime, 1, 9);
+        checkInsertionPositions(30, adsAt15repeating, 12, 14, 16, 18, 20, 22, 24, 26, 28, 30);
+        checkInsertionPositions(30, oneAtATime, 12, 14, 16, 18, 20, 22, 24, 26, 28, 30);
+    }
+
+    @Test
+    public void removeItems_shouldMatchRemovingOneAtATime() {
+        final PlacementData oneAtATime = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning()
+                        .addFixedPosition(1)
+                        .addFixedPosition(5)
+                        .enableRepeatingPositions(3));
+        adsAt15repeating.placeAd(1, mMockNativeAd);
+        adsAt15repeating.placeAd(5, mMockNativeAd);
+        adsAt15repeating.placeAd(8, mMockNativeAd);
+        oneAtATime.placeAd(1, mMockNativeAd);
+        oneAtATime.placeAd(5, mMockNativeAd);
+        oneAtATime.placeAd(8, mMockNativeAd);
+
+        adsAt15repeating.removeItems(2, 5);
+        for (int i = 0; i < 5; i++) {
+            oneAtATime.removeItem(2);
+        }
+
+        checkPlacedPositions(30, adsAt15repeating, 1, 3, 4);
+        checkPlacedPositions(30, oneAtATime, 1, 3, 4);
+        checkInsertionPositions(30, adsAt15repeating,
+                6, 8, 10, 12, 14, 16, 18, 20, 22, 24, 26, 28, 30);
+        checkInsertionPositions(30, oneAtATime, 6, 8, 10, 12, 14, 16, 18, 20, 22, 24, 26, 28, 30);
+        for (int i = 0; i < 30; i++) {
+            assertThat(adsAt15repeating.getAdjustedPosition(i))
+                    .isEqualTo(oneAtATime.getAdjustedPosition(i));
+        }
+    }
+
+    @Test
+    public void repeating_withManyAds_shouldNotLimitAdCount() {
+        int position = adsRepeating.nextInsertionPosition(0);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(position).isEqualTo(2 + 3 * i);
+            adsRepeating.placeAd(position, mMockNativeAd);
+            position = adsRepeating.nextInsertionPosition(position);
+        }
+
+        assertThat(adsRepeating.getPlacedAdPositions()).hasSize(1000);
+        assertThat(adsRepeating.isPlacedAd(2 + 3 * 999)).isTrue();
+        assertThat(adsRepeating.getAdjustedPosition(2000)).isEqualTo(3000);
+        assertThat(adsRepeating.getOriginalPosition(3000)).isEqualTo(2000);
+        assertThat(adsRepeating.getOriginalPosition(2 + 3 * 999)).isEqualTo(NOT_FOUND);
+        assertThat(adsRepeating.nextInsertionPosition(3000)).isEqualTo(3002);
+
+        adsRepeating.clearAds();
+
+        assertThat(adsRepeating.getPlacedAdPositions()).isEmpty();
+        assertThat(adsRepeating.shouldPlaceAd(2 + 2 * 999)).isTrue();
+    }
+
+    @Test
+    public void removeItems_beforeRepeatingPositionsAreNeeded_shouldMoveLaterPositions() {
+        adsRepeating.removeItems(0, 100);
+
+        checkInsertionPositions(10, adsRepeating, 0, 2, 4, 6, 8, 10);
+    }
+
     @Test
     public void clearAll_shouldCallDestroyOnAdData_shouldResetPositions() {
         adsAt15repeating.placeAd(1, mMockNativeAd);
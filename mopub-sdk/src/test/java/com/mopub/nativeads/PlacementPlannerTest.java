@@ -0,0 +1,92 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.mopub.nativeads.PlacementPlanner.IDLE_TIMEOUT_MILLIS;
+import static com.mopub.nativeads.PlacementPlanner.MAX_LOOKAHEAD;
+import static com.mopub.nativeads.PlacementPlanner.MIN_LOOKAHEAD;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class PlacementPlannerTest {
+    private PlacementPlanner subject;
+
+    @Before
+    public void setup() {
+        subject = new PlacementPlanner();
+    }
+
+    @Test
+    public void getLookahead_withNoVisibleRange_shouldReturnMinLookahead() {
+        assertThat(subject.getLookahead(1000)).isEqualTo(MIN_LOOKAHEAD);
+    }
+
+    @Test
+    public void getLookahead_whileScrollingDown_shouldCoverPositionsVisibleWithinLookaheadTime() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(13, 1100);
+
+        assertThat(subject.getPositionsPerSecond(1100)).isEqualTo(30f);
+        assertThat(subject.getLookahead(1100)).isEqualTo(30);
+    }
+
+    @Test
+    public void getLookahead_whileScrollingDownSlowly_shouldReturnMinLookahead() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(11, 1400);
+
+        assertThat(subject.getLookahead(1400)).isEqualTo(MIN_LOOKAHEAD);
+    }
+
+    @Test
+    public void getLookahead_whileScrollingDownVeryQuickly_shouldReturnMaxLookahead() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(40, 1100);
+
+        assertThat(subject.getLookahead(1100)).isEqualTo(MAX_LOOKAHEAD);
+    }
+
+    @Test
+    public void getLookahead_whileScrollingUp_shouldReturnMinLookahead() {
+        subject.onVisibleRangeChanged(40, 1000);
+        subject.onVisibleRangeChanged(10, 1100);
+
+        assertThat(subject.getPositionsPerSecond(1100)).isEqualTo(-300f);
+        assertThat(subject.getLookahead(1100)).isEqualTo(MIN_LOOKAHEAD);
+    }
+
+    @Test
+    public void getLookahead_afterIdleTimeout_shouldReturnMinLookahead() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(13, 1100);
+
+        assertThat(subject.getPositionsPerSecond(1100 + IDLE_TIMEOUT_MILLIS)).isEqualTo(0f);
+        assertThat(subject.getLookahead(1100 + IDLE_TIMEOUT_MILLIS)).isEqualTo(MIN_LOOKAHEAD);
+    }
+
+    @Test
+    public void onVisibleRangeChanged_shouldAverageSpeed() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(13, 1100);
+        subject.onVisibleRangeChanged(14, 1200);
+
+        assertThat(subject.getPositionsPerSecond(1200)).isEqualTo(20f);
+    }
+
+    @Test
+    public void onVisibleRangeChanged_afterIdleTimeout_shouldDiscardEarlierSpeed() {
+        subject.onVisibleRangeChanged(10, 1000);
+        subject.onVisibleRangeChanged(40, 1100);
+        subject.onVisibleRangeChanged(42, 1100 + IDLE_TIMEOUT_MILLIS * 2);
+
+        assertThat(subject.getPositionsPerSecond(1100 + IDLE_TIMEOUT_MILLIS * 2)).isEqualTo(2f);
+    }
+}
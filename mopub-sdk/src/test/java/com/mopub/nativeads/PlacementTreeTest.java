@@ -0,0 +1,96 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class PlacementTreeTest {
+    private PlacementTree subject;
+
+    @Mock private NativeAd mMockNativeAd;
+
+    @Before
+    public void setup() {
+        subject = new PlacementTree();
+    }
+
+    @Test
+    public void insert_shouldKeepEntriesInIndexOrder() {
+        subject.insert(0, 10, 12, null);
+        subject.insert(0, 2, 2, mMockNativeAd);
+        subject.insert(1, 5, 6, null);
+
+        assertThat(subject.size()).isEqualTo(3);
+        assertThat(subject.getOriginalPosition(0)).isEqualTo(2);
+        assertThat(subject.getOriginalPosition(1)).isEqualTo(5);
+        assertThat(subject.getOriginalPosition(2)).isEqualTo(10);
+        assertThat(subject.getAdjustedPosition(2)).isEqualTo(12);
+        assertThat(subject.getNativeAd(0)).isEqualTo(mMockNativeAd);
+        assertThat(subject.getNativeAd(1)).isNull();
+    }
+
+    @Test
+    public void remove_shouldReturnNativeAd() {
+        subject.insert(0, 2, 2, null);
+        subject.insert(1, 5, 6, mMockNativeAd);
+        subject.insert(2, 10, 12, null);
+
+        assertThat(subject.remove(1)).isEqualTo(mMockNativeAd);
+
+        assertThat(subject.size()).isEqualTo(2);
+        assertThat(subject.getOriginalPosition(1)).isEqualTo(10);
+    }
+
+    @Test
+    public void indexOf_shouldFindBounds() {
+        subject.insert(0, 2, 2, null);
+        subject.insert(1, 5, 6, null);
+        subject.insert(2, 5, 7, null);
+        subject.insert(3, 10, 12, null);
+
+        assertThat(subject.indexOfFirstAtLeast(false, 5)).isEqualTo(1);
+        assertThat(subject.indexOfFirstGreaterThan(false, 5)).isEqualTo(3);
+        assertThat(subject.indexOfFirstAtLeast(true, 7)).isEqualTo(2);
+        assertThat(subject.indexOfFirstGreaterThan(true, 7)).isEqualTo(3);
+        assertThat(subject.indexOfFirstAtLeast(false, 11)).isEqualTo(4);
+        assertThat(subject.indexOfFirstGreaterThan(true, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void addToPositions_shouldOnlyChangeRange() {
+        for (int i = 0; i < 100; i++) {
+            subject.insert(i, i * 2, i * 3, null);
+        }
+
+        subject.addToPositions(10, 50, 1, 2);
+
+        assertThat(subject.getOriginalPosition(9)).isEqualTo(18);
+        assertThat(subject.getOriginalPosition(10)).isEqualTo(21);
+        assertThat(subject.getAdjustedPosition(49)).isEqualTo(149);
+        assertThat(subject.getAdjustedPosition(50)).isEqualTo(150);
+        assertThat(subject.indexOfFirstAtLeast(false, 21)).isEqualTo(10);
+
+        final int[] adjustedPositions = new int[subject.size()];
+        subject.getAdjustedPositions(adjustedPositions);
+        for (int i = 0; i < adjustedPositions.length; i++) {
+            assertThat(adjustedPositions[i]).isEqualTo(i * 3 + (i >= 10 && i < 50 ? 2 : 0));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOriginalPosition_withIndexOutOfBounds_shouldThrowException() {
+        subject.insert(0, 2, 2, null);
+
+        subject.getOriginalPosition(1);
+    }
+}
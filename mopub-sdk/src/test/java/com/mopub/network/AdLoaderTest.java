@@ -274,6 +274,31 @@ public class AdLoaderTest {
         assertThat(subject.hasMoreAds()).isTrue();
     }
 
+    @Test
+    public void threeAdResponseWaterfall_withCreativeDownloadSuccessOnFirst_shouldReportUnparsedAdResponses() throws Exception {
+        ContentDownloadAnalytics.resetAdResponseCounts();
+        JSONObject adResponseJson1 = createAdResponseJson("trackingUrl1", "content_1");
+        JSONObject adResponseJson2 = createAdResponseJson("trackingUrl2", "content_2");
+        JSONObject adResponseJson3 = createAdResponseJson("trackingUrl3", "content_3");
+        byte[] body = createResponseBody("fail_url",
+                new JSONObject[]{adResponseJson1, adResponseJson2, adResponseJson3});
+        NetworkResponse testResponse = new NetworkResponse(200, body, headers, false);
+        MultiAdResponse multiAdResponse = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        // set subject MultiAdResponse
+        Field field = getPrivateField("mMultiAdResponse");
+        field.set(subject, multiAdResponse);
+
+        subject.loadNextAd(null);
+        subject.creativeDownloadSuccess();
+        // a second report for the same response must be ignored
+        subject.creativeDownloadSuccess();
+
+        assertThat(multiAdResponse.getMaterializedCount()).isEqualTo(1);
+        assertThat(ContentDownloadAnalytics.getMaterializedAdResponseCount()).isEqualTo(1);
+        assertThat(ContentDownloadAnalytics.getUnmaterializedAdResponseCount()).isEqualTo(2);
+    }
+
     // -----------  utils  -----------
     private static Field getPrivateField(final String name) throws NoSuchFieldException {
         Field declaredField = AdLoader.class.getDeclaredField(name);
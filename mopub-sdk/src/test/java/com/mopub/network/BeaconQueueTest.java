@@ -0,0 +1,435 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import androidx.annotation.NonNull;
+
+import com.mopub.common.MoPub;
+import com.mopub.common.privacy.ConsentStatus;
+import com.mopub.common.privacy.ConsentStatusChangeListener;
+import com.mopub.common.privacy.PersonalInfoManager;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Reflection;
+import com.mopub.volley.NetworkError;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.NoConnectionError;
+import com.mopub.volley.ServerError;
+import com.mopub.volley.TimeoutError;
+import com.mopub.volley.VolleyError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static com.mopub.common.VolleyRequestMatcher.isUrl;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class BeaconQueueTest {
+    private static final String URL = "https://tracking.example.com/imp?id=1";
+    private static final String URL_2 = "https://tracking.example.com/imp?id=2";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long SEGMENT_BYTES = 32 * 1024;
+    private static final long MAX_BYTES = 512 * 1024;
+
+    @Mock private MoPubRequestQueue mockRequestQueue;
+    @Mock private TrackingRequest.Listener mockListener;
+    @Mock private PersonalInfoManager mockPersonalInfoManager;
+
+    private Context context;
+    private ScheduledExecutorService executor;
+    private BeaconQueue subject;
+
+    @Before
+    public void setUp() throws Exception {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        Networking.setRequestQueueForTesting(mockRequestQueue);
+        subject = openQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        Networking.clearForTesting();
+        new Reflection.MethodBuilder(null, "resetMoPub")
+                .setStatic(MoPub.class)
+                .setAccessible()
+                .execute();
+    }
+
+    @Test
+    public void add_shouldSendBeaconAndKeepItUntilItIsSent() throws Exception {
+        subject.add(URL, mockListener);
+        awaitExecutor();
+
+        assertThat(subject.getPendingCount()).isEqualTo(1);
+        assertThat(getSegmentFiles()).hasSize(1);
+
+        captureRequest(1).deliverResponse(null);
+        awaitExecutor();
+
+        verify(mockListener).onResponse(URL);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+        assertThat(subject.getSentCount()).isEqualTo(1);
+
+        // Nothing is sent again by the next process
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+        verify(mockRequestQueue, times(1)).add(any(TrackingRequest.class));
+    }
+
+    @Test
+    public void open_withBeaconNotSentByEarlierProcess_shouldSendItAgain() throws Exception {
+        subject.add(URL, null);
+
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+
+        verify(mockRequestQueue, times(2)).add(argThat(isUrl(URL)));
+        assertThat(subject.getPendingCount()).isEqualTo(1);
+
+        captureRequest(2).deliverResponse(null);
+        awaitExecutor();
+
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+        // The segment of the earlier process is deleted once its beacon is acknowledged
+        assertThat(getSegmentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void add_afterNoConnectionError_shouldHoldBeaconsUntilNetworkIsAvailable()
+            throws Exception {
+        subject.add(URL, mockListener);
+        captureRequest(1).deliverError(new NoConnectionError());
+        awaitExecutor();
+
+        subject.add(URL_2, null);
+        awaitExecutor();
+
+        verify(mockRequestQueue, never()).add(argThat(isUrl(URL_2)));
+        verify(mockListener, never()).onErrorResponse(any(VolleyError.class));
+        assertThat(subject.getRetriedCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(2);
+
+        subject.onNetworkAvailable();
+        awaitExecutor();
+
+        verify(mockRequestQueue, times(2)).add(argThat(isUrl(URL)));
+        verify(mockRequestQueue).add(argThat(isUrl(URL_2)));
+    }
+
+    @Test
+    public void add_withClientError_shouldNotRetry() throws Exception {
+        final ServerError error = new ServerError(new NetworkResponse(404, new byte[0],
+                new TreeMap<String, String>(), false));
+        subject.add(URL, mockListener);
+        captureRequest(1).deliverError(error);
+        awaitExecutor();
+
+        verify(mockListener).onErrorResponse(error);
+        assertThat(subject.getFailedCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void add_withTimeout_shouldNotRetry() throws Exception {
+        subject.add(URL, mockListener);
+        captureRequest(1).deliverError(new TimeoutError());
+        awaitExecutor();
+        subject.onNetworkAvailable();
+        awaitExecutor();
+
+        verify(mockRequestQueue).add(argThat(isUrl(URL)));
+        verify(mockListener).onErrorResponse(any(TimeoutError.class));
+        assertThat(subject.getRetriedCount()).isEqualTo(0);
+        assertThat(subject.getFailedCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void add_withTooManyRequests_shouldGiveUpAfterMaxAttempts() throws Exception {
+        final ServerError error = new ServerError(new NetworkResponse(429, new byte[0],
+                new TreeMap<String, String>(), false));
+        subject.add(URL, mockListener);
+        for (int attempt = 1; attempt <= BeaconQueue.MAX_ATTEMPTS; attempt++) {
+            captureRequest(attempt).deliverError(error);
+            awaitExecutor();
+            subject.onNetworkAvailable();
+            awaitExecutor();
+        }
+        ShadowLooper.runUiThreadTasks();
+
+        verify(mockRequestQueue, times(BeaconQueue.MAX_ATTEMPTS)).add(argThat(isUrl(URL)));
+        verify(mockListener).onErrorResponse(error);
+        assertThat(subject.getRetriedCount()).isEqualTo(BeaconQueue.MAX_ATTEMPTS - 1);
+        assertThat(subject.getFailedCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void open_withExpiredBeacon_shouldDropIt() throws Exception {
+        final long expiredMillis = System.currentTimeMillis() - BeaconQueue.MAX_AGE_MILLIS - 1;
+        writeSegment(100, "+" + expiredMillis + " " + URL + "\n");
+
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+
+        verify(mockRequestQueue, never()).add(any(TrackingRequest.class));
+        assertThat(subject.getExpiredCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+        assertThat(getSegmentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void open_withRecordCutOff_shouldIgnoreIt() throws Exception {
+        final long nowMillis = System.currentTimeMillis();
+        writeSegment(100, "+" + nowMillis + " " + URL + "\n+" + nowMillis + " " + URL_2 + "\n"
+                + "-100 1\n+" + nowMillis + " https://tracking.exam");
+
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+
+        verify(mockRequestQueue).add(argThat(isUrl(URL)));
+        verify(mockRequestQueue, times(1)).add(any(TrackingRequest.class));
+        assertThat(subject.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void add_overSizeCap_shouldEvictOldestSegments() throws Exception {
+        subject = reopenQueue(100, 300);
+        subject.add(URL, mockListener);
+        for (int i = 0; i < 20; i++) {
+            subject.add(URL + i, null);
+        }
+        awaitExecutor();
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(subject.getEvictedCount()).isGreaterThan(0);
+        assertThat(subject.getPendingCount() + subject.getEvictedCount()).isEqualTo(21);
+        assertThat(subject.getStoredBytes()).isLessThanOrEqualTo(300 + 100);
+        verify(mockListener).onErrorResponse(any(MoPubNetworkError.class));
+    }
+
+    @Test
+    public void isRetryable_shouldOnlyRetryErrorsWhereTheBeaconCantHaveBeenCounted() {
+        assertThat(BeaconQueue.isRetryable(new NoConnectionError())).isTrue();
+        assertThat(BeaconQueue.isRetryable(new MoPubNetworkError(
+                MoPubNetworkError.Reason.TOO_MANY_REQUESTS))).isTrue();
+        assertThat(BeaconQueue.isRetryable(new ServerError(new NetworkResponse(429, new byte[0],
+                new TreeMap<String, String>(), false)))).isTrue();
+
+        assertThat(BeaconQueue.isRetryable(new TimeoutError())).isFalse();
+        assertThat(BeaconQueue.isRetryable(new NetworkError())).isFalse();
+        assertThat(BeaconQueue.isRetryable(new ServerError(new NetworkResponse(503, new byte[0],
+                new TreeMap<String, String>(), false)))).isFalse();
+        assertThat(BeaconQueue.isRetryable(new ServerError(new NetworkResponse(404, new byte[0],
+                new TreeMap<String, String>(), false)))).isFalse();
+        assertThat(BeaconQueue.isRetryable(new MoPubNetworkError(
+                MoPubNetworkError.Reason.TRACKING_FAILURE))).isFalse();
+        assertThat(BeaconQueue.isRetryable(new VolleyError())).isFalse();
+        assertThat(BeaconQueue.isRetryable(null)).isFalse();
+    }
+
+    @Test
+    public void getBackoffMillis_shouldDoubleUpToMax() {
+        assertThat(BeaconQueue.getBackoffMillis(0)).isEqualTo(BeaconQueue.MIN_BACKOFF_MILLIS);
+        assertThat(BeaconQueue.getBackoffMillis(1)).isEqualTo(BeaconQueue.MIN_BACKOFF_MILLIS * 2);
+        assertThat(BeaconQueue.getBackoffMillis(100)).isEqualTo(BeaconQueue.MAX_BACKOFF_MILLIS);
+    }
+
+    @Test
+    public void add_withUrlOnMoreThanOneLine_shouldSendItWithoutStoringIt() throws Exception {
+        subject.add(URL + "\n", null);
+        awaitExecutor();
+
+        verify(mockRequestQueue).add(any(TrackingRequest.class));
+        assertThat(subject.getStoredBytes()).isEqualTo(0);
+        assertThat(subject.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void open_withPersonalBeaconAfterConsentWasWithdrawn_shouldDropIt() throws Exception {
+        setPersonalInfoManager(true);
+        subject.add(URL, null);
+        awaitExecutor();
+
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(false);
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+
+        verify(mockRequestQueue, times(1)).add(any(TrackingRequest.class));
+        assertThat(subject.getWithdrawnCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void open_withBeaconAddedWithoutConsent_shouldSendItAgain() throws Exception {
+        setPersonalInfoManager(false);
+        subject.add(URL, null);
+        awaitExecutor();
+
+        subject = reopenQueue(SEGMENT_BYTES, MAX_BYTES);
+        awaitExecutor();
+
+        verify(mockRequestQueue, times(2)).add(argThat(isUrl(URL)));
+        assertThat(subject.getWithdrawnCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void onConsentStateChange_withConsentWithdrawn_shouldDropWaitingPersonalBeacons()
+            throws Exception {
+        setPersonalInfoManager(true);
+        subject.add(URL, mockListener);
+        captureRequest(1).deliverError(new NoConnectionError());
+        awaitExecutor();
+
+        final ArgumentCaptor<ConsentStatusChangeListener> captor =
+                ArgumentCaptor.forClass(ConsentStatusChangeListener.class);
+        verify(mockPersonalInfoManager).subscribeConsentStatusChangeListener(captor.capture());
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(false);
+        captor.getValue().onConsentStateChange(ConsentStatus.EXPLICIT_YES,
+                ConsentStatus.EXPLICIT_NO, false);
+        awaitExecutor();
+        ShadowLooper.runUiThreadTasks();
+
+        verify(mockListener).onErrorResponse(any(MoPubNetworkError.class));
+        assertThat(subject.getWithdrawnCount()).isEqualTo(1);
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+
+        subject.onNetworkAvailable();
+        awaitExecutor();
+
+        verify(mockRequestQueue, times(1)).add(any(TrackingRequest.class));
+    }
+
+    @Test
+    public void add_shouldOnlyListenForConnectivityWhileBeaconsWait() throws Exception {
+        subject.add(URL, null);
+        awaitExecutor();
+
+        assertThat(hasConnectivityReceiver()).isFalse();
+
+        captureRequest(1).deliverError(new NoConnectionError());
+        awaitExecutor();
+
+        assertThat(hasConnectivityReceiver()).isTrue();
+
+        subject.onNetworkAvailable();
+        captureRequest(2).deliverResponse(null);
+        awaitExecutor();
+
+        assertThat(subject.getPendingCount()).isEqualTo(0);
+        assertThat(hasConnectivityReceiver()).isFalse();
+    }
+
+    @NonNull
+    private BeaconQueue openQueue(final long segmentBytes, final long maxBytes) {
+        executor = new ScheduledThreadPoolExecutor(1);
+        final BeaconQueue queue = new BeaconQueue(context, new TrackingDispatcher(), executor,
+                segmentBytes, maxBytes);
+        queue.open();
+        return queue;
+    }
+
+    /**
+     * Opens the queue again, the way the next process would.
+     */
+    @NonNull
+    private BeaconQueue reopenQueue(final long segmentBytes, final long maxBytes)
+            throws Exception {
+        awaitExecutor();
+        executor.shutdownNow();
+        return openQueue(segmentBytes, maxBytes);
+    }
+
+    /**
+     * Waits for the tasks queued so far, and the tasks they queue in turn.
+     */
+    private void awaitExecutor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+    }
+
+    private void setPersonalInfoManager(final boolean canCollectPersonalInformation)
+            throws Exception {
+        when(mockPersonalInfoManager.canCollectPersonalInformation())
+                .thenReturn(canCollectPersonalInformation);
+        new Reflection.MethodBuilder(null, "setPersonalInfoManager")
+                .setStatic(MoPub.class)
+                .setAccessible()
+                .addParam(PersonalInfoManager.class, mockPersonalInfoManager)
+                .execute();
+    }
+
+    private boolean hasConnectivityReceiver() {
+        return ShadowApplication.getInstance().hasReceiverForIntent(
+                new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    @NonNull
+    private TrackingRequest captureRequest(final int addCount) {
+        final ArgumentCaptor<TrackingRequest> captor =
+                ArgumentCaptor.forClass(TrackingRequest.class);
+        verify(mockRequestQueue, times(addCount)).add(captor.capture());
+        final List<TrackingRequest> requests = captor.getAllValues();
+        return requests.get(requests.size() - 1);
+    }
+
+    @NonNull
+    private File getDirectory() {
+        return new File(context.getFilesDir(), BeaconQueue.DIRECTORY_NAME);
+    }
+
+    @NonNull
+    private File[] getSegmentFiles() {
+        final File[] files = getDirectory().listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private void writeSegment(final long number, @NonNull final String contents)
+            throws IOException {
+        final File directory = getDirectory();
+        assertThat(directory.isDirectory() || directory.mkdirs()).isTrue();
+        final FileOutputStream outputStream = new FileOutputStream(
+                new File(directory, number + BeaconQueue.SEGMENT_SUFFIX));
+        try {
+            outputStream.write(contents.getBytes(UTF_8));
+        } finally {
+            outputStream.close();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Arrays;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -171,4 +172,18 @@ public class ContentDownloadAnalyticsTest {
 
         verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
     }
+
+    @Test
+    public void reportMultiAdResponseFinished_shouldAccumulateCounts() {
+        ContentDownloadAnalytics.resetAdResponseCounts();
+        final MultiAdResponse mockMultiAdResponse = mock(MultiAdResponse.class);
+        when(mockMultiAdResponse.getMaterializedCount()).thenReturn(1);
+        when(mockMultiAdResponse.getUnmaterializedCount()).thenReturn(3);
+
+        ContentDownloadAnalytics.reportMultiAdResponseFinished(mockMultiAdResponse);
+        ContentDownloadAnalytics.reportMultiAdResponseFinished(mockMultiAdResponse);
+
+        assertThat(ContentDownloadAnalytics.getMaterializedAdResponseCount()).isEqualTo(2);
+        assertThat(ContentDownloadAnalytics.getUnmaterializedAdResponseCount()).isEqualTo(6);
+    }
 }
@@ -0,0 +1,83 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.File;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class DecodedImageDiskCacheTest {
+    private static final String KEY = "1080x0 http://example.com/image.jpg";
+
+    private Activity activity;
+    private DecodedImageDiskCache subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        subject = new DecodedImageDiskCache(activity);
+    }
+
+    @Test
+    public void constructor_shouldNotCreateCacheDirectory() {
+        assertThat(new File(activity.getCacheDir(),
+                DecodedImageDiskCache.CACHE_DIRECTORY_NAME).exists()).isFalse();
+    }
+
+    @Test
+    public void get_shouldCreateCacheDirectory() {
+        subject.get(KEY);
+
+        assertThat(new File(activity.getCacheDir(),
+                DecodedImageDiskCache.CACHE_DIRECTORY_NAME).isDirectory()).isTrue();
+    }
+
+    @Test
+    public void get_withKeyNotCached_shouldReturnNull() {
+        assertThat(subject.get(KEY)).isNull();
+    }
+
+    @Test
+    public void get_afterPut_shouldReturnBitmap() {
+        subject.put(KEY, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.get(KEY)).isNotNull();
+    }
+
+    @Test
+    public void get_afterReopening_shouldReturnBitmap() {
+        subject.put(KEY, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+
+        subject = new DecodedImageDiskCache(activity);
+
+        assertThat(subject.get(KEY)).isNotNull();
+    }
+
+    @Test
+    public void put_withKeyAlreadyCached_shouldKeepCachedImage() {
+        subject.put(KEY, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+        subject.put(KEY, Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.get(KEY)).isNotNull();
+    }
+
+    @Test
+    public void createDiskCacheKey_shouldDependOnWholeKey() {
+        assertThat(DecodedImageDiskCache.createDiskCacheKey(KEY))
+                .isNotEqualTo(DecodedImageDiskCache.createDiskCacheKey(
+                        "540x0 http://example.com/image.jpg"));
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.Charset;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class JsonSpanReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void readArraySpans_shouldReturnSpanOfEachElement() throws Exception {
+        final String json = "{\"a\": [{\"b\": \"x]}\\\"\"}, [1, 2], \"s\", 3, null]}";
+        final JsonSpanReader subject = new JsonSpanReader(json.getBytes(UTF_8), UTF_8);
+
+        subject.beginObject();
+        assertThat(subject.hasNext()).isTrue();
+        assertThat(subject.nextName()).isEqualTo("a");
+        final int[] spans = subject.readArraySpans();
+        assertThat(subject.hasNext()).isFalse();
+        subject.endObject();
+
+        assertThat(spans.length).isEqualTo(10);
+        assertThat(subject.decode(spans[0], spans[1])).isEqualTo("{\"b\": \"x]}\\\"\"}");
+        assertThat(subject.decode(spans[2], spans[3])).isEqualTo("[1, 2]");
+        assertThat(subject.decode(spans[4], spans[5])).isEqualTo("\"s\"");
+        assertThat(subject.decode(spans[6], spans[7])).isEqualTo("3");
+        assertThat(subject.decode(spans[8], spans[9])).isEqualTo("null");
+    }
+
+    @Test
+    public void nextValue_shouldDecodeScalarsAndObjects() throws Exception {
+        final String json = "{\"s\":\"café\",\"i\":12,\"o\":{\"k\":true}}";
+        final JsonSpanReader subject = new JsonSpanReader(json.getBytes(UTF_8), UTF_8);
+
+        subject.beginObject();
+        subject.hasNext();
+        assertThat(subject.nextName()).isEqualTo("s");
+        assertThat(subject.nextValue()).isEqualTo("café");
+        subject.hasNext();
+        assertThat(subject.nextName()).isEqualTo("i");
+        assertThat(subject.nextValue()).isEqualTo(12);
+        subject.hasNext();
+        assertThat(subject.nextName()).isEqualTo("o");
+        assertThat(((JSONObject) subject.nextValue()).getBoolean("k")).isTrue();
+        assertThat(subject.hasNext()).isFalse();
+        subject.endObject();
+    }
+
+    @Test(expected = JSONException.class)
+    public void skipValue_withUnterminatedString_shouldThrowJSONException() throws Exception {
+        final JsonSpanReader subject = new JsonSpanReader("[\"abc".getBytes(UTF_8), UTF_8);
+
+        subject.readArraySpans();
+    }
+
+    @Test(expected = JSONException.class)
+    public void beginObject_withNonJson_shouldThrowJSONException() throws Exception {
+        final JsonSpanReader subject = new JsonSpanReader("abc".getBytes(UTF_8), UTF_8);
+
+        subject.beginObject();
+    }
+
+    @Test
+    public void isSupportedCharset_shouldOnlyAcceptAsciiCompatibleCharsets() {
+        assertThat(JsonSpanReader.isSupportedCharset("utf-8")).isTrue();
+        assertThat(JsonSpanReader.isSupportedCharset("ISO-8859-1")).isTrue();
+        assertThat(JsonSpanReader.isSupportedCharset("UTF-16")).isFalse();
+        assertThat(JsonSpanReader.isSupportedCharset("Shift_JIS")).isFalse();
+        assertThat(JsonSpanReader.isSupportedCharset("not a charset")).isFalse();
+        assertThat(JsonSpanReader.isSupportedCharset(null)).isFalse();
+    }
+}
@@ -0,0 +1,192 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.Request;
+import com.mopub.volley.RequestQueue;
+import com.mopub.volley.toolbox.ImageLoader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class MaxWidthImageLoaderTest {
+    private static final int MAX_IMAGE_WIDTH = 480;
+    private static final String URL = "http://example.com/image.jpg";
+
+    @Mock private RequestQueue mockRequestQueue;
+    @Mock private ImageLoader.ImageCache mockImageCache;
+    @Mock private DecodedImageDiskCache mockDiskCache;
+    @Mock private ImageLoader.ImageListener mockListener;
+    @Mock private ImageLoader.ImageListener mockListener2;
+
+    private List<Runnable> diskTasks;
+    private MaxWidthImageLoader subject;
+    private String cacheKey;
+
+    @Before
+    public void setUp() {
+        diskTasks = new ArrayList<Runnable>();
+        subject = new MaxWidthImageLoader(mockRequestQueue, MAX_IMAGE_WIDTH, mockImageCache,
+                mockDiskCache, new Executor() {
+                    @Override
+                    public void execute(final Runnable runnable) {
+                        diskTasks.add(runnable);
+                    }
+                });
+        cacheKey = MaxWidthImageLoader.getCacheKey(URL, MAX_IMAGE_WIDTH, 0);
+    }
+
+    @Test
+    public void isCached_shouldCheckMemoryCacheWithOwnCacheKey() {
+        when(mockImageCache.getBitmap(cacheKey)).thenReturn(
+                Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.isCached(URL, MAX_IMAGE_WIDTH, 0)).isTrue();
+        assertThat(subject.isCached(URL, MAX_IMAGE_WIDTH * 2, 0)).isTrue();
+        assertThat(subject.isCached(URL, 64, 0)).isFalse();
+    }
+
+    @Test
+    public void getCacheKey_shouldIncludeSizeAndUrl() {
+        assertThat(cacheKey).isEqualTo(MAX_IMAGE_WIDTH + "x0 " + URL);
+    }
+
+    @Test
+    public void get_withImageInMemory_shouldRespondImmediately_shouldNotReadDisk() {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        when(mockImageCache.getBitmap(cacheKey)).thenReturn(bitmap);
+
+        subject.get(URL, mockListener);
+
+        final ArgumentCaptor<ImageLoader.ImageContainer> containerCaptor =
+                ArgumentCaptor.forClass(ImageLoader.ImageContainer.class);
+        verify(mockListener).onResponse(containerCaptor.capture(), eq(true));
+        assertThat(containerCaptor.getValue().getBitmap()).isSameAs(bitmap);
+        assertThat(diskTasks).isEmpty();
+        verify(mockRequestQueue, never()).add(any(Request.class));
+    }
+
+    @Test
+    public void get_withImageOnDisk_shouldPutInMemory_shouldNotMakeRequest() {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        when(mockDiskCache.get(cacheKey)).thenReturn(bitmap);
+
+        subject.get(URL, mockListener);
+        // The default image first, as for any miss
+        verify(mockListener).onResponse(any(ImageLoader.ImageContainer.class), eq(true));
+
+        when(mockImageCache.getBitmap(cacheKey)).thenReturn(bitmap);
+        runDiskTasks();
+
+        verify(mockImageCache).putBitmap(cacheKey, bitmap);
+        verify(mockListener, times(2)).onResponse(any(ImageLoader.ImageContainer.class),
+                eq(true));
+        verify(mockRequestQueue, never()).add(any(Request.class));
+        verify(mockDiskCache, never()).put(anyString(), any(Bitmap.class));
+    }
+
+    @Test
+    public void get_withImageNotOnDisk_shouldMakeRequest() {
+        subject.get(URL, mockListener);
+        runDiskTasks();
+
+        verify(mockDiskCache).get(cacheKey);
+        verify(mockImageCache, never()).putBitmap(anyString(), any(Bitmap.class));
+        verify(mockRequestQueue).add(any(Request.class));
+    }
+
+    @Test
+    public void get_withDiskReadAlreadyPending_shouldReadDiskOnce() {
+        subject.get(URL, mockListener);
+        subject.get(URL, mockListener2);
+
+        assertThat(diskTasks).hasSize(1);
+        runDiskTasks();
+
+        verify(mockDiskCache, times(1)).get(cacheKey);
+        verify(mockListener2, times(2)).onResponse(any(ImageLoader.ImageContainer.class),
+                eq(true));
+    }
+
+    @Test
+    public void get_withoutDiskCache_shouldMakeRequest() {
+        subject = new MaxWidthImageLoader(mockRequestQueue, MAX_IMAGE_WIDTH, mockImageCache,
+                null, new Executor() {
+                    @Override
+                    public void execute(final Runnable runnable) {
+                        diskTasks.add(runnable);
+                    }
+                });
+
+        subject.get(URL, mockListener);
+
+        assertThat(diskTasks).isEmpty();
+        verify(mockRequestQueue).add(any(Request.class));
+    }
+
+    @Test
+    public void get_withSize_shouldReadDiskWithSizedCacheKey() {
+        subject.get(URL, mockListener, 64, 0);
+        runDiskTasks();
+
+        verify(mockDiskCache).get(MaxWidthImageLoader.getCacheKey(URL, 64, 0));
+        verify(mockRequestQueue).add(any(Request.class));
+    }
+
+    @Test
+    public void get_withSizeWiderThanMaxImageWidth_shouldUseMaxImageWidth() {
+        subject.get(URL, mockListener, MAX_IMAGE_WIDTH * 2, 0);
+        runDiskTasks();
+
+        verify(mockDiskCache).get(cacheKey);
+    }
+
+    @Test
+    public void get_withSize_withFullWidthImageInMemory_shouldRespondWithIt_shouldNotCacheCopy() {
+        final Bitmap fullWidthBitmap = Bitmap.createBitmap(MAX_IMAGE_WIDTH, MAX_IMAGE_WIDTH / 2,
+                Bitmap.Config.ARGB_8888);
+        when(mockImageCache.getBitmap(cacheKey)).thenReturn(fullWidthBitmap);
+
+        subject.get(URL, mockListener, 64, 0);
+
+        final ArgumentCaptor<ImageLoader.ImageContainer> containerCaptor =
+                ArgumentCaptor.forClass(ImageLoader.ImageContainer.class);
+        verify(mockListener).onResponse(containerCaptor.capture(), eq(true));
+        assertThat(containerCaptor.getValue().getBitmap()).isSameAs(fullWidthBitmap);
+        assertThat(diskTasks).isEmpty();
+        verify(mockImageCache, never()).putBitmap(anyString(), any(Bitmap.class));
+        verify(mockRequestQueue, never()).add(any(Request.class));
+    }
+
+    private void runDiskTasks() {
+        final List<Runnable> tasks = new ArrayList<Runnable>(diskTasks);
+        diskTasks.clear();
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+        ShadowLooper.runUiThreadTasks();
+    }
+}
@@ -4,10 +4,39 @@
 
 package com.mopub.network;
 
+import android.app.Activity;
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.volley.Cache;
+import com.mopub.volley.ExecutorDelivery;
 import com.mopub.volley.Network;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Request;
+import com.mopub.volley.Response;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.NoCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
 
+@RunWith(SdkTestRunner.class)
 public class MoPubRequestQueueTest {
+    private static final long TIMEOUT_MILLIS = 5000;
 
     public static class TestMoPubRequestQueue extends MoPubRequestQueue {
 
@@ -22,4 +51,227 @@ public class MoPubRequestQueueTest {
             super(cache, network);
         }
     }
+
+    private Context context;
+    // Holds every request in the network until it is counted down
+    private CountDownLatch networkGate;
+    private List<String> sentUrls;
+    private MoPubRequestQueue subject;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        networkGate = new CountDownLatch(1);
+        sentUrls = new ArrayList<String>();
+        final Network network = new Network() {
+            @Override
+            public NetworkResponse performRequest(final Request<?> request) throws VolleyError {
+                synchronized (sentUrls) {
+                    sentUrls.add(request.getUrl());
+                    sentUrls.notifyAll();
+                }
+                try {
+                    networkGate.await();
+                } catch (InterruptedException e) {
+                    throw new VolleyError(e);
+                }
+                return new NetworkResponse(200, new byte[0], new TreeMap<String, String>(),
+                        false, 0);
+            }
+        };
+        // Responses are delivered on the network dispatcher thread
+        subject = new MoPubRequestQueue(new NoCache(), network, 1, new ExecutorDelivery(
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull final Runnable runnable) {
+                        runnable.run();
+                    }
+                }));
+        subject.start();
+    }
+
+    @After
+    public void tearDown() {
+        networkGate.countDown();
+        subject.stop();
+    }
+
+    @Test
+    public void add_withDispatcherBusy_shouldServeLanesInOrderAndAdUnitsInTurn()
+            throws Exception {
+        subject.add(new TestRequest("https://example.com/busy",
+                MoPubRequestQueue.Lane.TRACKING, null));
+        awaitSentCount(1);
+
+        subject.add(new TestRequest("https://example.com/tracker",
+                MoPubRequestQueue.Lane.TRACKING, null));
+        subject.add(new TestRequest("https://example.com/sync",
+                MoPubRequestQueue.Lane.CONSENT_SYNC, null));
+        subject.add(new TestRequest("https://example.com/image",
+                MoPubRequestQueue.Lane.CREATIVE_ASSET, null));
+        subject.add(new TestRequest("https://example.com/a1", MoPubRequestQueue.Lane.AD_FETCH,
+                "a"));
+        subject.add(new TestRequest("https://example.com/a2", MoPubRequestQueue.Lane.AD_FETCH,
+                "a"));
+        subject.add(new TestRequest("https://example.com/a3", MoPubRequestQueue.Lane.AD_FETCH,
+                "a"));
+        subject.add(new TestRequest("https://example.com/b1", MoPubRequestQueue.Lane.AD_FETCH,
+                "b"));
+
+        assertThat(subject.getInFlightCount()).isEqualTo(1);
+        assertThat(subject.getQueueDepth()).isEqualTo(7);
+        assertThat(subject.getQueueDepth(MoPubRequestQueue.Lane.AD_FETCH)).isEqualTo(4);
+        assertThat(subject.getQueueDepth(MoPubRequestQueue.Lane.TRACKING)).isEqualTo(1);
+
+        networkGate.countDown();
+        awaitSentCount(8);
+
+        assertThat(sentUrls).containsExactly(
+                "https://example.com/busy",
+                "https://example.com/a1",
+                "https://example.com/b1",
+                "https://example.com/a2",
+                "https://example.com/a3",
+                "https://example.com/image",
+                "https://example.com/sync",
+                "https://example.com/tracker");
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+        assertThat(subject.getMaxWaitMs(MoPubRequestQueue.Lane.AD_FETCH)).isGreaterThanOrEqualTo(0);
+        assertThat(subject.getAverageWaitMs(MoPubRequestQueue.Lane.TRACKING))
+                .isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void add_withCacheableRequest_shouldHandItToVolleyWithoutTakingNetworkDispatcher()
+            throws Exception {
+        subject.add(new TestRequest("https://example.com/busy",
+                MoPubRequestQueue.Lane.TRACKING, null));
+        awaitSentCount(1);
+
+        final TestRequest image = new TestRequest("https://example.com/image",
+                MoPubRequestQueue.Lane.CREATIVE_ASSET, null);
+        image.setShouldCache(true);
+        subject.add(image);
+        subject.add(new TestRequest("https://example.com/a1", MoPubRequestQueue.Lane.AD_FETCH,
+                "a"));
+
+        assertThat(subject.getInFlightCount()).isEqualTo(1);
+        assertThat(subject.getQueueDepth()).isEqualTo(1);
+        assertThat(subject.getQueueDepth(MoPubRequestQueue.Lane.AD_FETCH)).isEqualTo(1);
+        assertThat(subject.getQueueDepth(MoPubRequestQueue.Lane.CREATIVE_ASSET)).isEqualTo(0);
+
+        networkGate.countDown();
+        awaitSentCount(3);
+
+        assertThat(sentUrls).contains("https://example.com/image", "https://example.com/a1");
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_withRequestWaitingInLane_shouldRemoveAndCancelIt() throws Exception {
+        subject.add(new TestRequest("https://example.com/busy",
+                MoPubRequestQueue.Lane.AD_FETCH, "a"));
+        awaitSentCount(1);
+        final TestRequest waiting = new TestRequest("https://example.com/waiting",
+                MoPubRequestQueue.Lane.AD_FETCH, "a");
+        subject.add(waiting);
+
+        subject.cancel(waiting);
+
+        assertThat(waiting.isCanceled()).isTrue();
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void addDelayedRequest_shouldAddRequestToItsLaneAfterDelay() throws Exception {
+        subject.add(new TestRequest("https://example.com/busy",
+                MoPubRequestQueue.Lane.TRACKING, null));
+        awaitSentCount(1);
+
+        subject.addDelayedRequest(new TestRequest("https://example.com/delayed",
+                MoPubRequestQueue.Lane.AD_FETCH, "a"), 1000);
+
+        assertThat(subject.getDelayedCount()).isEqualTo(1);
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(999, TimeUnit.MILLISECONDS);
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1, TimeUnit.MILLISECONDS);
+        assertThat(subject.getDelayedCount()).isEqualTo(0);
+        assertThat(subject.getQueueDepth(MoPubRequestQueue.Lane.AD_FETCH)).isEqualTo(1);
+    }
+
+    @Test
+    public void cancel_withDelayedRequest_shouldKeepItFromBeingAdded() throws Exception {
+        final TestRequest delayed = new TestRequest("https://example.com/delayed",
+                MoPubRequestQueue.Lane.AD_FETCH, "a");
+        subject.addDelayedRequest(delayed, 1000);
+
+        subject.cancel(delayed);
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000, TimeUnit.MILLISECONDS);
+
+        assertThat(delayed.isCanceled()).isTrue();
+        assertThat(subject.getDelayedCount()).isEqualTo(0);
+        assertThat(subject.getQueueDepth()).isEqualTo(0);
+        assertThat(subject.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getLane_shouldPutRequestsInTheirLanes() {
+        assertThat(MoPubRequestQueue.getLane(new TrackingRequest(context,
+                "https://example.com/tracker", null)))
+                .isEqualTo(MoPubRequestQueue.Lane.TRACKING);
+        assertThat(MoPubRequestQueue.getLane(new TestRequest("https://example.com",
+                MoPubRequestQueue.Lane.AD_FETCH, "a")))
+                .isEqualTo(MoPubRequestQueue.Lane.AD_FETCH);
+        assertThat(MoPubRequestQueue.getLane(new com.mopub.volley.toolbox.StringRequest(
+                "https://example.com/image.png", null, null)))
+                .isEqualTo(MoPubRequestQueue.Lane.CREATIVE_ASSET);
+    }
+
+    private void awaitSentCount(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        synchronized (sentUrls) {
+            while (sentUrls.size() < count && System.currentTimeMillis() < deadline) {
+                sentUrls.wait(TIMEOUT_MILLIS);
+            }
+        }
+        assertThat(sentUrls).hasSize(count);
+    }
+
+    private class TestRequest extends MoPubRequest<Void> {
+        @NonNull private final MoPubRequestQueue.Lane mLane;
+        @Nullable private final String mAdUnitId;
+
+        TestRequest(@NonNull final String url, @NonNull final MoPubRequestQueue.Lane lane,
+                @Nullable final String adUnitId) {
+            super(context, url, null);
+            mLane = lane;
+            mAdUnitId = adUnitId;
+            // Like ad requests, which are never served from the cache
+            setShouldCache(false);
+        }
+
+        @NonNull
+        @Override
+        public MoPubRequestQueue.Lane getLane() {
+            return mLane;
+        }
+
+        @Nullable
+        @Override
+        public String getAdUnitId() {
+            return mAdUnitId;
+        }
+
+        @Override
+        protected Response<Void> parseNetworkResponse(final NetworkResponse networkResponse) {
+            return Response.success(null, null);
+        }
+
+        @Override
+        protected void deliverResponse(final Void response) {
+        }
+    }
 }
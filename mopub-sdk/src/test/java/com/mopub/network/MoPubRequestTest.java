@@ -0,0 +1,114 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+import android.content.Context;
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Response;
+import com.mopub.volley.toolbox.HurlStack;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class MoPubRequestTest {
+    private static final String AD_URL =
+            "https://ads.mopub.com/m/ad?id=adunit&udid=mp_tmpl_advertising_id";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+    }
+
+    @After
+    public void tearDown() {
+        Networking.clearForTesting();
+    }
+
+    @Test
+    public void getBody_withOtherUrlRewriter_shouldUseRewrittenUrl() throws Exception {
+        Networking.setUrlRewriterForTesting(new HurlStack.UrlRewriter() {
+            @Override
+            public String rewriteUrl(final String url) {
+                return url.replace("mp_tmpl_advertising_id", "rewritten");
+            }
+        });
+        final TestMoPubRequest subject = new TestMoPubRequest(context, AD_URL);
+
+        final JSONObject body = new JSONObject(new String(subject.getBody(), "UTF-8"));
+
+        assertThat(body.length()).isEqualTo(2);
+        assertThat(body.getString("id")).isEqualTo("adunit");
+        assertThat(body.getString("udid")).isEqualTo("rewritten");
+    }
+
+    @Test
+    public void getParams_withOtherUrlRewriter_shouldUseRewrittenUrl() {
+        Networking.setUrlRewriterForTesting(new HurlStack.UrlRewriter() {
+            @Override
+            public String rewriteUrl(final String url) {
+                return url.replace("mp_tmpl_advertising_id", "rewritten");
+            }
+        });
+        final TestMoPubRequest subject = new TestMoPubRequest(context, AD_URL);
+
+        final Map<String, String> params = subject.getParams();
+
+        assertThat(params).hasSize(2);
+        assertThat(params.get("udid")).isEqualTo("rewritten");
+    }
+
+    @Test
+    public void getBody_withUrlRewriterBlockingUrl_shouldReturnNull() {
+        Networking.setUrlRewriterForTesting(new HurlStack.UrlRewriter() {
+            @Override
+            public String rewriteUrl(final String url) {
+                return null;
+            }
+        });
+        final TestMoPubRequest subject = new TestMoPubRequest(context, AD_URL);
+
+        assertThat(subject.getBody()).isNull();
+        assertThat(subject.getParams()).isNull();
+    }
+
+    @Test
+    public void getBody_withNonMoPubUrl_shouldReturnNull() {
+        final TestMoPubRequest subject = new TestMoPubRequest(context,
+                "https://www.example.com/track?id=adunit");
+
+        assertThat(subject.getBody()).isNull();
+        assertThat(subject.getParams()).isNull();
+    }
+
+    private static class TestMoPubRequest extends MoPubRequest<String> {
+        TestMoPubRequest(@NonNull final Context context, @NonNull final String url) {
+            super(context, url, null);
+        }
+
+        @Override
+        protected Response<String> parseNetworkResponse(final NetworkResponse networkResponse) {
+            return null;
+        }
+
+        @Override
+        protected void deliverResponse(final String response) {
+        }
+    }
+}
@@ -4,39 +4,18 @@
 
 package com.mopub.network;
 
-import android.app.Activity;
-import android.content.Context;
-
 import com.mopub.common.Constants;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.volley.Request;
 
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.robolectric.Robolectric;
-
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
 @RunWith(SdkTestRunner.class)
 public class MoPubRequestUtilsTest {
 
-    private Context context;
-    private Map<String, String> params;
-
-    @Before
-    public void setUp() {
-        context = Robolectric.buildActivity(Activity.class).get();
-        params = new HashMap<>();
-        params.put("query1", "value1");
-        params.put("query2", "value2,value3,value4");
-        params.put("query3", "");
-        params.put("query4", "value5%20value6");
-    }
-
     @Test
     public void chooseMethod_withMoPubUrl_shouldReturnPost() {
         final int result = MoPubRequestUtils.chooseMethod("https://" + Constants.HOST);
@@ -102,53 +81,4 @@ public class MoPubRequestUtilsTest {
 
         assertThat(result).isEqualTo("geo:37.777328,-122.416544");
     }
-
-    @Test
-    public void convertQueryToMap_withAdRequest_shouldReturnQueryMap() {
-        final Map<String, String> result = MoPubRequestUtils.convertQueryToMap(context,
-                "https://ads.mopub.com/m/ad?query1=abc&query2=def%20ghi&query3=jkl&query1=mno&query4&query4&query4#fragment");
-
-        assertThat(result.size()).isEqualTo(4);
-        assertThat(result.get("query1")).isEqualTo("abc,mno");
-        assertThat(result.get("query2")).isEqualTo("def ghi");
-        assertThat(result.get("query3")).isEqualTo("jkl");
-        assertThat(result.get("query4")).isEqualTo(",,");
-    }
-
-    @Test
-    public void convertQueryToMap_withNoQueryParams_shouldReturnEmptyMap() {
-        final Map<String, String> result = MoPubRequestUtils.convertQueryToMap(context,
-                "https://ads.mopub.com/m/ad");
-
-        assertThat(result).isEmpty();
-    }
-
-    @Test
-    public void convertQueryToMap_withBadUriString_shouldReturnEmptyMap() {
-        final Map<String, String> result = MoPubRequestUtils.convertQueryToMap(context,
-                "https://*#&(%*$&");
-
-        assertThat(result).isEmpty();
-    }
-
-    @Test
-    public void generateBodyFromParams_withParamsMap_withMoPubUrl_shouldGenerateJsonString() {
-        final String result = MoPubRequestUtils.generateBodyFromParams(params,
-                "https://ads.mopub.com/m/ad");
-
-        assertThat(result).contains("\"query1\":\"value1\"");
-        assertThat(result).contains("\"query2\":\"value2,value3,value4\"");
-        assertThat(result).contains("\"query3\":\"\"");
-        // Values have already been decoded and should not be decoded again.
-        assertThat(result).contains("\"query4\":\"value5%20value6\"");
-        assertThat(result.length()).isEqualTo(90);
-    }
-
-    @Test
-    public void generateBodyFromParams_withParamsMap_withNotMoPubUrl_shouldReturnNull() {
-        final String result = MoPubRequestUtils.generateBodyFromParams(params,
-                "https://not.mopub.com");
-
-        assertThat(result).isNull();
-    }
 }
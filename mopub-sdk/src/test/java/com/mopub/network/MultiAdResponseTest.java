@@ -1124,6 +1124,82 @@ public class MultiAdResponseTest {
     }
 
 
+    @Test
+    public void constructor_withAdResponsesBeforeTopLevelFields_shouldSucceed() throws Exception {
+        final String body = "{\"" + ResponseHeader.AD_RESPONSES.getKey() + "\": ["
+                + singleAdResponse.toString() + "], \""
+                + ResponseHeader.FAIL_URL.getKey() + "\": \"" + FAIL_URL + "\"}";
+        NetworkResponse testResponse = new NetworkResponse(body.getBytes("UTF-8"));
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(subject.hasNext()).isTrue();
+        assertThat(subject.next().getClickTrackingUrl()).isEqualTo(CLICKTTRACKING_URL);
+        assertThat(subject.getFailURL()).isEqualTo(FAIL_URL);
+    }
+
+    @Test
+    public void constructor_withUtf16Charset_shouldSucceed() throws Exception {
+        final Map<String, String> headers = Collections.singletonMap("Content-Type",
+                "application/json; charset=UTF-16");
+        byte[] body = createJsonBody(FAIL_URL, singleAdResponse).toString().getBytes("UTF-16");
+        NetworkResponse testResponse = new NetworkResponse(200, body, headers, false);
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(subject.hasNext()).isTrue();
+        assertThat(subject.next().getClickTrackingUrl()).isEqualTo(CLICKTTRACKING_URL);
+        assertThat(subject.getFailURL()).isEqualTo(FAIL_URL);
+    }
+
+    @Test
+    public void next_withInvalidSecondAdResponse_shouldSkipItLazily() throws Exception {
+        JSONObject invalidResponse = new JSONObject();
+        invalidResponse.put(ResponseHeader.CONTENT.getKey(), "no metadata");
+        JSONObject thirdResponse = new JSONObject(singleAdResponse.toString());
+        thirdResponse.getJSONObject(ResponseHeader.METADATA.getKey())
+                .put(ResponseHeader.CLICK_TRACKING_URL.getKey(), CLICKTTRACKING_URL + "_3");
+
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey())
+                .put(invalidResponse)
+                .put(thirdResponse);
+        NetworkResponse testResponse = new NetworkResponse(jsonObject.toString().getBytes());
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(subject.next().getClickTrackingUrl()).isEqualTo(CLICKTTRACKING_URL);
+        assertThat(subject.hasNext()).isTrue();
+        assertThat(subject.next().getClickTrackingUrl()).isEqualTo(CLICKTTRACKING_URL + "_3");
+        assertThat(subject.hasNext()).isFalse();
+        assertThat(subject.isWaterfallFinished()).isFalse();
+    }
+
+    @Test
+    public void hasNext_withClearAfterValidAdResponse_shouldFinishWaterfallWhenReached() throws Exception {
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.getJSONArray(ResponseHeader.AD_RESPONSES.getKey())
+                .put(createClearAdResponse())
+                .put(new JSONObject(singleAdResponse.toString()));
+        NetworkResponse testResponse = new NetworkResponse(jsonObject.toString().getBytes());
+
+        MultiAdResponse subject = new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+
+        assertThat(subject.next()).isNotNull();
+        assertThat(subject.hasNext()).isFalse();
+        assertThat(subject.getFailURL()).isEmpty();
+        assertThat(subject.isWaterfallFinished()).isTrue();
+    }
+
+    @Test(expected = JSONException.class)
+    public void constructor_withMissingAdResponses_shouldThrowJSONException() throws Exception {
+        JSONObject jsonObject = createJsonBody(FAIL_URL, singleAdResponse);
+        jsonObject.remove(ResponseHeader.AD_RESPONSES.getKey());
+        NetworkResponse testResponse = new NetworkResponse(jsonObject.toString().getBytes());
+
+        new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId);
+    }
+
     // Utility functions
     private static byte[] createResponseBody(String failURL, JSONObject adResponse) throws JSONException {
         return createJsonBody(failURL, adResponse).toString().getBytes();
@@ -0,0 +1,163 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class PooledHttpTransportTest {
+    private static final String HOST = "ads.example.com:443";
+
+    private SSLSocketFactory mockSslSocketFactory;
+    private PooledHttpTransport subject;
+    // The transport only holds connections weakly, so the tests hold on to them
+    private List<HttpURLConnection> openConnections;
+
+    @Before
+    public void setUp() {
+        mockSslSocketFactory = mock(SSLSocketFactory.class);
+        openConnections = new ArrayList<HttpURLConnection>();
+        subject = new TestPooledHttpTransport(mockSslSocketFactory, 2);
+    }
+
+    @Test
+    public void openConnection_withHttpsUrl_shouldUseSharedSocketFactory() throws Exception {
+        final HttpURLConnection connection =
+                subject.openConnection(new URL("https://ads.example.com/m/gen_204"));
+
+        verify((HttpsURLConnection) connection).setSSLSocketFactory(mockSslSocketFactory);
+        assertThat(subject.getConnectionCount()).isEqualTo(1);
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(1);
+    }
+
+    @Test
+    public void release_shouldFreePlaceOfHostOnce() throws Exception {
+        final HttpURLConnection connection =
+                subject.openConnection(new URL("https://ads.example.com/m/ad"));
+
+        subject.release(connection);
+        subject.release(connection);
+
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(0);
+    }
+
+    @Test
+    public void release_withConnectionNotOpenedByTransport_shouldIgnoreIt() throws Exception {
+        openConnection(new URL("https://ads.example.com/m/ad"));
+
+        subject.release(mock(HttpURLConnection.class));
+
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(1);
+    }
+
+    @Test
+    public void openConnection_withHostAtPoolSize_shouldOpenWithoutWaiting() throws Exception {
+        final URL url = new URL("https://ads.example.com/m/ad");
+        openConnection(url);
+        openConnection(url);
+        // Another host has a pool of its own
+        openConnection(new URL("https://tracking.example.com/imp"));
+
+        final HttpURLConnection overPoolSize = subject.openConnection(url);
+
+        assertThat(subject.getOverPoolSizeCount()).isEqualTo(1);
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(3);
+
+        subject.release(overPoolSize);
+
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(2);
+    }
+
+    @Test
+    public void openConnection_whenInterrupted_shouldNotWait() throws Exception {
+        subject = new TestPooledHttpTransport(mockSslSocketFactory, 1);
+        final URL url = new URL("https://ads.example.com/m/ad");
+        openConnection(url);
+
+        Thread.currentThread().interrupt();
+        try {
+            openConnection(url);
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+        assertThat(subject.getOpenConnectionCount(HOST)).isEqualTo(2);
+    }
+
+    @Test
+    public void getReusedConnectionCount_shouldCountHttpsConnectionsWithoutHandshake()
+            throws Exception {
+        for (int i = 0; i < 4; i++) {
+            subject.release(subject.openConnection(new URL("https://ads.example.com/m/ad")));
+        }
+        subject.release(subject.openConnection(new URL("http://ads.example.com/m/ad")));
+        subject.onHandshake(false);
+        subject.onHandshake(true);
+
+        assertThat(subject.getConnectionCount()).isEqualTo(5);
+        assertThat(subject.getHandshakeCount()).isEqualTo(2);
+        assertThat(subject.getResumedHandshakeCount()).isEqualTo(1);
+        assertThat(subject.getReusedConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getHostKey_shouldIncludeDefaultPortAndIgnoreCase() throws Exception {
+        assertThat(PooledHttpTransport.getHostKey(new URL("https://Ads.Example.com/m/ad")))
+                .isEqualTo("ads.example.com:443");
+        assertThat(PooledHttpTransport.getHostKey(new URL("http://ads.example.com/m/ad")))
+                .isEqualTo("ads.example.com:80");
+        assertThat(PooledHttpTransport.getHostKey(new URL("https://ads.example.com:8443/")))
+                .isEqualTo("ads.example.com:8443");
+    }
+
+    @Test
+    public void networking_getHttpTransport_shouldReturnSetTransport() {
+        final HttpTransport httpTransport = mock(HttpTransport.class);
+
+        assertThat(Networking.getHttpTransport()).isInstanceOf(PooledHttpTransport.class);
+        Networking.setHttpTransport(httpTransport);
+
+        assertThat(Networking.getHttpTransport()).isSameAs(httpTransport);
+        Networking.clearForTesting();
+    }
+
+    private void openConnection(@NonNull final URL url) throws IOException {
+        openConnections.add(subject.openConnection(url));
+    }
+
+    private static class TestPooledHttpTransport extends PooledHttpTransport {
+        TestPooledHttpTransport(@NonNull final SSLSocketFactory sslSocketFactory,
+                final int maxPooledConnectionsPerHost) {
+            super(sslSocketFactory, maxPooledConnectionsPerHost);
+        }
+
+        @NonNull
+        @Override
+        HttpURLConnection createConnection(@NonNull final URL url) {
+            if ("https".equals(url.getProtocol())) {
+                return mock(HttpsURLConnection.class);
+            }
+            return mock(HttpURLConnection.class);
+        }
+    }
+}
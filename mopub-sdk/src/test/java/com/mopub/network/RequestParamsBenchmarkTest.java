@@ -0,0 +1,162 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.net.Uri;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Makes the body of an ad request, with a query like the one an AdUrlGenerator makes, the way
+ * MoPubRequest used to, by parsing the url into a map and building a JSONObject from it, and with
+ * {@link RequestParams}. Both bodies are checked to be the same, and when the JVM can measure
+ * it, {@link RequestParams} is checked to allocate less per request.
+ */
+@RunWith(SdkTestRunner.class)
+public class RequestParamsBenchmarkTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int REQUESTS = 1000;
+    // getBody() is called once to log the request, and once for each attempt
+    private static final int BODIES_PER_REQUEST = 3;
+    private static final String[] TEMPLATE_VALUES = {
+            "ifa:38400000-8cf0-11bd-b23e-10b96e40000d", "0",
+            "e0b7a9f4-0c6b-4b2a-8d8a-3f0d9d3c8a11"
+    };
+
+    private String adUrl;
+
+    @Before
+    public void setUp() {
+        final RequestParams params = new RequestParams();
+        params.add("id", "b195f8dd8ded45fe847ad89ed1d016da");
+        params.add("nv", "5.10.0");
+        params.add("dn", "unknown,robolectric,robolectric");
+        params.add("bundle", "com.mopub.simpleadsdemo");
+        params.add("q", "m_age:24,m_gender:m,m_marital:single");
+        params.add("z", "-0700");
+        params.add("o", "p");
+        params.add("cw", "320");
+        params.add("ch", "50");
+        params.add("w", "1080");
+        params.add("h", "1920");
+        params.add("sc", "2.625");
+        params.add("mcc", "310");
+        params.add("mnc", "260");
+        params.add("iso", "us");
+        params.add("cn", "T-Mobile US");
+        params.add("ct", "2");
+        params.add("av", "5.10.0");
+        params.add("abt", "{\"AdColony\":{\"token\":\"1:c2RrX3ZlcnNpb249My4zLjEx\"}}");
+        params.add("udid", PlayServicesUrlRewriter.UDID_TEMPLATE);
+        params.add("dnt", PlayServicesUrlRewriter.DO_NOT_TRACK_TEMPLATE);
+        params.add("mid", PlayServicesUrlRewriter.MOPUB_ID_TEMPLATE);
+        params.add("gdpr_applies", "0");
+        params.add("force_gdpr_applies", "0");
+        params.add("current_consent_status", "unknown");
+        params.add("mr", "1");
+        params.add("android_perms_ext_storage", "0");
+        params.add("vv", "3");
+        final StringBuilder url = new StringBuilder("https://ads.mopub.com/m/ad");
+        params.appendQuery(url);
+        adUrl = url.toString();
+    }
+
+    @Test
+    public void requestBody_withRequestParams_shouldMatchJsonObjectAndAllocateLess()
+            throws Exception {
+        final JSONObject queryBody = new JSONObject(new String(makeBodiesFromQuery(1), UTF_8));
+        final JSONObject paramsBody = new JSONObject(new String(makeBodiesFromParams(1), UTF_8));
+        assertThat(paramsBody.length()).isEqualTo(queryBody.length());
+        final Iterator<String> keys = queryBody.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            assertThat(paramsBody.getString(key)).isEqualTo(queryBody.getString(key));
+        }
+        assertThat(paramsBody.getString("udid")).isEqualTo(TEMPLATE_VALUES[0]);
+
+        makeBodiesFromQuery(WARMUP_REQUESTS);
+        makeBodiesFromParams(WARMUP_REQUESTS);
+
+        long startBytes = getAllocatedBytes();
+        makeBodiesFromQuery(REQUESTS);
+        final long queryBytes = getAllocatedBytes() - startBytes;
+
+        startBytes = getAllocatedBytes();
+        makeBodiesFromParams(REQUESTS);
+        final long paramsBytes = getAllocatedBytes() - startBytes;
+
+        if (queryBytes > 0 && paramsBytes > 0) {
+            assertThat(paramsBytes / REQUESTS).isLessThan(queryBytes / REQUESTS);
+        }
+    }
+
+    /**
+     * Rewrites the url, parses it into a map and builds a JSONObject from the map for every body,
+     * which is what MoPubRequest used to do.
+     *
+     * @return the last body made
+     */
+    private byte[] makeBodiesFromQuery(final int requestCount) throws JSONException {
+        byte[] body = null;
+        for (int i = 0; i < requestCount; i++) {
+            for (int j = 0; j < BODIES_PER_REQUEST; j++) {
+                final Map<String, String> params = MoPubRequestUtils.getQueryParamMap(
+                        Uri.parse(PlayServicesUrlRewriter.replaceTemplates(adUrl,
+                                TEMPLATE_VALUES, true)));
+                final JSONObject jsonBody = new JSONObject();
+                for (final String queryName : params.keySet()) {
+                    jsonBody.put(queryName, params.get(queryName));
+                }
+                body = jsonBody.toString().getBytes();
+            }
+        }
+        return body;
+    }
+
+    /**
+     * @return the last body made
+     */
+    private byte[] makeBodiesFromParams(final int requestCount) {
+        byte[] body = null;
+        for (int i = 0; i < requestCount; i++) {
+            final RequestParams params = RequestParams.fromUrl(adUrl);
+            // The body is made once and kept for the other calls
+            body = params.toJsonBody(TEMPLATE_VALUES);
+        }
+        return body;
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, or 0 if the JVM can't tell.
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        final com.sun.management.ThreadMXBean allocationBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()
+                || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class RequestParamsTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String[] TEMPLATE_VALUES = {"ifa:advertising/id", "1", "mopub id"};
+
+    private RequestParams subject;
+
+    @Before
+    public void setUp() {
+        subject = new RequestParams();
+    }
+
+    @Test
+    public void fromUrl_shouldDecodeQueryAndJoinRepeatedKeys() {
+        subject = RequestParams.fromUrl(
+                "https://ads.mopub.com/m/ad?query1=abc&query2=def%20ghi&query3=jkl&query1=mno&query4&query4&query4#fragment");
+
+        final Map<String, String> result = subject.toMap(null);
+        assertThat(result.size()).isEqualTo(4);
+        assertThat(result.get("query1")).isEqualTo("abc,mno");
+        assertThat(result.get("query2")).isEqualTo("def ghi");
+        assertThat(result.get("query3")).isEqualTo("jkl");
+        assertThat(result.get("query4")).isEqualTo(",,");
+        assertThat(subject.get("query1")).isEqualTo("abc");
+    }
+
+    @Test
+    public void fromUrl_withNoQuery_shouldBeEmpty() {
+        assertThat(RequestParams.fromUrl("https://ads.mopub.com/m/ad").isEmpty()).isTrue();
+        assertThat(RequestParams.fromUrl("https://*#&(%*$&").isEmpty()).isTrue();
+    }
+
+    @Test
+    public void appendQuery_shouldEncodeValuesInOrder() {
+        subject.add("id", "ad unit");
+        subject.add("q", "a,b&c");
+        subject.add("id", "second");
+
+        final StringBuilder url = new StringBuilder("https://ads.mopub.com/m/ad");
+        subject.appendQuery(url);
+
+        assertThat(url.toString()).isEqualTo(
+                "https://ads.mopub.com/m/ad?id=ad%20unit&q=a%2Cb%26c&id=second");
+    }
+
+    @Test
+    public void toJsonBody_shouldMatchJsonObject() throws Exception {
+        subject.add("plain", "value");
+        subject.add("escaped", "\"quoted\" back\\slash /path\n\t\u0001");
+        subject.add("unicode", "caf\u00e9 \u20ac \ud83d\ude00");
+        subject.add("plain", "again");
+
+        final String body = new String(subject.toJsonBody(null), UTF_8);
+
+        final JSONObject expected = new JSONObject();
+        expected.put("plain", "value,again");
+        expected.put("escaped", "\"quoted\" back\\slash /path\n\t\u0001");
+        expected.put("unicode", "caf\u00e9 \u20ac \ud83d\ude00");
+        final JSONObject actual = new JSONObject(body);
+        assertThat(actual.length()).isEqualTo(expected.length());
+        assertThat(actual.getString("plain")).isEqualTo(expected.getString("plain"));
+        assertThat(actual.getString("escaped")).isEqualTo(expected.getString("escaped"));
+        assertThat(actual.getString("unicode")).isEqualTo(expected.getString("unicode"));
+        assertThat(body).contains("\"escaped\":\"\\\"quoted\\\" back\\\\slash \\/path\\n\\t\\u0001\"");
+    }
+
+    @Test
+    public void toJsonBody_withTemplateValues_shouldReplaceTemplates() throws Exception {
+        subject.add("udid", PlayServicesUrlRewriter.UDID_TEMPLATE);
+        subject.add("dnt", PlayServicesUrlRewriter.DO_NOT_TRACK_TEMPLATE);
+        subject.add("mid", PlayServicesUrlRewriter.MOPUB_ID_TEMPLATE);
+        subject.add("other", "x" + PlayServicesUrlRewriter.MOPUB_ID_TEMPLATE + "mp_tmpl_unknown");
+
+        final JSONObject body = new JSONObject(
+                new String(subject.toJsonBody(TEMPLATE_VALUES), UTF_8));
+
+        assertThat(body.getString("udid")).isEqualTo("ifa:advertising/id");
+        assertThat(body.getString("dnt")).isEqualTo("1");
+        assertThat(body.getString("mid")).isEqualTo("mopub id");
+        assertThat(body.getString("other")).isEqualTo("xmopub idmp_tmpl_unknown");
+    }
+
+    @Test
+    public void toJsonBody_withoutTemplateValues_shouldLeaveTemplates() throws Exception {
+        subject.add("udid", PlayServicesUrlRewriter.UDID_TEMPLATE);
+
+        final JSONObject body = new JSONObject(new String(subject.toJsonBody(null), UTF_8));
+
+        assertThat(body.getString("udid")).isEqualTo(PlayServicesUrlRewriter.UDID_TEMPLATE);
+    }
+
+    @Test
+    public void toMap_withTemplateValues_shouldReplaceTemplates() {
+        subject.add("udid", PlayServicesUrlRewriter.UDID_TEMPLATE);
+        subject.add("dnt", PlayServicesUrlRewriter.DO_NOT_TRACK_TEMPLATE);
+
+        final Map<String, String> result = subject.toMap(TEMPLATE_VALUES);
+
+        assertThat(result.get("udid")).isEqualTo("ifa:advertising/id");
+        assertThat(result.get("dnt")).isEqualTo("1");
+    }
+
+    @Test
+    public void toJsonBody_withNoParams_shouldBeEmptyObject() {
+        assertThat(new String(subject.toJsonBody(null), UTF_8)).isEqualTo("{}");
+    }
+}
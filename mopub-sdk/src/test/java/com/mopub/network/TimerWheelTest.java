@@ -0,0 +1,123 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class TimerWheelTest {
+    private static final long TICK_MILLIS = 10;
+    private static final int SLOT_COUNT = 4;
+
+    private List<String> ran;
+    private TimerWheel subject;
+
+    @Before
+    public void setUp() {
+        ran = new ArrayList<String>();
+        subject = new TimerWheel(new Handler(Looper.getMainLooper()), TICK_MILLIS, SLOT_COUNT);
+    }
+
+    @Test
+    public void schedule_shouldRunTasksInDeadlineOrderAfterTheirDelay() {
+        subject.schedule(record("b"), 20);
+        subject.schedule(record("a"), 10);
+        subject.schedule(record("c"), 30);
+
+        advanceBy(9);
+        assertThat(ran).isEmpty();
+
+        advanceBy(1);
+        assertThat(ran).containsExactly("a");
+
+        advanceBy(20);
+        assertThat(ran).containsExactly("a", "b", "c");
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void schedule_withDelayLongerThanOneTurn_shouldWaitForEnoughTurns() {
+        // The same slot as 20ms, three turns of the wheel later
+        subject.schedule(record("late"), 20 + 3 * SLOT_COUNT * TICK_MILLIS);
+        subject.schedule(record("early"), 20);
+
+        advanceBy(20);
+        assertThat(ran).containsExactly("early");
+
+        advanceBy(3 * SLOT_COUNT * TICK_MILLIS - 1);
+        assertThat(ran).containsExactly("early");
+
+        advanceBy(1);
+        assertThat(ran).containsExactly("early", "late");
+    }
+
+    @Test
+    public void schedule_withZeroDelay_shouldRunOnNextTick() {
+        subject.schedule(record("now"), 0);
+
+        assertThat(ran).isEmpty();
+        advanceBy(TICK_MILLIS);
+        assertThat(ran).containsExactly("now");
+    }
+
+    @Test
+    public void cancel_shouldKeepTaskFromRunning() {
+        final TimerWheel.Timeout first = subject.schedule(record("first"), 20);
+        final TimerWheel.Timeout second = subject.schedule(record("second"), 20);
+        subject.schedule(record("third"), 20);
+
+        assertThat(subject.cancel(second)).isTrue();
+        assertThat(subject.size()).isEqualTo(2);
+
+        advanceBy(20);
+
+        assertThat(ran).containsOnly("first", "third");
+        assertThat(subject.cancel(first)).isFalse();
+        assertThat(subject.cancel(second)).isFalse();
+    }
+
+    @Test
+    public void schedule_afterWheelWentIdle_shouldMeasureDelayFromNow() {
+        subject.schedule(record("a"), 10);
+        advanceBy(100);
+        assertThat(ran).containsExactly("a");
+
+        advanceBy(5);
+        subject.schedule(record("b"), 10);
+        advanceBy(9);
+        assertThat(ran).containsExactly("a");
+        advanceBy(1);
+        assertThat(ran).containsExactly("a", "b");
+    }
+
+    @NonNull
+    private Runnable record(@NonNull final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private static void advanceBy(final long millis) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,268 @@
+// Copyright 2018-2019 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.Request;
+import com.mopub.volley.VolleyError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mopub.common.VolleyRequestMatcher.isUrl;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class TrackingDispatcherTest {
+    private static final String URL = "https://tracking.example.com/imp?id=1";
+    private static final long STUB_TIMEOUT_MILLIS = 10000;
+
+    @Mock private MoPubRequestQueue mockRequestQueue;
+    @Mock private TrackingRequest.Listener mockListener;
+    @Mock private TrackingRequest.Listener mockListener2;
+
+    private Context context;
+    private TrackingDispatcher subject;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        Networking.setRequestQueueForTesting(mockRequestQueue);
+        subject = new TrackingDispatcher();
+    }
+
+    @After
+    public void tearDown() {
+        Networking.clearForTesting();
+    }
+
+    @Test
+    public void dispatch_shouldAddLowPriorityRequestToTrackingQueue() {
+        subject.dispatch(context, URL, null);
+
+        final TrackingRequest request = captureRequest(1);
+        assertThat(request.getUrl()).isEqualTo(URL);
+        assertThat(request.getPriority()).isEqualTo(Request.Priority.LOW);
+        assertThat(subject.getDispatchedCount()).isEqualTo(1);
+        assertThat(subject.getInFlightCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dispatch_withUrlInFlight_shouldCoalesceAndNotifyBothListeners() {
+        subject.dispatch(context, URL, mockListener);
+        subject.dispatch(context, URL, mockListener2);
+
+        final TrackingRequest request = captureRequest(1);
+        assertThat(subject.getCoalescedCount()).isEqualTo(1);
+
+        request.deliverResponse(null);
+
+        verify(mockListener).onResponse(URL);
+        verify(mockListener2).onResponse(URL);
+        assertThat(subject.getSucceededCount()).isEqualTo(1);
+        assertThat(subject.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dispatch_withUrlSentRecently_shouldNotSendAgain() {
+        subject.dispatch(context, URL, null);
+        captureRequest(1).deliverResponse(null);
+
+        subject.dispatch(context, URL, mockListener);
+
+        verify(mockRequestQueue, times(1)).add(any(TrackingRequest.class));
+        verify(mockListener).onResponse(URL);
+        assertThat(subject.getCoalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dispatch_withUrlSentBeforeCoalesceWindow_shouldSendAgain() {
+        subject.dispatch(context, URL, null);
+        captureRequest(1).deliverResponse(null);
+
+        SystemClock.sleep(TrackingDispatcher.COALESCE_WINDOW_MILLIS);
+        subject.dispatch(context, URL, null);
+
+        verify(mockRequestQueue, times(2)).add(argThat(isUrl(URL)));
+        assertThat(subject.getCoalescedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dispatch_afterFailure_shouldSendAgain() {
+        final VolleyError error = new VolleyError();
+        subject.dispatch(context, URL, mockListener);
+        captureRequest(1).deliverError(error);
+
+        subject.dispatch(context, URL, null);
+
+        verify(mockListener).onErrorResponse(error);
+        verify(mockRequestQueue, times(2)).add(argThat(isUrl(URL)));
+        assertThat(subject.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dispatch_withTooManyInFlight_shouldDropAndNotifyError() {
+        for (int i = 0; i < TrackingDispatcher.MAX_IN_FLIGHT; i++) {
+            subject.dispatch(context, URL + i, null);
+        }
+
+        subject.dispatch(context, URL, mockListener);
+
+        verify(mockRequestQueue, never()).add(argThat(isUrl(URL)));
+        verify(mockListener).onErrorResponse(any(MoPubNetworkError.class));
+        assertThat(subject.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dispatch_withLocalHttpServer_shouldReuseConnectionsAndCoalesceDuplicates()
+            throws Exception {
+        final StubHttpServer server = new StubHttpServer();
+        server.start();
+        Networking.clearForTesting();
+        final int urlCount = 40;
+        final int duplicateCount = 10;
+        try {
+            for (int i = 0; i < urlCount; i++) {
+                subject.dispatch(context, server.getUrl(i), null);
+                if (i < duplicateCount) {
+                    subject.dispatch(context, server.getUrl(i), null);
+                }
+            }
+
+            final long deadline = System.currentTimeMillis() + STUB_TIMEOUT_MILLIS;
+            while (subject.getSucceededCount() + subject.getFailedCount() < urlCount
+                    && System.currentTimeMillis() < deadline) {
+                ShadowLooper.runUiThreadTasks();
+                Thread.sleep(10);
+            }
+        } finally {
+            server.stop();
+        }
+
+        assertThat(subject.getSucceededCount()).isEqualTo(urlCount);
+        assertThat(subject.getCoalescedCount()).isEqualTo(duplicateCount);
+        assertThat(server.mRequestCount.get()).isEqualTo(urlCount);
+        // Each dispatcher thread keeps reusing its connection
+        assertThat(server.mConnectionCount.get())
+                .isLessThanOrEqualTo(Networking.TRACKING_THREAD_POOL_SIZE);
+    }
+
+    @NonNull
+    private TrackingRequest captureRequest(final int addCount) {
+        final ArgumentCaptor<TrackingRequest> captor =
+                ArgumentCaptor.forClass(TrackingRequest.class);
+        verify(mockRequestQueue, times(addCount)).add(captor.capture());
+        return captor.getValue();
+    }
+
+    /**
+     * Answers every request with an empty 200 response, keeping connections alive.
+     */
+    private static class StubHttpServer {
+        private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+        @NonNull private final ServerSocket mServerSocket;
+        @NonNull final AtomicInteger mConnectionCount = new AtomicInteger();
+        @NonNull final AtomicInteger mRequestCount = new AtomicInteger();
+
+        StubHttpServer() throws IOException {
+            mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        }
+
+        @NonNull
+        String getUrl(final int index) {
+            return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/track?i=" + index;
+        }
+
+        void start() {
+            final Thread acceptThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!mServerSocket.isClosed()) {
+                        try {
+                            final Socket socket = mServerSocket.accept();
+                            mConnectionCount.incrementAndGet();
+                            final Thread connectionThread = new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    serve(socket);
+                                }
+                            });
+                            connectionThread.setDaemon(true);
+                            connectionThread.start();
+                        } catch (IOException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        void stop() throws IOException {
+            mServerSocket.close();
+        }
+
+        private void serve(@NonNull final Socket socket) {
+            try {
+                final BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), US_ASCII));
+                final OutputStream output = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null) {
+                    if (requestLine.isEmpty()) {
+                        continue;
+                    }
+                    // Skip the headers. Tracking requests to other hosts have no body.
+                    String header;
+                    do {
+                        header = reader.readLine();
+                    } while (header != null && !header.isEmpty());
+
+                    mRequestCount.incrementAndGet();
+                    output.write(("HTTP/1.1 200 OK\r\n"
+                            + "Content-Length: 0\r\n"
+                            + "Connection: keep-alive\r\n\r\n").getBytes(US_ASCII));
+                    output.flush();
+                }
+            } catch (IOException e) {
+                // The client closed the connection
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}